@@ -0,0 +1,424 @@
+package org.totallyspies.evosim.cluster;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.net.StandardProtocolFamily;
+import java.net.UnixDomainSocketAddress;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import lombok.Getter;
+import org.totallyspies.evosim.entities.Species;
+import org.totallyspies.evosim.simulation.Partition;
+import org.totallyspies.evosim.utils.Configuration;
+import org.totallyspies.evosim.utils.EvosimException;
+
+/**
+ * Runs a world split between several engine processes. The coordinator gives each engine its
+ * region and configuration, then drives the ticks: every engine updates once, and the next tick
+ * only starts when all of them are done. Between two ticks the coordinator routes the ghosts of
+ * every border to the neighbouring regions, the meals of those ghosts back to the regions owning
+ * them and the entities crossing a border to their new region, shares what is left of the
+ * population caps of the species between the engines, and collects snapshots of the whole world.
+ *
+ * @author agent
+ */
+public final class ClusterCoordinator implements AutoCloseable {
+
+    /**
+     * Socket the engines connect to.
+     */
+    private final ServerSocketChannel server;
+
+    /**
+     * How the world is split between the engines.
+     */
+    @Getter
+    private final Partition partition;
+
+    /**
+     * Distance from the borders within which entities are sent as ghosts to the neighbours.
+     */
+    private final double haloDepth;
+
+    /**
+     * Maximum population of every species in the whole world.
+     */
+    private final int[] speciesMax;
+
+    /**
+     * Ticks between two snapshots, 0 for none.
+     */
+    private final int snapshotInterval;
+
+    /**
+     * Socket of each engine, by region.
+     */
+    private final Connection[] engines;
+
+    /**
+     * Last population of every species reported by each engine.
+     */
+    private final int[][] engineCounts;
+
+    /**
+     * Ghosts to send to each engine on the next tick.
+     */
+    private final List<List<Ghost>> ghosts;
+
+    /**
+     * Entities to send to each engine on the next tick.
+     */
+    private final List<List<Handoff>> arrivals;
+
+    /**
+     * Ghosts of the entities of each engine that ate in another engine, to feed on the next
+     * tick.
+     */
+    private final List<List<Ghost>> meals;
+
+    /**
+     * Number of ticks run.
+     */
+    @Getter
+    private long tickCount;
+
+    /**
+     * Number of entities that crossed a border.
+     */
+    @Getter
+    private long handoffCount;
+
+    /**
+     * Every entity of the world at the last snapshot.
+     */
+    @Getter
+    private volatile List<Ghost> lastSnapshot;
+
+    /**
+     * Opens the socket of the cluster. The world, the species and the depth of the halo come
+     * from the current configuration, which is sent to every engine.
+     *
+     * @param address             where the engines connect, a port of 0 picking any free port
+     * @param columns             number of regions in the horizontal axis
+     * @param rows                number of regions in the vertical axis
+     * @param newSnapshotInterval ticks between two snapshots, 0 for none
+     * @throws EvosimException if the socket cannot be opened or the configuration read
+     */
+    public ClusterCoordinator(final SocketAddress address, final int columns, final int rows,
+                              final int newSnapshotInterval) throws EvosimException {
+        final Configuration config = Configuration.getConfiguration();
+        final int gridSize = config.getGridSize();
+
+        this.partition = new Partition(
+            config.getMapSizeX() * gridSize, config.getMapSizeY() * gridSize, columns, rows
+        );
+        this.haloDepth =
+            Math.max(config.getEntitySensorsLength(), 2 * config.getEntityRadius());
+        this.speciesMax = config.getSpecies().stream().mapToInt(Species::getMaxNumber).toArray();
+        this.snapshotInterval = newSnapshotInterval;
+
+        this.engines = new Connection[this.partition.size()];
+        this.engineCounts = new int[this.partition.size()][this.speciesMax.length];
+        this.ghosts = new ArrayList<>();
+        this.arrivals = new ArrayList<>();
+        this.meals = new ArrayList<>();
+        for (int i = 0; i < this.partition.size(); ++i) {
+            this.ghosts.add(new ArrayList<>());
+            this.arrivals.add(new ArrayList<>());
+            this.meals.add(new ArrayList<>());
+        }
+        this.lastSnapshot = List.of();
+
+        try {
+            this.server = address instanceof UnixDomainSocketAddress
+                ? ServerSocketChannel.open(StandardProtocolFamily.UNIX)
+                : ServerSocketChannel.open();
+            this.server.bind(address);
+        } catch (IOException e) {
+            throw new EvosimException("Couldn't open the cluster at " + address + ".", e);
+        }
+    }
+
+    /**
+     * Runs a cluster on this machine, starting an engine process for every region.
+     *
+     * @param args the address of the coordinator, the number of columns and rows of regions, the
+     *             number of ticks to run, then the threads of each engine
+     * @throws Exception if the cluster cannot be run
+     */
+    public static void main(final String[] args) throws Exception {
+        final int threads = args.length > 4 ? Integer.parseInt(args[4]) : 1;
+
+        try (ClusterCoordinator coordinator = new ClusterCoordinator(
+            Connection.parseAddress(args[0]), Integer.parseInt(args[1]),
+            Integer.parseInt(args[2]), 0)) {
+            final List<Process> processes = coordinator.launchEngines(threads);
+            coordinator.acceptEngines();
+            coordinator.run(Long.parseLong(args[3]));
+            System.out.println(coordinator.getReport());
+            coordinator.close();
+
+            for (final Process process : processes) {
+                process.waitFor();
+            }
+        }
+    }
+
+    /**
+     * Gets the address the engines connect to.
+     *
+     * @return the address of the socket
+     * @throws EvosimException if the socket is closed
+     */
+    public String getAddress() throws EvosimException {
+        try {
+            final SocketAddress address = this.server.getLocalAddress();
+            if (address instanceof InetSocketAddress) {
+                final InetSocketAddress inet = (InetSocketAddress) address;
+                return inet.getHostString() + ":" + inet.getPort();
+            }
+            return "unix:" + address;
+        } catch (IOException e) {
+            throw new EvosimException("The cluster is closed.", e);
+        }
+    }
+
+    /**
+     * Starts an engine process on this machine for every region, with the same Java runtime
+     * and class path as this process.
+     *
+     * @param threads the threads of each engine
+     * @return the processes
+     * @throws EvosimException if a process cannot be started
+     */
+    public List<Process> launchEngines(final int threads) throws EvosimException {
+        final List<String> command = new ArrayList<>();
+        command.add(ProcessHandle.current().info().command().orElse("java"));
+
+        final String modulePath = System.getProperty("jdk.module.path");
+        if (modulePath != null && !modulePath.isEmpty()) {
+            command.addAll(List.of("-p", modulePath, "-m",
+                ClusterEngine.class.getModule().getName() + "/" + ClusterEngine.class.getName()));
+        } else {
+            command.addAll(List.of(
+                "-cp", System.getProperty("java.class.path"), ClusterEngine.class.getName()));
+        }
+        command.add(this.getAddress());
+        command.add(String.valueOf(threads));
+
+        final List<Process> processes = new ArrayList<>();
+        try {
+            for (int i = 0; i < this.engines.length; ++i) {
+                processes.add(new ProcessBuilder(command).inheritIO().start());
+            }
+        } catch (IOException e) {
+            processes.forEach(Process::destroy);
+            throw new EvosimException("Couldn't start the engines.", e);
+        }
+        return processes;
+    }
+
+    /**
+     * Waits for an engine to connect for every region, in order, and sets each of them up.
+     *
+     * @throws EvosimException if an engine cannot be set up
+     */
+    public void acceptEngines() throws EvosimException {
+        final String configurationText = Configuration.getConfiguration().getConfigurationText();
+
+        try {
+            for (int region = 0; region < this.engines.length; ++region) {
+                final Connection engine = new Connection(this.server.accept());
+                this.engines[region] = engine;
+
+                engine.out().writeInt(Connection.SETUP);
+                engine.out().writeInt(region);
+                engine.out().writeInt(this.partition.getColumns());
+                engine.out().writeInt(this.partition.getRows());
+                engine.out().writeDouble(this.haloDepth);
+                engine.writeString(configurationText);
+                engine.flush();
+            }
+
+            // engines answer the setup with their initial population and border
+            this.collect(false);
+        } catch (IOException e) {
+            throw new EvosimException("Couldn't set up the engines.", e);
+        }
+    }
+
+    /**
+     * Runs ticks on every engine, waiting for all of them between two ticks.
+     *
+     * @param ticks the number of ticks
+     * @throws EvosimException if an engine is lost
+     */
+    public void run(final long ticks) throws EvosimException {
+        try {
+            for (long i = 0; i < ticks; ++i) {
+                this.step();
+            }
+        } catch (IOException e) {
+            throw new EvosimException("Lost an engine.", e);
+        }
+    }
+
+    /**
+     * Gets the population of every species in the whole world, as of the last tick.
+     *
+     * @return the population of each species, by tag
+     */
+    public int[] getPopulation() {
+        final int[] population = new int[this.speciesMax.length];
+        for (int region = 0; region < this.engines.length; ++region) {
+            for (int tag = 0; tag < population.length; ++tag) {
+                population[tag] += this.engineCounts[region][tag];
+            }
+            for (final Handoff arrival : this.arrivals.get(region)) {
+                ++population[arrival.getSpeciesTag()];
+            }
+        }
+        return population;
+    }
+
+    /**
+     * Describes the state of the cluster.
+     *
+     * @return a line describing the cluster
+     */
+    public String getReport() {
+        final StringBuilder population = new StringBuilder();
+        for (final int count : this.getPopulation()) {
+            population.append(population.length() == 0 ? "" : "/").append(count);
+        }
+
+        return String.format("%d engines, %d ticks, population %s, %d handoffs",
+            this.engines.length, this.tickCount, population, this.handoffCount);
+    }
+
+    /**
+     * Stops every engine and closes the socket of the cluster.
+     *
+     * @throws EvosimException if the socket cannot be closed
+     */
+    @Override
+    public void close() throws EvosimException {
+        if (!this.server.isOpen()) {
+            return;
+        }
+
+        try {
+            for (final Connection engine : this.engines) {
+                if (engine != null) {
+                    engine.out().writeInt(Connection.STOP);
+                    engine.flush();
+                    engine.close();
+                }
+            }
+
+            final SocketAddress address = this.server.getLocalAddress();
+            this.server.close();
+            if (address instanceof UnixDomainSocketAddress) {
+                Files.deleteIfExists(((UnixDomainSocketAddress) address).getPath());
+            }
+        } catch (IOException e) {
+            throw new EvosimException("Couldn't close the cluster.", e);
+        }
+    }
+
+    private void step() throws IOException {
+        final boolean snapshot =
+            this.snapshotInterval > 0 && (this.tickCount + 1) % this.snapshotInterval == 0;
+        final int[][] caps = this.shareCaps();
+
+        for (int region = 0; region < this.engines.length; ++region) {
+            final Connection engine = this.engines[region];
+
+            engine.out().writeInt(Connection.TICK);
+            engine.out().writeBoolean(snapshot);
+            engine.writeInts(caps[region]);
+            engine.writeGhosts(this.ghosts.get(region));
+            engine.writeHandoffs(this.arrivals.get(region));
+            engine.writeGhosts(this.meals.get(region));
+            engine.flush();
+
+            this.ghosts.get(region).clear();
+            this.arrivals.get(region).clear();
+            this.meals.get(region).clear();
+        }
+
+        this.collect(snapshot);
+        ++this.tickCount;
+    }
+
+    /**
+     * Reads the answer of every engine and routes its ghosts, departures and meals. A ghost
+     * stands where its entity was when it was sent, inside the region owning it.
+     */
+    private void collect(final boolean snapshot) throws IOException {
+        final List<Ghost> world = new ArrayList<>();
+
+        for (int region = 0; region < this.engines.length; ++region) {
+            final Connection engine = this.engines[region];
+            engine.readKind(Connection.DONE);
+
+            this.engineCounts[region] = engine.readInts();
+
+            for (final Ghost ghost : engine.readGhosts()) {
+                for (int other = 0; other < this.engines.length; ++other) {
+                    if (other != region && this.partition.isNear(
+                        other, ghost.getX(), ghost.getY(), this.haloDepth + ghost.getRadius())) {
+                        this.ghosts.get(other).add(ghost);
+                    }
+                }
+            }
+
+            for (final Handoff departure : engine.readHandoffs()) {
+                this.arrivals.get(this.partition.owner(departure.getX(), departure.getY()))
+                    .add(departure);
+                ++this.handoffCount;
+            }
+
+            for (final Ghost meal : engine.readGhosts()) {
+                this.meals.get(this.partition.owner(meal.getX(), meal.getY())).add(meal);
+            }
+
+            world.addAll(engine.readGhosts());
+        }
+
+        if (snapshot) {
+            this.lastSnapshot = world;
+        }
+    }
+
+    /**
+     * Shares the room left under the cap of every species evenly between the engines. Each
+     * engine may reach its own population, plus its arrivals, plus its share.
+     */
+    private int[][] shareCaps() {
+        final int[] population = this.getPopulation();
+        final int[][] caps = new int[this.engines.length][this.speciesMax.length];
+
+        for (int tag = 0; tag < this.speciesMax.length; ++tag) {
+            final int room = Math.max(0, this.speciesMax[tag] - population[tag]);
+
+            for (int region = 0; region < this.engines.length; ++region) {
+                int local = this.engineCounts[region][tag];
+                for (final Handoff arrival : this.arrivals.get(region)) {
+                    if (arrival.getSpeciesTag() == tag) {
+                        ++local;
+                    }
+                }
+
+                final int share =
+                    room / this.engines.length + (region < room % this.engines.length ? 1 : 0);
+                caps[region][tag] = local + share;
+            }
+        }
+
+        return caps;
+    }
+}
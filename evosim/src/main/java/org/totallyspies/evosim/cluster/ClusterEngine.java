@@ -0,0 +1,354 @@
+package org.totallyspies.evosim.cluster;
+
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.net.SocketAddress;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import org.totallyspies.evosim.entities.Ecosystem;
+import org.totallyspies.evosim.entities.Entity;
+import org.totallyspies.evosim.geometry.Point;
+import org.totallyspies.evosim.simulation.Partition;
+import org.totallyspies.evosim.simulation.Simulation;
+import org.totallyspies.evosim.utils.Configuration;
+import org.totallyspies.evosim.utils.EvosimException;
+
+/**
+ * A process of a cluster, owning the entities of a single region of the world. The engine runs a
+ * simulation covering the whole world but only keeps the entities inside its region: on every
+ * tick it senses the ghosts sent by its neighbours, updates once, then hands the entities that
+ * crossed its borders to the coordinator along with the ghosts of its own border.
+ * <p>
+ * Only the engine owning an entity decides whether it dies: ghosts are never eaten, and an
+ * entity eaten by a ghost is reported to the coordinator, which routes the meal to the engine
+ * owning the eater. The eater is fed on the next tick, unless it left the region meanwhile.
+ * </p>
+ *
+ * @author agent
+ */
+public final class ClusterEngine implements AutoCloseable {
+
+    /**
+     * Socket to the coordinator.
+     */
+    private final Connection connection;
+
+    /**
+     * Index of the region of this engine.
+     */
+    private final int region;
+
+    /**
+     * How the world is split between the engines.
+     */
+    private final Partition partition;
+
+    /**
+     * Distance from the borders within which entities are sent as ghosts to the neighbours.
+     */
+    private final double haloDepth;
+
+    /**
+     * Configuration sent by the coordinator.
+     */
+    private final Configuration configuration;
+
+    /**
+     * Simulation of the region.
+     */
+    private final Simulation simulation;
+
+    /**
+     * Entities standing in for the ghosts of the neighbours, reused from tick to tick, by
+     * species.
+     */
+    private final List<List<Entity>> ghostPool;
+
+    /**
+     * Ghost each entity of the pool stands in for during the current tick.
+     */
+    private final Map<Entity, Ghost> ghostOrigins;
+
+    /**
+     * Joins a cluster and populates the region given by the coordinator.
+     *
+     * @param coordinator   address of the coordinator
+     * @param workerThreads number of threads of the simulation
+     * @throws EvosimException if the coordinator cannot be reached or the region cannot be
+     *                         populated
+     */
+    public ClusterEngine(final SocketAddress coordinator, final int workerThreads)
+        throws EvosimException {
+        final String configurationText;
+        final int columns;
+        final int rows;
+
+        try {
+            this.connection = new Connection(SocketChannel.open(coordinator));
+            this.connection.readKind(Connection.SETUP);
+
+            final DataInputStream in = this.connection.in();
+            this.region = in.readInt();
+            columns = in.readInt();
+            rows = in.readInt();
+            this.haloDepth = in.readDouble();
+            configurationText = this.connection.readString();
+        } catch (IOException e) {
+            throw new EvosimException("Couldn't join the cluster at " + coordinator + ".", e);
+        }
+
+        this.configuration = Configuration.getConfiguration().copy();
+        this.configuration.loadConfigurationText(configurationText);
+
+        Configuration.setThreadConfiguration(this.configuration);
+        try {
+            final int gridSize = this.configuration.getGridSize();
+            this.partition = new Partition(
+                this.configuration.getMapSizeX() * gridSize,
+                this.configuration.getMapSizeY() * gridSize,
+                columns,
+                rows
+            );
+            this.simulation = new Simulation(
+                this.configuration.getMapSizeX(), this.configuration.getMapSizeY(), gridSize,
+                false, workerThreads
+            );
+            this.populateRegion();
+        } finally {
+            Configuration.setThreadConfiguration(null);
+        }
+
+        this.ghostPool = new ArrayList<>();
+        for (int tag = 0; tag < this.simulation.getEcosystem().size(); ++tag) {
+            this.ghostPool.add(new ArrayList<>());
+        }
+        this.ghostOrigins = new IdentityHashMap<>();
+
+        try {
+            this.reply(false);
+        } catch (IOException e) {
+            throw new EvosimException("Lost the coordinator.", e);
+        }
+    }
+
+    /**
+     * Joins the cluster at the address given as first argument and runs until the coordinator
+     * stops it.
+     *
+     * @param args the address of the coordinator, then the number of threads of the engine
+     * @throws EvosimException if the cluster cannot be joined
+     */
+    public static void main(final String[] args) throws EvosimException {
+        final int workerThreads = args.length > 1
+            ? Integer.parseInt(args[1]) : Runtime.getRuntime().availableProcessors();
+
+        try (ClusterEngine engine =
+                 new ClusterEngine(Connection.parseAddress(args[0]), workerThreads)) {
+            engine.run();
+        }
+    }
+
+    /**
+     * Updates the region on every tick sent by the coordinator, until it stops the cluster.
+     *
+     * @throws EvosimException if the coordinator is lost or an entity cannot be created
+     */
+    public void run() throws EvosimException {
+        Configuration.setThreadConfiguration(this.configuration);
+        try {
+            while (this.connection.readKind(Connection.TICK, Connection.STOP) == Connection.TICK) {
+                this.step();
+            }
+        } catch (IOException e) {
+            throw new EvosimException("Lost the coordinator.", e);
+        } finally {
+            Configuration.setThreadConfiguration(null);
+        }
+    }
+
+    @Override
+    public void close() throws EvosimException {
+        this.simulation.shutdown();
+        try {
+            this.connection.close();
+        } catch (IOException e) {
+            throw new EvosimException("Couldn't leave the cluster.", e);
+        }
+    }
+
+    private void step() throws IOException, EvosimException {
+        final boolean snapshot = this.connection.in().readBoolean();
+        final int[] caps = this.connection.readInts();
+        final List<Ghost> ghosts = this.connection.readGhosts();
+        final List<Handoff> arrivals = this.connection.readHandoffs();
+        final List<Ghost> meals = this.connection.readGhosts();
+
+        for (int tag = 0; tag < caps.length; ++tag) {
+            this.simulation.setSpeciesCap(tag, caps[tag]);
+        }
+        for (final Handoff arrival : arrivals) {
+            this.simulation.addEntity(arrival.toEntity(this.simulation));
+        }
+        this.feedEaters(meals);
+        this.simulation.setGhosts(this.ghostEntities(ghosts));
+
+        this.simulation.update();
+        this.reply(snapshot);
+    }
+
+    /**
+     * Sends the species counts, the ghosts of the border, the entities that left the region, the
+     * meals of the ghosts of other regions and the snapshot of the region if asked for. Leaving
+     * entities are removed from the simulation.
+     */
+    private void reply(final boolean snapshot) throws IOException {
+        final List<Entity> leaving = new ArrayList<>();
+        final List<Ghost> border = new ArrayList<>();
+        final List<Ghost> everyone = new ArrayList<>();
+
+        for (int x = 0; x < this.simulation.getMapSizeX(); ++x) {
+            for (int y = 0; y < this.simulation.getMapSizeY(); ++y) {
+                this.simulation.forEachGridEntities(x, y, entity -> {
+                    if (entity.isDead()) {
+                        return;
+                    }
+
+                    final double entityX = entity.getBodyCenter().getX();
+                    final double entityY = entity.getBodyCenter().getY();
+
+                    if (this.partition.owner(entityX, entityY) != this.region) {
+                        leaving.add(entity);
+                    } else if (this.partition.isOnBorder(
+                        this.region, entityX, entityY, this.haloDepth)) {
+                        border.add(Ghost.of(entity));
+                    }
+
+                    if (snapshot) {
+                        everyone.add(Ghost.of(entity));
+                    }
+                });
+            }
+        }
+
+        final List<Ghost> meals = new ArrayList<>();
+        for (Entity eater = this.simulation.pollGhostMeal(); eater != null;
+             eater = this.simulation.pollGhostMeal()) {
+            meals.add(this.ghostOrigins.get(eater));
+        }
+
+        final List<Handoff> departures = new ArrayList<>(leaving.size());
+        for (final Entity entity : leaving) {
+            departures.add(Handoff.of(entity));
+            this.simulation.removeEntity(entity);
+        }
+
+        final int[] counts = new int[this.simulation.getEcosystem().size()];
+        for (int tag = 0; tag < counts.length; ++tag) {
+            counts[tag] = this.simulation.getSpeciesCount(tag);
+        }
+
+        this.connection.out().writeInt(Connection.DONE);
+        this.connection.writeInts(counts);
+        this.connection.writeGhosts(border);
+        this.connection.writeHandoffs(departures);
+        this.connection.writeGhosts(meals);
+        this.connection.writeGhosts(everyone);
+        this.connection.flush();
+    }
+
+    /**
+     * Feeds the entities of the region whose ghosts ate in another region, once per meal.
+     */
+    private void feedEaters(final List<Ghost> meals) {
+        if (meals.isEmpty()) {
+            return;
+        }
+
+        final Map<Long, Integer> mealCounts = new HashMap<>();
+        for (final Ghost meal : meals) {
+            mealCounts.merge(meal.getId(), 1, Integer::sum);
+        }
+
+        for (int x = 0; x < this.simulation.getMapSizeX(); ++x) {
+            for (int y = 0; y < this.simulation.getMapSizeY(); ++y) {
+                this.simulation.forEachGridEntities(x, y, entity -> {
+                    final Integer count = mealCounts.get(entity.getId());
+                    for (int i = 0; count != null && i < count; ++i) {
+                        entity.feed();
+                    }
+                });
+            }
+        }
+    }
+
+    /**
+     * Places an entity of the ghost pool on every ghost, creating entities as needed. Pooled
+     * entities are brought back to life in case they died while standing for a ghost.
+     */
+    private List<Entity> ghostEntities(final List<Ghost> ghosts) throws EvosimException {
+        final Ecosystem ecosystem = this.simulation.getEcosystem();
+        final int[] used = new int[ecosystem.size()];
+        final List<Entity> entities = new ArrayList<>(ghosts.size());
+        this.ghostOrigins.clear();
+
+        for (final Ghost ghost : ghosts) {
+            final int tag = ghost.getSpeciesTag();
+            final List<Entity> pool = this.ghostPool.get(tag);
+            final Entity entity;
+
+            if (used[tag] < pool.size()) {
+                entity = pool.get(used[tag]);
+                entity.getBodyCenter().setX(ghost.getX());
+                entity.getBodyCenter().setY(ghost.getY());
+                entity.setDead(false);
+            } else {
+                entity = ecosystem.create(
+                    tag, this.simulation, 0, new Point(ghost.getX(), ghost.getY()), 0
+                );
+                entity.setGhost(true);
+                pool.add(entity);
+            }
+
+            ++used[tag];
+            entities.add(entity);
+            this.ghostOrigins.put(entity, ghost);
+        }
+
+        return entities;
+    }
+
+    /**
+     * Creates the share of the initial population of every species that falls in the region.
+     */
+    private void populateRegion() throws EvosimException {
+        final Ecosystem ecosystem = this.simulation.getEcosystem();
+        final double share = 1.0 / this.partition.size();
+        final double minSpeed = this.configuration.getEntityMinSpeed();
+        final double maxSpeed = this.configuration.getEntityMaxSpeed();
+        final Random random = this.simulation.getRandom();
+
+        for (int tag = 0; tag < ecosystem.size(); ++tag) {
+            final long population =
+                Math.round(ecosystem.getSpecies(tag).getInitialPopulation() * share);
+
+            for (long i = 0; i < population; ++i) {
+                final Point position = new Point(
+                    random.nextDouble(
+                        this.partition.minX(this.region), this.partition.maxX(this.region)),
+                    random.nextDouble(
+                        this.partition.minY(this.region), this.partition.maxY(this.region))
+                );
+
+                this.simulation.addEntity(ecosystem.create(
+                    tag, this.simulation, random.nextDouble(minSpeed, maxSpeed), position,
+                    random.nextDouble(0, 2 * Math.PI)
+                ));
+            }
+        }
+    }
+}
@@ -0,0 +1,190 @@
+package org.totallyspies.evosim.cluster;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.net.UnixDomainSocketAddress;
+import java.nio.channels.Channels;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A socket between the coordinator and an engine of a cluster, with the messages they exchange.
+ * Messages start with their kind, and lists with their length.
+ *
+ * @author agent
+ */
+final class Connection implements AutoCloseable {
+
+    /**
+     * Sent once by the coordinator: the region of the engine, the partition, the depth of the
+     * halo and the configuration.
+     */
+    static final int SETUP = 0;
+
+    /**
+     * Sent by the coordinator on every tick: whether a snapshot is wanted, the species caps, the
+     * ghosts near the region and the entities arriving in it.
+     */
+    static final int TICK = 1;
+
+    /**
+     * Sent by an engine after every tick: the species counts, the ghosts of its border, the
+     * entities leaving its region and the snapshot, if asked for.
+     */
+    static final int DONE = 2;
+
+    /**
+     * Sent by the coordinator to end the run.
+     */
+    static final int STOP = 3;
+
+    /**
+     * Prefix of the addresses of Unix-domain sockets.
+     */
+    private static final String UNIX_PREFIX = "unix:";
+
+    /**
+     * The socket.
+     */
+    private final SocketChannel channel;
+
+    /**
+     * Stream of the messages received.
+     */
+    private final DataInputStream in;
+
+    /**
+     * Stream of the messages sent.
+     */
+    private final DataOutputStream out;
+
+    /**
+     * Wraps a connected socket.
+     *
+     * @param newChannel the socket, in blocking mode
+     */
+    Connection(final SocketChannel newChannel) {
+        this.channel = newChannel;
+        this.in = new DataInputStream(new BufferedInputStream(Channels.newInputStream(newChannel)));
+        this.out =
+            new DataOutputStream(new BufferedOutputStream(Channels.newOutputStream(newChannel)));
+    }
+
+    /**
+     * Parses an address, either {@code unix:<path>} for a Unix-domain socket or
+     * {@code <host>:<port>} for a TCP socket.
+     *
+     * @param address the address
+     * @return the socket address
+     */
+    static SocketAddress parseAddress(final String address) {
+        if (address.startsWith(UNIX_PREFIX)) {
+            return UnixDomainSocketAddress.of(address.substring(UNIX_PREFIX.length()));
+        }
+
+        final int colon = address.lastIndexOf(':');
+        return new InetSocketAddress(
+            address.substring(0, colon), Integer.parseInt(address.substring(colon + 1))
+        );
+    }
+
+    DataInputStream in() {
+        return this.in;
+    }
+
+    DataOutputStream out() {
+        return this.out;
+    }
+
+    /**
+     * Reads the kind of the next message and checks it.
+     *
+     * @param expected the kinds allowed
+     * @return the kind of the message
+     * @throws IOException if the stream cannot be read or the kind is unexpected
+     */
+    int readKind(final int... expected) throws IOException {
+        final int kind = this.in.readInt();
+        for (final int allowed : expected) {
+            if (kind == allowed) {
+                return kind;
+            }
+        }
+        throw new IOException("Unexpected message " + kind);
+    }
+
+    void writeString(final String value) throws IOException {
+        final byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        this.out.writeInt(bytes.length);
+        this.out.write(bytes);
+    }
+
+    String readString() throws IOException {
+        final byte[] bytes = new byte[this.in.readInt()];
+        this.in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    void writeInts(final int[] values) throws IOException {
+        this.out.writeInt(values.length);
+        for (final int value : values) {
+            this.out.writeInt(value);
+        }
+    }
+
+    int[] readInts() throws IOException {
+        final int[] values = new int[this.in.readInt()];
+        for (int i = 0; i < values.length; ++i) {
+            values[i] = this.in.readInt();
+        }
+        return values;
+    }
+
+    void writeGhosts(final List<Ghost> ghosts) throws IOException {
+        this.out.writeInt(ghosts.size());
+        for (final Ghost ghost : ghosts) {
+            ghost.write(this.out);
+        }
+    }
+
+    List<Ghost> readGhosts() throws IOException {
+        final int count = this.in.readInt();
+        final List<Ghost> ghosts = new ArrayList<>(count);
+        for (int i = 0; i < count; ++i) {
+            ghosts.add(Ghost.read(this.in));
+        }
+        return ghosts;
+    }
+
+    void writeHandoffs(final List<Handoff> handoffs) throws IOException {
+        this.out.writeInt(handoffs.size());
+        for (final Handoff handoff : handoffs) {
+            handoff.write(this.out);
+        }
+    }
+
+    List<Handoff> readHandoffs() throws IOException {
+        final int count = this.in.readInt();
+        final List<Handoff> handoffs = new ArrayList<>(count);
+        for (int i = 0; i < count; ++i) {
+            handoffs.add(Handoff.read(this.in));
+        }
+        return handoffs;
+    }
+
+    void flush() throws IOException {
+        this.out.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+        this.channel.close();
+    }
+}
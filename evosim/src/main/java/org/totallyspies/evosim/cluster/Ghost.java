@@ -0,0 +1,87 @@
+package org.totallyspies.evosim.cluster;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import org.totallyspies.evosim.entities.Entity;
+
+/**
+ * What another engine needs to know of an entity to sense it: its species and its body, and its
+ * identifier to report what it ate back to the engine owning it.
+ *
+ * @author agent
+ */
+@Getter
+@AllArgsConstructor
+public final class Ghost {
+
+    /**
+     * Identifier of the entity.
+     */
+    private final long id;
+
+    /**
+     * Tag of the species of the entity.
+     */
+    private final int speciesTag;
+
+    /**
+     * X position of the entity.
+     */
+    private final double x;
+
+    /**
+     * Y position of the entity.
+     */
+    private final double y;
+
+    /**
+     * Radius of the body of the entity.
+     */
+    private final double radius;
+
+    /**
+     * Describes an entity.
+     *
+     * @param entity the entity
+     * @return the ghost of the entity
+     */
+    public static Ghost of(final Entity entity) {
+        return new Ghost(
+            entity.getId(),
+            entity.getSpeciesTag(),
+            entity.getBodyCenter().getX(),
+            entity.getBodyCenter().getY(),
+            entity.getBody().getRadius()
+        );
+    }
+
+    /**
+     * Writes the ghost to a stream.
+     *
+     * @param out the stream
+     * @throws IOException if the stream cannot be written
+     */
+    public void write(final DataOutput out) throws IOException {
+        out.writeLong(this.id);
+        out.writeInt(this.speciesTag);
+        out.writeDouble(this.x);
+        out.writeDouble(this.y);
+        out.writeDouble(this.radius);
+    }
+
+    /**
+     * Reads a ghost written by {@link #write(DataOutput)}.
+     *
+     * @param in the stream
+     * @return the ghost
+     * @throws IOException if the stream cannot be read
+     */
+    public static Ghost read(final DataInput in) throws IOException {
+        return new Ghost(
+            in.readLong(), in.readInt(), in.readDouble(), in.readDouble(), in.readDouble()
+        );
+    }
+}
@@ -0,0 +1,148 @@
+package org.totallyspies.evosim.cluster;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import org.totallyspies.evosim.entities.Entity;
+import org.totallyspies.evosim.geometry.Point;
+import org.totallyspies.evosim.simulation.Simulation;
+import org.totallyspies.evosim.utils.EvosimException;
+
+/**
+ * Everything needed to move a living entity from one engine to another: where it is, how much
+ * energy it has and its genome.
+ *
+ * @author agent
+ */
+@Getter
+@AllArgsConstructor
+public final class Handoff {
+
+    /**
+     * Tag of the species of the entity.
+     */
+    private final int speciesTag;
+
+    /**
+     * X position of the entity.
+     */
+    private final double x;
+
+    /**
+     * Y position of the entity.
+     */
+    private final double y;
+
+    /**
+     * Direction the entity is facing in radians.
+     */
+    private final double directionAngleInRadians;
+
+    /**
+     * Energy of the entity.
+     */
+    private final double energy;
+
+    /**
+     * Split energy of the entity.
+     */
+    private final double splitEnergy;
+
+    /**
+     * Number of children of the entity.
+     */
+    private final int childCount;
+
+    /**
+     * Genome of the entity, as given by {@link Entity#toGenome()}.
+     */
+    private final double[] genome;
+
+    /**
+     * Describes an entity leaving its engine.
+     *
+     * @param entity the entity
+     * @return the handoff of the entity
+     */
+    public static Handoff of(final Entity entity) {
+        return new Handoff(
+            entity.getSpeciesTag(),
+            entity.getBodyCenter().getX(),
+            entity.getBodyCenter().getY(),
+            entity.getDirectionAngleInRadians(),
+            entity.getEnergy(),
+            entity.getSplitEnergy(),
+            entity.getChildCount(),
+            entity.toGenome()
+        );
+    }
+
+    /**
+     * Recreates the entity in the simulation it arrives in. The entity is not added to the
+     * simulation.
+     *
+     * @param simulation the simulation of the entity
+     * @return the entity
+     * @throws EvosimException if the entity cannot be created
+     */
+    public Entity toEntity(final Simulation simulation) throws EvosimException {
+        final Entity entity = simulation.getEcosystem().create(
+            this.speciesTag,
+            simulation,
+            this.genome[0],
+            new Point(this.x, this.y),
+            this.directionAngleInRadians
+        );
+
+        entity.applyGenome(this.genome);
+        entity.setEnergy(this.energy);
+        entity.setSplitEnergy(this.splitEnergy);
+        entity.setChildCount(this.childCount);
+        return entity;
+    }
+
+    /**
+     * Writes the handoff to a stream.
+     *
+     * @param out the stream
+     * @throws IOException if the stream cannot be written
+     */
+    public void write(final DataOutput out) throws IOException {
+        out.writeInt(this.speciesTag);
+        out.writeDouble(this.x);
+        out.writeDouble(this.y);
+        out.writeDouble(this.directionAngleInRadians);
+        out.writeDouble(this.energy);
+        out.writeDouble(this.splitEnergy);
+        out.writeInt(this.childCount);
+        out.writeInt(this.genome.length);
+        for (final double gene : this.genome) {
+            out.writeDouble(gene);
+        }
+    }
+
+    /**
+     * Reads a handoff written by {@link #write(DataOutput)}.
+     *
+     * @param in the stream
+     * @return the handoff
+     * @throws IOException if the stream cannot be read
+     */
+    public static Handoff read(final DataInput in) throws IOException {
+        final int speciesTag = in.readInt();
+        final double x = in.readDouble();
+        final double y = in.readDouble();
+        final double angle = in.readDouble();
+        final double energy = in.readDouble();
+        final double splitEnergy = in.readDouble();
+        final int childCount = in.readInt();
+        final double[] genome = new double[in.readInt()];
+        for (int i = 0; i < genome.length; ++i) {
+            genome[i] = in.readDouble();
+        }
+
+        return new Handoff(speciesTag, x, y, angle, energy, splitEnergy, childCount, genome);
+    }
+}
@@ -0,0 +1,175 @@
+package org.totallyspies.evosim.entities;
+
+import java.util.List;
+import javafx.scene.paint.Color;
+import org.totallyspies.evosim.geometry.Point;
+import org.totallyspies.evosim.simulation.Simulation;
+import org.totallyspies.evosim.utils.EvosimException;
+
+/**
+ * The species living in a simulation and who eats whom. Species are referred to by a small
+ * integer tag, their index in the ecosystem, so that the update loops can look up their rules in
+ * arrays instead of dispatching on the class of each entity.
+ * <p>
+ * The first two species are always the prey and the predators, backed by the {@link Prey} and
+ * {@link Predator} classes. Every other species is backed by {@link Organism}.
+ * </p>
+ *
+ * @author agent
+ */
+public final class Ecosystem {
+
+    /**
+     * Tag of the prey species.
+     */
+    public static final int PREY_TAG = 0;
+
+    /**
+     * Tag of the predator species.
+     */
+    public static final int PREDATOR_TAG = 1;
+
+    /**
+     * Most species an ecosystem may hold, since sets of species are bits of an {@code int}.
+     */
+    public static final int MAX_SPECIES = Integer.SIZE;
+
+    /**
+     * Species of the ecosystem, indexed by tag.
+     */
+    private final Species[] species;
+
+    /**
+     * Body colour of each species, indexed by tag.
+     */
+    private final Color[] colours;
+
+    /**
+     * Whether the species of the first index eats the species of the second index.
+     */
+    private final boolean[][] eats;
+
+    /**
+     * Whether each species eats any other species.
+     */
+    private final boolean[] hunting;
+
+    /**
+     * Constructs an ecosystem.
+     *
+     * @param newSpecies   the species, the first two being the prey and the predators, at most
+     *                     {@link #MAX_SPECIES} of them
+     * @param interactions pairs of species names, the first of each pair eating the second
+     */
+    public Ecosystem(final List<Species> newSpecies, final List<List<String>> interactions) {
+        if (newSpecies.size() <= PREDATOR_TAG) {
+            throw new IllegalArgumentException("An ecosystem needs prey and predators");
+        }
+        if (newSpecies.size() > MAX_SPECIES) {
+            throw new IllegalArgumentException(
+                "An ecosystem holds at most " + MAX_SPECIES + " species");
+        }
+
+        this.species = newSpecies.toArray(new Species[0]);
+        this.colours = new Color[this.species.length];
+        this.eats = new boolean[this.species.length][this.species.length];
+        this.hunting = new boolean[this.species.length];
+
+        for (int tag = 0; tag < this.species.length; ++tag) {
+            this.colours[tag] = Color.web(this.species[tag].getColour());
+        }
+
+        for (final List<String> interaction : interactions) {
+            final int eater = this.getTag(interaction.get(0));
+            this.eats[eater][this.getTag(interaction.get(1))] = true;
+            this.hunting[eater] = true;
+        }
+    }
+
+    /**
+     * Gets the number of species.
+     *
+     * @return the number of species
+     */
+    public int size() {
+        return this.species.length;
+    }
+
+    /**
+     * Gets the species of a tag.
+     *
+     * @param tag the tag of the species
+     * @return the species
+     */
+    public Species getSpecies(final int tag) {
+        return this.species[tag];
+    }
+
+    /**
+     * Gets the body colour of a species.
+     *
+     * @param tag the tag of the species
+     * @return the body colour
+     */
+    public Color getColour(final int tag) {
+        return this.colours[tag];
+    }
+
+    /**
+     * Tests if a species eats another.
+     *
+     * @param eater the tag of the eating species
+     * @param eaten the tag of the eaten species
+     * @return if the first species eats the second
+     */
+    public boolean eats(final int eater, final int eaten) {
+        return this.eats[eater][eaten];
+    }
+
+    /**
+     * Tests if a species eats any other species.
+     *
+     * @param tag the tag of the species
+     * @return if the species hunts
+     */
+    public boolean isHunting(final int tag) {
+        return this.hunting[tag];
+    }
+
+    /**
+     * Gets the tag of a species from its name.
+     *
+     * @param name the name of the species
+     * @return the tag of the species
+     */
+    public int getTag(final String name) {
+        for (int tag = 0; tag < this.species.length; ++tag) {
+            if (this.species[tag].getName().equals(name)) {
+                return tag;
+            }
+        }
+
+        throw new IllegalArgumentException("Unknown species: " + name);
+    }
+
+    /**
+     * Creates a new member of a species.
+     *
+     * @param tag                    the tag of the species
+     * @param simulation             the simulation of the entity
+     * @param speed                  the speed of the entity
+     * @param position               the position of the entity
+     * @param rotationAngleInRadians the rotation angle of the entity
+     * @return the new entity
+     * @throws EvosimException if the brain of the entity cannot be created
+     */
+    public Entity create(final int tag, final Simulation simulation, final double speed,
+                         final Point position, final double rotationAngleInRadians)
+        throws EvosimException {
+        return switch (tag) {
+            case PREY_TAG -> new Prey(simulation, speed, position, rotationAngleInRadians);
+            case PREDATOR_TAG -> new Predator(simulation, speed, position, rotationAngleInRadians);
+            default -> new Organism(tag, simulation, speed, position, rotationAngleInRadians);
+        };
+    }
+}
@@ -14,6 +14,7 @@ import org.totallyspies.evosim.geometry.Point;
 import org.totallyspies.evosim.math.Formulas;
 import org.totallyspies.evosim.neuralnetwork.NeuralNetwork;
 import org.totallyspies.evosim.neuralnetwork.Neuron;
+import org.totallyspies.evosim.simulation.LineageStore;
 import org.totallyspies.evosim.simulation.Simulation;
 import org.totallyspies.evosim.utils.Configuration;
 import org.totallyspies.evosim.utils.EvosimException;
@@ -21,11 +22,14 @@ import org.totallyspies.evosim.utils.EvosimException;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
- * An Entity is an abstract member of the evolution simulation that can take the form of a
- * Predator or Prey. Each type have a different set of criteria that must be fulfilled to
- * reproduce or die. Each Entity is controlled by their brains, neural networks designed to learn
+ * An Entity is an abstract member of the evolution simulation that belongs to one of the
+ * species of its {@link Ecosystem}, such as Predator or Prey. Each species has a different set of
+ * criteria that must be fulfilled to reproduce or die, looked up by the species tag of the
+ * entity. Each Entity is controlled by their brains, neural networks designed to learn
  * the best possible option for survival when faced with an enemy.
  *
  * @author EnYi, Matthew
@@ -35,7 +39,8 @@ import java.util.List;
     property = "type")
 @JsonSubTypes({
     @JsonSubTypes.Type(value = Prey.class, name = "prey"),
-    @JsonSubTypes.Type(value = Predator.class, name = "predator")
+    @JsonSubTypes.Type(value = Predator.class, name = "predator"),
+    @JsonSubTypes.Type(value = Organism.class, name = "organism")
 })
 @Getter
 @AllArgsConstructor(access = AccessLevel.PROTECTED)
@@ -89,10 +94,28 @@ public abstract class Entity {
      */
     private static final double BIAS = -0.5;
 
+    /**
+     * Identifier to give to the next created entity.
+     */
+    private static final AtomicLong NEXT_ID = new AtomicLong();
+
+    /**
+     * Identifier of this entity, unique within a run of the application. Used to spread work
+     * that only happens on some ticks evenly across entities. A recycled entity gets a new
+     * identifier, so that it can be told apart from the entity it used to be.
+     */
+    @JsonIgnore
+    private long id;
+
+    /**
+     * Tag of the species of the entity in the ecosystem of its simulation.
+     */
+    private final int speciesTag;
+
     /**
      * The fixed entity speed randomly chosen at birth for an entity.
      */
-    private final double speed;
+    private double speed;
 
     /**
      * The position of the entity.
@@ -102,7 +125,7 @@ public abstract class Entity {
     /**
      * The angle of the field of view cone of this entity in degrees.
      */
-    private final double fovAngleInRadians;
+    private double fovAngleInRadians;
 
     /**
      * The birth time of the entity.
@@ -122,7 +145,7 @@ public abstract class Entity {
      * If the entity is dead or not.
      */
     @Setter
-    private boolean dead;
+    private volatile boolean dead;
 
     /**
      * If the entity split.
@@ -165,6 +188,30 @@ public abstract class Entity {
      */
     private double directionAngleInRadians;
 
+    /**
+     * The x position of the entity before its last update.
+     */
+    @JsonIgnore
+    private double previousX;
+
+    /**
+     * The y position of the entity before its last update.
+     */
+    @JsonIgnore
+    private double previousY;
+
+    /**
+     * The direction of the entity in radians before its last update.
+     */
+    @JsonIgnore
+    private double previousAngle;
+
+    /**
+     * The tick of the last update of the entity, when it was at its previous position.
+     */
+    @JsonIgnore
+    private long previousTick = -1;
+
     /**
      * The number of children born from this entity.
      */
@@ -177,19 +224,73 @@ public abstract class Entity {
     @JsonIgnore
     private final int sensorCount;
 
+    /**
+     * The x component of the unit direction of each sensor, refreshed on every sensor reset.
+     */
+    @Getter(AccessLevel.NONE)
+    private final double[] sensorDirectionsX;
+
+    /**
+     * The y component of the unit direction of each sensor, refreshed on every sensor reset.
+     */
+    @Getter(AccessLevel.NONE)
+    private final double[] sensorDirectionsY;
+
+    /**
+     * Rotation output of the last brain evaluation, held between evaluations.
+     */
+    @JsonIgnore
+    @Getter(AccessLevel.NONE)
+    private double heldRotation;
+
+    /**
+     * Movement output of the last brain evaluation, held between evaluations.
+     */
+    @JsonIgnore
+    @Getter(AccessLevel.NONE)
+    private double heldMovement;
+
+    /**
+     * If the brain has been evaluated at least once.
+     */
+    @JsonIgnore
+    @Getter(AccessLevel.NONE)
+    private boolean hasDecision;
+
+    /**
+     * If the entity stands in for an entity living in another simulation. A ghost is never
+     * killed, and what it eats is reported to its simulation instead of feeding it, so that
+     * only the simulation owning an entity decides whether it dies or eats.
+     */
+    @JsonIgnore
+    @Setter
+    private boolean ghost;
+
+    /**
+     * Number of generations since the genome of the line of descent of this entity was last
+     * recorded in full by the lineage store.
+     */
+    @JsonIgnore
+    @Getter(AccessLevel.NONE)
+    private int lineageDepth;
+
     /**
      * Constructs a new Entity.
      *
+     * @param newSpeciesTag    Tag of the species of the entity.
      * @param newSimulation    Simulation for the entity to be created in.
      * @param entitySpeed      The speed of the entity.
      * @param entityPosition   The position of the entity.
      * @param newViewAngle     The view angle of the entity.
      * @param newRotationAngle The rotation angle of the entity.
      */
-    protected Entity(final Simulation newSimulation, final double entitySpeed,
-                     final Point entityPosition, final double newViewAngle,
-                     final double newRotationAngle) throws EvosimException {
+    protected Entity(final int newSpeciesTag, final Simulation newSimulation,
+                     final double entitySpeed, final Point entityPosition,
+                     final double newViewAngle, final double newRotationAngle)
+        throws EvosimException {
 
+        this.id = NEXT_ID.getAndIncrement();
+        this.speciesTag = newSpeciesTag;
         this.simulation = newSimulation;
         this.birthTime = 0L;
         // initialize entity properties
@@ -240,13 +341,18 @@ public abstract class Entity {
         );
 
         firstLayer.subList(this.sensorCount, inputCount).forEach(neuron -> neuron.setBias(BIAS));
+        this.brain.prune(config.getBrainPruneThreshold());
 
         this.inputs = new double[inputCount];
+        this.sensorDirectionsX = new double[this.sensorCount];
+        this.sensorDirectionsY = new double[this.sensorCount];
+        this.updateSensorDirections();
     }
 
     /**
      * Construct a new entity from a JSON.
      *
+     * @param newSpeciesTag              The tag of the species of entity.
      * @param newSpeed                   The speed of entity.
      * @param newFovAngleInRadians       The angle in degrees of entity.
      * @param newDirectionAngleInRadians The direction angle in radians of entity.
@@ -260,6 +366,7 @@ public abstract class Entity {
      * @param newChildCount              The child count of entity.
      */
     protected Entity(
+        final int newSpeciesTag,
         final double newSpeed,
         final double newFovAngleInRadians,
         final double newDirectionAngleInRadians,
@@ -272,6 +379,8 @@ public abstract class Entity {
         final double newSplitEnergy,
         final int newChildCount) throws EvosimException {
 
+        this.id = NEXT_ID.getAndIncrement();
+        this.speciesTag = newSpeciesTag;
         this.birthTime = 0L;
         this.simulation = null;
         this.speed = newSpeed;
@@ -282,10 +391,73 @@ public abstract class Entity {
         this.dead = newDead;
         this.split = newSplit;
         this.brain = newBrain;
+        if (this.brain != null) {
+            this.brain.prune(Configuration.getConfiguration().getBrainPruneThreshold());
+        }
         this.energy = newEnergy;
         this.splitEnergy = newSplitEnergy;
         this.childCount = newChildCount;
         this.sensorCount = Configuration.getConfiguration().getEntitySensorsCount();
+        this.sensorDirectionsX = new double[this.sensorCount];
+        this.sensorDirectionsY = new double[this.sensorCount];
+        this.updateSensorDirections();
+    }
+
+    /**
+     * Constructs a new child of an entity, with a mutated copy of the brain of its parent.
+     *
+     * @param parent   The entity giving birth.
+     * @param newSpeed The speed of the child.
+     */
+    protected Entity(final Entity parent, final double newSpeed) throws EvosimException {
+        this.speciesTag = parent.speciesTag;
+        this.birthTime = 0L;
+        this.body = new Circle(
+            new Point(parent.getBodyCenter().getX(), parent.getBodyCenter().getY()),
+            parent.getBody().getRadius()
+        );
+        this.sensorCount = parent.sensorCount;
+        this.inputs = new double[parent.inputs.length];
+        this.sensorDirectionsX = new double[this.sensorCount];
+        this.sensorDirectionsY = new double[this.sensorCount];
+        this.respawn(parent, newSpeed);
+    }
+
+    /**
+     * Turns this entity into a new child of another entity, reusing its body, buffers and brain
+     * instead of allocating new ones. Used to recycle dead entities.
+     *
+     * @param parent   The entity giving birth.
+     * @param newSpeed The speed of the child.
+     */
+    protected final void respawn(final Entity parent, final double newSpeed)
+        throws EvosimException {
+        this.id = NEXT_ID.getAndIncrement();
+        this.simulation = parent.simulation;
+        this.energy = 1d;
+        this.splitEnergy = 0d;
+        this.dead = false;
+        this.split = false;
+        this.childCount = 0;
+        this.speed = newSpeed;
+        this.directionAngleInRadians = parent.directionAngleInRadians;
+        this.fovAngleInRadians = parent.fovAngleInRadians;
+        this.heldRotation = 0;
+        this.heldMovement = 0;
+        this.hasDecision = false;
+        this.lineageDepth = 0;
+
+        this.body.getCenter().setX(parent.getBodyCenter().getX());
+        this.body.getCenter().setY(parent.getBodyCenter().getY());
+
+        final double mutationRate =
+            Configuration.getConfiguration().getEntitySpeedMutationRate();
+        if (this.brain == null || !this.brain.mutateFrom(parent.brain, mutationRate)) {
+            this.brain = parent.brain.mutate();
+        }
+
+        Arrays.fill(this.inputs, 0);
+        this.resetSensors();
     }
 
     /**
@@ -296,9 +468,98 @@ public abstract class Entity {
     public abstract Entity clone();
 
     /**
-     * Handles what happens on update every frame to an entity.
+     * Gets the genome of this entity: its speed followed by every weight of its brain, layer by
+     * layer.
+     *
+     * @return a copy of the genome
+     */
+    public double[] toGenome() {
+        int geneCount = 1;
+        for (final List<Neuron> layer : this.brain.getNeuronLayers()) {
+            for (final Neuron neuron : layer) {
+                geneCount += neuron.getWeights().length;
+            }
+        }
+
+        final double[] genome = new double[geneCount];
+        genome[0] = this.speed;
+
+        int next = 1;
+        for (final List<Neuron> layer : this.brain.getNeuronLayers()) {
+            for (final Neuron neuron : layer) {
+                final double[] weights = neuron.getWeights();
+                System.arraycopy(weights, 0, genome, next, weights.length);
+                next += weights.length;
+            }
+        }
+
+        return genome;
+    }
+
+    /**
+     * Gives this entity the speed and brain weights of a genome taken from an entity of the same
+     * species.
+     *
+     * @param genome the genome, as given by {@link #toGenome()}
+     */
+    public void applyGenome(final double[] genome) {
+        this.speed = genome[0];
+
+        int next = 1;
+        for (final List<Neuron> layer : this.brain.getNeuronLayers()) {
+            for (final Neuron neuron : layer) {
+                for (int i = 0; i < neuron.getWeights().length; ++i) {
+                    neuron.setWeight(i, genome[next++]);
+                }
+            }
+        }
+
+        this.brain.compile();
+    }
+
+    /**
+     * Records the birth of a child of this entity in the lineage store of the simulation, if it
+     * keeps one.
+     *
+     * @param child the newborn
+     */
+    protected final void recordBirth(final Entity child) {
+        final LineageStore lineage = this.simulation.getLineageStore();
+
+        if (lineage != null) {
+            child.lineageDepth = lineage.recordBirth(
+                this, child, this.simulation.getTickCount(), this.lineageDepth + 1
+            );
+        }
+    }
+
+    /**
+     * Picks the speed of a child of this entity, mutating it according to the mutation rate.
+     *
+     * @return the speed of the child.
+     */
+    protected double childSpeed() throws EvosimException {
+        final Random random = this.simulation.getRandom();
+        return random.nextDouble() < Configuration.getConfiguration().getEntitySpeedMutationRate()
+            ? random.nextDouble() * Configuration.getConfiguration().getEntityMaxSpeed()
+            : this.getSpeed();
+    }
+
+    /**
+     * Handles what happens on update every frame to an entity: it passively gains and loses
+     * energy according to its species, and starves if its species does.
      */
-    public abstract void onUpdate() throws EvosimException;
+    public void onUpdate() {
+        final Species species = this.simulation.getEcosystem().getSpecies(this.speciesTag);
+
+        this.splitEnergy += species.getPassiveSplitEnergyGain();
+        this.energy = Math.min(1,
+            this.energy + species.getPassiveEnergyGain() - species.getEnergyDrain());
+
+        if (species.isStarving() && this.energy <= 0) {
+            this.dead = true;
+        }
+    }
 
     /**
      * Moves the entity according to the given movement speed and its current rotation angle.
@@ -335,12 +596,24 @@ public abstract class Entity {
 
     /**
      * Processes data from this entity's sensors and moves according to its decision.
+     * <p>
+     * The brain is only evaluated every {@link Simulation#getThinkInterval()} ticks,
+     * staggered by identifier, and the last decision is held in between. Entities that sense an
+     * opponent can be made to think on every tick instead.
+     * </p>
+     *
+     * @return if the brain was evaluated during this update
      */
-    public final void update() throws EvosimException {
+    public final boolean update() throws EvosimException {
         if (this.isDead()) {
-            return;
+            return false;
         }
 
+        this.previousX = this.getBodyCenter().getX();
+        this.previousY = this.getBodyCenter().getY();
+        this.previousAngle = this.directionAngleInRadians;
+        this.previousTick = this.simulation.getTickCount();
+
         // check for collisions and update sensors data;
         this.onUpdate();
 
@@ -349,83 +622,188 @@ public abstract class Entity {
             this.split = true;
         }
 
-        final double xPos = this.getBodyCenter().getX();
-        final double yPos = this.getBodyCenter().getY();
+        final boolean thinks = this.shouldThink();
+
+        if (thinks) {
+            final double xPos = this.getBodyCenter().getX();
+            final double yPos = this.getBodyCenter().getY();
 
-        this.inputs[this.sensorCount + INPUTS_LEFT_OFFSET] = xPos;
-        this.inputs[this.sensorCount + INPUTS_TOP_OFFSET] = yPos;
-        this.inputs[this.sensorCount + INPUTS_RIGHT_OFFSET] =
-            this.simulation.getMapSizeX() * this.simulation.getGridSize() - xPos;
+            this.inputs[this.sensorCount + INPUTS_LEFT_OFFSET] = xPos;
+            this.inputs[this.sensorCount + INPUTS_TOP_OFFSET] = yPos;
+            this.inputs[this.sensorCount + INPUTS_RIGHT_OFFSET] =
+                this.simulation.getMapSizeX() * this.simulation.getGridSize() - xPos;
 
-        this.inputs[this.sensorCount + INPUTS_BOTTOM_OFFSET] =
-            this.simulation.getMapSizeY() * this.simulation.getGridSize() - yPos;
+            this.inputs[this.sensorCount + INPUTS_BOTTOM_OFFSET] =
+                this.simulation.getMapSizeY() * this.simulation.getGridSize() - yPos;
 
-        this.inputs[this.sensorCount + INPUTS_ENERGY_OFFSET] = this.energy;
+            this.inputs[this.sensorCount + INPUTS_ENERGY_OFFSET] = this.energy;
 
-        final double[] calculatedDecision =
-            this.brain.calcNetworkDecision(this.inputs);
+            final double[] calculatedDecision =
+                this.brain.calcNetworkDecision(this.inputs);
+
+            this.heldRotation = calculatedDecision[0];
+            this.heldMovement = calculatedDecision[1];
+            this.hasDecision = true;
+        }
 
         this.directionAngleInRadians += Configuration.getConfiguration()
-            .getEntityMaxRotationSpeed() * (calculatedDecision[0]);
+            .getEntityMaxRotationSpeed() * this.heldRotation;
+
+        this.move(this.speed * Math.abs(this.heldMovement));
+
+        return thinks;
+    }
+
+    private boolean shouldThink() throws EvosimException {
+        final int thinkInterval = this.simulation.getThinkInterval();
+
+        if (!this.hasDecision || thinkInterval <= 1
+            || (this.simulation.getTickCount() + this.id) % thinkInterval == 0) {
+            return true;
+        }
 
-        this.move(this.speed * Math.abs(calculatedDecision[1]));
+        if (!Configuration.getConfiguration().isEntityThinkAdaptive()) {
+            return false;
+        }
+
+        final double sensorsLength = Configuration.getConfiguration().getEntitySensorsLength();
+        for (int i = 0; i < this.sensorCount; ++i) {
+            if (this.inputs[i] < sensorsLength) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    /**
+     * Updates the sensors of this entity with another entity and collides with it if they touch.
+     * Only the sensors of this entity are updated, so that every entity can relate to its own
+     * neighbours in parallel. Both entities of a pair relate to each other, see
+     * {@link #onCollide(Entity)} for how eating is resolved only once.
+     *
+     * @param other The entity to relate to.
+     */
+    public void relateTo(final Entity other) throws EvosimException {
+        this.relateTo(other, true);
     }
 
     /**
-     * Updates the relation (collision and sensors) between two entities.
+     * Collides with another entity if they touch, and updates the sensors of this entity with it
+     * when sensing. Entities that keep the readings of a previous tick still collide every tick,
+     * so that both entities of a pair always see their collision.
      *
-     * @param a First entity to update.
-     * @param b Second entity to update.
+     * @param other   The entity to relate to.
+     * @param sensing Whether the sensors of this entity are updated.
      */
-    public static void updateRelation(final Entity a, final Entity b) throws EvosimException {
-        if (a.getClass().equals(b.getClass()) || a.dead || b.dead) {
+    public void relateTo(final Entity other, final boolean sensing) throws EvosimException {
+        if (this.speciesTag == other.speciesTag) {
             return;
         }
 
-        final double distance = Formulas.distance(
-            a.getBodyCenter().getX(),
-            a.getBodyCenter().getY(),
-            b.getBodyCenter().getX(),
-            b.getBodyCenter().getY()
+        final double distanceSquared = Formulas.distanceSquared(
+            this.getBodyCenter().getX(),
+            this.getBodyCenter().getY(),
+            other.getBodyCenter().getX(),
+            other.getBodyCenter().getY()
         );
 
-        if (distance < Configuration.getConfiguration().getEntitySensorsLength()) {
-            a.updateSensors(b);
-            b.updateSensors(a);
+        if (sensing) {
+            final double sensorsLength =
+                Configuration.getConfiguration().getEntitySensorsLength();
+            if (distanceSquared < sensorsLength * sensorsLength) {
+                this.updateSensors(other);
+            }
         }
 
-        if (distance < a.getBody().getRadius() + b.getBody().getRadius()) {
-            a.onCollide(b);
-            b.onCollide(a);
+        final double radii = this.getBody().getRadius() + other.getBody().getRadius();
+        if (distanceSquared < radii * radii && !this.dead && !other.dead) {
+            this.onCollide(other);
         }
     }
 
     private void updateSensors(final Entity other) {
-        final double baseAngle = this.directionAngleInRadians - (this.fovAngleInRadians / 2);
+        Formulas.closestRayCircleHits(
+            this.getBodyCenter().getX(),
+            this.getBodyCenter().getY(),
+            this.sensorDirectionsX,
+            this.sensorDirectionsY,
+            other.getBodyCenter().getX(),
+            other.getBodyCenter().getY(),
+            other.getBody().getRadius(),
+            this.inputs,
+            this.sensorCount
+        );
+    }
 
+    /**
+     * Recomputes the unit direction of every sensor from the current direction angle.
+     */
+    private void updateSensorDirections() {
         for (int i = 0; i < this.sensorCount; ++i) {
-            final double angle = baseAngle + i * (this.getFovAngleInRadians() / this.sensorCount);
+            final double angle = this.getSensorAngle(i);
+            this.sensorDirectionsX[i] = Math.cos(angle);
+            this.sensorDirectionsY[i] = Math.sin(angle);
+        }
+    }
 
-            final double distance = Formulas.distanceCircleAngled(
-                this.getBodyCenter(), angle, other.getBody()
-            );
+    /**
+     * Event when this entity collides with another. When the species of one of them eats the
+     * species of the other, the eaten entity dies and its eater is fed. Both entities of a pair
+     * collide with each other in parallel, whichever comes first resolves the pair, and an entity
+     * is only eaten once, by the first eater that reaches it. Species eating each other are both
+     * fed and neither dies. Ghosts are never eaten, and their meals are reported with
+     * {@link Simulation#reportGhostMeal(Entity)}.
+     *
+     * @param other The entity that has been collided into.
+     */
+    public void onCollide(final Entity other) {
+        final Ecosystem ecosystem = this.simulation.getEcosystem();
+        final boolean eats = ecosystem.eats(this.speciesTag, other.speciesTag);
+        final boolean eaten = ecosystem.eats(other.speciesTag, this.speciesTag);
+
+        if (eats && eaten) {
+            this.eat();
+        } else if (eats) {
+            if (other.kill()) {
+                this.eat();
+            }
+        } else if (eaten) {
+            if (this.kill()) {
+                other.eat();
+            }
+        }
+    }
 
-            this.inputs[i] = Math.min(
-                this.inputs[i],
-                distance
-            );
+    /**
+     * Kills the entity unless it is already dead or a ghost.
+     *
+     * @return whether the entity was killed by this call
+     */
+    private synchronized boolean kill() {
+        if (this.dead || this.ghost) {
+            return false;
         }
+        this.dead = true;
+        return true;
     }
 
-    protected abstract void onCollideHandler(Entity other) throws EvosimException;
+    private void eat() {
+        if (this.ghost) {
+            this.simulation.reportGhostMeal(this);
+        } else {
+            this.feed();
+        }
+    }
 
     /**
-     * Event when this entity collides with another.
-     *
-     * @param other The entity that has been collided into.
+     * Gives the entity the energy and split energy its species gains by eating, as when one of
+     * its ghosts ate in another simulation.
      */
-    public void onCollide(final Entity other) throws EvosimException {
-        this.onCollideHandler(other);
+    public synchronized void feed() {
+        final Species species = this.simulation.getEcosystem().getSpecies(this.speciesTag);
+        this.splitEnergy += species.getEatSplitEnergyGain();
+        this.energy = Math.min(1, this.energy + species.getEatEnergyGain());
     }
 
     @JsonIgnore
@@ -504,9 +882,18 @@ public abstract class Entity {
     }
 
     /**
-     * Resets sensors to their default length.
+     * Resets sensors to their default length and points them along the current direction.
      */
     public void resetSensors() throws EvosimException {
+        this.clearSensors();
+        this.updateSensorDirections();
+    }
+
+    /**
+     * Resets sensors to their default length without pointing them, for entities that have
+     * nothing within range to sense.
+     */
+    public void clearSensors() throws EvosimException {
         Arrays.fill(
             this.inputs,
             0,
@@ -0,0 +1,122 @@
+package org.totallyspies.evosim.entities;
+
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import org.totallyspies.evosim.geometry.Circle;
+import org.totallyspies.evosim.geometry.Point;
+import org.totallyspies.evosim.neuralnetwork.NeuralNetwork;
+import org.totallyspies.evosim.simulation.Simulation;
+import org.totallyspies.evosim.utils.EvosimException;
+
+/**
+ * An Organism is a member of any species of the ecosystem other than the prey and the predators.
+ * Everything it does, from gaining energy to eating or being eaten, is described by its species.
+ *
+ * @author agent
+ */
+@SuppressWarnings({"checkstyle:ParameterNumber"})
+public final class Organism extends Entity {
+
+    /**
+     * Constructs a new organism.
+     *
+     * @param speciesTag             the tag of the species of the organism
+     * @param newSimulation          Simulation for the entity to be created in.
+     * @param speed                  the speed of the organism
+     * @param position               the position of the organism
+     * @param rotationAngleInRadians the rotation angle of the organism
+     */
+    public Organism(final int speciesTag,
+                    final Simulation newSimulation,
+                    final double speed,
+                    final Point position,
+                    final double rotationAngleInRadians) throws EvosimException {
+        super(speciesTag, newSimulation, speed, position,
+            newSimulation.getEcosystem().getSpecies(speciesTag).getViewAngle(),
+            rotationAngleInRadians);
+    }
+
+    /**
+     * Construct an Organism from a JSON.
+     *
+     * @param speciesTag              the tag of the species of the organism.
+     * @param inputs                  the sensors data of the organism.
+     * @param speed                   the speed of the organism.
+     * @param body                    the body of the organism.
+     * @param fovAngleInRadians       the fov angle in radians of the organism.
+     * @param dead                    if dead of the organism.
+     * @param split                   the split of the organism.
+     * @param brain                   the brain of the organism.
+     * @param energy                  the energy of the organism.
+     * @param splitEnergy             the split energy of the organism.
+     * @param directionAngleInRadians the direction angle in radians of the organism.
+     * @param childCount              the child count of the organism.
+     */
+    @JsonCreator
+    public Organism(
+        @JsonProperty("speciesTag") final int speciesTag,
+        @JsonProperty("inputs") final double[] inputs,
+        @JsonProperty("speed") final double speed,
+        @JsonProperty("body") final Circle body,
+        @JsonProperty("fovAngleInRadians") final double fovAngleInRadians,
+        @JsonProperty("dead") final boolean dead,
+        @JsonProperty("split") final boolean split,
+        @JsonProperty("brain") final NeuralNetwork brain,
+        @JsonProperty("energy") final double energy,
+        @JsonProperty("splitEnergy") final double splitEnergy,
+        @JsonProperty("directionAngleInRadians") final double directionAngleInRadians,
+        @JsonProperty("childCount") final int childCount
+    ) throws EvosimException {
+        super(
+            speciesTag,
+            speed,
+            fovAngleInRadians,
+            directionAngleInRadians,
+            inputs,
+            body,
+            dead,
+            split,
+            brain,
+            energy,
+            splitEnergy,
+            childCount
+        );
+    }
+
+    /**
+     * Constructs a new child of an organism.
+     *
+     * @param parent the organism giving birth
+     * @param speed  the speed of the child
+     */
+    private Organism(final Organism parent, final double speed) throws EvosimException {
+        super(parent, speed);
+    }
+
+    /**
+     * Clones the organism and mutates its speed and neural network.
+     *
+     * @return the cloned organism
+     */
+    @Override
+    public Organism clone() {
+        try {
+            final double speed = this.childSpeed();
+            Organism organism = (Organism) this.getSimulation().getEntityPool()
+                .acquire(this.getSpeciesTag());
+
+            if (organism == null) {
+                organism = new Organism(this, speed);
+            } else {
+                organism.respawn(this, speed);
+            }
+
+            this.setChildCount(this.getChildCount() + 1);
+            this.recordBirth(organism);
+
+            return organism;
+        } catch (EvosimException e) {
+            throw new RuntimeException(e);
+        }
+    }
+}
@@ -1,6 +1,7 @@
 package org.totallyspies.evosim.entities;
 
 import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
 import com.fasterxml.jackson.annotation.JsonProperty;
 import javafx.scene.paint.Color;
 import lombok.Getter;
@@ -11,7 +12,6 @@ import org.totallyspies.evosim.utils.Configuration;
 import org.totallyspies.evosim.geometry.Point;
 import org.totallyspies.evosim.utils.EvosimException;
 
-
 /**
  * A Predator is a member of the evolution simulation that survives by hunting prey. To multiply,
  * a predator must eat a certain number of prey by colliding with them to accumulate split energy.
@@ -19,6 +19,7 @@ import org.totallyspies.evosim.utils.EvosimException;
  *
  * @author EnYi, Matthew
  */
+@JsonIgnoreProperties(value = "speciesTag", allowGetters = true)
 @SuppressWarnings({"checkstyle:ParameterNumber"})
 public final class Predator extends Entity {
 
@@ -40,7 +41,7 @@ public final class Predator extends Entity {
                     final double speed,
                     final Point position,
                     final double rotationAngleInRadians) throws EvosimException {
-        super(newSimulation, speed, position,
+        super(Ecosystem.PREDATOR_TAG, newSimulation, speed, position,
             Configuration.getConfiguration().getPredatorViewAngle(), rotationAngleInRadians);
         Predator.bodyColour = Configuration.getConfiguration().getColorPredator();
     }
@@ -75,6 +76,7 @@ public final class Predator extends Entity {
         @JsonProperty("childCount") final int childCount
     ) throws EvosimException {
         super(
+            Ecosystem.PREDATOR_TAG,
             speed,
             fovAngleInRadians,
             directionAngleInRadians,
@@ -90,20 +92,13 @@ public final class Predator extends Entity {
     }
 
     /**
-     * Determines if this predator should split or die based on its collision and energy.
-     * <p>
-     * If this Predator has run out of energy, it will die.
-     * If this Predator has enough split energy, it will clone itself.
-     * </p>
+     * Constructs a new child of a predator.
+     *
+     * @param parent the predator giving birth
+     * @param speed  the speed of the child
      */
-    @Override
-    public void onUpdate() throws EvosimException {
-        this.setEnergy(this.getEnergy() - Configuration.getConfiguration()
-            .getPredatorEnergyBaseDrainingSpeed());
-
-        if (this.getEnergy() <= 0) {
-            this.setDead(true);
-        }
+    private Predator(final Predator parent, final double speed) throws EvosimException {
+        super(parent, speed);
     }
 
     /**
@@ -113,36 +108,24 @@ public final class Predator extends Entity {
      */
     @Override
     public Predator clone() {
-        // Mutate the speed of the predator
-        Predator predator = null;
         try {
-            predator = new Predator(
-                this.getSimulation(),
-                (Math.random()
-                    < Configuration.getConfiguration().getEntitySpeedMutationRate())
-                    ? Math.random() * Configuration.getConfiguration().getEntityMaxSpeed()
-                    : this.getSpeed(),
+            final double speed = this.childSpeed();
+            Predator predator = (Predator) this.getSimulation().getEntityPool()
+                .acquire(Ecosystem.PREDATOR_TAG);
+
+            if (predator == null) {
+                predator = new Predator(this, speed);
+            } else {
+                predator.respawn(this, speed);
+            }
+
+            this.setChildCount(this.getChildCount() + 1);
+            this.recordBirth(predator);
 
-                new Point(this.getBodyCenter().getX(), this.getBodyCenter().getY()),
-                this.getDirectionAngleInRadians());
+            return predator;
         } catch (EvosimException e) {
             throw new RuntimeException(e);
         }
-
-        // mutate the brain of the predator
-        predator.setBrain(this.getBrain().mutate());
-
-        this.setChildCount(this.getChildCount() + 1);
-
-        return predator;
-    }
-
-    @Override
-    protected void onCollideHandler(final Entity other) throws EvosimException {
-        this.setSplitEnergy(this.getSplitEnergy()
-            + Configuration.getConfiguration().getPredatorSplitEnergyFillingSpeed());
-        this.setEnergy(Math.min(1, this.getEnergy()
-            + Configuration.getConfiguration().getPredatorEnergyFillingSpeed()));
     }
 
     /**
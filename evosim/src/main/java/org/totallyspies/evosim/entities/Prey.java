@@ -1,6 +1,7 @@
 package org.totallyspies.evosim.entities;
 
 import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
 import com.fasterxml.jackson.annotation.JsonProperty;
 import javafx.scene.paint.Color;
 import lombok.Getter;
@@ -11,7 +12,6 @@ import org.totallyspies.evosim.utils.Configuration;
 import org.totallyspies.evosim.geometry.Point;
 import org.totallyspies.evosim.utils.EvosimException;
 
-
 /**
  * A Prey is member of the evolution simulation that survives by evading collision with predators.
  * To multiply, a prey must remain stationary to accumulate split energy. To die, a prey must
@@ -19,6 +19,7 @@ import org.totallyspies.evosim.utils.EvosimException;
  *
  * @author EnYi, Matthew
  */
+@JsonIgnoreProperties(value = "speciesTag", allowGetters = true)
 @SuppressWarnings({"checkstyle:ParameterNumber"})
 public final class Prey extends Entity {
 
@@ -40,7 +41,7 @@ public final class Prey extends Entity {
         final double speed,
         final Point position,
         final double rotationAngleInRadians) throws EvosimException {
-        super(newSimulation, speed, position,
+        super(Ecosystem.PREY_TAG, newSimulation, speed, position,
             Configuration.getConfiguration().getPreyViewAngle(), rotationAngleInRadians);
         Prey.bodyColour = Configuration.getConfiguration().getColorPrey();
     }
@@ -75,6 +76,7 @@ public final class Prey extends Entity {
         @JsonProperty("childCount") final int childCount
     ) throws EvosimException {
         super(
+            Ecosystem.PREY_TAG,
             speed,
             fovAngleInDegrees,
             directionAngleInRadians,
@@ -90,20 +92,13 @@ public final class Prey extends Entity {
     }
 
     /**
-     * Determines if this prey should split or die based on its collision and energy.
-     * <p>
-     * If this Prey has run out of energy or collided a predator, it will die.
-     * If this Prey has enough split energy, it will clone itself.
-     * </p>
+     * Constructs a new child of a prey.
+     *
+     * @param parent the prey giving birth
+     * @param speed  the speed of the child
      */
-    @Override
-    public void onUpdate() throws EvosimException {
-        // passively gain energy
-        this.setSplitEnergy(this.getSplitEnergy()
-            + Configuration.getConfiguration().getPreySplitEnergyFillingSpeed());
-        this.setEnergy(Math.min(this.getEnergy()
-            + Configuration.getConfiguration().getPreyEnergyFillingSpeed(), 1));
-
+    private Prey(final Prey parent, final double speed) throws EvosimException {
+        super(parent, speed);
     }
 
     /**
@@ -113,31 +108,24 @@ public final class Prey extends Entity {
      */
     @Override
     public Prey clone() {
-        // Mutate the speed of the prey
-        Prey prey = null;
         try {
-            prey = new Prey(
-                this.getSimulation(),
-                (Math.random()
-                    < Configuration.getConfiguration().getEntitySpeedMutationRate())
-                    ? Math.random() * Configuration.getConfiguration().getEntityMaxSpeed()
-                    : this.getSpeed(),
-                new Point(this.getBodyCenter().getX(), this.getBodyCenter().getY()),
-                this.getDirectionAngleInRadians());
-        } catch (EvosimException e) {
-            throw new RuntimeException(e);
-        }
+            final double speed = this.childSpeed();
+            Prey prey = (Prey) this.getSimulation().getEntityPool()
+                .acquire(Ecosystem.PREY_TAG);
 
-        // mutate the brain of the prey
-        prey.setBrain(this.getBrain().mutate());
-        this.setChildCount(this.getChildCount() + 1);
+            if (prey == null) {
+                prey = new Prey(this, speed);
+            } else {
+                prey.respawn(this, speed);
+            }
 
-        return prey;
-    }
+            this.setChildCount(this.getChildCount() + 1);
+            this.recordBirth(prey);
 
-    @Override
-    protected void onCollideHandler(final Entity other) {
-        this.setDead(true);
+            return prey;
+        } catch (EvosimException e) {
+            throw new RuntimeException(e);
+        }
     }
 
     /**
@@ -0,0 +1,114 @@
+package org.totallyspies.evosim.entities;
+
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import lombok.Getter;
+
+/**
+ * Description of a species as data: how its members gain and lose energy, what they see, how
+ * many of them may live at once and how they are drawn. Who eats whom is described separately by
+ * the {@link Ecosystem}.
+ *
+ * @author agent
+ */
+@Getter
+public final class Species {
+
+    /**
+     * Unique name of the species, used to refer to it in the interactions.
+     */
+    private final String name;
+
+    /**
+     * View angle of the members of the species in degrees.
+     */
+    private final double viewAngle;
+
+    /**
+     * Maximum number of members alive at once.
+     */
+    private final int maxNumber;
+
+    /**
+     * Number of members spawned when a simulation is populated.
+     */
+    private final int initialPopulation;
+
+    /**
+     * Colour of the body of the members, in any format understood by {@code Color.web}.
+     */
+    private final String colour;
+
+    /**
+     * Energy gained by a member on every update.
+     */
+    private final double passiveEnergyGain;
+
+    /**
+     * Split energy gained by a member on every update.
+     */
+    private final double passiveSplitEnergyGain;
+
+    /**
+     * Energy lost by a member on every update, on top of the energy spent moving.
+     */
+    private final double energyDrain;
+
+    /**
+     * If members die when they run out of energy.
+     */
+    private final boolean starving;
+
+    /**
+     * Energy gained by a member when it eats another entity.
+     */
+    private final double eatEnergyGain;
+
+    /**
+     * Split energy gained by a member when it eats another entity.
+     */
+    private final double eatSplitEnergyGain;
+
+    /**
+     * Constructs a species.
+     *
+     * @param newName the name of the species
+     * @param newViewAngle the view angle in degrees
+     * @param newMaxNumber the maximum number of members
+     * @param newInitialPopulation the initial number of members
+     * @param newColour the colour of the members
+     * @param newPassiveEnergyGain the energy gained on every update
+     * @param newPassiveSplitEnergyGain the split energy gained on every update
+     * @param newEnergyDrain the energy lost on every update
+     * @param newStarving if members die without energy
+     * @param newEatEnergyGain the energy gained by eating
+     * @param newEatSplitEnergyGain the split energy gained by eating
+     */
+    @JsonCreator
+    @SuppressWarnings("checkstyle:ParameterNumber")
+    public Species(
+        @JsonProperty("name") final String newName,
+        @JsonProperty("viewAngle") final double newViewAngle,
+        @JsonProperty("maxNumber") final int newMaxNumber,
+        @JsonProperty("initialPopulation") final int newInitialPopulation,
+        @JsonProperty("colour") final String newColour,
+        @JsonProperty("passiveEnergyGain") final double newPassiveEnergyGain,
+        @JsonProperty("passiveSplitEnergyGain") final double newPassiveSplitEnergyGain,
+        @JsonProperty("energyDrain") final double newEnergyDrain,
+        @JsonProperty("starving") final boolean newStarving,
+        @JsonProperty("eatEnergyGain") final double newEatEnergyGain,
+        @JsonProperty("eatSplitEnergyGain") final double newEatSplitEnergyGain
+    ) {
+        this.name = newName;
+        this.viewAngle = newViewAngle;
+        this.maxNumber = newMaxNumber;
+        this.initialPopulation = newInitialPopulation;
+        this.colour = newColour;
+        this.passiveEnergyGain = newPassiveEnergyGain;
+        this.passiveSplitEnergyGain = newPassiveSplitEnergyGain;
+        this.energyDrain = newEnergyDrain;
+        this.starving = newStarving;
+        this.eatEnergyGain = newEatEnergyGain;
+        this.eatSplitEnergyGain = newEatSplitEnergyGain;
+    }
+}
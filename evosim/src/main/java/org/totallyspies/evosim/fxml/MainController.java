@@ -8,6 +8,7 @@ import javafx.fxml.FXML;
 import javafx.scene.control.Alert;
 import javafx.scene.control.Button;
 import javafx.scene.control.ButtonType;
+import javafx.scene.control.ChoiceBox;
 import javafx.scene.control.Label;
 import javafx.scene.control.ProgressBar;
 import javafx.scene.control.TabPane;
@@ -24,16 +25,18 @@ import javafx.scene.chart.XYChart;
 import javafx.stage.FileChooser;
 import javafx.util.Duration;
 import lombok.Getter;
+import org.totallyspies.evosim.entities.Ecosystem;
 import org.totallyspies.evosim.entities.Entity;
 import org.totallyspies.evosim.entities.Predator;
 import org.totallyspies.evosim.entities.Prey;
+import org.totallyspies.evosim.simulation.PlaybackSpeed;
 import org.totallyspies.evosim.simulation.Simulation;
+import org.totallyspies.evosim.simulation.WorldSnapshot;
 import javafx.scene.Scene;
 import javafx.scene.input.KeyCode;
 
 import java.util.List;
 import java.util.Optional;
-import java.util.concurrent.atomic.AtomicLong;
 
 import org.totallyspies.evosim.ui.AboutWindow;
 import org.totallyspies.evosim.ui.EvosimApplication;
@@ -109,6 +112,12 @@ public final class MainController {
     @FXML
     private Button pauseBtn;
 
+    /**
+     * Speed the simulation is played at.
+     */
+    @FXML
+    private ChoiceBox<PlaybackSpeed> speedChoice;
+
     /**
      * Total population chart.
      */
@@ -226,6 +235,12 @@ public final class MainController {
     @FXML
     private Label timerLabel;
 
+    /**
+     * The label showing the overruns of the updates and how far the simulation is degraded.
+     */
+    @FXML
+    private Label degradationLabel;
+
     /**
      * The timer of the simulation.
      */
@@ -237,6 +252,17 @@ public final class MainController {
      */
     private Timeline timerTimeLine;
 
+    /**
+     * Simulated time elapsed before the current simulation was created, as saved in its
+     * configuration.
+     */
+    private java.time.Duration startDuration;
+
+    /**
+     * Number of updates of the snapshot last added to the charts.
+     */
+    private long lastChartTick;
+
     /**
      * In order to explore the user's files.
      */
@@ -351,7 +377,9 @@ public final class MainController {
 
         Predator.setBodyColour(configuration.getColorPredator());
         Prey.setBodyColour(configuration.getColorPrey());
-        this.timerProperty.set(configuration.getDuration());
+        this.startDuration = configuration.getDuration();
+        this.lastChartTick = -1;
+        this.timerProperty.set(this.startDuration);
     }
 
     /**
@@ -495,6 +523,14 @@ public final class MainController {
                     playAnimation();
                 }
             }
+
+            if (code == KeyCode.L) {
+                mapCanvas.toggleLockHeatmap();
+            }
+
+            if (code == KeyCode.P) {
+                mapCanvas.togglePerfOverlay();
+            }
         });
 
         scene.setOnKeyReleased(event -> {
@@ -518,47 +554,56 @@ public final class MainController {
     }
 
     private void setXYCharts() {
-        AtomicLong counter = new AtomicLong();
         this.timerTimeLine = new Timeline(
                 new javafx.animation.KeyFrame(
                         Duration.millis(ONE_DECISECOND_IN_MILLISECONDS), e -> {
 
-            configuration.setDuration(
-                    this.timerProperty.get().plusMillis(ONE_DECISECOND_IN_MILLISECONDS));
-
-            try {
-                this.timerProperty.set(configuration.getDuration());
-            } catch (EvosimException ex) {
-                throw new RuntimeException(ex);
+            final Simulation simulation = this.mapCanvas.getSimulation();
+            this.degradationLabel.setText(String.format(
+                    "Overruns: %d, degradation: %d/%d (%s)",
+                    simulation.getOverrunCount(),
+                    simulation.getDegradationLevel(),
+                    simulation.getMaxDegradationLevel(),
+                    simulation.getDegradationPolicy()));
+
+            // the timer and the charts follow the simulated time of the latest snapshot
+            final WorldSnapshot snapshot = this.mapCanvas.getSnapshot();
+            if (snapshot == null || snapshot.getTickCount() == this.lastChartTick) {
+                return;
             }
+            this.lastChartTick = snapshot.getTickCount();
+
+            final java.time.Duration elapsed = this.startDuration.plusNanos(
+                    snapshot.getTickCount() * Simulation.UPDATE_INTERVAL_NANO);
+            configuration.setDuration(elapsed);
+            this.timerProperty.set(elapsed);
+            final String time = String.format(
+                    "%.2f", elapsed.toMillis() / (double) ONE_SECOND_IN_MILLISECONDS);
+
+            final int preyCount = snapshot.getSpeciesCount(Ecosystem.PREY_TAG);
+            final int predatorCount = snapshot.getSpeciesCount(Ecosystem.PREDATOR_TAG);
 
                     XYChart.Series<String, Number> totalPopulationChartSeries;
             totalPopulationChartSeries = (XYChart.Series<String, Number>) totalPopulationChart
                     .getData().get(0);
             totalPopulationChartSeries.getData().add(
-                    new XYChart.Data<>(counter.toString(),
-                            this.mapCanvas.getSimulation().getPreyCount()
-                                    + this.mapCanvas.getSimulation().getPredatorCount()));
+                    new XYChart.Data<>(time, preyCount + predatorCount));
 
             XYChart.Series<String, Number> preyPopulationChartSeries;
             preyPopulationChartSeries = (XYChart.Series<String, Number>) preyPopulationChart
                     .getData().get(0);
             preyPopulationChartSeries.getData().add(
-                    new XYChart.Data<>(
-                            counter.toString(), this.mapCanvas.getSimulation().getPreyCount()));
+                    new XYChart.Data<>(time, preyCount));
 
             XYChart.Series<String, Number> predatorPopulationChartSeries;
             predatorPopulationChartSeries = (XYChart.Series<String, Number>) predatorPopulationChart
                     .getData().get(0);
             predatorPopulationChartSeries.getData().add(
-                    new XYChart.Data<>(counter.toString(),
-                            this.mapCanvas.getSimulation().getPredatorCount()));
+                    new XYChart.Data<>(time, predatorCount));
 
             checkChartSize(totalPopulationChartSeries);
             checkChartSize(preyPopulationChartSeries);
             checkChartSize(predatorPopulationChartSeries);
-
-            counter.getAndAdd(1);
         }));
         this.timerTimeLine.setCycleCount(Timeline.INDEFINITE);
     }
@@ -584,10 +629,19 @@ public final class MainController {
         this.pauseBtn.setOnAction(e -> {
             pauseAnimation();
         });
+
+        this.speedChoice.getItems().setAll(PlaybackSpeed.values());
+        this.speedChoice.setValue(PlaybackSpeed.NORMAL);
+        this.speedChoice.valueProperty().addListener((observable, oldSpeed, newSpeed) -> {
+            if (this.playBtn.isDisabled()) {
+                this.mapCanvas.getSimulation().pauseUpdate();
+                this.mapCanvas.getSimulation().playUpdate(newSpeed);
+            }
+        });
     }
 
     private void playAnimation() {
-        this.mapCanvas.getSimulation().playUpdate();
+        this.mapCanvas.getSimulation().playUpdate(this.speedChoice.getValue());
         this.playBtn.setDisable(true);
         this.pauseBtn.setDisable(false);
         this.timerTimeLine.play();
@@ -116,29 +116,36 @@ public final class Formulas {
             b = (-2 * circleCenterX) + 2 * slope * (yInt - circleCenterY);
             c = circleCenterX * circleCenterX + (yInt - circleCenterY)
                     * (yInt - circleCenterY) - circleRadius * circleRadius;
-            double[] results = getQuadraticEquationResults(a, b, c);
 
-            if (results.length == 0) {
+            // roots are solved inline rather than through getQuadraticEquationResults so that
+            // no array is allocated on every call
+            final double determinant = (b * b) - (4 * a * c);
+            if (determinant < 0) {
                 return length;
             }
-            if ((results[0] > lineEndX || results[0] < lineStartX)
-                    && (results[1] > lineEndX || results[1] < lineStartX)) {
+
+            final double sqrtDeterminant = Math.sqrt(determinant);
+            final double root0 = (-b + sqrtDeterminant) / (2 * a);
+            final double root1 = (-b - sqrtDeterminant) / (2 * a);
+
+            if ((root0 > lineEndX || root0 < lineStartX)
+                    && (root1 > lineEndX || root1 < lineStartX)) {
                 return length;
             }
-            if (results[0] <= lineEndX && results[0] >= lineStartX
-                    && (results[1] > lineEndX || results[1] < lineStartX)) {
+            if (root0 <= lineEndX && root0 >= lineStartX
+                    && (root1 > lineEndX || root1 < lineStartX)) {
                 return distance(lineStartX, lineStartY,
-                        results[0], slope * results[0] + yInt);
+                        root0, slope * root0 + yInt);
             }
-            if (results[1] <= lineEndX && results[1] >= lineStartX
-                    && (results[0] > lineEndX || results[0] < lineStartX)) {
+            if (root1 <= lineEndX && root1 >= lineStartX
+                    && (root0 > lineEndX || root0 < lineStartX)) {
                 return distance(lineStartX, lineStartY,
-                        results[1], slope * results[1] + yInt);
+                        root1, slope * root1 + yInt);
             } else {
-                double distance1 = distance(results[0], slope * results[0] + yInt,
+                double distance1 = distance(root0, slope * root0 + yInt,
                         lineStartX, lineStartY);
-                double distance2 = distance(results[1],
-                        slope * results[1] + yInt,
+                double distance2 = distance(root1,
+                        slope * root1 + yInt,
                         lineStartX, lineStartY);
 
                 return (distance1 <= distance2 ? distance1 : distance2);
@@ -158,7 +165,166 @@ public final class Formulas {
      */
     public static double distance(final double x1, final double y1,
                                   final double x2, final double y2) {
-        return Math.sqrt(Math.pow(x2 - x1, 2) + Math.pow(y2 - y1, 2));
+        return Math.sqrt(distanceSquared(x1, y1, x2, y2));
+    }
+
+    /**
+     * Calculates the squared distance between two points.
+     * <p>
+     * Prefer this over {@link #distance} whenever the result is only compared against a
+     * threshold, as it avoids the square root.
+     *
+     * @param x1 x coordinate of the first point
+     * @param y1 y coordinate of the first point
+     * @param x2 x coordinate of the second point
+     * @param y2 y coordinate of the second point
+     * @return the squared distance between the two points
+     */
+    public static double distanceSquared(final double x1, final double y1,
+                                         final double x2, final double y2) {
+        final double deltaX = x2 - x1;
+        final double deltaY = y2 - y1;
+        return deltaX * deltaX + deltaY * deltaY;
+    }
+
+    /**
+     * Tests if two points are at most a given distance apart, without computing a square root.
+     *
+     * @param x1       x coordinate of the first point
+     * @param y1       y coordinate of the first point
+     * @param x2       x coordinate of the second point
+     * @param y2       y coordinate of the second point
+     * @param distance the maximum distance allowed between the points
+     * @return whether the points are within the distance of each other
+     */
+    public static boolean isWithinDistance(final double x1, final double y1,
+                                           final double x2, final double y2,
+                                           final double distance) {
+        return distanceSquared(x1, y1, x2, y2) <= distance * distance;
+    }
+
+    /**
+     * Tests if two circles overlap. Circles that are only touching do not overlap.
+     *
+     * @param x1 x coordinate of the center of the first circle
+     * @param y1 y coordinate of the center of the first circle
+     * @param r1 radius of the first circle
+     * @param x2 x coordinate of the center of the second circle
+     * @param y2 y coordinate of the center of the second circle
+     * @param r2 radius of the second circle
+     * @return whether the circles overlap
+     */
+    public static boolean circlesOverlap(final double x1, final double y1, final double r1,
+                                         final double x2, final double y2, final double r2) {
+        final double radii = r1 + r2;
+        return distanceSquared(x1, y1, x2, y2) < radii * radii;
+    }
+
+    /**
+     * Computes the distance along a ray at which it first enters a circle.
+     * <p>
+     * The direction of the ray must be a unit vector. A circle behind the origin of the ray is
+     * never hit. If the origin is inside the circle, the returned distance is negative.
+     *
+     * @param originX    x coordinate of the origin of the ray
+     * @param originY    y coordinate of the origin of the ray
+     * @param directionX x component of the unit direction of the ray
+     * @param directionY y component of the unit direction of the ray
+     * @param centerX    x coordinate of the center of the circle
+     * @param centerY    y coordinate of the center of the circle
+     * @param radius     radius of the circle
+     * @return the distance to the first hit, or {@link Double#NaN} if the ray misses
+     */
+    public static double rayCircleFirstHit(final double originX, final double originY,
+                                           final double directionX, final double directionY,
+                                           final double centerX, final double centerY,
+                                           final double radius) {
+        final double toCenterX = centerX - originX;
+        final double toCenterY = centerY - originY;
+        final double projection = toCenterX * directionX + toCenterY * directionY;
+
+        if (projection < 0) {
+            return Double.NaN;
+        }
+
+        final double perpendicularSquared =
+            toCenterX * toCenterX + toCenterY * toCenterY - projection * projection;
+        final double radiusSquared = radius * radius;
+
+        if (perpendicularSquared > radiusSquared) {
+            return Double.NaN;
+        }
+
+        return projection - Math.sqrt(radiusSquared - perpendicularSquared);
+    }
+
+    /**
+     * Computes the squared distance between a point and many other points.
+     *
+     * @param x     x coordinate of the point
+     * @param y     y coordinate of the point
+     * @param xs    x coordinates of the other points
+     * @param ys    y coordinates of the other points
+     * @param out   array receiving the squared distance to each other point
+     * @param count number of other points to process
+     */
+    public static void distancesSquared(final double x, final double y,
+                                        final double[] xs, final double[] ys,
+                                        final double[] out, final int count) {
+        for (int i = 0; i < count; ++i) {
+            final double deltaX = xs[i] - x;
+            final double deltaY = ys[i] - y;
+            out[i] = deltaX * deltaX + deltaY * deltaY;
+        }
+    }
+
+    /**
+     * Casts many rays sharing the same origin against a circle, lowering each distance to the
+     * first hit of its ray. Distances of rays missing the circle are left untouched.
+     * <p>
+     * This is the batch version of {@link #rayCircleFirstHit}, used to update all sensors of an
+     * entity against another entity at once.
+     *
+     * @param originX     x coordinate of the origin of the rays
+     * @param originY     y coordinate of the origin of the rays
+     * @param directionsX x components of the unit directions of the rays
+     * @param directionsY y components of the unit directions of the rays
+     * @param centerX     x coordinate of the center of the circle
+     * @param centerY     y coordinate of the center of the circle
+     * @param radius      radius of the circle
+     * @param distances   current distance of each ray, lowered in place on a closer hit
+     * @param count       number of rays to process
+     */
+    public static void closestRayCircleHits(final double originX, final double originY,
+                                            final double[] directionsX,
+                                            final double[] directionsY,
+                                            final double centerX, final double centerY,
+                                            final double radius,
+                                            final double[] distances, final int count) {
+        final double toCenterX = centerX - originX;
+        final double toCenterY = centerY - originY;
+        final double centerDistanceSquared = toCenterX * toCenterX + toCenterY * toCenterY;
+        final double radiusSquared = radius * radius;
+
+        for (int i = 0; i < count; ++i) {
+            final double projection = toCenterX * directionsX[i] + toCenterY * directionsY[i];
+
+            if (projection < 0) {
+                continue;
+            }
+
+            final double perpendicularSquared = centerDistanceSquared - projection * projection;
+
+            if (perpendicularSquared > radiusSquared) {
+                continue;
+            }
+
+            final double hit = projection - Math.sqrt(radiusSquared - perpendicularSquared);
+
+            if (hit < distances[i]) {
+                distances[i] = hit;
+            }
+        }
     }
 
     /**
@@ -209,43 +375,16 @@ public final class Formulas {
         final double angle,
         final Circle circle
     ) {
-        final double circlePointCenterAngle = Math.atan2(
-            circle.getCenter().getY() - point.getY(),
-            circle.getCenter().getX() - point.getX()
-        );
-
-        final double deltaAngle = circlePointCenterAngle - angle;
-
-        final double circlePointDistance = distance(
+        final double hit = rayCircleFirstHit(
             point.getX(),
             point.getY(),
+            Math.cos(angle),
+            Math.sin(angle),
             circle.getCenter().getX(),
-            circle.getCenter().getY()
-        );
-
-        final double midpointDistance = circlePointDistance * Math.cos(deltaAngle);
-        if (midpointDistance < 0) {
-            return Double.POSITIVE_INFINITY;
-        }
-
-        final double midpointX = point.getX() + midpointDistance * Math.cos(angle);
-        final double midpointY = point.getY() + midpointDistance * Math.sin(angle);
-
-        final double midpointCircleCenterDistance = distance(
-            midpointX,
-            midpointY,
-            circle.getCenter().getX(),
-            circle.getCenter().getY()
-        );
-
-        if (circle.getRadius() < midpointCircleCenterDistance) {
-            return Double.POSITIVE_INFINITY;
-        }
-
-        final double distanceDelta = Math.sqrt(
-            Math.pow(circle.getRadius(), 2) - Math.pow(midpointCircleCenterDistance, 2)
+            circle.getCenter().getY(),
+            circle.getRadius()
         );
 
-        return distance(point.getX(), point.getY(), midpointX, midpointY) - distanceDelta;
+        return Double.isNaN(hit) ? Double.POSITIVE_INFINITY : hit;
     }
 }
@@ -5,6 +5,8 @@ import java.util.List;
 import java.util.stream.Stream;
 
 import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import lombok.AccessLevel;
 import lombok.Getter;
 import lombok.ToString;
 import org.totallyspies.evosim.utils.Configuration;
@@ -19,6 +21,12 @@ import org.totallyspies.evosim.utils.Rng;
  * values (input layer) are all data collected by the Entity sensors. Every other layer has their
  * values calculated by taking the dot product of the list of Neuron values and the list of
  * weights. The final layer's values (output layer) determines what the Entity's decision will be.
+ * <p>
+ * Decisions are computed from the compiled form of the network, in which the clamp of every
+ * neuron is folded into its weights.
+ * A network may be pruned, in which case the weights of too small a magnitude are skipped when
+ * computing a decision. The neurons keep every weight, so that mutations can revive them.
+ * </p>
  *
  * @author mattlep11, niakouu
  */
@@ -39,6 +47,20 @@ public class NeuralNetwork {
      */
     private double[][] calculationArrays;
 
+    /**
+     * Magnitude under which weights are pruned, or 0 if the network is not pruned.
+     */
+    @JsonIgnore
+    private double pruneThreshold;
+
+    /**
+     * Live weights of every layer but the input layer, or null if the network is not pruned.
+     */
+    @JsonIgnore
+    @Getter(AccessLevel.NONE)
+    @ToString.Exclude
+    private SparseLayer[] sparseLayers;
+
     /**
      * Constructs a Neural Network with a set number of layers with specific sizes.
      *
@@ -48,7 +70,8 @@ public class NeuralNetwork {
     public NeuralNetwork(final List<Integer> layerSizes) {
         this.neuronLayers = new ArrayList<>();
 
-        int activationFunctionIndex = Rng.RNG.nextInt(0, Formulas.ACTIVATION_FUNCTIONS.size());
+        int activationFunctionIndex =
+            Rng.getRandom().nextInt(0, Formulas.ACTIVATION_FUNCTIONS.size());
 
         // populate neural network
         int lastSize = 0;
@@ -102,10 +125,19 @@ public class NeuralNetwork {
         for (int layerIndex = 0; layerIndex < this.neuronLayers.size(); ++layerIndex) {
             final int newFlipFlop = ~flipFlop & 1;
             final List<Neuron> layer = this.neuronLayers.get(layerIndex);
-            for (int i = 0; i < layer.size(); ++i) {
-                this.calculationArrays[newFlipFlop][i] = layer.get(i).feedUnchecked(
-                    this.calculationArrays[flipFlop], layerIndex == 0 ? i : 0
-                );
+            if (layerIndex > 0 && this.sparseLayers != null) {
+                final SparseLayer sparseLayer = this.sparseLayers[layerIndex - 1];
+                for (int i = 0; i < layer.size(); ++i) {
+                    this.calculationArrays[newFlipFlop][i] = sparseLayer.feed(
+                        layer.get(i), i, this.calculationArrays[flipFlop]
+                    );
+                }
+            } else {
+                for (int i = 0; i < layer.size(); ++i) {
+                    this.calculationArrays[newFlipFlop][i] = layer.get(i).feedUnchecked(
+                        this.calculationArrays[flipFlop], layerIndex == 0 ? i : 0
+                    );
+                }
             }
 
             flipFlop = newFlipFlop;
@@ -148,10 +180,188 @@ public class NeuralNetwork {
 
         mutatedNeuralNetwork.calculationArrays =
             new double[this.calculationArrays.length][this.calculationArrays[0].length];
+        mutatedNeuralNetwork.prune(this.pruneThreshold);
 
         return mutatedNeuralNetwork;
     }
 
+    /**
+     * Copies the network with the current value of every neuron. The copy can be read by another
+     * thread while this network keeps computing decisions, but cannot compute decisions itself.
+     *
+     * @return the copy
+     */
+    public NeuralNetwork copy() {
+        final NeuralNetwork copy = new NeuralNetwork();
+        copy.neuronLayers = this.neuronLayers.stream()
+            .map(neurons -> neurons.stream().map(Neuron::copy).toList())
+            .toList();
+        copy.prune(this.pruneThreshold);
+        return copy;
+    }
+
+    /**
+     * Gets the number of neurons of every layer together.
+     *
+     * @return the number of neurons
+     */
+    public int getNeuronCount() {
+        int count = 0;
+        for (final List<Neuron> neurons : this.neuronLayers) {
+            count += neurons.size();
+        }
+        return count;
+    }
+
+    /**
+     * Copies the value of every neuron, layer after layer, into an array holding at least
+     * {@link #getNeuronCount()} values.
+     *
+     * @param values the array to copy the values into
+     */
+    public void copyValuesTo(final double[] values) {
+        int index = 0;
+        for (final List<Neuron> neurons : this.neuronLayers) {
+            for (final Neuron neuron : neurons) {
+                values[index++] = neuron.getValue();
+            }
+        }
+    }
+
+    /**
+     * Sets the value of every neuron, layer after layer, from an array filled by
+     * {@link #copyValuesTo(double[])} on a network with the same layer sizes.
+     *
+     * @param values the values of the neurons
+     */
+    public void copyValuesFrom(final double[] values) {
+        int index = 0;
+        for (final List<Neuron> neurons : this.neuronLayers) {
+            for (final Neuron neuron : neurons) {
+                neuron.setValue(values[index++]);
+            }
+        }
+    }
+
+    /**
+     * Turns this neural network into a mutated copy of another one, reusing the neurons of this
+     * network instead of allocating new ones. Nothing is changed if both networks do not have
+     * the same layer sizes.
+     *
+     * @param parent       the network to copy
+     * @param mutationRate the mutation rate for the mutations
+     * @return if this network could be reused
+     */
+    public boolean mutateFrom(final NeuralNetwork parent, final double mutationRate) {
+        if (this.calculationArrays == null
+            || this.neuronLayers.size() != parent.neuronLayers.size()) {
+            return false;
+        }
+
+        for (int layer = 0; layer < this.neuronLayers.size(); ++layer) {
+            final List<Neuron> neurons = this.neuronLayers.get(layer);
+            final List<Neuron> parentNeurons = parent.neuronLayers.get(layer);
+
+            if (neurons.size() != parentNeurons.size()
+                || neurons.get(0).getWeights().length
+                != parentNeurons.get(0).getWeights().length) {
+                return false;
+            }
+        }
+
+        for (int layer = 0; layer < this.neuronLayers.size(); ++layer) {
+            final List<Neuron> neurons = this.neuronLayers.get(layer);
+            final List<Neuron> parentNeurons = parent.neuronLayers.get(layer);
+
+            for (int i = 0; i < neurons.size(); ++i) {
+                neurons.get(i).mutateFrom(parentNeurons.get(i), mutationRate);
+            }
+        }
+
+        this.prune(parent.pruneThreshold);
+
+        return true;
+    }
+
+    /**
+     * Compiles this network again after some of its weights or clamps were changed: the clamps
+     * are folded into the weights used to compute decisions and the network is pruned again.
+     */
+    public void compile() {
+        for (final List<Neuron> layer : this.neuronLayers) {
+            for (final Neuron neuron : layer) {
+                neuron.compile();
+            }
+        }
+
+        this.prune(this.pruneThreshold);
+    }
+
+    /**
+     * Prunes the weights of this network whose magnitude is under a threshold, so that computing
+     * a decision only goes through the remaining weights. The input layer is never pruned. The
+     * pruning must be done again whenever the weights change.
+     *
+     * @param threshold the magnitude under which weights are pruned, 0 or less to stop pruning
+     */
+    public void prune(final double threshold) {
+        if (threshold <= 0) {
+            this.pruneThreshold = 0;
+            this.sparseLayers = null;
+            return;
+        }
+
+        if (this.sparseLayers == null) {
+            this.sparseLayers = new SparseLayer[this.neuronLayers.size() - 1];
+            for (int layer = 1; layer < this.neuronLayers.size(); ++layer) {
+                this.sparseLayers[layer - 1] =
+                    new SparseLayer(this.neuronLayers.get(layer).size());
+            }
+        }
+
+        this.pruneThreshold = threshold;
+        for (int layer = 1; layer < this.neuronLayers.size(); ++layer) {
+            this.sparseLayers[layer - 1].build(this.neuronLayers.get(layer), threshold);
+        }
+    }
+
+    /**
+     * Tests if a weight is skipped when computing a decision.
+     *
+     * @param layer  the layer of the neuron owning the weight
+     * @param neuron the index of the neuron in its layer
+     * @param weight the index of the weight in the neuron
+     * @return if the weight is pruned
+     */
+    public boolean isPruned(final int layer, final int neuron, final int weight) {
+        return this.sparseLayers != null && layer > 0 && Math.abs(
+            this.neuronLayers.get(layer).get(neuron).getWeights()[weight]
+        ) < this.pruneThreshold;
+    }
+
+    /**
+     * Gets the fraction of the weights between layers that are used when computing a decision.
+     *
+     * @return the live fraction of the weights, 1 if the network is not pruned
+     */
+    @JsonIgnore
+    public double getLiveWeightRatio() {
+        if (this.sparseLayers == null) {
+            return 1;
+        }
+
+        int live = 0;
+        int total = 0;
+        for (int layer = 1; layer < this.neuronLayers.size(); ++layer) {
+            live += this.sparseLayers[layer - 1].getLiveCount();
+            for (final Neuron neuron : this.neuronLayers.get(layer)) {
+                total += neuron.getWeights().length;
+            }
+        }
+
+        return total == 0 ? 1 : (double) live / total;
+    }
+
     /**
      * Function called by Jackson to deserialize the neural network.
      * Cannot be a constructor as clashing constructor exists.
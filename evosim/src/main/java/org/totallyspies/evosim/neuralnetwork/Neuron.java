@@ -1,10 +1,11 @@
 package org.totallyspies.evosim.neuralnetwork;
 
-import java.util.Arrays;
+import java.util.Random;
 import java.util.function.Function;
 import com.fasterxml.jackson.annotation.JsonCreator;
 import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonProperty;
+import lombok.AccessLevel;
 import lombok.Getter;
 import lombok.Setter;
 import lombok.ToString;
@@ -49,12 +50,33 @@ public final class Neuron {
   /**
    * The value of the Neuron, which is the result of the activation function.
    */
+  @Setter(AccessLevel.PACKAGE)
   private double value;
 
   /**
-   * The weights the Neuron has, which are necessary for computations.
+   * The weights the Neuron has, which are necessary for computations. The array may be shared
+   * with the neurons of parents and children, so it is never written to directly: use
+   * {@link #setWeight(int, double)} instead.
    */
-  private final double[] weights;
+  private double[] weights;
+
+  /**
+   * The weights divided by the clamp, so that feeding inputs needs no division. Kept apart from
+   * the weights so that those stay intact for save files and the UI.
+   */
+  @JsonIgnore
+  @Getter(AccessLevel.NONE)
+  @ToString.Exclude
+  private double[] scaledWeights;
+
+  /**
+   * Whether the weight arrays may be referenced by other neurons. Shared arrays are immutable
+   * and are copied before being written to.
+   */
+  @JsonIgnore
+  @Getter(AccessLevel.NONE)
+  @ToString.Exclude
+  private boolean shared;
 
   /**
    * The activation function randomly selected.
@@ -65,12 +87,11 @@ public final class Neuron {
   /**
    * The activation function id.
    */
-  private final int activationFunctionIndex;
+  private int activationFunctionIndex;
 
   /**
    * Value to clamp to.
    */
-  @Setter
   private double clamp;
 
   /**
@@ -107,7 +128,7 @@ public final class Neuron {
     this.weights = new double[inputs];
     for (int i = 0; i < this.weights.length; i++) {
       this.weights[i] = randomizeWeights
-          ? Rng.RNG.nextDouble(Neuron.WEIGHT_MIN, Neuron.WEIGHT_MAX)
+          ? Rng.getRandom().nextDouble(Neuron.WEIGHT_MIN, Neuron.WEIGHT_MAX)
           : 1;
     }
 
@@ -116,6 +137,8 @@ public final class Neuron {
     this.activationFunction = Formulas.ACTIVATION_FUNCTIONS.get(newActivationFunctionIndex);
 
     this.clamp = newClamp;
+    this.scaledWeights = new double[inputs];
+    this.compile();
   }
 
   /**
@@ -138,6 +161,95 @@ public final class Neuron {
     this.activationFunctionIndex = newActivationFunctionIndex;
     this.activationFunction = Formulas.ACTIVATION_FUNCTIONS.get(newActivationFunctionIndex);
     this.clamp = newClamp;
+    this.scaledWeights = new double[neuronWeights.length];
+    this.compile();
+  }
+
+  /**
+   * Creates a Neuron identical to another one, sharing its weight arrays.
+   *
+   * @param original the neuron to share the weights of
+   */
+  private Neuron(final Neuron original) {
+    original.shared = true;
+
+    this.bias = original.bias;
+    this.weights = original.weights;
+    this.scaledWeights = original.scaledWeights;
+    this.shared = true;
+    this.activationFunctionIndex = original.activationFunctionIndex;
+    this.activationFunction = original.activationFunction;
+    this.clamp = original.clamp;
+  }
+
+  /**
+   * Copies the neuron with its current value and its own weights, so that neither neuron has to
+   * copy its weights when the other one is mutated.
+   *
+   * @return the copy
+   */
+  Neuron copy() {
+    final Neuron copy = new Neuron(
+        this.bias,
+        this.weights.clone(),
+        this.activationFunctionIndex,
+        this.clamp
+    );
+    copy.value = this.value;
+    return copy;
+  }
+
+  /**
+   * Sets a weight, copying the weights first if they are shared with another neuron.
+   *
+   * @param index  the index of the weight
+   * @param weight the new value of the weight
+   */
+  public void setWeight(final int index, final double weight) {
+    if (this.shared) {
+      this.weights = this.weights.clone();
+      this.scaledWeights = new double[this.weights.length];
+      this.shared = false;
+      this.compile();
+    }
+
+    this.weights[index] = weight;
+    this.scaledWeights[index] = weight / this.clamp;
+  }
+
+  /**
+   * Sets the value to clamp the inputs to, and folds it into the scaled weights.
+   *
+   * @param newClamp the value to clamp the inputs to
+   */
+  public void setClamp(final double newClamp) {
+    this.clamp = newClamp;
+    this.compile();
+  }
+
+  /**
+   * Folds the clamp into the scaled weights used to feed inputs.
+   */
+  public void compile() {
+    if (this.shared) {
+      this.scaledWeights = new double[this.weights.length];
+    }
+
+    final double scale = 1 / this.clamp;
+
+    for (int i = 0; i < this.weights.length; ++i) {
+      this.scaledWeights[i] = this.weights[i] * scale;
+    }
+  }
+
+  /**
+   * Gets a weight divided by the clamp.
+   *
+   * @param index the index of the weight
+   * @return the scaled weight
+   */
+  double getScaledWeight(final int index) {
+    return this.scaledWeights[index];
   }
 
   /**
@@ -164,8 +276,36 @@ public final class Neuron {
   public double feedUnchecked(final double[] inputs, final int fromIndex) {
     double sum = this.bias;
 
-    for (int i = 0; i < this.weights.length; ++i) {
-      sum += (inputs[fromIndex + i] / clamp) * this.weights[i];
+    for (int i = 0; i < this.scaledWeights.length; ++i) {
+      sum += inputs[fromIndex + i] * this.scaledWeights[i];
+    }
+
+    this.value = sum;
+
+    return Formulas.hyperbolicTangent(sum);
+  }
+
+  /**
+   * Feeds the input forward through the live weights of a pruned layer only.
+   *
+   * @param inputs      outputs from the previous layer
+   * @param columns     index of the input of each live weight
+   * @param liveWeights value of each live weight, divided by the clamp
+   * @param from        offset of the first live weight of this neuron
+   * @param to          offset after the last live weight of this neuron
+   * @return dot product of activated inputs and live weights
+   */
+  double feedSparse(
+      final double[] inputs,
+      final int[] columns,
+      final double[] liveWeights,
+      final int from,
+      final int to
+  ) {
+    double sum = this.bias;
+
+    for (int k = from; k < to; ++k) {
+      sum += inputs[columns[k]] * liveWeights[k];
     }
 
     this.value = sum;
@@ -175,22 +315,101 @@ public final class Neuron {
 
   /**
    * Mutates the neuron. For each field, if a random value between 0 and 1 is under the mutation
-   * rate, the field (weight or bias) is randomized.
+   * rate, the field (weight or bias) is randomized. Pruned weights are still part of the neuron
+   * and may be revived this way. If no weight is mutated, the new neuron shares the weights of
+   * this one instead of copying them.
    *
    * @param mutationRate The mutation rate for the mutations.
    * @return New neuron based on parent
    */
   public Neuron mutate(final double mutationRate) {
+    final double[] mutatedWeights = Neuron.mutateWeights(this.weights, null, mutationRate);
+
+    if (mutatedWeights == this.weights) {
+      return new Neuron(this);
+    }
+
     return new Neuron(
         this.bias,
-        Arrays.stream(this.weights).map(
-            w -> Rng.RNG.nextDouble() < mutationRate
-                ? Rng.RNG.nextDouble(Neuron.WEIGHT_MIN, Neuron.WEIGHT_MAX)
-                : w
-        ).toArray(),
+        mutatedWeights,
         this.activationFunctionIndex,
         this.clamp
     );
   }
 
+  /**
+   * Turns this neuron into a mutated copy of another one, sharing the weights of the other
+   * neuron if none is mutated and otherwise reusing the weights of this neuron instead of
+   * allocating new ones when they are not shared. Both neurons must have the same number of
+   * weights.
+   *
+   * @param parent       The neuron to copy.
+   * @param mutationRate The mutation rate for the mutations.
+   */
+  public void mutateFrom(final Neuron parent, final double mutationRate) {
+    if (parent.weights.length != this.weights.length) {
+      throw new IllegalArgumentException("Neurons have a different number of weights");
+    }
+
+    this.bias = parent.bias;
+    this.clamp = parent.clamp;
+    this.value = 0;
+    this.activationFunctionIndex = parent.activationFunctionIndex;
+    this.activationFunction = parent.activationFunction;
+
+    final double[] mutatedWeights = Neuron.mutateWeights(
+        parent.weights, this.shared ? null : this.weights, mutationRate
+    );
+
+    if (mutatedWeights == parent.weights) {
+      parent.shared = true;
+      this.weights = parent.weights;
+      this.scaledWeights = parent.scaledWeights;
+      this.shared = true;
+      return;
+    }
+
+    if (this.shared) {
+      this.scaledWeights = new double[mutatedWeights.length];
+      this.shared = false;
+    }
+
+    this.weights = mutatedWeights;
+    this.compile();
+  }
+
+  /**
+   * Mutates weights, only materialising a new array once a weight is actually mutated.
+   *
+   * @param parentWeights the weights to mutate, left untouched
+   * @param reusable      an array to write the mutated weights into, or null to allocate one
+   * @param mutationRate  the mutation rate for the mutations
+   * @return the parent weights themselves if none was mutated, the mutated weights otherwise
+   */
+  private static double[] mutateWeights(
+      final double[] parentWeights,
+      final double[] reusable,
+      final double mutationRate
+  ) {
+    final Random random = Rng.getRandom();
+    double[] mutatedWeights = parentWeights;
+
+    for (int i = 0; i < parentWeights.length; ++i) {
+      final boolean mutates = random.nextDouble() < mutationRate;
+
+      if (mutates && mutatedWeights == parentWeights) {
+        mutatedWeights = reusable != null ? reusable : new double[parentWeights.length];
+        System.arraycopy(parentWeights, 0, mutatedWeights, 0, i);
+      }
+
+      if (mutatedWeights != parentWeights) {
+        mutatedWeights[i] = mutates
+            ? random.nextDouble(Neuron.WEIGHT_MIN, Neuron.WEIGHT_MAX)
+            : parentWeights[i];
+      }
+    }
+
+    return mutatedWeights;
+  }
+
 }
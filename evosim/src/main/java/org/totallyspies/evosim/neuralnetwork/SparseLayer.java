@@ -0,0 +1,107 @@
+package org.totallyspies.evosim.neuralnetwork;
+
+import java.util.List;
+
+/**
+ * Weights of a layer of a pruned neural network in compressed sparse row layout. Only the
+ * weights whose magnitude reaches the prune threshold are kept, so feeding the layer costs one
+ * multiplication per live connection instead of one per possible connection.
+ * <p>
+ * The live weights of neuron {@code n} are found between {@code rowStarts[n]} and
+ * {@code rowStarts[n + 1]}, along with the index of the input each of them is applied to.
+ * </p>
+ *
+ * @author agent
+ */
+final class SparseLayer {
+
+    /**
+     * Offset of the first live weight of each neuron, with one more element than there are
+     * neurons.
+     */
+    private final int[] rowStarts;
+
+    /**
+     * Index of the input of each live weight.
+     */
+    private int[] columns;
+
+    /**
+     * Value of each live weight, divided by the clamp of its neuron.
+     */
+    private double[] values;
+
+    /**
+     * Constructs an empty layer.
+     *
+     * @param neuronCount number of neurons of the layer
+     */
+    SparseLayer(final int neuronCount) {
+        this.rowStarts = new int[neuronCount + 1];
+        this.columns = new int[0];
+        this.values = new double[0];
+    }
+
+    /**
+     * Gathers the live weights of the neurons of a layer, reusing the arrays of the previous
+     * build when they are large enough.
+     *
+     * @param neurons   the neurons of the layer
+     * @param threshold the magnitude under which weights are pruned
+     */
+    void build(final List<Neuron> neurons, final double threshold) {
+        int live = 0;
+        for (int n = 0; n < neurons.size(); ++n) {
+            for (final double weight : neurons.get(n).getWeights()) {
+                if (Math.abs(weight) >= threshold) {
+                    ++live;
+                }
+            }
+        }
+
+        if (this.values.length < live) {
+            this.columns = new int[live];
+            this.values = new double[live];
+        }
+
+        int next = 0;
+        for (int n = 0; n < neurons.size(); ++n) {
+            this.rowStarts[n] = next;
+
+            final Neuron neuron = neurons.get(n);
+            final double[] weights = neuron.getWeights();
+            for (int i = 0; i < weights.length; ++i) {
+                if (Math.abs(weights[i]) >= threshold) {
+                    this.columns[next] = i;
+                    this.values[next] = neuron.getScaledWeight(i);
+                    ++next;
+                }
+            }
+        }
+
+        this.rowStarts[neurons.size()] = next;
+    }
+
+    /**
+     * Feeds the inputs forward through one neuron of the layer.
+     *
+     * @param neuron the neuron to feed
+     * @param index  the index of the neuron in the layer
+     * @param inputs outputs of the previous layer
+     * @return the activated output of the neuron
+     */
+    double feed(final Neuron neuron, final int index, final double[] inputs) {
+        return neuron.feedSparse(
+            inputs, this.columns, this.values, this.rowStarts[index], this.rowStarts[index + 1]
+        );
+    }
+
+    /**
+     * Gets the number of live weights of the layer.
+     *
+     * @return the number of weights kept by the last build
+     */
+    int getLiveCount() {
+        return this.rowStarts[this.rowStarts.length - 1];
+    }
+}
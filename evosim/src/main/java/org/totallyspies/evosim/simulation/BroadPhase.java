@@ -0,0 +1,37 @@
+package org.totallyspies.evosim.simulation;
+
+import java.util.function.IntConsumer;
+
+/**
+ * A broad phase quickly narrows down which entities may be close enough to interact, so that
+ * the exact sensor and collision checks only run on a small set of candidates.
+ * <p>
+ * Entities are identified by their index in the arrays given to {@link #build}. A broad phase is
+ * rebuilt once per tick and may then be queried concurrently from many threads.
+ * </p>
+ *
+ * @author agent
+ */
+public interface BroadPhase {
+
+    /**
+     * Rebuilds the broad phase from the positions and species of all entities of a tick.
+     *
+     * @param xs      x position of each entity
+     * @param ys      y position of each entity
+     * @param species species of each entity
+     * @param count   number of entities to index
+     */
+    void build(double[] xs, double[] ys, int[] species, int count);
+
+    /**
+     * Calls the consumer with the index of every entity of another species that may be within
+     * range of the entity at the given index. Candidates may be farther than the range, but no
+     * entity within range is ever left out.
+     *
+     * @param index    index of the entity to find candidates for
+     * @param range    distance within which candidates are searched
+     * @param consumer function called with the index of every candidate
+     */
+    void forEachCandidate(int index, double range, IntConsumer consumer);
+}
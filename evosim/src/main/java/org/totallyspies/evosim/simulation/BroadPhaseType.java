@@ -0,0 +1,55 @@
+package org.totallyspies.evosim.simulation;
+
+/**
+ * The broad phases a simulation can use to find which entities can see each other.
+ *
+ * @author agent
+ */
+public enum BroadPhaseType {
+
+    /**
+     * Buckets entities into the cells of a uniform grid. Best when entities are spread evenly
+     * across the map.
+     */
+    GRID {
+        @Override
+        public BroadPhase create(final double width, final double height,
+                                 final double cellSize) {
+            return new UniformGridBroadPhase(width, height, cellSize);
+        }
+    },
+
+    /**
+     * Sorts entities along the x axis. Best when entities gather in dense clusters, where most
+     * cells of a grid would be empty.
+     */
+    SWEEP_AND_PRUNE {
+        @Override
+        public BroadPhase create(final double width, final double height,
+                                 final double cellSize) {
+            return new SweepAndPruneBroadPhase();
+        }
+    },
+
+    /**
+     * Indexes entities in a quadtree that splits where entities are dense. Best when most
+     * entities gather in a few clusters.
+     */
+    QUADTREE {
+        @Override
+        public BroadPhase create(final double width, final double height,
+                                 final double cellSize) {
+            return new QuadTreeBroadPhase(width, height);
+        }
+    };
+
+    /**
+     * Creates an empty broad phase of this type for a world.
+     *
+     * @param width    width of the world
+     * @param height   height of the world
+     * @param cellSize width and height of a cell for broad phases using a grid
+     * @return the new broad phase
+     */
+    public abstract BroadPhase create(double width, double height, double cellSize);
+}
@@ -0,0 +1,25 @@
+package org.totallyspies.evosim.simulation;
+
+/**
+ * Classes of the locks of the chunks of a simulation, as profiled by its
+ * {@link org.totallyspies.evosim.utils.LockProfiler}.
+ *
+ * @author agent
+ */
+public enum ChunkLock {
+
+    /**
+     * Locks of the entities living in a chunk.
+     */
+    ENTITIES,
+
+    /**
+     * Locks of the entities entering a chunk during an update.
+     */
+    ADDITIONS,
+
+    /**
+     * Locks of the entities leaving a chunk during an update.
+     */
+    REMOVALS
+}
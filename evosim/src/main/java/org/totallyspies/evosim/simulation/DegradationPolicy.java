@@ -0,0 +1,32 @@
+package org.totallyspies.evosim.simulation;
+
+/**
+ * What a simulation gives up when its updates keep taking longer than the time between them.
+ * Every degradation level multiplies the cost saved, level 0 always being the full simulation.
+ *
+ * @author agent
+ */
+public enum DegradationPolicy {
+
+    /**
+     * Overruns are counted, but the simulation is never degraded.
+     */
+    NONE,
+
+    /**
+     * Waits longer between updates, so the simulation runs slower than real time but every
+     * update is complete.
+     */
+    TICK_RATE,
+
+    /**
+     * Evaluates the brains of the entities less often, holding their decisions in between.
+     */
+    THINK_INTERVAL,
+
+    /**
+     * Updates the sensors of the entities less often, staggered by identifier, keeping their
+     * previous readings in between. Collisions are still checked for every entity on every tick.
+     */
+    APPROXIMATE_SENSING
+}
@@ -0,0 +1,107 @@
+package org.totallyspies.evosim.simulation;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.LongAdder;
+import org.totallyspies.evosim.entities.Entity;
+
+/**
+ * Pool of dead entities kept to be recycled as newborns, so that births in a steady population
+ * reuse the body, buffers and brain of dead entities instead of allocating new ones. Entities are
+ * pooled by species tag and may be acquired and released from many threads at once.
+ *
+ * @author agent
+ */
+public final class EntityPool {
+
+    /**
+     * Maximum number of entities kept for each species.
+     */
+    private static final int MAX_POOLED = 512;
+
+    /**
+     * Dead entities of each species waiting to be recycled, indexed by species tag.
+     */
+    private final Queue<Entity>[] pooled;
+
+    /**
+     * Number of entities waiting to be recycled for each species.
+     */
+    private final AtomicIntegerArray sizes;
+
+    /**
+     * Number of acquisitions that got a recycled entity.
+     */
+    private final LongAdder hits;
+
+    /**
+     * Number of acquisitions that found the pool empty.
+     */
+    private final LongAdder misses;
+
+    /**
+     * Constructs an empty pool.
+     *
+     * @param speciesCount number of species of the ecosystem
+     */
+    @SuppressWarnings("unchecked")
+    public EntityPool(final int speciesCount) {
+        this.pooled = new Queue[speciesCount];
+        for (int tag = 0; tag < speciesCount; ++tag) {
+            this.pooled[tag] = new ConcurrentLinkedQueue<>();
+        }
+
+        this.sizes = new AtomicIntegerArray(speciesCount);
+        this.hits = new LongAdder();
+        this.misses = new LongAdder();
+    }
+
+    /**
+     * Takes a dead entity of a species out of the pool.
+     *
+     * @param speciesTag tag of the species of the entity
+     * @return a dead entity to recycle, or null if none is pooled
+     */
+    public Entity acquire(final int speciesTag) {
+        final Entity entity = this.pooled[speciesTag].poll();
+
+        if (entity == null) {
+            this.misses.increment();
+            return null;
+        }
+
+        this.sizes.decrementAndGet(speciesTag);
+        this.hits.increment();
+        return entity;
+    }
+
+    /**
+     * Gives a dead entity back to the pool. The entity must no longer be referenced by the
+     * simulation. It is dropped if the pool is full.
+     *
+     * @param entity the dead entity
+     */
+    public void release(final Entity entity) {
+        final int tag = entity.getSpeciesTag();
+
+        if (this.sizes.incrementAndGet(tag) > MAX_POOLED) {
+            this.sizes.decrementAndGet(tag);
+            return;
+        }
+
+        this.pooled[tag].offer(entity);
+    }
+
+    /**
+     * Gets the fraction of acquisitions that got a recycled entity.
+     *
+     * @return the hit rate, between 0 and 1
+     */
+    public double getHitRate() {
+        final long hitCount = this.hits.sum();
+        final long total = hitCount + this.misses.sum();
+
+        return total == 0 ? 0 : (double) hitCount / total;
+    }
+}
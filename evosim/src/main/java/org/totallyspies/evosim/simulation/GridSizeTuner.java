@@ -0,0 +1,154 @@
+package org.totallyspies.evosim.simulation;
+
+import java.util.Arrays;
+
+/**
+ * Picks the cell size of the uniform grid broad phase from measured tick times. The tuner
+ * periodically tries every candidate cell size for a few ticks, then settles on the fastest one.
+ * It only moves away from the current cell size when another one is faster by more than
+ * {@link #HYSTERESIS}, so that noise in the measurements does not make it flip back and forth.
+ * <p>
+ * Candidate cell sizes divide the sensor range evenly, so that a query always scans a whole
+ * number of cells in each direction. They are never smaller than a given minimum, nor so small
+ * that the grid would hold more than {@link #MAX_CELLS} cells.
+ * </p>
+ *
+ * @author agent
+ */
+final class GridSizeTuner {
+
+    /**
+     * Largest number of cells a query scans in each direction.
+     */
+    private static final int MAX_REACH = 4;
+
+    /**
+     * Most cells the grid may hold with a candidate cell size.
+     */
+    static final int MAX_CELLS = 1 << 20;
+
+    /**
+     * Number of ticks measured for every candidate cell size.
+     */
+    private static final int SAMPLE_TICKS = 30;
+
+    /**
+     * Number of ticks to wait between two explorations.
+     */
+    private static final int SETTLE_TICKS = 600;
+
+    /**
+     * Fraction by which a candidate must beat the current cell size to replace it.
+     */
+    private static final double HYSTERESIS = 0.1;
+
+    /**
+     * Cell sizes tried, the first one being the one in use before the exploration.
+     */
+    private final double[] candidates;
+
+    /**
+     * Total time measured for each candidate during the current exploration.
+     */
+    private final long[] totals;
+
+    /**
+     * Cell size currently settled on.
+     */
+    private double settledSize;
+
+    /**
+     * Candidate being measured, or -1 while settled.
+     */
+    private int candidate;
+
+    /**
+     * Ticks measured for the current candidate, or waited while settled.
+     */
+    private int ticks;
+
+    /**
+     * Constructs a tuner that starts by exploring from an initial cell size.
+     *
+     * @param range           distance within which neighbours are searched
+     * @param initialCellSize cell size to start with
+     * @param minCellSize     smallest cell size to try
+     * @param width           width of the world covered by the grid
+     * @param height          height of the world covered by the grid
+     */
+    GridSizeTuner(final double range, final double initialCellSize, final double minCellSize,
+                  final double width, final double height) {
+        this.candidates = new double[MAX_REACH + 1];
+        this.totals = new long[MAX_REACH + 1];
+
+        final double floor = Math.max(minCellSize, Math.sqrt(width * height / MAX_CELLS));
+        for (int reach = 1; reach <= MAX_REACH; ++reach) {
+            this.candidates[reach] = Math.max(floor, range / reach);
+        }
+
+        this.settledSize = initialCellSize;
+        this.startExploring();
+    }
+
+    /**
+     * Gets the cell size the grid should use for the next tick.
+     *
+     * @return the cell size
+     */
+    double getCellSize() {
+        return this.candidate < 0 ? this.settledSize : this.candidates[this.candidate];
+    }
+
+    /**
+     * Records how long a whole tick took with the current cell size, so that a cell size is not
+     * picked for a faster sensing stage at the expense of the rest of the tick.
+     *
+     * @param nanos duration of the tick in nanoseconds
+     */
+    void record(final long nanos) {
+        ++this.ticks;
+
+        if (this.candidate < 0) {
+            if (this.ticks >= SETTLE_TICKS) {
+                this.startExploring();
+            }
+            return;
+        }
+
+        this.totals[this.candidate] += nanos;
+
+        if (this.ticks < SAMPLE_TICKS) {
+            return;
+        }
+
+        this.ticks = 0;
+        ++this.candidate;
+
+        if (this.candidate == this.candidates.length) {
+            this.settle();
+        }
+    }
+
+    private void startExploring() {
+        this.candidates[0] = this.settledSize;
+        Arrays.fill(this.totals, 0);
+        this.candidate = 0;
+        this.ticks = 0;
+    }
+
+    private void settle() {
+        int best = 0;
+        for (int i = 1; i < this.candidates.length; ++i) {
+            if (this.totals[i] < this.totals[best]) {
+                best = i;
+            }
+        }
+
+        if (this.totals[best] < this.totals[0] * (1 - HYSTERESIS)) {
+            this.settledSize = this.candidates[best];
+        }
+
+        this.candidate = -1;
+        this.ticks = 0;
+    }
+}
@@ -0,0 +1,268 @@
+package org.totallyspies.evosim.simulation;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.atomic.LongAdder;
+import org.totallyspies.evosim.entities.Entity;
+import org.totallyspies.evosim.utils.Configuration;
+import org.totallyspies.evosim.utils.EvosimException;
+import org.totallyspies.evosim.utils.Rng;
+
+/**
+ * Runs several independent simulations, called islands, each on its own share of the worker
+ * threads and updating as fast as it can. Every few ticks, each island sends copies of the
+ * genomes of a few of its entities to other islands according to the configured topology, so
+ * that the islands evolve together while never sharing a grid or a lock.
+ *
+ * @author agent
+ */
+public final class IslandRunner {
+
+    /**
+     * Nanoseconds in a second.
+     */
+    private static final double NANOS_PER_SECOND = 1e9;
+
+    /**
+     * Milliseconds between two reports of the command line runner.
+     */
+    private static final long REPORT_PERIOD_MILLIS = 1000;
+
+    /**
+     * Number of reports before the command line runner stops, when not given.
+     */
+    private static final int DEFAULT_REPORT_COUNT = 60;
+
+    /**
+     * The islands.
+     */
+    private final Simulation[] islands;
+
+    /**
+     * Which islands send their migrants to which.
+     */
+    private final IslandTopology topology;
+
+    /**
+     * Ticks of an island between two migrations.
+     */
+    private final int migrationInterval;
+
+    /**
+     * Migrants of each species sent by an island on every migration.
+     */
+    private final int migrationRate;
+
+    /**
+     * If the migrants are the entities with the most children rather than random ones.
+     */
+    private final boolean migrateTop;
+
+    /**
+     * Number of migrants sent since the islands were created.
+     */
+    private final LongAdder migrantCount;
+
+    /**
+     * Time at which the islands were started.
+     */
+    private long startTime;
+
+    /**
+     * Creates and populates the islands.
+     *
+     * @param islandCount the number of islands
+     * @param mapSizeX    X map size of every island
+     * @param mapSizeY    Y map size of every island
+     * @param gridSize    grid size of every island
+     * @throws EvosimException if an island cannot be created
+     */
+    public IslandRunner(final int islandCount, final int mapSizeX, final int mapSizeY,
+                        final int gridSize) throws EvosimException {
+        final Configuration config = Configuration.getConfiguration();
+
+        this.topology = config.getIslandTopology();
+        this.migrationInterval = Math.max(1, config.getIslandMigrationInterval());
+        this.migrationRate = config.getIslandMigrationRate();
+        this.migrateTop = config.isIslandMigrateTop();
+        this.migrantCount = new LongAdder();
+
+        final int threads = Math.max(1, Runtime.getRuntime().availableProcessors() / islandCount);
+        this.islands = new Simulation[islandCount];
+        for (int i = 0; i < islandCount; ++i) {
+            final int index = i;
+            this.islands[i] = new Simulation(mapSizeX, mapSizeY, gridSize, true, threads);
+            this.islands[i].setTickListener(island -> this.onTick(index, island));
+        }
+    }
+
+    /**
+     * Runs the islands described by the configuration without any window, printing a report
+     * every second.
+     *
+     * @param args the number of seconds to run for, one minute if not given
+     * @throws EvosimException      if the islands cannot be created
+     * @throws InterruptedException if interrupted while running
+     */
+    public static void main(final String[] args) throws EvosimException, InterruptedException {
+        final Configuration config = Configuration.getConfiguration();
+        final int reportCount = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_REPORT_COUNT;
+        final IslandRunner runner = new IslandRunner(
+            config.getIslandCount(), config.getMapSizeX(), config.getMapSizeY(),
+            config.getGridSize()
+        );
+
+        runner.start();
+        for (int i = 0; i < reportCount; ++i) {
+            Thread.sleep(REPORT_PERIOD_MILLIS);
+            System.out.println(runner.getReport());
+        }
+        runner.shutdown();
+    }
+
+    /**
+     * Starts updating every island.
+     */
+    public void start() {
+        this.startTime = System.nanoTime();
+
+        for (final Simulation island : this.islands) {
+            island.playUpdate(PlaybackSpeed.MAX);
+        }
+    }
+
+    /**
+     * Kills every island.
+     */
+    public void shutdown() {
+        for (final Simulation island : this.islands) {
+            island.shutdown();
+        }
+    }
+
+    /**
+     * Gets the number of entities alive on all the islands.
+     *
+     * @return the total population
+     */
+    public int getPopulation() {
+        int population = 0;
+
+        for (final Simulation island : this.islands) {
+            for (int tag = 0; tag < island.getEcosystem().size(); ++tag) {
+                population += island.getSpeciesCount(tag);
+            }
+        }
+
+        return population;
+    }
+
+    /**
+     * Gets the number of updates done by all the islands.
+     *
+     * @return the total number of ticks
+     */
+    public long getTickCount() {
+        long ticks = 0;
+
+        for (final Simulation island : this.islands) {
+            ticks += island.getTickCount();
+        }
+
+        return ticks;
+    }
+
+    /**
+     * Gets the number of updates done by all the islands per second since they were started.
+     *
+     * @return the aggregate throughput in ticks per second
+     */
+    public double getTicksPerSecond() {
+        final long elapsed = System.nanoTime() - this.startTime;
+
+        return elapsed <= 0 ? 0 : this.getTickCount() * NANOS_PER_SECOND / elapsed;
+    }
+
+    /**
+     * Gets the number of migrants sent since the islands were created.
+     *
+     * @return the number of migrants
+     */
+    public long getMigrantCount() {
+        return this.migrantCount.sum();
+    }
+
+    /**
+     * Describes the population and throughput of the islands.
+     *
+     * @return a one line report
+     */
+    public String getReport() {
+        return String.format(
+            "%d islands, %d entities, %d ticks, %.1f ticks/s, %d migrants",
+            this.islands.length,
+            this.getPopulation(),
+            this.getTickCount(),
+            this.getTicksPerSecond(),
+            this.getMigrantCount()
+        );
+    }
+
+    /**
+     * Sends migrants from an island if it is time to. Runs on the update thread of the island,
+     * between two of its updates.
+     *
+     * @param index  the index of the island
+     * @param island the island
+     */
+    private void onTick(final int index, final Simulation island) {
+        final int[] destinations = this.topology.destinations(index, this.islands.length);
+
+        if (island.getTickCount() % this.migrationInterval != 0 || destinations.length == 0) {
+            return;
+        }
+
+        for (final Entity emigrant : this.selectEmigrants(island)) {
+            final Migrant migrant =
+                new Migrant(emigrant.getSpeciesTag(), emigrant.toGenome());
+
+            for (final int destination : destinations) {
+                this.islands[destination].immigrate(migrant);
+                this.migrantCount.increment();
+            }
+        }
+    }
+
+    private List<Entity> selectEmigrants(final Simulation island) {
+        final List<List<Entity>> bySpecies = new ArrayList<>();
+        for (int tag = 0; tag < island.getEcosystem().size(); ++tag) {
+            bySpecies.add(new ArrayList<>());
+        }
+
+        for (int x = 0; x < island.getMapSizeX(); ++x) {
+            for (int y = 0; y < island.getMapSizeY(); ++y) {
+                island.forEachGridEntities(x, y, entity -> {
+                    if (!entity.isDead()) {
+                        bySpecies.get(entity.getSpeciesTag()).add(entity);
+                    }
+                });
+            }
+        }
+
+        final List<Entity> emigrants = new ArrayList<>();
+        for (final List<Entity> candidates : bySpecies) {
+            if (this.migrateTop) {
+                candidates.sort(Comparator.comparingInt(Entity::getChildCount).reversed());
+            } else {
+                Collections.shuffle(candidates, Rng.getRandom());
+            }
+
+            final int count = Math.min(this.migrationRate, candidates.size());
+            emigrants.addAll(candidates.subList(0, count));
+        }
+
+        return emigrants;
+    }
+}
@@ -0,0 +1,42 @@
+package org.totallyspies.evosim.simulation;
+
+/**
+ * Which islands of an {@link IslandRunner} send their migrants to which.
+ *
+ * @author agent
+ */
+public enum IslandTopology {
+
+    /**
+     * Each island sends its migrants to the next one, the last island sending them to the first.
+     */
+    RING {
+        @Override
+        int[] destinations(final int island, final int islandCount) {
+            return islandCount < 2 ? new int[0] : new int[] {(island + 1) % islandCount};
+        }
+    },
+
+    /**
+     * Each island sends its migrants to every other island.
+     */
+    FULL {
+        @Override
+        int[] destinations(final int island, final int islandCount) {
+            final int[] destinations = new int[Math.max(0, islandCount - 1)];
+            for (int i = 0; i < destinations.length; ++i) {
+                destinations[i] = i < island ? i : i + 1;
+            }
+            return destinations;
+        }
+    };
+
+    /**
+     * Gets the islands an island sends its migrants to.
+     *
+     * @param island      the index of the sending island
+     * @param islandCount the number of islands
+     * @return the indices of the receiving islands
+     */
+    abstract int[] destinations(int island, int islandCount);
+}
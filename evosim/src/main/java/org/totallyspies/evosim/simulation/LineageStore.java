@@ -0,0 +1,464 @@
+package org.totallyspies.evosim.simulation;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import org.totallyspies.evosim.entities.Entity;
+import org.totallyspies.evosim.neuralnetwork.Neuron;
+import org.totallyspies.evosim.utils.EvosimException;
+import org.totallyspies.evosim.utils.NamedThreadFactory;
+
+/**
+ * Append-only record of the ancestry of every entity of a simulation, written to a memory-mapped
+ * file. Genomes are recorded as given by {@link Entity#toGenome()}. A birth only records the
+ * weights that differ from the genome of the parent, and a full snapshot of the genome is
+ * recorded for founders and once every {@link #SNAPSHOT_INTERVAL} generations, so that any
+ * ancestor can be reconstructed with {@link #reconstruct(File, long)} by replaying a bounded
+ * number of deltas over a snapshot.
+ * <p>
+ * Records are prepared by the thread giving birth and handed through a lock-free queue to a
+ * writer thread, so that the file is never touched by the update loop.
+ * </p>
+ * <p>
+ * Every record starts with its kind as a byte, the identifier of the entity, the identifier of
+ * its parent (-1 for founders) and the tick of its birth. Snapshots follow with the number of
+ * genes and every gene; deltas follow with the number of mutated genes and an index and value
+ * for each of them.
+ * </p>
+ *
+ * @author agent
+ */
+public final class LineageStore implements AutoCloseable {
+
+    /**
+     * Number of generations between two snapshots of the genome of a line of descent.
+     */
+    public static final int SNAPSHOT_INTERVAL = 32;
+
+    /**
+     * Kind of the records holding a full genome.
+     */
+    private static final byte SNAPSHOT = 0;
+
+    /**
+     * Kind of the records holding the genes that differ from the parent.
+     */
+    private static final byte DELTA = 1;
+
+    /**
+     * Size of the header of a record: kind, identifier, parent identifier, tick and count.
+     */
+    private static final int HEADER_BYTES = Byte.BYTES + 3 * Long.BYTES + Integer.BYTES;
+
+    /**
+     * Size of the part of the file mapped at once.
+     */
+    private static final int REGION_BYTES = 1 << 24;
+
+    /**
+     * Milliseconds between two drains of the queue by the writer thread.
+     */
+    private static final long DRAIN_PERIOD_MILLIS = 50;
+
+    /**
+     * Records waiting to be written.
+     */
+    private final Queue<Record> pending;
+
+    /**
+     * File the records are written to.
+     */
+    private final RandomAccessFile file;
+
+    /**
+     * Thread writing the records.
+     */
+    private final ScheduledExecutorService writer;
+
+    /**
+     * Part of the file currently mapped.
+     */
+    private MappedByteBuffer region;
+
+    /**
+     * Offset in the file of the start of the mapped region.
+     */
+    private long regionStart;
+
+    /**
+     * Error that stopped the writer thread, after which records are no longer accepted, or null.
+     */
+    private volatile IOException failure;
+
+    /**
+     * Opens a new lineage file, replacing any previous one.
+     *
+     * @param path the file to write to
+     * @throws EvosimException if the file cannot be opened
+     */
+    public LineageStore(final File path) throws EvosimException {
+        try {
+            this.file = new RandomAccessFile(path, "rw");
+            this.file.setLength(0);
+            this.regionStart = 0;
+            this.region = this.map(0);
+        } catch (IOException e) {
+            throw new EvosimException("Couldn't open the lineage file.", e);
+        }
+
+        this.pending = new ConcurrentLinkedQueue<>();
+        this.writer = Executors.newSingleThreadScheduledExecutor(
+            new NamedThreadFactory("lineage")
+        );
+        this.writer.scheduleWithFixedDelay(
+            this::drain, DRAIN_PERIOD_MILLIS, DRAIN_PERIOD_MILLIS, TimeUnit.MILLISECONDS
+        );
+    }
+
+    /**
+     * Records the full genome of an entity without a known parent.
+     *
+     * @param entity the founder
+     * @param tick   the current tick
+     */
+    public void recordFounder(final Entity entity, final long tick) {
+        if (this.failure != null) {
+            return;
+        }
+        this.pending.offer(Record.snapshot(entity, -1, tick));
+    }
+
+    /**
+     * Records the birth of an entity. May be called from many threads at once.
+     *
+     * @param parent the entity giving birth
+     * @param child  the newborn
+     * @param tick   the current tick
+     * @param depth  the number of generations since the last snapshot of the line of descent
+     * @return the number of generations since the last snapshot for the child, 0 if its full
+     * genome was recorded
+     */
+    public int recordBirth(final Entity parent, final Entity child, final long tick,
+                           final int depth) {
+        if (this.failure != null) {
+            return depth;
+        }
+
+        if (depth >= SNAPSHOT_INTERVAL) {
+            this.pending.offer(Record.snapshot(child, parent.getId(), tick));
+            return 0;
+        }
+
+        this.pending.offer(Record.delta(parent, child, tick));
+        return depth;
+    }
+
+    /**
+     * Writes every pending record, then stops the writer thread and trims the file.
+     *
+     * @throws EvosimException if the file cannot be written, now or by the writer thread
+     */
+    @Override
+    public void close() throws EvosimException {
+        this.writer.shutdown();
+
+        try {
+            this.writer.awaitTermination(1, TimeUnit.SECONDS);
+            this.drain();
+            if (this.failure != null) {
+                this.file.close();
+                throw new EvosimException("Couldn't write the lineage file.", this.failure);
+            }
+            this.region.force();
+            this.file.setLength(this.regionStart + this.region.position());
+            this.file.close();
+        } catch (IOException | InterruptedException e) {
+            throw new EvosimException("Couldn't close the lineage file.", e);
+        }
+    }
+
+    /**
+     * Reconstructs the genome of an entity, its speed followed by every weight of its brain, by
+     * replaying the deltas of its ancestors over their last snapshot.
+     *
+     * @param path the lineage file, closed by its store
+     * @param id   the identifier of the entity
+     * @return the genome of the entity
+     * @throws EvosimException if the file cannot be read or does not know the entity
+     */
+    public static double[] reconstruct(final File path, final long id) throws EvosimException {
+        final Map<Long, Long> offsets = new HashMap<>();
+
+        try (RandomAccessFile input = new RandomAccessFile(path, "r");
+             FileChannel channel = input.getChannel()) {
+            final RegionReader reader = new RegionReader(channel);
+
+            long offset = 0;
+            while (reader.size - offset >= HEADER_BYTES) {
+                final ByteBuffer header = reader.read(offset, HEADER_BYTES);
+                final byte kind = header.get();
+                offsets.put(header.getLong(), offset);
+                header.position(header.position() + 2 * Long.BYTES);
+
+                offset += HEADER_BYTES + (long) header.getInt()
+                    * (kind == SNAPSHOT ? Double.BYTES : Integer.BYTES + Double.BYTES);
+            }
+
+            final List<Long> deltas = new ArrayList<>();
+            long current = id;
+            while (true) {
+                offset = offsets.getOrDefault(current, -1L);
+                if (offset < 0) {
+                    throw new EvosimException("Unknown entity in the lineage: " + current);
+                }
+
+                final ByteBuffer header = reader.read(offset, HEADER_BYTES);
+                if (header.get() == SNAPSHOT) {
+                    break;
+                }
+
+                deltas.add(offset);
+                header.getLong();
+                current = header.getLong();
+            }
+
+            final double[] genome = new double[reader.readCount(offset)];
+            final ByteBuffer genes =
+                reader.read(offset + HEADER_BYTES, genome.length * Double.BYTES);
+            for (int i = 0; i < genome.length; ++i) {
+                genome[i] = genes.getDouble();
+            }
+
+            for (int d = deltas.size() - 1; d >= 0; --d) {
+                final int count = reader.readCount(deltas.get(d));
+                final ByteBuffer mutations = reader.read(
+                    deltas.get(d) + HEADER_BYTES, count * (Integer.BYTES + Double.BYTES)
+                );
+                for (int i = 0; i < count; ++i) {
+                    genome[mutations.getInt()] = mutations.getDouble();
+                }
+            }
+
+            return genome;
+        } catch (IOException e) {
+            throw new EvosimException("Couldn't read the lineage file.", e);
+        }
+    }
+
+    private void drain() {
+        if (this.failure != null) {
+            return;
+        }
+
+        for (Record next = this.pending.poll(); next != null; next = this.pending.poll()) {
+            try {
+                this.write(next);
+            } catch (IOException e) {
+                // an exception would silently cancel the drains, so it is kept for close
+                this.failure = e;
+                this.pending.clear();
+                return;
+            }
+        }
+    }
+
+    private void write(final Record next) throws IOException {
+        final int size = next.size();
+
+        if (this.region.remaining() < size) {
+            this.regionStart += this.region.position();
+            this.region = this.map(Math.max(REGION_BYTES, size));
+        }
+
+        this.region.put(next.kind);
+        this.region.putLong(next.id);
+        this.region.putLong(next.parentId);
+        this.region.putLong(next.tick);
+        this.region.putInt(next.values.length);
+
+        for (int i = 0; i < next.values.length; ++i) {
+            if (next.kind == DELTA) {
+                this.region.putInt(next.indices[i]);
+            }
+            this.region.putDouble(next.values[i]);
+        }
+    }
+
+    private MappedByteBuffer map(final int size) throws IOException {
+        final MappedByteBuffer mapped = this.file.getChannel()
+            .map(FileChannel.MapMode.READ_WRITE, this.regionStart, size);
+        mapped.order(ByteOrder.LITTLE_ENDIAN);
+        return mapped;
+    }
+
+    /**
+     * Reads a lineage file through windows of {@link #REGION_BYTES} mapped one at a time, like
+     * the store writes it, so that files of any size can be read.
+     */
+    private static final class RegionReader {
+
+        /**
+         * Channel of the file.
+         */
+        private final FileChannel channel;
+
+        /**
+         * Size of the file.
+         */
+        private final long size;
+
+        /**
+         * Part of the file currently mapped, or null before the first read.
+         */
+        private MappedByteBuffer window;
+
+        /**
+         * Offset in the file of the start of the mapped window.
+         */
+        private long windowStart;
+
+        private RegionReader(final FileChannel newChannel) throws IOException {
+            this.channel = newChannel;
+            this.size = newChannel.size();
+        }
+
+        /**
+         * Gets a buffer positioned at an offset of the file, mapping the window starting there
+         * if the bytes to read are not all in the current one.
+         *
+         * @param offset offset in the file of the first byte to read
+         * @param bytes  number of bytes to read
+         * @return the buffer positioned at the offset
+         * @throws IOException if the file cannot be mapped
+         */
+        private ByteBuffer read(final long offset, final int bytes) throws IOException {
+            if (this.window == null || offset < this.windowStart
+                || offset + bytes > this.windowStart + this.window.limit()) {
+                this.windowStart = offset;
+                this.window = this.channel.map(FileChannel.MapMode.READ_ONLY, offset,
+                    Math.min(this.size - offset, Math.max(REGION_BYTES, bytes)));
+                this.window.order(ByteOrder.LITTLE_ENDIAN);
+            }
+
+            this.window.position((int) (offset - this.windowStart));
+            return this.window;
+        }
+
+        private int readCount(final long offset) throws IOException {
+            return this.read(offset + HEADER_BYTES - Integer.BYTES, Integer.BYTES).getInt();
+        }
+    }
+
+    /**
+     * A record waiting to be written.
+     */
+    private static final class Record {
+
+        /**
+         * Kind of the record.
+         */
+        private final byte kind;
+
+        /**
+         * Identifier of the entity.
+         */
+        private final long id;
+
+        /**
+         * Identifier of the parent of the entity, or -1.
+         */
+        private final long parentId;
+
+        /**
+         * Tick of the birth.
+         */
+        private final long tick;
+
+        /**
+         * Indices of the mutated genes, for deltas only.
+         */
+        private final int[] indices;
+
+        /**
+         * Values of the genes.
+         */
+        private final double[] values;
+
+        private Record(final byte newKind, final long newId, final long newParentId,
+                       final long newTick, final int[] newIndices, final double[] newValues) {
+            this.kind = newKind;
+            this.id = newId;
+            this.parentId = newParentId;
+            this.tick = newTick;
+            this.indices = newIndices;
+            this.values = newValues;
+        }
+
+        private static Record snapshot(final Entity entity, final long parentId,
+                                       final long tick) {
+            return new Record(SNAPSHOT, entity.getId(), parentId, tick, null, entity.toGenome());
+        }
+
+        private static Record delta(final Entity parent, final Entity child, final long tick) {
+            final List<List<Neuron>> parentLayers = parent.getBrain().getNeuronLayers();
+            final List<List<Neuron>> childLayers = child.getBrain().getNeuronLayers();
+
+            int[] indices = new int[1];
+            double[] values = new double[1];
+            int count = 0;
+
+            if (parent.getSpeed() != child.getSpeed()) {
+                indices[count] = 0;
+                values[count++] = child.getSpeed();
+            }
+
+            int gene = 1;
+            for (int layer = 0; layer < childLayers.size(); ++layer) {
+                for (int n = 0; n < childLayers.get(layer).size(); ++n) {
+                    final double[] parentWeights =
+                        parentLayers.get(layer).get(n).getWeights();
+                    final double[] childWeights = childLayers.get(layer).get(n).getWeights();
+
+                    // weights shared with the parent are known to be unchanged
+                    if (parentWeights != childWeights) {
+                        for (int i = 0; i < childWeights.length; ++i) {
+                            if (parentWeights[i] != childWeights[i]) {
+                                if (count == values.length) {
+                                    indices = Arrays.copyOf(indices, count * 2);
+                                    values = Arrays.copyOf(values, count * 2);
+                                }
+
+                                indices[count] = gene + i;
+                                values[count++] = childWeights[i];
+                            }
+                        }
+                    }
+
+                    gene += childWeights.length;
+                }
+            }
+
+            return new Record(DELTA, child.getId(), parent.getId(), tick,
+                Arrays.copyOf(indices, count), Arrays.copyOf(values, count));
+        }
+
+        private int size() {
+            return HEADER_BYTES + this.values.length
+                * (this.kind == SNAPSHOT ? Double.BYTES : Integer.BYTES + Double.BYTES);
+        }
+    }
+}
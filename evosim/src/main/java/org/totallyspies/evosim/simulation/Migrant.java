@@ -0,0 +1,25 @@
+package org.totallyspies.evosim.simulation;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import org.totallyspies.evosim.entities.Entity;
+
+/**
+ * A genome migrating from one simulation to another.
+ *
+ * @author agent
+ */
+@Getter
+@AllArgsConstructor
+public final class Migrant {
+
+    /**
+     * Tag of the species of the migrant.
+     */
+    private final int speciesTag;
+
+    /**
+     * Genome of the migrant, as given by {@link Entity#toGenome()}.
+     */
+    private final double[] genome;
+}
@@ -0,0 +1,429 @@
+package org.totallyspies.evosim.simulation;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import lombok.Getter;
+import org.totallyspies.evosim.entities.Ecosystem;
+import org.totallyspies.evosim.utils.Configuration;
+import org.totallyspies.evosim.utils.EvosimException;
+import org.totallyspies.evosim.utils.NamedThreadFactory;
+import org.totallyspies.evosim.utils.Rng;
+
+/**
+ * Runs headless simulations for every combination of a set of configuration values, a few at a
+ * time, and writes the populations of each run to a table.
+ * <p>
+ * A sweep is described by a JSON object. {@code parameters} maps any configuration variable to
+ * either a list of values or a {@code {"from", "to", "step"}} range, and every combination is run
+ * once per seed of {@code seeds}. A run stops after {@code maxTicks} ticks, when a species dies
+ * out, or when every population stays within {@code convergenceTolerance} of its maximum for
+ * {@code convergenceSamples} samples taken every {@code sampleInterval} ticks. Runs use
+ * {@code threadsPerRun} threads each, and only as many run at once as fit in
+ * {@code threadBudget} threads and {@code memoryBudgetMb} megabytes when each run is expected to
+ * take {@code memoryPerRunMb} megabytes.
+ * <p>
+ * Each run works on its own copy of the current configuration, so the sweep never changes the
+ * settings of the application, and draws its random values from its own random seeded with the
+ * seed of the run. With a single thread per run, a seed always gives the same table.
+ *
+ * @author agent
+ */
+public final class ParameterSweep {
+
+    /**
+     * Bytes in a megabyte.
+     */
+    private static final long BYTES_PER_MB = 1024 * 1024;
+
+    /**
+     * Ticks of a run when not given.
+     */
+    private static final long DEFAULT_MAX_TICKS = 10000;
+
+    /**
+     * Ticks between two rows of the table of a run when not given.
+     */
+    private static final int DEFAULT_SAMPLE_INTERVAL = 100;
+
+    /**
+     * Samples a population must stay stable for when not given.
+     */
+    private static final int DEFAULT_CONVERGENCE_SAMPLES = 10;
+
+    /**
+     * Relative change under which a population is stable when not given.
+     */
+    private static final double DEFAULT_CONVERGENCE_TOLERANCE = 0.05;
+
+    /**
+     * Memory expected to be used by a single run when not given.
+     */
+    private static final long DEFAULT_MEMORY_PER_RUN_MB = 256;
+
+    /**
+     * Leeway when counting the steps of a range, so that the last value is not lost to
+     * rounding.
+     */
+    private static final double RANGE_EPSILON = 1e-9;
+
+    /**
+     * Converts the values of the parameters to the lists and numbers the configuration holds.
+     */
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    /**
+     * Every combination of values to run, by variable name.
+     */
+    @Getter
+    private final List<Map<String, Object>> points;
+
+    /**
+     * Seeds of the randoms each combination is run with.
+     */
+    @Getter
+    private final List<Long> seeds;
+
+    /**
+     * Maximum number of ticks of a run.
+     */
+    private final long maxTicks;
+
+    /**
+     * Ticks between two rows of the table of a run.
+     */
+    private final int sampleInterval;
+
+    /**
+     * Samples every population must stay stable for to consider a run converged, 0 to never stop
+     * on convergence.
+     */
+    private final int convergenceSamples;
+
+    /**
+     * Largest change of a population, relative to its maximum, still considered stable.
+     */
+    private final double convergenceTolerance;
+
+    /**
+     * Threads of each run.
+     */
+    private final int threadsPerRun;
+
+    /**
+     * Number of runs updated at the same time.
+     */
+    @Getter
+    private final int concurrentRuns;
+
+    /**
+     * Reads a sweep.
+     *
+     * @param spec the description of the sweep
+     * @throws EvosimException if a parameter has no values
+     */
+    public ParameterSweep(final JsonNode spec) throws EvosimException {
+        final Map<String, List<Object>> values = new TreeMap<>();
+        final Iterator<String> variables = spec.path("parameters").fieldNames();
+        while (variables.hasNext()) {
+            final String variable = variables.next();
+            final List<Object> variableValues =
+                ParameterSweep.values(spec.path("parameters").get(variable));
+            if (variableValues.isEmpty()) {
+                throw new EvosimException("No values to sweep for " + variable + ".");
+            }
+            values.put(variable, variableValues);
+        }
+        this.points = ParameterSweep.combinations(values);
+
+        this.seeds = new ArrayList<>();
+        for (final JsonNode seed : spec.path("seeds")) {
+            this.seeds.add(seed.asLong());
+        }
+        if (this.seeds.isEmpty()) {
+            this.seeds.add(0L);
+        }
+
+        this.maxTicks = spec.path("maxTicks").asLong(DEFAULT_MAX_TICKS);
+        this.sampleInterval =
+            Math.max(1, spec.path("sampleInterval").asInt(DEFAULT_SAMPLE_INTERVAL));
+        this.convergenceSamples =
+            spec.path("convergenceSamples").asInt(DEFAULT_CONVERGENCE_SAMPLES);
+        this.convergenceTolerance =
+            spec.path("convergenceTolerance").asDouble(DEFAULT_CONVERGENCE_TOLERANCE);
+
+        this.threadsPerRun = Math.max(1, spec.path("threadsPerRun").asInt(1));
+        final int threadBudget =
+            spec.path("threadBudget").asInt(Runtime.getRuntime().availableProcessors());
+        final long memoryBudget = spec.path("memoryBudgetMb")
+            .asLong(Runtime.getRuntime().maxMemory() / BYTES_PER_MB);
+        final long memoryPerRun =
+            Math.max(1, spec.path("memoryPerRunMb").asLong(DEFAULT_MEMORY_PER_RUN_MB));
+        this.concurrentRuns = (int) Math.max(1, Math.min(
+            threadBudget / this.threadsPerRun, memoryBudget / memoryPerRun
+        ));
+    }
+
+    /**
+     * Runs a sweep described in a file without any window.
+     *
+     * @param args the JSON file describing the sweep, then the directory of the results,
+     *             "sweep" if not given
+     * @throws Exception if the sweep cannot be read or run
+     */
+    public static void main(final String[] args) throws Exception {
+        final JsonNode spec = MAPPER.readTree(new File(args[0]));
+        final File outputDirectory = new File(args.length > 1 ? args[1] : "sweep");
+
+        for (final SweepResult result : new ParameterSweep(spec).run(outputDirectory)) {
+            System.out.println(ParameterSweep.summary(result));
+        }
+    }
+
+    /**
+     * Runs every combination with every seed and waits for all of them. The table of each run is
+     * written to {@code run-<index>.csv} and a line per run to {@code summary.csv} in the given
+     * directory.
+     *
+     * @param outputDirectory where to write the tables
+     * @return the result of each run, in order
+     * @throws EvosimException if a run fails or its results cannot be written
+     */
+    public List<SweepResult> run(final File outputDirectory) throws EvosimException {
+        if (!outputDirectory.isDirectory() && !outputDirectory.mkdirs()) {
+            throw new EvosimException("Couldn't create directory " + outputDirectory + ".");
+        }
+
+        final ExecutorService pool = Executors.newFixedThreadPool(
+            this.concurrentRuns, new NamedThreadFactory("sweep")
+        );
+        final Configuration base = Configuration.getConfiguration();
+        final List<Future<SweepResult>> futures = new ArrayList<>();
+
+        for (final Map<String, Object> point : this.points) {
+            for (final long seed : this.seeds) {
+                final int index = futures.size();
+                futures.add(pool.submit(() ->
+                    this.runOne(index, base, point, seed, outputDirectory)));
+            }
+        }
+
+        final List<SweepResult> results = new ArrayList<>();
+        try (PrintWriter summary =
+                 new PrintWriter(new FileWriter(new File(outputDirectory, "summary.csv")))) {
+            summary.println("run,seed,parameters,ticks,stop,population");
+            for (final Future<SweepResult> future : futures) {
+                final SweepResult result = future.get();
+                results.add(result);
+                summary.println(ParameterSweep.summary(result));
+            }
+        } catch (IOException e) {
+            throw new EvosimException("Couldn't write the summary of the sweep.", e);
+        } catch (ExecutionException e) {
+            throw new EvosimException("A run of the sweep failed.", e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new EvosimException("Interrupted while sweeping.", e);
+        } finally {
+            pool.shutdownNow();
+        }
+
+        return results;
+    }
+
+    private SweepResult runOne(
+        final int index,
+        final Configuration base,
+        final Map<String, Object> point,
+        final long seed,
+        final File outputDirectory
+    ) throws EvosimException {
+        final Configuration config = base.copy();
+        // concurrent runs must not write to the same lineage file
+        config.setLineageFile("");
+        for (final Map.Entry<String, Object> parameter : point.entrySet()) {
+            config.setVariable(parameter.getKey(), parameter.getValue());
+        }
+
+        Configuration.setThreadConfiguration(config);
+        Rng.setThreadRandom(new Random(seed));
+        Simulation simulation = null;
+        final File table = new File(outputDirectory, "run-" + index + ".csv");
+
+        try (PrintWriter writer = new PrintWriter(new FileWriter(table))) {
+            simulation = new Simulation(
+                config.getMapSizeX(), config.getMapSizeY(), config.getGridSize(), true,
+                this.threadsPerRun
+            );
+            final Ecosystem ecosystem = simulation.getEcosystem();
+            final int[] counts = new int[ecosystem.size()];
+            final Deque<int[]> window = new ArrayDeque<>();
+
+            final StringBuilder header = new StringBuilder("tick");
+            for (int tag = 0; tag < counts.length; ++tag) {
+                header.append(',').append(ecosystem.getSpecies(tag).getName());
+            }
+            writer.println(header);
+
+            SweepResult.StopReason reason = SweepResult.StopReason.TICK_BUDGET;
+            long tick = 0;
+            while (tick < this.maxTicks) {
+                simulation.update();
+                ++tick;
+
+                boolean extinct = false;
+                for (int tag = 0; tag < counts.length; ++tag) {
+                    counts[tag] = simulation.getSpeciesCount(tag);
+                    extinct |= counts[tag] == 0;
+                }
+
+                if (extinct || tick % this.sampleInterval == 0 || tick == this.maxTicks) {
+                    ParameterSweep.writeRow(writer, tick, counts);
+                }
+                if (extinct) {
+                    reason = SweepResult.StopReason.EXTINCTION;
+                    break;
+                }
+                if (tick % this.sampleInterval == 0 && this.converged(window, counts)) {
+                    reason = SweepResult.StopReason.CONVERGENCE;
+                    break;
+                }
+            }
+
+            final Map<String, Integer> population = new LinkedHashMap<>();
+            for (int tag = 0; tag < counts.length; ++tag) {
+                population.put(ecosystem.getSpecies(tag).getName(), counts[tag]);
+            }
+            return new SweepResult(index, point, seed, tick, reason, population);
+        } catch (IOException e) {
+            throw new EvosimException("Couldn't write " + table + ".", e);
+        } finally {
+            if (simulation != null) {
+                simulation.shutdown();
+            }
+            Configuration.setThreadConfiguration(null);
+            Rng.setThreadRandom(null);
+        }
+    }
+
+    /**
+     * Adds a sample to the convergence window and checks whether every population stayed within
+     * the tolerance for the whole window.
+     */
+    private boolean converged(final Deque<int[]> window, final int[] counts) {
+        if (this.convergenceSamples <= 0) {
+            return false;
+        }
+
+        window.addLast(counts.clone());
+        if (window.size() > this.convergenceSamples) {
+            window.removeFirst();
+        }
+        if (window.size() < this.convergenceSamples) {
+            return false;
+        }
+
+        for (int tag = 0; tag < counts.length; ++tag) {
+            int min = Integer.MAX_VALUE;
+            int max = 0;
+            for (final int[] sample : window) {
+                min = Math.min(min, sample[tag]);
+                max = Math.max(max, sample[tag]);
+            }
+            if (max - min > this.convergenceTolerance * Math.max(1, max)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static void writeRow(final PrintWriter writer, final long tick, final int[] counts) {
+        final StringBuilder row = new StringBuilder().append(tick);
+        for (final int count : counts) {
+            row.append(',').append(count);
+        }
+        writer.println(row);
+    }
+
+    private static String summary(final SweepResult result) {
+        final StringBuilder population = new StringBuilder();
+        result.getFinalPopulation().forEach((name, count) ->
+            population.append(population.length() == 0 ? "" : " ")
+                .append(name).append('=').append(count));
+
+        return String.format("%d,%d,\"%s\",%d,%s,%s",
+            result.getRunIndex(), result.getSeed(),
+            result.getParameters().toString().replace("\"", "\"\""),
+            result.getTicks(), result.getStopReason(), population);
+    }
+
+    /**
+     * Lists the values of a parameter, given as a list, a range or a single value.
+     */
+    private static List<Object> values(final JsonNode spec) {
+        final List<Object> values = new ArrayList<>();
+
+        if (spec.isArray()) {
+            for (final JsonNode value : spec) {
+                values.add(MAPPER.convertValue(value, Object.class));
+            }
+        } else if (spec.has("from")) {
+            final JsonNode from = spec.get("from");
+            final JsonNode to = spec.path("to");
+            final JsonNode step = spec.path("step");
+            final double stepValue = step.asDouble(1);
+            final boolean integral = from.isIntegralNumber() && to.isIntegralNumber()
+                && (step.isMissingNode() || step.isIntegralNumber());
+            final long count = (long) Math.floor(
+                (to.asDouble() - from.asDouble()) / stepValue + RANGE_EPSILON
+            ) + 1;
+
+            for (long i = 0; i < count; ++i) {
+                values.add(integral
+                    ? (Object) (int) (from.asInt() + i * step.asInt(1))
+                    : (Object) (from.asDouble() + i * stepValue));
+            }
+        } else {
+            values.add(MAPPER.convertValue(spec, Object.class));
+        }
+
+        return values;
+    }
+
+    /**
+     * Builds every combination of the values of the parameters.
+     */
+    private static List<Map<String, Object>> combinations(final Map<String, List<Object>> values) {
+        List<Map<String, Object>> combinations = List.of(new LinkedHashMap<>());
+
+        for (final Map.Entry<String, List<Object>> parameter : values.entrySet()) {
+            final List<Map<String, Object>> next = new ArrayList<>();
+            for (final Map<String, Object> combination : combinations) {
+                for (final Object value : parameter.getValue()) {
+                    final Map<String, Object> extended = new LinkedHashMap<>(combination);
+                    extended.put(parameter.getKey(), value);
+                    next.add(extended);
+                }
+            }
+            combinations = next;
+        }
+
+        return combinations;
+    }
+}
@@ -0,0 +1,157 @@
+package org.totallyspies.evosim.simulation;
+
+import lombok.Getter;
+
+/**
+ * Splits a world into a grid of rectangular regions of the same size, each owned by a single
+ * engine of a cluster or worker of a simulation. Positions on the far edges of the world belong
+ * to the last column or row.
+ *
+ * @author agent
+ */
+@Getter
+public final class Partition {
+
+    /**
+     * Width of the world.
+     */
+    private final double width;
+
+    /**
+     * Height of the world.
+     */
+    private final double height;
+
+    /**
+     * Number of regions in the horizontal axis.
+     */
+    private final int columns;
+
+    /**
+     * Number of regions in the vertical axis.
+     */
+    private final int rows;
+
+    /**
+     * Splits a world.
+     *
+     * @param newWidth   width of the world
+     * @param newHeight  height of the world
+     * @param newColumns number of regions in the horizontal axis
+     * @param newRows    number of regions in the vertical axis
+     */
+    public Partition(final double newWidth, final double newHeight, final int newColumns,
+                     final int newRows) {
+        if (newColumns < 1 || newRows < 1) {
+            throw new IllegalArgumentException("A partition needs at least one region");
+        }
+
+        this.width = newWidth;
+        this.height = newHeight;
+        this.columns = newColumns;
+        this.rows = newRows;
+    }
+
+    /**
+     * Gets the number of regions.
+     *
+     * @return the number of regions
+     */
+    public int size() {
+        return this.columns * this.rows;
+    }
+
+    /**
+     * Finds the region owning a position.
+     *
+     * @param x the X position
+     * @param y the Y position
+     * @return the index of the region
+     */
+    public int owner(final double x, final double y) {
+        return this.column(x) + this.row(y) * this.columns;
+    }
+
+    /**
+     * Tests if a position is within a given distance of a region, or inside it.
+     *
+     * @param region the index of the region
+     * @param x      the X position
+     * @param y      the Y position
+     * @param depth  the distance
+     * @return if the position is near the region
+     */
+    public boolean isNear(final int region, final double x, final double y, final double depth) {
+        return this.minX(region) - depth <= x && x < this.maxX(region) + depth
+            && this.minY(region) - depth <= y && y < this.maxY(region) + depth;
+    }
+
+    /**
+     * Tests if a position inside a region is within a given distance of one of the borders it
+     * shares with another region.
+     *
+     * @param region the index of the region
+     * @param x      the X position
+     * @param y      the Y position
+     * @param depth  the distance
+     * @return if the position is on the border
+     */
+    public boolean isOnBorder(final int region, final double x, final double y,
+                              final double depth) {
+        final int column = region % this.columns;
+        final int row = region / this.columns;
+
+        return column > 0 && x < this.minX(region) + depth
+            || column < this.columns - 1 && x >= this.maxX(region) - depth
+            || row > 0 && y < this.minY(region) + depth
+            || row < this.rows - 1 && y >= this.maxY(region) - depth;
+    }
+
+    /**
+     * Gets the left edge of a region.
+     *
+     * @param region the index of the region
+     * @return the smallest X position of the region
+     */
+    public double minX(final int region) {
+        return (region % this.columns) * this.width / this.columns;
+    }
+
+    /**
+     * Gets the right edge of a region.
+     *
+     * @param region the index of the region
+     * @return the X position just past the region
+     */
+    public double maxX(final int region) {
+        return (region % this.columns + 1) * this.width / this.columns;
+    }
+
+    /**
+     * Gets the top edge of a region.
+     *
+     * @param region the index of the region
+     * @return the smallest Y position of the region
+     */
+    public double minY(final int region) {
+        return (region / this.columns) * this.height / this.rows;
+    }
+
+    /**
+     * Gets the bottom edge of a region.
+     *
+     * @param region the index of the region
+     * @return the Y position just past the region
+     */
+    public double maxY(final int region) {
+        return (region / this.columns + 1) * this.height / this.rows;
+    }
+
+    private int column(final double x) {
+        return Math.max(0, Math.min((int) (x * this.columns / this.width), this.columns - 1));
+    }
+
+    private int row(final double y) {
+        return Math.max(0, Math.min((int) (y * this.rows / this.height), this.rows - 1));
+    }
+}
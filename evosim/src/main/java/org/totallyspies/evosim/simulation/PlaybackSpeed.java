@@ -0,0 +1,58 @@
+package org.totallyspies.evosim.simulation;
+
+/**
+ * How fast a simulation is updated relative to the real time covered by its updates.
+ *
+ * @author agent
+ */
+public enum PlaybackSpeed {
+
+    /**
+     * One update every {@link Simulation#UPDATE_INTERVAL_NANO}, in real time.
+     */
+    NORMAL("1x", 1),
+
+    /**
+     * Twice as fast as real time.
+     */
+    DOUBLE("2x", 2),
+
+    /**
+     * Ten times as fast as real time.
+     */
+    TENFOLD("10x", 10),
+
+    /**
+     * Updates back to back, as fast as the machine allows.
+     */
+    MAX("Max", 0);
+
+    /**
+     * Name shown to the user.
+     */
+    private final String label;
+
+    /**
+     * Number of updates per real-time update, 0 for as many as possible.
+     */
+    private final int multiplier;
+
+    PlaybackSpeed(final String newLabel, final int newMultiplier) {
+        this.label = newLabel;
+        this.multiplier = newMultiplier;
+    }
+
+    /**
+     * Gets the nanoseconds to wait between each update.
+     *
+     * @return the interval between updates, 0 to run them back to back
+     */
+    public long getIntervalNanos() {
+        return this.multiplier == 0 ? 0 : Simulation.UPDATE_INTERVAL_NANO / this.multiplier;
+    }
+
+    @Override
+    public String toString() {
+        return this.label;
+    }
+}
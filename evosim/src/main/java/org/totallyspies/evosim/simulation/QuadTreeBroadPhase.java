@@ -0,0 +1,452 @@
+package org.totallyspies.evosim.simulation;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.IntConsumer;
+import java.util.stream.IntStream;
+import org.totallyspies.evosim.math.Formulas;
+
+/**
+ * Broad phase indexing entities in a quadtree rebuilt on every tick. Nodes only split while they
+ * hold more than {@link #LEAF_CAPACITY} entities, so dense clusters get deep, small nodes while
+ * empty areas stay a single node, and a query costs about the same however clustered the
+ * entities are.
+ * <p>
+ * The tree is stored as a linear quadtree: every entity gets a Morton code interleaving the bits
+ * of its quantized position, and sorting the codes lays out every node as a contiguous range of
+ * entities. Codes are computed and sorted in parallel, after which the nodes are found by binary
+ * searching the sorted codes, large subtrees being built in parallel. Nodes live in flat arrays,
+ * sized for the most nodes a tree of that many entities can have, with the four children of a
+ * node stored next to each other.
+ * </p>
+ *
+ * @author agent
+ */
+public final class QuadTreeBroadPhase implements BroadPhase {
+
+    /**
+     * Maximum number of entities in a leaf, unless the leaf is already at {@link #MAX_DEPTH}.
+     */
+    private static final int LEAF_CAPACITY = 8;
+
+    /**
+     * Maximum depth of the tree, which is also the number of bits per axis of a Morton code. Kept
+     * below 16 so that sort keys stay positive and sort in Morton order.
+     */
+    private static final int MAX_DEPTH = 15;
+
+    /**
+     * Number of children of an internal node.
+     */
+    private static final int CHILDREN = 4;
+
+    /**
+     * Number of bits the Morton code is shifted by in a sort key.
+     */
+    private static final int CODE_SHIFT = 32;
+
+    /**
+     * Mask keeping the lower 32 bits of a sort key.
+     */
+    private static final long INDEX_MASK = 0xFFFFFFFFL;
+
+    /**
+     * Masks spreading the bits of a position to the even bits of an integer.
+     */
+    private static final int[] SPREAD_MASKS = {0x0000FFFF, 0x00FF00FF, 0x0F0F0F0F, 0x33333333,
+        0x55555555};
+
+    /**
+     * Shifts spreading the bits of a position to the even bits of an integer.
+     */
+    private static final int[] SPREAD_SHIFTS = {8, 4, 2, 1};
+
+    /**
+     * Initial number of nodes the arrays can hold.
+     */
+    private static final int INITIAL_NODE_CAPACITY = 64;
+
+    /**
+     * Number of entities from which the children of a node are built in parallel.
+     */
+    private static final int PARALLEL_BUILD_THRESHOLD = 1024;
+
+    /**
+     * Size of the stack of nodes left to visit by a query, enough for the deepest tree.
+     */
+    private static final int STACK_SIZE = (CHILDREN - 1) * MAX_DEPTH + 1;
+
+    /**
+     * Stack of nodes left to visit by the queries of each thread, reused from query to query.
+     */
+    private static final ThreadLocal<int[]> STACKS =
+        ThreadLocal.withInitial(() -> new int[STACK_SIZE]);
+
+    /**
+     * Bounds of the children of the node being built at every depth by each thread, reused from
+     * build to build. A subtree built in parallel copies its bounds into its tasks before forking
+     * them, so that a thread running other tasks while it waits may overwrite them.
+     */
+    private static final ThreadLocal<int[]> BOUNDS =
+        ThreadLocal.withInitial(() -> new int[MAX_DEPTH * (CHILDREN + 1)]);
+
+    /**
+     * Width and height of the square covered by the root.
+     */
+    private final double rootSize;
+
+    /**
+     * Sort keys of the entities, holding the Morton code in the high bits and the index in the
+     * low bits.
+     */
+    private long[] keys;
+
+    /**
+     * Indices of the entities in Morton order.
+     */
+    private int[] order;
+
+    /**
+     * X positions of the entities in Morton order.
+     */
+    private double[] sortedXs;
+
+    /**
+     * Y positions of the entities in Morton order.
+     */
+    private double[] sortedYs;
+
+    /**
+     * Species of the entities in Morton order.
+     */
+    private int[] sortedSpecies;
+
+    /**
+     * Number of nodes of the last build, counting up while it is being built.
+     */
+    private final AtomicInteger nodeCount;
+
+    /**
+     * Index of the first child of each node, or -1 for leaves.
+     */
+    private int[] nodeFirstChild;
+
+    /**
+     * First entity, in Morton order, of each node.
+     */
+    private int[] nodeStart;
+
+    /**
+     * Entity after the last one, in Morton order, of each node.
+     */
+    private int[] nodeEnd;
+
+    /**
+     * Bit set of the species found in each node.
+     */
+    private int[] nodeSpecies;
+
+    /**
+     * Smallest x position covered by each node.
+     */
+    private double[] nodeMinX;
+
+    /**
+     * Smallest y position covered by each node.
+     */
+    private double[] nodeMinY;
+
+    /**
+     * Width and height of each node.
+     */
+    private double[] nodeSize;
+
+    /**
+     * X position of each entity of the last build.
+     */
+    private double[] xs;
+
+    /**
+     * Y position of each entity of the last build.
+     */
+    private double[] ys;
+
+    /**
+     * Species of each entity of the last build.
+     */
+    private int[] species;
+
+    /**
+     * Constructs an empty quadtree covering a world.
+     *
+     * @param width  width of the world
+     * @param height height of the world
+     */
+    public QuadTreeBroadPhase(final double width, final double height) {
+        this.rootSize = Math.max(Math.max(width, height), Double.MIN_NORMAL);
+        this.keys = new long[0];
+        this.order = new int[0];
+        this.sortedXs = new double[0];
+        this.sortedYs = new double[0];
+        this.sortedSpecies = new int[0];
+        this.nodeCount = new AtomicInteger();
+        this.nodeFirstChild = new int[INITIAL_NODE_CAPACITY];
+        this.nodeStart = new int[INITIAL_NODE_CAPACITY];
+        this.nodeEnd = new int[INITIAL_NODE_CAPACITY];
+        this.nodeSpecies = new int[INITIAL_NODE_CAPACITY];
+        this.nodeMinX = new double[INITIAL_NODE_CAPACITY];
+        this.nodeMinY = new double[INITIAL_NODE_CAPACITY];
+        this.nodeSize = new double[INITIAL_NODE_CAPACITY];
+    }
+
+    @Override
+    public void build(final double[] newXs, final double[] newYs, final int[] newSpecies,
+                      final int newCount) {
+        this.xs = newXs;
+        this.ys = newYs;
+        this.species = newSpecies;
+
+        if (this.keys.length < newCount) {
+            this.keys = new long[newCount];
+            this.order = new int[newCount];
+            this.sortedXs = new double[newCount];
+            this.sortedYs = new double[newCount];
+            this.sortedSpecies = new int[newCount];
+        }
+
+        IntStream.range(0, newCount).parallel().forEach(i ->
+            this.keys[i] = ((long) this.mortonCode(newXs[i], newYs[i]) << CODE_SHIFT) | i
+        );
+
+        Arrays.parallelSort(this.keys, 0, newCount);
+
+        IntStream.range(0, newCount).parallel().forEach(rank -> {
+            final int index = (int) (this.keys[rank] & INDEX_MASK);
+            this.order[rank] = index;
+            this.sortedXs[rank] = newXs[index];
+            this.sortedYs[rank] = newYs[index];
+            this.sortedSpecies[rank] = newSpecies[index];
+        });
+
+        this.ensureNodeCapacity(maxNodeCount(newCount));
+        this.nodeCount.set(1);
+        this.buildNode(0, 0, 0, newCount, 0, 0, this.rootSize);
+    }
+
+    /**
+     * Gets the most nodes a tree of some entities can have. Internal nodes of a same depth hold
+     * disjoint sets of more than {@link #LEAF_CAPACITY} entities, and there are at most
+     * {@code 4^depth} of them.
+     *
+     * @param count number of entities
+     * @return the most nodes of the tree
+     */
+    private static int maxNodeCount(final int count) {
+        final long internalPerDepth = count / (LEAF_CAPACITY + 1);
+        long internal = 0;
+        long nodesAtDepth = 1;
+
+        for (int depth = 0; depth < MAX_DEPTH; ++depth) {
+            internal += Math.min(nodesAtDepth, internalPerDepth);
+            nodesAtDepth *= CHILDREN;
+        }
+
+        return (int) Math.min(Integer.MAX_VALUE, 1 + CHILDREN * internal);
+    }
+
+    @Override
+    public void forEachCandidate(final int index, final double range,
+                                 final IntConsumer consumer) {
+        final double x = this.xs[index];
+        final double y = this.ys[index];
+        final double rangeSquared = range * range;
+        final int ownSpecies = this.species[index];
+        final int otherSpecies = ~(1 << ownSpecies);
+
+        final int[] stack = STACKS.get();
+        int top = 0;
+        stack[top++] = 0;
+
+        while (top > 0) {
+            final int node = stack[--top];
+
+            if ((this.nodeSpecies[node] & otherSpecies) == 0
+                || this.distanceSquaredToNode(node, x, y) > rangeSquared) {
+                continue;
+            }
+
+            final int firstChild = this.nodeFirstChild[node];
+            if (firstChild >= 0) {
+                for (int child = firstChild; child < firstChild + CHILDREN; ++child) {
+                    stack[top++] = child;
+                }
+                continue;
+            }
+
+            for (int rank = this.nodeStart[node]; rank < this.nodeEnd[node]; ++rank) {
+                if (this.sortedSpecies[rank] != ownSpecies
+                    && Formulas.isWithinDistance(
+                        x, y, this.sortedXs[rank], this.sortedYs[rank], range)) {
+                    consumer.accept(this.order[rank]);
+                }
+            }
+        }
+    }
+
+    private int buildNode(final int node, final int depth, final int start, final int end,
+                          final double minX, final double minY, final double size) {
+        this.nodeStart[node] = start;
+        this.nodeEnd[node] = end;
+        this.nodeMinX[node] = minX;
+        this.nodeMinY[node] = minY;
+        this.nodeSize[node] = size;
+
+        if (end - start <= LEAF_CAPACITY || depth == MAX_DEPTH) {
+            int speciesSet = 0;
+            for (int rank = start; rank < end; ++rank) {
+                speciesSet |= 1 << this.sortedSpecies[rank];
+            }
+
+            this.nodeFirstChild[node] = -1;
+            this.nodeSpecies[node] = speciesSet;
+            return speciesSet;
+        }
+
+        final int firstChild = this.nodeCount.getAndAdd(CHILDREN);
+        this.nodeFirstChild[node] = firstChild;
+
+        // children are ordered like the Morton codes: bit 0 picks the right half, bit 1 the
+        // bottom half
+        final int shift = 2 * (MAX_DEPTH - 1 - depth) + CODE_SHIFT;
+        final long prefix = this.keys[start] >>> (shift + 2) << (shift + 2);
+        final double half = size / 2;
+
+        final int[] bounds = BOUNDS.get();
+        final int base = depth * (CHILDREN + 1);
+        bounds[base] = start;
+        bounds[base + CHILDREN] = end;
+        for (int quadrant = 1; quadrant < CHILDREN; ++quadrant) {
+            bounds[base + quadrant] = this.lowerBound(
+                bounds[base + quadrant - 1], end, prefix + ((long) quadrant << shift)
+            );
+        }
+
+        int speciesSet = 0;
+        if (end - start >= PARALLEL_BUILD_THRESHOLD) {
+            final List<NodeTask> children = new ArrayList<>(CHILDREN);
+            for (int quadrant = 0; quadrant < CHILDREN; ++quadrant) {
+                children.add(new NodeTask(firstChild + quadrant, depth + 1,
+                    bounds[base + quadrant], bounds[base + quadrant + 1],
+                    minX + (quadrant & 1) * half, minY + (quadrant >> 1) * half, half));
+            }
+            for (final NodeTask child : ForkJoinTask.invokeAll(children)) {
+                speciesSet |= child.join();
+            }
+        } else {
+            for (int quadrant = 0; quadrant < CHILDREN; ++quadrant) {
+                speciesSet |= this.buildNode(firstChild + quadrant, depth + 1,
+                    bounds[base + quadrant], bounds[base + quadrant + 1],
+                    minX + (quadrant & 1) * half, minY + (quadrant >> 1) * half, half);
+            }
+        }
+
+        this.nodeSpecies[node] = speciesSet;
+        return speciesSet;
+    }
+
+    /**
+     * Builds a subtree on its own worker, returning the species found in it.
+     */
+    private final class NodeTask extends RecursiveTask<Integer> {
+
+        private final int node;
+        private final int depth;
+        private final int start;
+        private final int end;
+        private final double minX;
+        private final double minY;
+        private final double size;
+
+        private NodeTask(final int newNode, final int newDepth, final int newStart,
+                         final int newEnd, final double newMinX, final double newMinY,
+                         final double newSize) {
+            this.node = newNode;
+            this.depth = newDepth;
+            this.start = newStart;
+            this.end = newEnd;
+            this.minX = newMinX;
+            this.minY = newMinY;
+            this.size = newSize;
+        }
+
+        @Override
+        protected Integer compute() {
+            return QuadTreeBroadPhase.this.buildNode(
+                this.node, this.depth, this.start, this.end, this.minX, this.minY, this.size);
+        }
+    }
+
+    private int lowerBound(final int from, final int to, final long key) {
+        int low = from;
+        int high = to;
+
+        while (low < high) {
+            final int middle = (low + high) >>> 1;
+
+            if (this.keys[middle] < key) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+
+        return low;
+    }
+
+    private void ensureNodeCapacity(final int capacity) {
+        if (capacity <= this.nodeStart.length) {
+            return;
+        }
+
+        final int newCapacity = Math.max(capacity, this.nodeStart.length * 2);
+        this.nodeFirstChild = Arrays.copyOf(this.nodeFirstChild, newCapacity);
+        this.nodeStart = Arrays.copyOf(this.nodeStart, newCapacity);
+        this.nodeEnd = Arrays.copyOf(this.nodeEnd, newCapacity);
+        this.nodeSpecies = Arrays.copyOf(this.nodeSpecies, newCapacity);
+        this.nodeMinX = Arrays.copyOf(this.nodeMinX, newCapacity);
+        this.nodeMinY = Arrays.copyOf(this.nodeMinY, newCapacity);
+        this.nodeSize = Arrays.copyOf(this.nodeSize, newCapacity);
+    }
+
+    private double distanceSquaredToNode(final int node, final double x, final double y) {
+        final double minX = this.nodeMinX[node];
+        final double minY = this.nodeMinY[node];
+        final double size = this.nodeSize[node];
+        final double dx = Math.max(0, Math.max(minX - x, x - (minX + size)));
+        final double dy = Math.max(0, Math.max(minY - y, y - (minY + size)));
+
+        return dx * dx + dy * dy;
+    }
+
+    private int mortonCode(final double x, final double y) {
+        final int cells = 1 << MAX_DEPTH;
+        final int column = Math.max(0, Math.min((int) (x / this.rootSize * cells), cells - 1));
+        final int row = Math.max(0, Math.min((int) (y / this.rootSize * cells), cells - 1));
+
+        return spread(column) | (spread(row) << 1);
+    }
+
+    private static int spread(final int value) {
+        int spread = value & SPREAD_MASKS[0];
+
+        for (int i = 0; i < SPREAD_SHIFTS.length; ++i) {
+            spread = (spread | (spread << SPREAD_SHIFTS[i])) & SPREAD_MASKS[i + 1];
+        }
+
+        return spread;
+    }
+}
@@ -0,0 +1,292 @@
+package org.totallyspies.evosim.simulation;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import org.totallyspies.evosim.entities.Entity;
+import org.totallyspies.evosim.utils.EvosimException;
+
+/**
+ * A region of the map sensed by a single worker. The tile keeps its own arrays, broad phase and
+ * occupancy grid in coordinates local to the tile and its halo, so that sensing a tile never
+ * touches the arrays of another. Entities of neighbouring tiles close enough to be sensed are
+ * copied into the arrays of the tile as ghosts: they are candidates of the broad phase but do
+ * not sense anything themselves. They may still be killed or fed by a collision, which
+ * {@link Entity#onCollide(Entity)} synchronizes on the entities of the pair.
+ *
+ * @author agent
+ */
+final class SenseTile {
+
+    /**
+     * Index of the tile in the partition.
+     */
+    private final int index;
+
+    /**
+     * How the map is split between the tiles.
+     */
+    private final Partition partition;
+
+    /**
+     * Distance from the borders of the tile within which entities of other tiles are ghosts.
+     */
+    private final double halo;
+
+    /**
+     * Smallest X position covered by the tile and its halo.
+     */
+    private final double originX;
+
+    /**
+     * Smallest Y position covered by the tile and its halo.
+     */
+    private final double originY;
+
+    /**
+     * Width covered by the tile and its halo.
+     */
+    private final double width;
+
+    /**
+     * Height covered by the tile and its halo.
+     */
+    private final double height;
+
+    /**
+     * Records which species occupy the tile.
+     */
+    private final SpeciesOccupancy occupancy;
+
+    /**
+     * Living entities of the tile, gathered during the commit of the update.
+     */
+    private final List<Entity> owned;
+
+    /**
+     * Entities of the tile close enough to another tile to be one of its ghosts.
+     */
+    private final List<Entity> border;
+
+    /**
+     * Broad phase of the tile.
+     */
+    private BroadPhase broadPhase;
+
+    /**
+     * Cell size of the broad phase.
+     */
+    private double broadPhaseCellSize;
+
+    /**
+     * Owned entities followed by ghosts.
+     */
+    private Entity[] entities;
+
+    /**
+     * X position of each entity, relative to the tile.
+     */
+    private double[] xs;
+
+    /**
+     * Y position of each entity, relative to the tile.
+     */
+    private double[] ys;
+
+    /**
+     * Species of each entity.
+     */
+    private int[] species;
+
+    /**
+     * Number of entities, ghosts included.
+     */
+    private int count;
+
+    /**
+     * Number of owned entities.
+     */
+    private int ownedCount;
+
+    /**
+     * Number of owned entities that only collided in the last sense, keeping the readings of
+     * their sensors because it was not their turn to sense.
+     */
+    private int offTurnCount;
+
+    /**
+     * Constructs an empty tile.
+     *
+     * @param newIndex     index of the tile in the partition
+     * @param newPartition how the map is split between the tiles
+     * @param newHalo      distance within which entities of other tiles are ghosts
+     */
+    SenseTile(final int newIndex, final Partition newPartition, final double newHalo) {
+        this.index = newIndex;
+        this.partition = newPartition;
+        this.halo = newHalo;
+        this.originX = newPartition.minX(newIndex) - newHalo;
+        this.originY = newPartition.minY(newIndex) - newHalo;
+        this.width = newPartition.maxX(newIndex) + newHalo - this.originX;
+        this.height = newPartition.maxY(newIndex) + newHalo - this.originY;
+        this.occupancy = new SpeciesOccupancy(this.width, this.height);
+        this.owned = new ArrayList<>();
+        this.border = new ArrayList<>();
+        this.entities = new Entity[0];
+        this.xs = new double[0];
+        this.ys = new double[0];
+        this.species = new int[0];
+    }
+
+    /**
+     * Forgets the entities of the last update.
+     */
+    void clear() {
+        this.owned.clear();
+    }
+
+    /**
+     * Gives an entity to the tile.
+     *
+     * @param entity a living entity inside the tile
+     */
+    void own(final Entity entity) {
+        this.owned.add(entity);
+    }
+
+    /**
+     * Lists the entities other tiles may sense. Must be done by every tile before any of them
+     * gathers its ghosts.
+     */
+    void publishBorder() {
+        this.border.clear();
+        for (final Entity entity : this.owned) {
+            if (this.partition.isOnBorder(this.index, entity.getBodyCenter().getX(),
+                entity.getBodyCenter().getY(), this.halo)) {
+                this.border.add(entity);
+            }
+        }
+    }
+
+    /**
+     * Copies the owned entities, then the ghosts published by the other tiles and the ghosts
+     * of the simulation within the halo of this tile.
+     *
+     * @param tiles       every tile of the simulation
+     * @param outerGhosts ghosts of entities living in another simulation
+     */
+    void gather(final SenseTile[] tiles, final List<Entity> outerGhosts) {
+        this.count = 0;
+        this.owned.forEach(this::add);
+        this.ownedCount = this.count;
+
+        for (final SenseTile tile : tiles) {
+            if (tile != this) {
+                tile.border.forEach(this::addIfNear);
+            }
+        }
+        outerGhosts.forEach(this::addIfNear);
+    }
+
+    /**
+     * Updates the collisions of every owned entity, and the sensors of those whose turn it is to
+     * sense.
+     *
+     * @param type           type of the broad phase
+     * @param cellSize       cell size of the broad phase
+     * @param range          distance within which entities sense or touch others
+     * @param collisionRange distance within which entities may collide
+     * @param tick           number of the update
+     * @param sensePeriod    number of ticks between two updates of the sensors of an entity
+     * @return the number of entities that skipped sensing because no opponent was near
+     * @throws EvosimException if an entity cannot sense
+     */
+    int sense(final BroadPhaseType type, final double cellSize, final double range,
+              final double collisionRange, final long tick, final int sensePeriod)
+        throws EvosimException {
+        if (this.broadPhase == null || cellSize != this.broadPhaseCellSize) {
+            this.broadPhase = type.create(this.width, this.height, cellSize);
+            this.broadPhaseCellSize = cellSize;
+        }
+
+        this.broadPhase.build(this.xs, this.ys, this.species, this.count);
+        this.occupancy.build(this.xs, this.ys, this.species, this.count, range);
+
+        int skipped = 0;
+        this.offTurnCount = 0;
+        for (int i = 0; i < this.ownedCount; ++i) {
+            final Entity entity = this.entities[i];
+
+            if (!Simulation.isSensingTurn(entity, tick, sensePeriod)) {
+                ++this.offTurnCount;
+                this.relateToCandidates(i, collisionRange, false);
+                continue;
+            }
+
+            if (!this.occupancy.hasOpponentNear(this.xs[i], this.ys[i], this.species[i])) {
+                entity.clearSensors();
+                ++skipped;
+                continue;
+            }
+
+            entity.resetSensors();
+            this.relateToCandidates(i, range, true);
+        }
+
+        Arrays.fill(this.entities, 0, this.count, null);
+        return skipped;
+    }
+
+    /**
+     * Gets the number of owned entities that only collided in the last sense because it was not
+     * their turn to sense.
+     *
+     * @return the number of entities off their sensing turn
+     */
+    int getOffTurnCount() {
+        return this.offTurnCount;
+    }
+
+    /**
+     * Gets the number of entities owned by the tile.
+     *
+     * @return the number of owned entities
+     */
+    int getOwnedCount() {
+        return this.owned.size();
+    }
+
+    private void relateToCandidates(final int i, final double range, final boolean sensing) {
+        final Entity entity = this.entities[i];
+        this.broadPhase.forEachCandidate(i, range, candidate -> {
+            try {
+                entity.relateTo(this.entities[candidate], sensing);
+            } catch (EvosimException e) {
+                throw new RuntimeException(e);
+            }
+        });
+    }
+
+    private void addIfNear(final Entity entity) {
+        if (this.partition.isNear(this.index, entity.getBodyCenter().getX(),
+            entity.getBodyCenter().getY(), this.halo)) {
+            this.add(entity);
+        }
+    }
+
+    private void add(final Entity entity) {
+        if (this.count == this.entities.length) {
+            final int capacity = Math.max(1, this.count * 2);
+            this.entities = Arrays.copyOf(this.entities, capacity);
+            this.xs = Arrays.copyOf(this.xs, capacity);
+            this.ys = Arrays.copyOf(this.ys, capacity);
+            this.species = Arrays.copyOf(this.species, capacity);
+        }
+
+        this.entities[this.count] = entity;
+        this.xs[this.count] = entity.getBodyCenter().getX() - this.originX;
+        this.ys[this.count] = entity.getBodyCenter().getY() - this.originY;
+        this.species[this.count] = entity.getSpeciesTag();
+        ++this.count;
+    }
+}
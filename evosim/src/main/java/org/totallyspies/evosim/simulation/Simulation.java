@@ -1,23 +1,42 @@
 package org.totallyspies.evosim.simulation;
 
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.LinkedList;
+import java.util.Queue;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
 import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.ForkJoinWorkerThread;
 import java.util.concurrent.ScheduledExecutorService;
-import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadFactory;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.LongAdder;
 import java.util.function.Consumer;
+import java.util.function.ToIntFunction;
 import java.util.stream.IntStream;
 import lombok.Getter;
 import lombok.Setter;
+import org.totallyspies.evosim.entities.Ecosystem;
 import org.totallyspies.evosim.entities.Entity;
-import org.totallyspies.evosim.entities.Predator;
-import org.totallyspies.evosim.entities.Prey;
 import org.totallyspies.evosim.geometry.Coordinate;
 import org.totallyspies.evosim.geometry.Point;
+import org.totallyspies.evosim.neuralnetwork.NeuralNetwork;
 import org.totallyspies.evosim.ui.EvosimApplication;
 import org.totallyspies.evosim.utils.Configuration;
 import org.totallyspies.evosim.utils.EvosimException;
+import org.totallyspies.evosim.utils.LockMode;
+import org.totallyspies.evosim.utils.LockProfiler;
+import org.totallyspies.evosim.utils.LockStats;
 import org.totallyspies.evosim.utils.NamedThreadFactory;
 import org.totallyspies.evosim.utils.ReadWriteLockedItem;
 import org.totallyspies.evosim.utils.Rng;
@@ -33,9 +52,22 @@ public final class Simulation {
 
 
     /**
-     * Nanoseconds to wait between each update. Defaults to 60 per second.
+     * Nanoseconds of simulated time covered by each update, which is also the time waited
+     * between updates when playing in real time, 60 per second.
      */
-    private static final long UPDATE_INTERVAL_NANO = 16666666;
+    public static final long UPDATE_INTERVAL_NANO = 16666666;
+
+    /**
+     * Shortest time between two published snapshots, so that updates running faster than real
+     * time do not copy the world more often than it can be displayed.
+     */
+    private static final long SNAPSHOT_INTERVAL_NANO = UPDATE_INTERVAL_NANO / 4;
+
+    /**
+     * Longest time between two updates the renderer interpolates over, so that the first update
+     * after a pause is not drawn as a slow crawl.
+     */
+    private static final long MAX_TICK_SPACING_NANO = UPDATE_INTERVAL_NANO * 8;
 
     /**
      * X map size of this simulation.
@@ -60,6 +92,23 @@ public final class Simulation {
      */
     private static final int COLLISION_THREAD_COUNT = 20;
 
+    /**
+     * Counters of the acquisitions of the locks of the chunks.
+     */
+    @Getter
+    private final LockStats lockStats;
+
+    /**
+     * Profiler of the waits and holds of the locks of the chunks, or null if they are not
+     * profiled. Its regions are the chunks, indexed by {@code y * mapSizeX + x}.
+     */
+    private final LockProfiler lockProfiler;
+
+    /**
+     * Table the measurements of every update are written to, or null.
+     */
+    private final TickMetricsLog tickMetricsLog;
+
     /**
      * Grids of entities.
      */
@@ -84,21 +133,46 @@ public final class Simulation {
     /**
      * Current update being executed.
      */
-    private ScheduledFuture<?> currentUpdate;
+    private Future<?> currentUpdate;
 
     /**
-     * The number of prey alive in the simulation.
+     * Whether updates run back to back, until paused.
      */
-    @Getter
-    @Setter
-    private int preyCount;
+    private volatile boolean playingBackToBack;
 
     /**
-     * The number of predators alive in the simulation.
+     * Number of times updates were played or paused, so that an update scheduled before the
+     * last play or pause does not schedule another one.
+     */
+    private long playCount;
+
+    /**
+     * Time at which the next scheduled update is due to start, as given by
+     * {@link System#nanoTime()}.
+     */
+    private long nextUpdateNanos;
+
+    /**
+     * Tasks waiting to run on the update thread before the next update, see
+     * {@link #callBetweenUpdates(Callable)}.
+     */
+    private final Queue<Runnable> betweenUpdates;
+
+    /**
+     * Governor measuring the scheduled updates and degrading the simulation when they overrun.
+     */
+    private final TickGovernor governor;
+
+    /**
+     * Species living in the simulation and who eats whom.
      */
     @Getter
-    @Setter
-    private int predatorCount;
+    private final Ecosystem ecosystem;
+
+    /**
+     * The number of entities alive in the simulation, indexed by species tag.
+     */
+    private final AtomicIntegerArray speciesCounts;
 
     /**
      * Executor service that controls all the threads calculating collisions.
@@ -110,6 +184,214 @@ public final class Simulation {
      */
     private boolean isShutDown;
 
+    /**
+     * Broad phase finding which entities may see or touch each other.
+     */
+    private BroadPhase broadPhase;
+
+    /**
+     * Cell size of the broad phase, which is independent of the grid size used to store and
+     * render entities.
+     */
+    private double broadPhaseCellSize;
+
+    /**
+     * Species found around every part of the map, used to skip sensing for entities without
+     * any opponent near.
+     */
+    private final SpeciesOccupancy occupancy;
+
+    /**
+     * Type of the broad phases of the tiles.
+     */
+    private final BroadPhaseType broadPhaseType;
+
+    /**
+     * How the map is split into tiles, or null if it is sensed as a whole.
+     */
+    private final Partition tilePartition;
+
+    /**
+     * Tiles each sensed by a single worker, or null if the map is sensed as a whole.
+     */
+    private final SenseTile[] tiles;
+
+    /**
+     * Scaling efficiency of the last tiled sensing stage.
+     */
+    private double tileEfficiency;
+
+    /**
+     * Pool of dead entities recycled for births.
+     */
+    @Getter
+    private final EntityPool entityPool;
+
+    /**
+     * Record of the ancestry of every entity, or null if the ancestry is not recorded.
+     */
+    @Getter
+    private final LineageStore lineageStore;
+
+    /**
+     * Entities found dead during the current update, released to the pool at its end.
+     */
+    private final Queue<Entity> deadEntities;
+
+    /**
+     * Entities that split during the current update, waiting for the reproduction stage.
+     */
+    private final Queue<Entity> splitRequests;
+
+    /**
+     * Parents accepted to give birth in the current reproduction stage.
+     */
+    private Entity[] birthParents;
+
+    /**
+     * Children born in the current reproduction stage, in the same order as their parents.
+     */
+    private Entity[] birthChildren;
+
+    /**
+     * Number of updates done since the simulation was created.
+     */
+    @Getter
+    private volatile long tickCount;
+
+    /**
+     * Measurements of the last update, or null before the first one.
+     */
+    @Getter
+    private volatile TickMetrics tickMetrics;
+
+    /**
+     * Tuner picking the cell size of a grid broad phase, or null if it is not tuned.
+     */
+    private final GridSizeTuner gridSizeTuner;
+
+    /**
+     * Living entities of the current update, indexed like the arrays given to the broad phase.
+     */
+    private Entity[] sensedEntities;
+
+    /**
+     * X position of each sensed entity.
+     */
+    private double[] sensedXs;
+
+    /**
+     * Y position of each sensed entity.
+     */
+    private double[] sensedYs;
+
+    /**
+     * Species of each sensed entity.
+     */
+    private int[] sensedSpecies;
+
+    /**
+     * Number of entities sensed in the current update.
+     */
+    private int sensedCount;
+
+    /**
+     * Number of sensed entities owned by this simulation, the ghosts coming after them.
+     */
+    private int ownedSensedCount;
+
+    /**
+     * Read-only copies of entities living in another simulation, sensed by the entities of this
+     * simulation without being updated or sensing anything themselves.
+     */
+    @Setter
+    private List<Entity> ghosts;
+
+    /**
+     * Ghosts that ate an entity of this simulation, once per meal. The meals belong to the
+     * simulations the ghosts stand in for, see {@link #pollGhostMeal()}.
+     */
+    private final Queue<Entity> ghostMeals;
+
+    /**
+     * Maximum population of each species, overriding the ecosystem when not null.
+     */
+    private int[] speciesCaps;
+
+    /**
+     * Number of threads sensing entities.
+     */
+    private final int collisionThreadCount;
+
+    /**
+     * Pool running the parallel stages of the updates, or null to use the common pool.
+     */
+    private final ForkJoinPool workers;
+
+    /**
+     * Genomes of the entities migrating into this simulation, added at the start of the next
+     * update.
+     */
+    private final Queue<Migrant> immigrants;
+
+    /**
+     * Listener called on the update thread at the end of every update, or null.
+     */
+    @Setter
+    private Consumer<Simulation> tickListener;
+
+    /**
+     * Configuration of the thread that created the simulation, bound to every thread of the
+     * simulation.
+     */
+    @Getter
+    private final Configuration configuration;
+
+    /**
+     * Random of the thread that created the simulation, bound to every thread of the simulation
+     * like its configuration, so that a simulation created with a seeded random can be replayed.
+     */
+    @Getter
+    private final Random random;
+
+    /**
+     * Snapshots of the world published at the end of every update for the reader.
+     */
+    private final SnapshotBuffer snapshots;
+
+    /**
+     * Whether snapshots are published, from the first time one is read on.
+     */
+    private volatile boolean publishingSnapshots;
+
+    /**
+     * Time the last snapshot was published at.
+     */
+    private long lastSnapshotNanos;
+
+    /**
+     * Time the last update ended at.
+     */
+    private long lastTickNanos;
+
+    /**
+     * Identifier of the entity whose sensors and statistics are copied into the snapshots, or -1
+     * for none.
+     */
+    @Setter
+    private volatile long followedEntityId;
+
+    /**
+     * Copy of the brain of the entity last followed, taken once when it was first published in
+     * a snapshot. The following snapshots only capture the values of its neurons.
+     */
+    private NeuralNetwork followedBrain;
+
+    /**
+     * Identifier of the entity {@link #followedBrain} was copied from, or -1 for none.
+     */
+    private long followedBrainId;
+
     /**
      * Constructs a new simulation with given size.
      * @param newMapSizeX X map size to use for the simulation.
@@ -122,65 +404,237 @@ public final class Simulation {
         final int newMapSizeY,
         final int newGridSize,
         final boolean shouldPopulate
+    ) throws EvosimException {
+        this(newMapSizeX, newMapSizeY, newGridSize, shouldPopulate, 0);
+    }
+
+    /**
+     * Constructs a new simulation with given size, running on its own threads.
+     * @param newMapSizeX X map size to use for the simulation.
+     * @param newMapSizeY Y map size to use for the simulation.
+     * @param newGridSize Grid size to use for the simulation.
+     * @param shouldPopulate Whether the simulation should be initialized with random values.
+     * @param workerThreads Number of threads running the parallel stages and sensing entities,
+     *                      0 to share the common pool like any other simulation.
+     */
+    public Simulation(
+        final int newMapSizeX,
+        final int newMapSizeY,
+        final int newGridSize,
+        final boolean shouldPopulate,
+        final int workerThreads
     ) throws EvosimException {
         this.mapSizeX = newMapSizeX;
         this.mapSizeY = newMapSizeY;
         this.gridSize = newGridSize;
         this.isShutDown = false;
+        this.configuration = Configuration.getConfiguration();
+        this.random = Rng.getRandom();
 
         this.entityGrids = new ReadWriteLockedItem[this.mapSizeX][this.mapSizeY];
         this.updateToAdd = new ReadWriteLockedItem[this.mapSizeX][this.mapSizeY];
         this.updateToRemove = new ReadWriteLockedItem[this.mapSizeX][this.mapSizeY];
 
+        final LockMode lockMode = Configuration.getConfiguration().getLockMode();
+        this.lockStats = new LockStats();
+        this.lockProfiler = Configuration.getConfiguration().isLockProfiling()
+            ? new LockProfiler(ChunkLock.values().length, this.mapSizeX * this.mapSizeY)
+            : null;
         for (int i = 0; i < this.entityGrids.length; ++i) {
             for (int j = 0; j < this.entityGrids[i].length; ++j) {
-                this.entityGrids[i][j] = new ReadWriteLockedItem<>(new LinkedList<>());
-                this.updateToAdd[i][j] = new ReadWriteLockedItem<>(new LinkedList<>());
-                this.updateToRemove[i][j] = new ReadWriteLockedItem<>(new LinkedList<>());
+                final int region = j * this.mapSizeX + i;
+                this.entityGrids[i][j] = new ReadWriteLockedItem<>(new LinkedList<>(), lockMode,
+                    this.lockStats, this.lockProfiler, ChunkLock.ENTITIES.ordinal(), region);
+                this.updateToAdd[i][j] = new ReadWriteLockedItem<>(new LinkedList<>(), lockMode,
+                    this.lockStats, this.lockProfiler, ChunkLock.ADDITIONS.ordinal(), region);
+                this.updateToRemove[i][j] = new ReadWriteLockedItem<>(new LinkedList<>(), lockMode,
+                    this.lockStats, this.lockProfiler, ChunkLock.REMOVALS.ordinal(), region);
             }
         }
 
+        this.collisionThreadCount = workerThreads > 0 ? workerThreads : COLLISION_THREAD_COUNT;
+        this.workers = workerThreads > 0
+            ? new ForkJoinPool(workerThreads, ConfiguredWorkerThread::new, null, false)
+            : null;
+        this.immigrants = new ConcurrentLinkedQueue<>();
+        this.ghosts = List.of();
+        this.ghostMeals = new ConcurrentLinkedQueue<>();
+
         this.collisionCheckerService = Executors.newFixedThreadPool(
-            COLLISION_THREAD_COUNT,
-            new NamedThreadFactory("collision")
+            this.collisionThreadCount,
+            this.configuredThreadFactory("collision")
         );
 
         this.updateService = Executors.newSingleThreadScheduledExecutor(
-                new NamedThreadFactory("update")
+                this.configuredThreadFactory("update")
         );
+        this.betweenUpdates = new ConcurrentLinkedQueue<>();
+
+        this.ecosystem = new Ecosystem(
+            Configuration.getConfiguration().getSpecies(),
+            Configuration.getConfiguration().getInteractions()
+        );
+        this.speciesCounts = new AtomicIntegerArray(this.ecosystem.size());
+        this.snapshots = new SnapshotBuffer(this.ecosystem.size());
+        this.lastSnapshotNanos = System.nanoTime() - SNAPSHOT_INTERVAL_NANO;
+        this.lastTickNanos = System.nanoTime() - MAX_TICK_SPACING_NANO;
+        this.followedEntityId = -1;
+        this.followedBrainId = -1;
+        this.governor = new TickGovernor(
+            Configuration.getConfiguration().getDegradationPolicy(),
+            Configuration.getConfiguration().getOverrunTolerance(),
+            Configuration.getConfiguration().getDegradationMaxLevel()
+        );
+
+        this.broadPhaseCellSize = this.gridSize;
+        this.broadPhaseType = Configuration.getConfiguration().getBroadPhase();
+        this.broadPhase = this.broadPhaseType.create(
+            this.mapSizeX * this.gridSize,
+            this.mapSizeY * this.gridSize,
+            this.broadPhaseCellSize
+        );
+        this.gridSizeTuner =
+            Configuration.getConfiguration().getBroadPhase() == BroadPhaseType.GRID
+                && Configuration.getConfiguration().isGridAutoTune()
+            ? new GridSizeTuner(
+                Math.max(
+                    Configuration.getConfiguration().getEntitySensorsLength(),
+                    2 * Configuration.getConfiguration().getEntityRadius()
+                ),
+                this.gridSize,
+                2 * Configuration.getConfiguration().getEntityRadius(),
+                this.mapSizeX * this.gridSize,
+                this.mapSizeY * this.gridSize
+            )
+            : null;
+        this.entityPool = new EntityPool(this.ecosystem.size());
+        final String lineageFile = Configuration.getConfiguration().getLineageFile();
+        this.lineageStore = lineageFile.isEmpty() ? null : new LineageStore(new File(lineageFile));
+        final String tickMetricsFile = Configuration.getConfiguration().getTickMetricsFile();
+        this.tickMetricsLog = tickMetricsFile.isEmpty()
+            ? null : new TickMetricsLog(new File(tickMetricsFile), this.lockProfiler != null);
+        this.deadEntities = new ConcurrentLinkedQueue<>();
+        this.splitRequests = new ConcurrentLinkedQueue<>();
+        this.birthParents = new Entity[0];
+        this.birthChildren = new Entity[0];
+        this.occupancy = new SpeciesOccupancy(
+            this.mapSizeX * this.gridSize, this.mapSizeY * this.gridSize
+        );
+        this.sensedEntities = new Entity[0];
+        this.sensedXs = new double[0];
+        this.sensedYs = new double[0];
+        this.sensedSpecies = new int[0];
+
+        final int tileColumns = Configuration.getConfiguration().getSenseTileColumns();
+        final int tileRows = Configuration.getConfiguration().getSenseTileRows();
+        if (tileColumns * tileRows > 1) {
+            final double halo = Math.max(
+                Configuration.getConfiguration().getEntitySensorsLength(),
+                2 * Configuration.getConfiguration().getEntityRadius()
+            );
+            this.tilePartition = new Partition(
+                this.mapSizeX * this.gridSize, this.mapSizeY * this.gridSize,
+                tileColumns, tileRows
+            );
+            this.tiles = new SenseTile[this.tilePartition.size()];
+            for (int i = 0; i < this.tiles.length; ++i) {
+                this.tiles[i] = new SenseTile(i, this.tilePartition, halo);
+            }
+        } else {
+            this.tilePartition = null;
+            this.tiles = null;
+        }
+        this.tileEfficiency = 1;
 
         if (shouldPopulate) {
             this.defaultPopulateEntityList();
         }
 
-        EvosimApplication.getApplication().getShutdownHooks().add(this::shutdown);
+        if (EvosimApplication.getApplication() != null) {
+            EvosimApplication.getApplication().getShutdownHooks().add(this::shutdown);
+        }
     }
 
     /**
      * Populates the entity list by constructing all initial entities based on user given initial
-     * populations.
+     * populations of every species.
      */
     private void defaultPopulateEntityList() throws EvosimException {
         final double maxSpeed = Configuration.getConfiguration().getEntityMaxSpeed();
         final double minSpeed = Configuration.getConfiguration().getEntityMinSpeed();
-        final int initPrey = Configuration.getConfiguration().getPreyInitialPopulation();
-        final int initPredator = Configuration.getConfiguration().getPredatorInitialPopulation();
-
-        for (int i = 0; i < initPrey + initPredator; i++) {
-            final double speed = Rng.RNG.nextDouble(minSpeed, maxSpeed);
-            final Point spawnPoint = new Point(
-                Rng.RNG.nextDouble(0, this.mapSizeX * this.gridSize),
-                Rng.RNG.nextDouble(0, this.mapSizeY * this.gridSize)
-            );
 
-            final double angle = Rng.RNG.nextDouble(0, 2 * Math.PI);
+        for (int tag = 0; tag < this.ecosystem.size(); ++tag) {
+            final int initialPopulation = this.ecosystem.getSpecies(tag).getInitialPopulation();
+
+            for (int i = 0; i < initialPopulation; i++) {
+                final double speed = this.random.nextDouble(minSpeed, maxSpeed);
+                final Point spawnPoint = new Point(
+                    this.random.nextDouble(0, this.mapSizeX * this.gridSize),
+                    this.random.nextDouble(0, this.mapSizeY * this.gridSize)
+                );
 
-            final Entity entity = i < initPrey
-                ? new Prey(this, speed, spawnPoint, angle)
-                : new Predator(this, speed, spawnPoint, angle);
+                final double angle = this.random.nextDouble(0, 2 * Math.PI);
 
-            this.addEntity(entity);
+                this.addEntity(this.ecosystem.create(tag, this, speed, spawnPoint, angle));
+            }
+        }
+    }
+
+    /**
+     * Gets the number of entities of a species alive in the simulation.
+     *
+     * @param speciesTag the tag of the species
+     * @return the number of living entities of the species
+     */
+    public int getSpeciesCount(final int speciesTag) {
+        return this.speciesCounts.get(speciesTag);
+    }
+
+    /**
+     * Gets the maximum population of a species in the simulation.
+     *
+     * @param speciesTag the tag of the species
+     * @return the maximum population of the species
+     */
+    public int getSpeciesCap(final int speciesTag) {
+        return this.speciesCaps != null
+            ? this.speciesCaps[speciesTag]
+            : this.ecosystem.getSpecies(speciesTag).getMaxNumber();
+    }
+
+    /**
+     * Overrides the maximum population of a species, as when the population is shared with other
+     * simulations. Births beyond the cap are skipped from the next update on.
+     *
+     * @param speciesTag the tag of the species
+     * @param cap        the new maximum population
+     */
+    public void setSpeciesCap(final int speciesTag, final int cap) {
+        if (this.speciesCaps == null) {
+            this.speciesCaps = new int[this.ecosystem.size()];
+            for (int tag = 0; tag < this.speciesCaps.length; ++tag) {
+                this.speciesCaps[tag] = this.ecosystem.getSpecies(tag).getMaxNumber();
+            }
         }
+        this.speciesCaps[speciesTag] = cap;
+    }
+
+    /**
+     * Gets the number of prey alive in the simulation.
+     *
+     * @return the number of living prey
+     */
+    public int getPreyCount() {
+        return this.getSpeciesCount(Ecosystem.PREY_TAG);
+    }
+
+    /**
+     * Gets the number of predators alive in the simulation.
+     *
+     * @return the number of living predators
+     */
+    public int getPredatorCount() {
+        return this.getSpeciesCount(Ecosystem.PREDATOR_TAG);
     }
 
     /**
@@ -189,28 +643,130 @@ public final class Simulation {
      */
     public void addEntity(final Entity entity) {
         entity.setSimulation(this);
-        if (entity instanceof Predator) {
-            ++this.predatorCount;
-        } else if (entity instanceof Prey) {
-            ++this.preyCount;
-        } else {
+        if (entity.getSpeciesTag() < 0 || entity.getSpeciesTag() >= this.ecosystem.size()) {
             throw new IllegalArgumentException("Unrecognized Entity: " + entity);
         }
+        this.speciesCounts.incrementAndGet(entity.getSpeciesTag());
+
+        if (this.lineageStore != null) {
+            this.lineageStore.recordFounder(entity, this.tickCount);
+        }
 
         final Coordinate coord = pointToGridCoord(entity.getBodyCenter());
 
         final ReadWriteLockedItem<List<Entity>> chunk =
             this.entityGrids[coord.getX()][coord.getY()];
 
-        chunk.writeLock().lock();
+        chunk.writeLock().lock();
+        try {
+            chunk.get().add(entity);
+        } finally {
+            chunk.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Removes a living entity between two updates, as when it leaves for another simulation.
+     *
+     * @param entity the entity to remove
+     */
+    public void removeEntity(final Entity entity) {
+        final Coordinate coord = pointToGridCoord(entity.getBodyCenter());
+        final ReadWriteLockedItem<List<Entity>> chunk =
+            this.entityGrids[coord.getX()][coord.getY()];
+
+        chunk.writeLock().lock();
+        try {
+            if (chunk.get().remove(entity)) {
+                this.speciesCounts.decrementAndGet(entity.getSpeciesTag());
+            }
+        } finally {
+            chunk.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Records that a ghost ate an entity of this simulation. May be called from any thread.
+     *
+     * @param ghost the ghost that ate
+     */
+    public void reportGhostMeal(final Entity ghost) {
+        this.ghostMeals.offer(ghost);
+    }
+
+    /**
+     * Takes the next meal of a ghost reported since the last call.
+     *
+     * @return the ghost that ate, or null if there is no meal left
+     */
+    public Entity pollGhostMeal() {
+        return this.ghostMeals.poll();
+    }
+
+    /**
+     * Queues a genome migrating from another simulation. It becomes a new entity at a random
+     * position at the start of the next update, unless its species is full. May be called from
+     * any thread.
+     *
+     * @param migrant the migrating genome
+     */
+    public void immigrate(final Migrant migrant) {
+        this.immigrants.offer(migrant);
+    }
+
+    private void settleImmigrants() throws EvosimException {
+        final double maxX = this.mapSizeX * this.gridSize;
+        final double maxY = this.mapSizeY * this.gridSize;
+
+        for (Migrant migrant = this.immigrants.poll(); migrant != null;
+             migrant = this.immigrants.poll()) {
+            final int tag = migrant.getSpeciesTag();
+
+            if (this.speciesCounts.get(tag) >= this.getSpeciesCap(tag)) {
+                continue;
+            }
+
+            final Entity entity = this.ecosystem.create(
+                tag,
+                this,
+                migrant.getGenome()[0],
+                new Point(this.random.nextDouble(0, maxX), this.random.nextDouble(0, maxY)),
+                this.random.nextDouble(0, 2 * Math.PI)
+            );
+            entity.applyGenome(migrant.getGenome());
+            this.addEntity(entity);
+        }
+    }
+
+    /**
+     * Updates the simulation once on the calling thread, as the update thread does after
+     * {@link #playUpdate()}.
+     */
+    public void update() {
+        this.runBetweenUpdates();
+
+        if (this.workers != null) {
+            this.workers.invoke(ForkJoinTask.adapt(this::tick));
+        } else {
+            this.tick();
+        }
+
+        if (this.tickListener != null) {
+            this.tickListener.accept(this);
+        }
+    }
+
+    private void tick() {
+        final long startTime = System.nanoTime();
+        final LongAdder thinkCount = new LongAdder();
+        ++this.tickCount;
+
         try {
-            chunk.get().add(entity);
-        } finally {
-            chunk.writeLock().unlock();
+            this.settleImmigrants();
+        } catch (EvosimException e) {
+            throw new RuntimeException(e);
         }
-    }
 
-    private void update() {
         IntStream.range(0, this.mapSizeX * this.mapSizeY).parallel().forEach(
             (chunkIndex) -> {
                 final Coordinate chunkCoord = new Coordinate(
@@ -230,11 +786,7 @@ public final class Simulation {
                         final Coordinate oldCoord = pointToGridCoord(entity.getBodyCenter());
 
                         if (entity.isDead()) {
-                            if (entity instanceof Prey) {
-                                --this.preyCount;
-                            } else if (entity instanceof Predator) {
-                                --this.predatorCount;
-                            }
+                            this.speciesCounts.decrementAndGet(entity.getSpeciesTag());
 
                             final ReadWriteLockedItem<List<Entity>> chk =
                                 this.updateToRemove[oldCoord.getX()][oldCoord.getY()];
@@ -246,49 +798,16 @@ public final class Simulation {
                                 chk.writeLock().unlock();
                             }
 
+                            this.deadEntities.add(entity);
                             return;
                         } else if (entity.isSplit()) {
-                            try {
-                                if (
-                                    (
-                                        entity instanceof Prey
-                                            && this.preyCount
-                                            < Configuration.getConfiguration().getPreyMaxNumber()
-                                    )
-                                        || (
-                                        entity instanceof Predator
-                                            && this.predatorCount
-                                            < Configuration.getConfiguration()
-                                                .getPredatorMaxNumber()
-                                    )
-                                ) {
-                                    final ReadWriteLockedItem<List<Entity>> chk =
-                                        this.updateToAdd[oldCoord.getX()][oldCoord.getY()];
-
-                                    chk.writeLock().lock();
-                                    try {
-                                        chk.get().add(entity.clone());
-                                    } finally {
-                                        chk.writeLock().unlock();
-                                    }
-
-                                    entity.setSplitEnergy(0);
-                                    entity.setChildCount(entity.getChildCount() + 1);
-                                    entity.setSplit(false);
-
-                                    if (entity instanceof Prey) {
-                                        ++this.preyCount;
-                                    } else {
-                                        ++this.predatorCount;
-                                    }
-                                }
-                            } catch (EvosimException e) {
-                                throw new RuntimeException(e);
-                            }
+                            this.splitRequests.add(entity);
                         }
 
                         try {
-                            entity.update();
+                            if (entity.update()) {
+                                thinkCount.increment();
+                            }
                         } catch (EvosimException e) {
                             throw new RuntimeException(e);
                         }
@@ -316,8 +835,6 @@ public final class Simulation {
                                 chkTo.writeLock().unlock();
                             }
                         }
-
-                        this.collisionCheckerService.execute(this.submitCollisionWork(entity));
                     });
                 } finally {
                     chunk.readLock().unlock();
@@ -325,6 +842,14 @@ public final class Simulation {
             }
         );
 
+        this.reproduceEntities();
+
+        if (this.tiles != null) {
+            for (final SenseTile tile : this.tiles) {
+                tile.clear();
+            }
+        }
+
         for (int i = 0; i < this.mapSizeX; ++i) {
             for (int j = 0; j < this.mapSizeY; ++j) {
                 final ReadWriteLockedItem<List<Entity>> chunk = this.entityGrids[i][j];
@@ -348,15 +873,431 @@ public final class Simulation {
                     } finally {
                         toAdd.writeLock().unlock();
                     }
+
+                    if (this.tiles != null) {
+                        this.assignToTiles(chunk.get());
+                    }
                 } finally {
                     chunk.writeLock().unlock();
                 }
             }
         }
+
+        final long senseStartTime = System.nanoTime();
+        final LongAdder offTurnCount = new LongAdder();
+        final int skippedCount = this.senseEntities(offTurnCount);
+
+        // dead entities are out of every chunk and every stage, they can now be recycled
+        for (Entity dead = this.deadEntities.poll(); dead != null;
+             dead = this.deadEntities.poll()) {
+            this.entityPool.release(dead);
+        }
+
+        final long stateTime = System.nanoTime();
+        final long tickSpacing = Math.min(stateTime - this.lastTickNanos, MAX_TICK_SPACING_NANO);
+        this.lastTickNanos = stateTime;
+
+        if (this.publishingSnapshots
+            && stateTime - this.lastSnapshotNanos >= SNAPSHOT_INTERVAL_NANO) {
+            this.publishSnapshot(stateTime, tickSpacing);
+            this.lastSnapshotNanos = System.nanoTime();
+        }
+
+        final long endTime = System.nanoTime();
+
+        if (this.gridSizeTuner != null) {
+            this.gridSizeTuner.record(endTime - startTime);
+        }
+
+        this.tickMetrics = new TickMetrics(
+            endTime - startTime,
+            endTime - senseStartTime,
+            this.sensedCount,
+            skippedCount,
+            offTurnCount.intValue(),
+            thinkCount.intValue(),
+            this.entityPool.getHitRate(),
+            this.tiles != null ? this.tiles.length : 1,
+            this.tileEfficiency,
+            this.lockProfiler != null ? this.lockProfiler.merge() : null
+        );
+
+        if (this.tickMetricsLog != null) {
+            this.tickMetricsLog.write(this.tickCount, this.tickMetrics);
+        }
+    }
+
+    /**
+     * Gives birth to a child for every entity that split during the update, as long as its
+     * species is under its maximum population. Requests are filtered in a single pass, then the
+     * children are created in parallel into preallocated slots and queued to be merged into the
+     * chunks with every other addition.
+     */
+    private void reproduceEntities() {
+        int birthCount = 0;
+        for (Entity parent = this.splitRequests.poll(); parent != null;
+             parent = this.splitRequests.poll()) {
+            final int tag = parent.getSpeciesTag();
+
+            if (this.speciesCounts.get(tag) >= this.getSpeciesCap(tag)) {
+                continue;
+            }
+
+            this.speciesCounts.incrementAndGet(tag);
+
+            if (birthCount == this.birthParents.length) {
+                final int capacity = Math.max(1, birthCount * 2);
+                this.birthParents = Arrays.copyOf(this.birthParents, capacity);
+                this.birthChildren = Arrays.copyOf(this.birthChildren, capacity);
+            }
+
+            this.birthParents[birthCount++] = parent;
+        }
+
+        final Entity[] parents = this.birthParents;
+        final Entity[] children = this.birthChildren;
+
+        IntStream.range(0, birthCount).parallel().forEach(i -> {
+            final Entity parent = parents[i];
+
+            children[i] = parent.clone();
+            parent.setSplitEnergy(0);
+            parent.setSplit(false);
+        });
+
+        for (int i = 0; i < birthCount; ++i) {
+            final Coordinate coord = pointToGridCoord(children[i].getBodyCenter());
+            final ReadWriteLockedItem<List<Entity>> chunk =
+                this.updateToAdd[coord.getX()][coord.getY()];
+
+            chunk.writeLock().lock();
+            try {
+                chunk.get().add(children[i]);
+            } finally {
+                chunk.writeLock().unlock();
+            }
+        }
+
+        Arrays.fill(parents, 0, birthCount, null);
+        Arrays.fill(children, 0, birthCount, null);
+    }
+
+    /**
+     * Updates the sensors and collisions of all living entities. The broad phase is built once
+     * from every entity, then each entity relates to its own candidates in parallel and the
+     * update waits until all of them are done. Entities without any opponent near skip the
+     * broad phase query and only get their sensors cleared. Entities that are not on their
+     * sensing turn keep their readings but still collide, with a query only as wide as a
+     * collision. Ghosts are part of the broad phase but never sense anything themselves.
+     *
+     * @param offTurnCount counts the entities that only collided because it was not their turn
+     *                     to sense
+     * @return the number of entities that skipped sensing because no opponent was near
+     */
+    private int senseEntities(final LongAdder offTurnCount) {
+        final double range;
+        final double collisionRange;
+        try {
+            collisionRange = 2 * Configuration.getConfiguration().getEntityRadius();
+            // entities closer than the sensors reach may still touch
+            range = Math.max(
+                Configuration.getConfiguration().getEntitySensorsLength(), collisionRange
+            );
+        } catch (EvosimException e) {
+            throw new RuntimeException(e);
+        }
+
+        if (this.tiles != null) {
+            this.rebucketBroadPhase();
+            return this.senseTiles(range, collisionRange, offTurnCount);
+        }
+
+        this.gatherSensedEntities();
+        this.rebucketBroadPhase();
+        this.broadPhase.build(
+            this.sensedXs, this.sensedYs, this.sensedSpecies, this.sensedCount
+        );
+        this.occupancy.build(
+            this.sensedXs, this.sensedYs, this.sensedSpecies, this.sensedCount, range
+        );
+
+        final int sensePeriod = this.getSensePeriod();
+        final int batchSize = Math.max(
+            1, (this.ownedSensedCount + this.collisionThreadCount - 1) / this.collisionThreadCount
+        );
+        final List<Callable<Integer>> batches = new ArrayList<>(this.collisionThreadCount);
+
+        for (int start = 0; start < this.ownedSensedCount; start += batchSize) {
+            final int from = start;
+            final int to = Math.min(start + batchSize, this.ownedSensedCount);
+            batches.add(() -> {
+                int skipped = 0;
+                for (int i = from; i < to; ++i) {
+                    if (!isSensingTurn(this.sensedEntities[i], this.tickCount, sensePeriod)) {
+                        offTurnCount.increment();
+                        this.relateToCandidates(i, collisionRange, false);
+                    } else if (!this.senseEntity(i, range)) {
+                        ++skipped;
+                    }
+                }
+                return skipped;
+            });
+        }
+
+        int skippedCount = 0;
+        try {
+            for (final Future<Integer> batch : this.collisionCheckerService.invokeAll(batches)) {
+                skippedCount += batch.get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            throw new RuntimeException(e.getCause());
+        }
+
+        Arrays.fill(this.sensedEntities, 0, this.sensedCount, null);
+
+        return skippedCount;
+    }
+
+    /**
+     * Senses every tile on its own worker. Tiles first publish their border, then each tile
+     * gathers its entities and the ghosts of its neighbours and senses on its own, without any
+     * lock on the arrays, broad phase or occupancy of another tile. Collisions with ghosts still
+     * kill and feed entities owned by neighbouring tiles, which is only safe because
+     * {@link Entity#onCollide(Entity)} resolves a pair through synchronized methods of both
+     * entities.
+     *
+     * @param range          distance within which entities sense or touch others
+     * @param collisionRange distance within which entities may collide
+     * @param offTurnCount   counts the entities that only collided because it was not their
+     *                       turn to sense
+     * @return the number of entities that skipped sensing because no opponent was near
+     */
+    private int senseTiles(final double range, final double collisionRange,
+                           final LongAdder offTurnCount) {
+        final long startTime = System.nanoTime();
+        final LongAdder busyNanos = new LongAdder();
+
+        this.invokeOnTiles(tile -> {
+            tile.publishBorder();
+            return 0;
+        });
+
+        final int skippedCount = this.invokeOnTiles(tile -> {
+            final long tileStartTime = System.nanoTime();
+            try {
+                tile.gather(this.tiles, this.ghosts);
+                return tile.sense(this.broadPhaseType, this.broadPhaseCellSize, range,
+                    collisionRange, this.tickCount, this.getSensePeriod());
+            } catch (EvosimException e) {
+                throw new RuntimeException(e);
+            } finally {
+                busyNanos.add(System.nanoTime() - tileStartTime);
+            }
+        });
+
+        final long wallNanos = System.nanoTime() - startTime;
+        final int workerCount = Math.min(this.tiles.length, this.collisionThreadCount);
+        this.tileEfficiency = wallNanos == 0
+            ? 1 : Math.min(1, (double) busyNanos.sum() / ((double) workerCount * wallNanos));
+
+        this.sensedCount = 0;
+        for (final SenseTile tile : this.tiles) {
+            this.sensedCount += tile.getOwnedCount();
+            offTurnCount.add(tile.getOffTurnCount());
+        }
+
+        return skippedCount;
+    }
+
+    /**
+     * Runs a task on every tile with the sensing threads and waits for all of them.
+     *
+     * @param task the task, returning a count
+     * @return the sum of the counts
+     */
+    private int invokeOnTiles(final ToIntFunction<SenseTile> task) {
+        final List<Callable<Integer>> calls = new ArrayList<>(this.tiles.length);
+        for (final SenseTile tile : this.tiles) {
+            calls.add(() -> task.applyAsInt(tile));
+        }
+
+        int sum = 0;
+        try {
+            for (final Future<Integer> call : this.collisionCheckerService.invokeAll(calls)) {
+                sum += call.get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            throw new RuntimeException(e.getCause());
+        }
+        return sum;
+    }
+
+    /**
+     * Gives each living entity of a chunk to the tile containing it.
+     *
+     * @param entities the entities of the chunk
+     */
+    private void assignToTiles(final List<Entity> entities) {
+        for (final Entity entity : entities) {
+            if (!entity.isDead()) {
+                this.tiles[this.tilePartition.owner(
+                    entity.getBodyCenter().getX(), entity.getBodyCenter().getY()
+                )].own(entity);
+            }
+        }
+    }
+
+    /**
+     * Recreates the broad phase if the tuner picked another cell size. Only the broad phase is
+     * affected, entities are still stored and rendered in the chunks of the configured grid.
+     */
+    private void rebucketBroadPhase() {
+        if (this.gridSizeTuner == null
+            || this.gridSizeTuner.getCellSize() == this.broadPhaseCellSize) {
+            return;
+        }
+
+        this.broadPhaseCellSize = this.gridSizeTuner.getCellSize();
+        this.broadPhase = BroadPhaseType.GRID.create(
+            this.mapSizeX * this.gridSize,
+            this.mapSizeY * this.gridSize,
+            this.broadPhaseCellSize
+        );
+    }
+
+    /**
+     * Updates the sensors and collisions of a single entity.
+     *
+     * @param index index of the entity in the sensed arrays
+     * @param range distance within which the entity senses others
+     * @return false if the entity skipped sensing because no opponent was near
+     */
+    private boolean senseEntity(final int index, final double range)
+        throws EvosimException {
+        final Entity entity = this.sensedEntities[index];
+
+        if (!this.occupancy.hasOpponentNear(
+            this.sensedXs[index], this.sensedYs[index], this.sensedSpecies[index])) {
+            entity.clearSensors();
+            return false;
+        }
+
+        entity.resetSensors();
+        this.relateToCandidates(index, range, true);
+        return true;
+    }
+
+    private void relateToCandidates(final int index, final double range, final boolean sensing) {
+        final Entity entity = this.sensedEntities[index];
+        this.broadPhase.forEachCandidate(index, range, candidate -> {
+            try {
+                entity.relateTo(this.sensedEntities[candidate], sensing);
+            } catch (EvosimException e) {
+                throw new RuntimeException(e);
+            }
+        });
+    }
+
+    /**
+     * Tells whether an entity updates its sensors in a tick, when sensing is spread over several
+     * ticks. Entities are staggered by identifier and keep their previous readings in between.
+     *
+     * @param entity      the entity
+     * @param tick        number of the tick
+     * @param sensePeriod number of ticks between two updates of the sensors of an entity
+     * @return whether the entity senses in the tick
+     */
+    static boolean isSensingTurn(final Entity entity, final long tick, final int sensePeriod) {
+        return sensePeriod <= 1 || (tick + entity.getId()) % sensePeriod == 0;
+    }
+
+    private void gatherSensedEntities() {
+        this.sensedCount = 0;
+
+        for (int x = 0; x < this.mapSizeX; ++x) {
+            for (int y = 0; y < this.mapSizeY; ++y) {
+                this.forEachGridEntities(x, y, entity -> {
+                    if (!entity.isDead()) {
+                        this.addSensedEntity(entity);
+                    }
+                });
+            }
+        }
+
+        this.ownedSensedCount = this.sensedCount;
+        this.ghosts.forEach(this::addSensedEntity);
+    }
+
+    private void addSensedEntity(final Entity entity) {
+        if (this.sensedCount == this.sensedEntities.length) {
+            final int capacity = Math.max(1, this.sensedCount * 2);
+            this.sensedEntities = Arrays.copyOf(this.sensedEntities, capacity);
+            this.sensedXs = Arrays.copyOf(this.sensedXs, capacity);
+            this.sensedYs = Arrays.copyOf(this.sensedYs, capacity);
+            this.sensedSpecies = Arrays.copyOf(this.sensedSpecies, capacity);
+        }
+
+        this.sensedEntities[this.sensedCount] = entity;
+        this.sensedXs[this.sensedCount] = entity.getBodyCenter().getX();
+        this.sensedYs[this.sensedCount] = entity.getBodyCenter().getY();
+        this.sensedSpecies[this.sensedCount] = entity.getSpeciesTag();
+        ++this.sensedCount;
+    }
+
+    /**
+     * Copies the living entities into the back snapshot and publishes it. Done by the update
+     * thread between the stages of an update, when no entity is moving.
+     *
+     * @param tickNanos        time the update ended at
+     * @param tickSpacingNanos time between the ends of the two last updates
+     */
+    private void publishSnapshot(final long tickNanos, final long tickSpacingNanos) {
+        final WorldSnapshot snapshot = this.snapshots.back();
+        final long followedId = this.followedEntityId;
+        snapshot.clear(this.tickCount, tickNanos, tickSpacingNanos);
+
+        for (int x = 0; x < this.mapSizeX; ++x) {
+            for (int y = 0; y < this.mapSizeY; ++y) {
+                this.forEachGridEntities(x, y, entity -> {
+                    if (!entity.isDead()) {
+                        final boolean followed = entity.getId() == followedId;
+                        if (followed && this.followedBrainId != followedId) {
+                            this.followedBrain = entity.getBrain().copy();
+                            this.followedBrainId = followedId;
+                        }
+                        snapshot.add(entity, followed);
+                    }
+                });
+            }
+        }
+
+        if (snapshot.getFollowedIndex() >= 0) {
+            snapshot.setFollowedBrain(this.followedBrain);
+        }
+
+        this.snapshots.publish();
     }
 
     /**
-     * Runs a function on all entities in a grid.
+     * Gets the latest snapshot of the world, published at the end of an update, at most once
+     * every {@link #SNAPSHOT_INTERVAL_NANO}. Snapshots are only published after the first call,
+     * which returns an empty one. Must always be called
+     * from the same thread, and the snapshot it returns must not be used after the next call.
+     *
+     * @return the latest snapshot of the world
+     */
+    public WorldSnapshot acquireSnapshot() {
+        this.publishingSnapshots = true;
+        return this.snapshots.acquire();
+    }
+
+    /**
+     * Runs a function on all entities in a grid. With optimistic locks the entities are copied
+     * without locking and the function runs on the copy, otherwise it runs under the read lock.
      *
      * @param x X position of grid
      * @param y Y position of grid
@@ -365,6 +1306,13 @@ public final class Simulation {
     public void forEachGridEntities(final int x, final int y, final Consumer<Entity> r) {
         final ReadWriteLockedItem<List<Entity>> chunk = this.entityGrids[x][y];
 
+        if (chunk.isOptimistic()) {
+            for (final Entity entity : chunk.read(entities -> entities.toArray(new Entity[0]))) {
+                r.accept(entity);
+            }
+            return;
+        }
+
         chunk.readLock().lock();
 
         try {
@@ -423,25 +1371,191 @@ public final class Simulation {
      * Starts updating the simulation.
      */
     public void playUpdate() {
+        this.playUpdate(UPDATE_INTERVAL_NANO);
+    }
+
+    /**
+     * Starts updating the simulation at a given rate. Scheduled updates are measured against the
+     * rate, and the simulation is degraded following its {@link DegradationPolicy} while they
+     * keep overrunning it. Updates start at a fixed rate, but an update that overruns the
+     * interval drops the updates it missed: the next one starts as soon as it ends rather than
+     * updates being queued to then run in a burst to catch up.
+     *
+     * @param intervalNanos nanoseconds to wait between each update, or 0 to run updates back to
+     *                      back as fast as they go
+     */
+    public synchronized void playUpdate(final long intervalNanos) {
         if (this.currentUpdate != null) {
             return;
         }
 
-        this.currentUpdate = this.updateService.scheduleAtFixedRate(
-            this::update, 0, UPDATE_INTERVAL_NANO, TimeUnit.NANOSECONDS
+        this.governor.start(intervalNanos);
+        ++this.playCount;
+
+        if (intervalNanos <= 0) {
+            this.playingBackToBack = true;
+            this.currentUpdate = this.updateService.submit(() -> {
+                while (this.playingBackToBack) {
+                    this.update();
+                }
+            });
+        } else {
+            this.nextUpdateNanos = System.nanoTime();
+            this.scheduleUpdate(this.playCount, 0);
+        }
+    }
+
+    private void scheduleUpdate(final long play, final long delayNanos) {
+        this.currentUpdate = this.updateService.schedule(
+            () -> this.scheduledUpdate(play), delayNanos, TimeUnit.NANOSECONDS
         );
     }
 
+    /**
+     * Runs a scheduled update and records how long it took, then schedules the next one.
+     *
+     * @param play the play the update was scheduled for
+     */
+    private void scheduledUpdate(final long play) {
+        final long startTime = System.nanoTime();
+        this.update();
+        this.governor.record(System.nanoTime() - startTime);
+        this.scheduleNextUpdate(play);
+    }
+
+    /**
+     * Schedules the next update one interval after the start the last one was due at, or right
+     * away when that start is already past, so that missed updates are dropped. The interval
+     * follows the degradation level when the tick rate is degraded.
+     *
+     * @param play the play the last update was scheduled for
+     */
+    private synchronized void scheduleNextUpdate(final long play) {
+        if (play != this.playCount) {
+            return;
+        }
+
+        final long now = System.nanoTime();
+        final long intervalNanos = this.governor.getBudgetNanos(this.governor.getLevel());
+        this.nextUpdateNanos = Math.max(now, this.nextUpdateNanos + intervalNanos);
+        this.scheduleUpdate(play, this.nextUpdateNanos - now);
+    }
+
+    /**
+     * Starts updating the simulation at a given speed.
+     *
+     * @param speed the speed
+     */
+    public void playUpdate(final PlaybackSpeed speed) {
+        this.playUpdate(speed.getIntervalNanos());
+    }
+
     /**
      * Pauses updating the simulation.
      */
-    public void pauseUpdate() {
+    public synchronized void pauseUpdate() {
+        this.playingBackToBack = false;
+        ++this.playCount;
         if (this.currentUpdate != null) {
             this.currentUpdate.cancel(true);
             this.currentUpdate = null;
+            // tasks waiting for the next update run once the cancelled one is done
+            this.updateService.execute(this::runBetweenUpdates);
+        }
+    }
+
+    /**
+     * Runs a task on the update thread between two updates and waits for its result, so that
+     * the task can read every entity while none of them is being updated. The task runs
+     * before the next update while the simulation plays, and right away otherwise.
+     *
+     * @param task the task
+     * @param <T>  the type of the result of the task
+     * @return the result of the task
+     * @throws EvosimException if the task failed or the wait was interrupted
+     */
+    public <T> T callBetweenUpdates(final Callable<T> task) throws EvosimException {
+        final FutureTask<T> future = new FutureTask<>(task);
+
+        synchronized (this) {
+            if (this.updateService.isShutdown()) {
+                future.run();
+            } else if (this.currentUpdate == null) {
+                this.updateService.execute(future);
+            } else {
+                this.betweenUpdates.offer(future);
+            }
+        }
+
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new EvosimException("Interrupted while waiting for the update thread.", e);
+        } catch (ExecutionException e) {
+            throw new EvosimException("A task between updates failed.", e.getCause());
         }
     }
 
+    private void runBetweenUpdates() {
+        for (Runnable task = this.betweenUpdates.poll(); task != null;
+             task = this.betweenUpdates.poll()) {
+            task.run();
+        }
+    }
+
+    /**
+     * Gets what the simulation gives up when its updates keep overrunning their budget.
+     *
+     * @return the degradation policy
+     */
+    public DegradationPolicy getDegradationPolicy() {
+        return this.governor.getPolicy();
+    }
+
+    /**
+     * Gets how far the simulation is currently degraded.
+     *
+     * @return the degradation level, 0 for the full simulation
+     */
+    public int getDegradationLevel() {
+        return this.governor.getLevel();
+    }
+
+    /**
+     * Gets the highest level the simulation may be degraded to.
+     *
+     * @return the highest degradation level
+     */
+    public int getMaxDegradationLevel() {
+        return this.governor.getMaxLevel();
+    }
+
+    /**
+     * Gets the number of scheduled updates that took longer than their budget.
+     *
+     * @return the number of overruns
+     */
+    public long getOverrunCount() {
+        return this.governor.getOverrunCount();
+    }
+
+    /**
+     * Gets the number of ticks between two evaluations of the brain of an entity, which grows
+     * with the degradation level under {@link DegradationPolicy#THINK_INTERVAL}.
+     *
+     * @return the think interval
+     * @throws EvosimException if the configured interval cannot be read
+     */
+    public int getThinkInterval() throws EvosimException {
+        return Math.max(1, Configuration.getConfiguration().getEntityThinkInterval())
+            * this.governor.getPeriod(DegradationPolicy.THINK_INTERVAL);
+    }
+
+    private int getSensePeriod() {
+        return this.governor.getPeriod(DegradationPolicy.APPROXIMATE_SENSING);
+    }
+
     /**
      * Kills the simulation. Cannot be restarted after.
      */
@@ -453,6 +1567,9 @@ public final class Simulation {
         this.pauseUpdate();
         this.updateService.shutdown();
         this.collisionCheckerService.shutdown();
+        if (this.workers != null) {
+            this.workers.shutdown();
+        }
 
         try {
             this.updateService.awaitTermination(1, TimeUnit.SECONDS);
@@ -462,42 +1579,46 @@ public final class Simulation {
             this.collisionCheckerService.shutdownNow();
         }
 
-        this.isShutDown = true;
-    }
-
-    private Runnable submitCollisionWork(final Entity entity) {
-        return () -> {
+        if (this.lineageStore != null) {
             try {
-                entity.resetSensors();
+                this.lineageStore.close();
             } catch (EvosimException e) {
                 throw new RuntimeException(e);
             }
-            final Coordinate center = this.pointToGridCoord(entity.getBodyCenter());
+        }
 
-            final int delta;
+        if (this.tickMetricsLog != null) {
             try {
-                delta = (int) (
-                        Configuration.getConfiguration().getEntitySensorsLength() / this.gridSize
-                );
+                this.tickMetricsLog.close();
             } catch (EvosimException e) {
                 throw new RuntimeException(e);
             }
+        }
 
-            for (int x = center.getX() - delta; x <= center.getX() + delta; ++x) {
-                for (int y = center.getY() - delta; y <= center.getY() + delta; ++y) {
-                    if (!isCoordValid(x, y)) {
-                        continue;
-                    }
+        this.isShutDown = true;
+    }
 
-                    this.forEachGridEntities(x, y, other -> {
-                        try {
-                            Entity.updateRelation(entity, other);
-                        } catch (EvosimException e) {
-                            throw new RuntimeException(e);
-                        }
-                    });
-                }
-            }
-        };
+    private ThreadFactory configuredThreadFactory(final String baseName) {
+        final NamedThreadFactory factory = new NamedThreadFactory(baseName);
+        return task -> factory.newThread(
+            this.configuration.bind(Rng.bind(this.random, task))
+        );
+    }
+
+    /**
+     * Worker of the pool of a simulation, using the configuration of the simulation.
+     */
+    private final class ConfiguredWorkerThread extends ForkJoinWorkerThread {
+
+        private ConfiguredWorkerThread(final ForkJoinPool pool) {
+            super(pool);
+        }
+
+        @Override
+        protected void onStart() {
+            super.onStart();
+            Configuration.setThreadConfiguration(Simulation.this.configuration);
+            Rng.setThreadRandom(Simulation.this.random);
+        }
     }
 }
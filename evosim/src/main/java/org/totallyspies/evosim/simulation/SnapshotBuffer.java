@@ -0,0 +1,96 @@
+package org.totallyspies.evosim.simulation;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Triple buffer of world snapshots between the update thread and a single reader. The writer
+ * fills the back snapshot then swaps it with the middle one, the reader swaps its front snapshot
+ * with the middle one when a newer snapshot was published. Neither side ever waits, and the front
+ * snapshot is never written while the reader holds it.
+ *
+ * @author agent
+ */
+final class SnapshotBuffer {
+
+    /**
+     * Number of snapshots of the buffer.
+     */
+    private static final int SNAPSHOT_COUNT = 3;
+
+    /**
+     * Bits of the middle state holding the index of the middle snapshot.
+     */
+    private static final int INDEX_MASK = 0b011;
+
+    /**
+     * Bit of the middle state set when the middle snapshot was not read yet.
+     */
+    private static final int FRESH = 0b100;
+
+    /**
+     * The three snapshots.
+     */
+    private final WorldSnapshot[] snapshots;
+
+    /**
+     * Index of the middle snapshot, with {@link #FRESH} set when it was published after the last
+     * read.
+     */
+    private final AtomicInteger middle;
+
+    /**
+     * Index of the snapshot being written, owned by the writer.
+     */
+    private int back;
+
+    /**
+     * Index of the snapshot being read, owned by the reader.
+     */
+    private int front;
+
+    /**
+     * Constructs a buffer of empty snapshots.
+     *
+     * @param speciesCount number of species of the ecosystem
+     */
+    SnapshotBuffer(final int speciesCount) {
+        this.snapshots = new WorldSnapshot[SNAPSHOT_COUNT];
+        for (int i = 0; i < SNAPSHOT_COUNT; ++i) {
+            this.snapshots[i] = new WorldSnapshot(speciesCount);
+        }
+
+        this.front = 0;
+        this.middle = new AtomicInteger(1);
+        this.back = 2;
+    }
+
+    /**
+     * Gets the snapshot to fill before publishing it. Only called by the writer.
+     *
+     * @return the back snapshot
+     */
+    WorldSnapshot back() {
+        return this.snapshots[this.back];
+    }
+
+    /**
+     * Publishes the back snapshot and takes the middle one as the next back snapshot. Only
+     * called by the writer.
+     */
+    void publish() {
+        this.back = this.middle.getAndSet(this.back | FRESH) & INDEX_MASK;
+    }
+
+    /**
+     * Gets the latest published snapshot. The snapshot returned by the previous call may be
+     * reused by the writer from then on. Only called by the reader.
+     *
+     * @return the front snapshot
+     */
+    WorldSnapshot acquire() {
+        if ((this.middle.get() & FRESH) != 0) {
+            this.front = this.middle.getAndSet(this.front) & INDEX_MASK;
+        }
+        return this.snapshots[this.front];
+    }
+}
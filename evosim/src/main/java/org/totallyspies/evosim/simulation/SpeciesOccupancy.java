@@ -0,0 +1,134 @@
+package org.totallyspies.evosim.simulation;
+
+import java.util.Arrays;
+
+/**
+ * Records which species occupy each cell of a coarse grid whose cells are at least as large as
+ * the range within which entities sense or touch each other. Every entity within range of a
+ * point is then found in the 3 by 3 cells around it, so a single lookup tells whether an entity
+ * has any opponent that it could sense or touch. Cells are made larger when the range would
+ * need more than {@link #MAX_AXIS_CELLS} of them along an axis.
+ *
+ * @author agent
+ */
+final class SpeciesOccupancy {
+
+    /**
+     * Most cells along each axis of the grid.
+     */
+    static final int MAX_AXIS_CELLS = 1024;
+
+    /**
+     * Width of the covered world.
+     */
+    private final double width;
+
+    /**
+     * Height of the covered world.
+     */
+    private final double height;
+
+    /**
+     * Range of the last build.
+     */
+    private double range;
+
+    /**
+     * Width and height of a cell, at least the range of the last build.
+     */
+    private double cellSize;
+
+    /**
+     * Number of cells in the horizontal axis.
+     */
+    private int columns;
+
+    /**
+     * Number of cells in the vertical axis.
+     */
+    private int rows;
+
+    /**
+     * Bit set of the species found in each cell.
+     */
+    private int[] cellSpecies;
+
+    /**
+     * Bit set of the species found in each cell and the 8 cells around it.
+     */
+    private int[] neighbourhoodSpecies;
+
+    /**
+     * Constructs an empty occupancy grid covering a world.
+     *
+     * @param newWidth  width of the world
+     * @param newHeight height of the world
+     */
+    SpeciesOccupancy(final double newWidth, final double newHeight) {
+        this.width = newWidth;
+        this.height = newHeight;
+        this.cellSpecies = new int[0];
+        this.neighbourhoodSpecies = new int[0];
+    }
+
+    /**
+     * Records the species occupying every cell.
+     *
+     * @param xs       x position of each entity
+     * @param ys       y position of each entity
+     * @param species  species of each entity
+     * @param count    number of entities
+     * @param newRange distance within which entities can sense or touch each other
+     */
+    void build(final double[] xs, final double[] ys, final int[] species, final int count,
+               final double newRange) {
+        if (newRange != this.range || this.cellSpecies.length == 0) {
+            this.range = newRange;
+            this.cellSize = Math.max(newRange,
+                Math.max(this.width, this.height) / MAX_AXIS_CELLS);
+            this.columns = Math.max(1, (int) Math.ceil(this.width / this.cellSize));
+            this.rows = Math.max(1, (int) Math.ceil(this.height / this.cellSize));
+            this.cellSpecies = new int[this.columns * this.rows];
+            this.neighbourhoodSpecies = new int[this.columns * this.rows];
+        }
+
+        Arrays.fill(this.cellSpecies, 0);
+        for (int i = 0; i < count; ++i) {
+            this.cellSpecies[this.cell(xs[i], ys[i])] |= 1 << species[i];
+        }
+
+        for (int row = 0; row < this.rows; ++row) {
+            for (int column = 0; column < this.columns; ++column) {
+                int neighbourhood = 0;
+
+                for (int y = Math.max(0, row - 1); y <= Math.min(this.rows - 1, row + 1); ++y) {
+                    for (int x = Math.max(0, column - 1);
+                         x <= Math.min(this.columns - 1, column + 1); ++x) {
+                        neighbourhood |= this.cellSpecies[x + y * this.columns];
+                    }
+                }
+
+                this.neighbourhoodSpecies[column + row * this.columns] = neighbourhood;
+            }
+        }
+    }
+
+    /**
+     * Tests if any entity of another species may be within range of a point.
+     *
+     * @param x       x position of the point
+     * @param y       y position of the point
+     * @param species species of the entity at the point
+     * @return if an opponent may be within range
+     */
+    boolean hasOpponentNear(final double x, final double y, final int species) {
+        return (this.neighbourhoodSpecies[this.cell(x, y)] & ~(1 << species)) != 0;
+    }
+
+    private int cell(final double x, final double y) {
+        final int column = Math.max(0, Math.min((int) (x / this.cellSize), this.columns - 1));
+        final int row = Math.max(0, Math.min((int) (y / this.cellSize), this.rows - 1));
+
+        return column + row * this.columns;
+    }
+}
@@ -0,0 +1,132 @@
+package org.totallyspies.evosim.simulation;
+
+import java.util.Arrays;
+import java.util.function.IntConsumer;
+
+/**
+ * Broad phase sorting entities along the x axis. A query walks outwards from the entity in sort
+ * order until it leaves the range, so its cost only depends on how many entities share the
+ * same vertical band of the world and not on the size of the world or of a grid.
+ * <p>
+ * Each entity is packed into a single {@code long} whose high bits are its x position as a
+ * float and whose low bits are its index, so that one primitive parallel sort orders the
+ * entities without any boxing or comparator.
+ * </p>
+ *
+ * @author agent
+ */
+public final class SweepAndPruneBroadPhase implements BroadPhase {
+
+    /**
+     * Number of bits the x position is shifted by in a sort key.
+     */
+    private static final int POSITION_SHIFT = 32;
+
+    /**
+     * Sort keys of the entities.
+     */
+    private long[] keys;
+
+    /**
+     * Indices of the entities in sort order.
+     */
+    private int[] order;
+
+    /**
+     * X positions of the entities in sort order.
+     */
+    private float[] sortedXs;
+
+    /**
+     * Position of each entity in sort order.
+     */
+    private int[] ranks;
+
+    /**
+     * Number of entities of the last build.
+     */
+    private int count;
+
+    /**
+     * X position of each entity of the last build.
+     */
+    private double[] xs;
+
+    /**
+     * Y position of each entity of the last build.
+     */
+    private double[] ys;
+
+    /**
+     * Species of each entity of the last build.
+     */
+    private int[] species;
+
+    /**
+     * Constructs an empty sweep and prune broad phase.
+     */
+    public SweepAndPruneBroadPhase() {
+        this.keys = new long[0];
+        this.order = new int[0];
+        this.sortedXs = new float[0];
+        this.ranks = new int[0];
+    }
+
+    @Override
+    public void build(final double[] newXs, final double[] newYs, final int[] newSpecies,
+                      final int newCount) {
+        this.xs = newXs;
+        this.ys = newYs;
+        this.species = newSpecies;
+        this.count = newCount;
+
+        if (this.keys.length < newCount) {
+            this.keys = new long[newCount];
+            this.order = new int[newCount];
+            this.sortedXs = new float[newCount];
+            this.ranks = new int[newCount];
+        }
+
+        for (int i = 0; i < newCount; ++i) {
+            // positive floats sort like their bits; adding 0 turns -0 into +0
+            final float x = Math.max(0f, (float) newXs[i]) + 0f;
+            this.keys[i] = ((long) Float.floatToRawIntBits(x) << POSITION_SHIFT) | i;
+        }
+
+        Arrays.parallelSort(this.keys, 0, newCount);
+
+        for (int rank = 0; rank < newCount; ++rank) {
+            final int index = (int) this.keys[rank];
+            this.order[rank] = index;
+            this.sortedXs[rank] =
+                Float.intBitsToFloat((int) (this.keys[rank] >>> POSITION_SHIFT));
+            this.ranks[index] = rank;
+        }
+    }
+
+    @Override
+    public void forEachCandidate(final int index, final double range,
+                                 final IntConsumer consumer) {
+        final int rank = this.ranks[index];
+        final float x = this.sortedXs[rank];
+        // widen the bounds by the float rounding of the positions
+        final float low = Math.nextDown((float) (x - range));
+        final float high = Math.nextUp((float) (x + range));
+
+        for (int other = rank + 1; other < this.count && this.sortedXs[other] <= high; ++other) {
+            this.accept(index, this.order[other], range, consumer);
+        }
+
+        for (int other = rank - 1; other >= 0 && this.sortedXs[other] >= low; --other) {
+            this.accept(index, this.order[other], range, consumer);
+        }
+    }
+
+    private void accept(final int index, final int candidate, final double range,
+                        final IntConsumer consumer) {
+        if (this.species[candidate] != this.species[index]
+            && Math.abs(this.ys[candidate] - this.ys[index]) <= range) {
+            consumer.accept(candidate);
+        }
+    }
+}
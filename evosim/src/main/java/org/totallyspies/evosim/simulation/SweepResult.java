@@ -0,0 +1,65 @@
+package org.totallyspies.evosim.simulation;
+
+import java.util.Map;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * Outcome of a single run of a {@link ParameterSweep}.
+ *
+ * @author agent
+ */
+@Getter
+@AllArgsConstructor
+public final class SweepResult {
+
+    /**
+     * Why a run stopped.
+     */
+    public enum StopReason {
+        /**
+         * A species died out.
+         */
+        EXTINCTION,
+
+        /**
+         * Every population stayed within the tolerance for the whole convergence window.
+         */
+        CONVERGENCE,
+
+        /**
+         * The run used all of its ticks.
+         */
+        TICK_BUDGET
+    }
+
+    /**
+     * Index of the run in the sweep.
+     */
+    private final int runIndex;
+
+    /**
+     * Variables set for this run, by name.
+     */
+    private final Map<String, Object> parameters;
+
+    /**
+     * Seed of the run.
+     */
+    private final long seed;
+
+    /**
+     * Number of ticks the run was updated for.
+     */
+    private final long ticks;
+
+    /**
+     * Why the run stopped.
+     */
+    private final StopReason stopReason;
+
+    /**
+     * Population of each species when the run stopped, by species name.
+     */
+    private final Map<String, Integer> finalPopulation;
+}
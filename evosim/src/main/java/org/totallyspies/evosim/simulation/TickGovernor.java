@@ -0,0 +1,161 @@
+package org.totallyspies.evosim.simulation;
+
+import lombok.Getter;
+
+/**
+ * Measures every scheduled update against the time between updates and degrades the simulation
+ * when they keep overrunning it. Every overrun adds to a streak and every update within budget
+ * takes one off, so the level is raised once the streak reaches the tolerance. The level is
+ * lowered again after a longer run of updates that would fit, with some headroom, in the budget
+ * of the level below, so that it does not swing back and forth around the limit.
+ *
+ * @author agent
+ */
+final class TickGovernor {
+
+    /**
+     * Share of the budget of the level below an update must fit in to count towards recovering.
+     */
+    private static final double RECOVERY_HEADROOM = 0.75;
+
+    /**
+     * Number of tolerances of updates in a row that must fit before the level is lowered.
+     */
+    private static final int RECOVERY_FACTOR = 4;
+
+    /**
+     * What is given up at every level.
+     */
+    @Getter
+    private final DegradationPolicy policy;
+
+    /**
+     * Number of overruns in excess of updates within budget that raise the level.
+     */
+    private final int tolerance;
+
+    /**
+     * Highest level the simulation may be degraded to.
+     */
+    @Getter
+    private final int maxLevel;
+
+    /**
+     * Time between updates requested by the player, 0 or less when updates run back to back
+     * without any budget.
+     */
+    private long baseIntervalNanos;
+
+    /**
+     * Current degradation level, 0 for the full simulation.
+     */
+    @Getter
+    private volatile int level;
+
+    /**
+     * Number of updates that overran their budget since the governor was created.
+     */
+    @Getter
+    private volatile long overrunCount;
+
+    /**
+     * Overruns in excess of updates within budget since the level last changed.
+     */
+    private int overrunStreak;
+
+    /**
+     * Updates in a row that would fit in the budget of the level below.
+     */
+    private int recoveryStreak;
+
+    /**
+     * Constructs a governor at level 0.
+     *
+     * @param newPolicy    what is given up at every level
+     * @param newTolerance number of overruns in excess of updates within budget that raise the
+     *                     level
+     * @param newMaxLevel  highest level the simulation may be degraded to
+     */
+    TickGovernor(final DegradationPolicy newPolicy, final int newTolerance,
+                 final int newMaxLevel) {
+        this.policy = newPolicy;
+        this.tolerance = Math.max(1, newTolerance);
+        this.maxLevel = newPolicy == DegradationPolicy.NONE ? 0 : Math.max(0, newMaxLevel);
+    }
+
+    /**
+     * Restarts from level 0 for updates played at a new rate.
+     *
+     * @param intervalNanos time between updates requested by the player, 0 or less when they
+     *                      run back to back
+     */
+    void start(final long intervalNanos) {
+        this.baseIntervalNanos = intervalNanos;
+        this.level = 0;
+        this.overrunStreak = 0;
+        this.recoveryStreak = 0;
+    }
+
+    /**
+     * Gets the time an update may take at a level, which is also the time between updates.
+     *
+     * @param atLevel the degradation level
+     * @return the budget of an update in nanoseconds
+     */
+    long getBudgetNanos(final int atLevel) {
+        return this.policy == DegradationPolicy.TICK_RATE
+            ? this.baseIntervalNanos * (atLevel + 1) : this.baseIntervalNanos;
+    }
+
+    /**
+     * Gets the number of ticks over which a degraded stage is spread at the current level.
+     *
+     * @param stage the policy degrading the stage
+     * @return 1 if the stage is not degraded, otherwise one more than the level
+     */
+    int getPeriod(final DegradationPolicy stage) {
+        return this.policy == stage ? this.level + 1 : 1;
+    }
+
+    /**
+     * Records the duration of a scheduled update.
+     *
+     * @param tickNanos nanoseconds the update took
+     * @return whether the level changed
+     */
+    boolean record(final long tickNanos) {
+        if (this.baseIntervalNanos <= 0) {
+            return false;
+        }
+
+        final int current = this.level;
+
+        if (tickNanos > this.getBudgetNanos(current)) {
+            ++this.overrunCount;
+            this.recoveryStreak = 0;
+            if (++this.overrunStreak >= this.tolerance && current < this.maxLevel) {
+                this.changeLevel(current + 1);
+                return true;
+            }
+            return false;
+        }
+
+        this.overrunStreak = Math.max(0, this.overrunStreak - 1);
+        if (current == 0 || tickNanos > RECOVERY_HEADROOM * this.getBudgetNanos(current - 1)) {
+            this.recoveryStreak = 0;
+            return false;
+        }
+
+        if (++this.recoveryStreak >= this.tolerance * RECOVERY_FACTOR) {
+            this.changeLevel(current - 1);
+            return true;
+        }
+        return false;
+    }
+
+    private void changeLevel(final int newLevel) {
+        this.level = newLevel;
+        this.overrunStreak = 0;
+        this.recoveryStreak = 0;
+    }
+}
@@ -0,0 +1,81 @@
+package org.totallyspies.evosim.simulation;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.ToString;
+import org.totallyspies.evosim.utils.LockProfile;
+
+/**
+ * Measurements of a single update of a simulation.
+ *
+ * @author agent
+ */
+@Getter
+@AllArgsConstructor
+@ToString
+public final class TickMetrics {
+
+    /**
+     * Duration of the whole update in nanoseconds.
+     */
+    private final long tickNanos;
+
+    /**
+     * Duration of the sensing stage of the update in nanoseconds.
+     */
+    private final long senseNanos;
+
+    /**
+     * Number of living entities considered for sensing.
+     */
+    private final int sensedCount;
+
+    /**
+     * Number of entities that skipped sensing because no opponent was near.
+     */
+    private final int skippedCount;
+
+    /**
+     * Number of entities that kept the readings of their sensors and only collided, because
+     * sensing was spread over several ticks and it was not their turn.
+     */
+    private final int offTurnCount;
+
+    /**
+     * Number of entities that evaluated their brain.
+     */
+    private final int thinkCount;
+
+    /**
+     * Fraction of births so far that recycled a dead entity instead of allocating a new one.
+     */
+    private final double poolHitRate;
+
+    /**
+     * Number of tiles sensed by their own worker, 1 when the map is sensed as a whole.
+     */
+    private final int tileCount;
+
+    /**
+     * Time the workers spent sensing tiles over the time they had, between 0 and 1. Tells how
+     * well sensing scales with the number of tiles. Always 1 when the map is not tiled.
+     */
+    private final double tileEfficiency;
+
+    /**
+     * Time spent waiting for and holding the locks of the chunks during the update, by
+     * {@link ChunkLock} and by chunk, or null if locks are not profiled.
+     */
+    private final LockProfile lockProfile;
+
+    /**
+     * Gets the fraction of entities on their sensing turn that skipped sensing because no
+     * opponent was near.
+     *
+     * @return the skip rate, between 0 and 1
+     */
+    public double getSkipRate() {
+        final int onTurnCount = this.sensedCount - this.offTurnCount;
+        return onTurnCount <= 0 ? 0 : (double) this.skippedCount / onTurnCount;
+    }
+}
@@ -0,0 +1,107 @@
+package org.totallyspies.evosim.simulation;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.Locale;
+import org.totallyspies.evosim.utils.EvosimException;
+import org.totallyspies.evosim.utils.LockProfile;
+
+/**
+ * Table of the {@link TickMetrics} of every update of a simulation, written as CSV with a line
+ * per update. When locks are profiled, every {@link ChunkLock} adds its number of acquisitions,
+ * its total wait and hold, and the 99th percentile of its waits and holds.
+ *
+ * @author agent
+ */
+public final class TickMetricsLog implements AutoCloseable {
+
+    /**
+     * Percentile of the waits and holds written for every lock class.
+     */
+    private static final double PERCENTILE = 0.99;
+
+    /**
+     * Writer of the table.
+     */
+    private final PrintWriter writer;
+
+    /**
+     * Whether lock profiles are written.
+     */
+    private final boolean withLocks;
+
+    /**
+     * Creates the table and writes its header.
+     *
+     * @param file          file to write the table to
+     * @param withLockStats whether lock profiles are written
+     * @throws EvosimException if the file cannot be created
+     */
+    public TickMetricsLog(final File file, final boolean withLockStats) throws EvosimException {
+        try {
+            this.writer = new PrintWriter(new FileWriter(file));
+        } catch (IOException e) {
+            throw new EvosimException("Couldn't create the tick metrics file " + file + ".", e);
+        }
+        this.withLocks = withLockStats;
+
+        final StringBuilder header = new StringBuilder(
+            "tick,tickNanos,senseNanos,sensedCount,skippedCount,offTurnCount,thinkCount,"
+                + "poolHitRate,tileCount,tileEfficiency"
+        );
+        if (this.withLocks) {
+            for (final ChunkLock lock : ChunkLock.values()) {
+                final String name = lock.name().toLowerCase(Locale.ROOT);
+                header.append(',').append(name).append("Acquisitions")
+                    .append(',').append(name).append("WaitNanos")
+                    .append(',').append(name).append("HoldNanos")
+                    .append(',').append(name).append("WaitP99Nanos")
+                    .append(',').append(name).append("HoldP99Nanos");
+            }
+        }
+        this.writer.println(header);
+    }
+
+    /**
+     * Writes the measurements of an update.
+     *
+     * @param tick    number of the update
+     * @param metrics measurements of the update
+     */
+    public void write(final long tick, final TickMetrics metrics) {
+        final StringBuilder line = new StringBuilder();
+        line.append(tick)
+            .append(',').append(metrics.getTickNanos())
+            .append(',').append(metrics.getSenseNanos())
+            .append(',').append(metrics.getSensedCount())
+            .append(',').append(metrics.getSkippedCount())
+            .append(',').append(metrics.getOffTurnCount())
+            .append(',').append(metrics.getThinkCount())
+            .append(',').append(metrics.getPoolHitRate())
+            .append(',').append(metrics.getTileCount())
+            .append(',').append(metrics.getTileEfficiency());
+
+        final LockProfile profile = metrics.getLockProfile();
+        if (this.withLocks && profile != null) {
+            for (final ChunkLock lock : ChunkLock.values()) {
+                final int lockClass = lock.ordinal();
+                line.append(',').append(profile.getAcquisitions(lockClass))
+                    .append(',').append(profile.getWaitNanos(lockClass))
+                    .append(',').append(profile.getHoldNanos(lockClass))
+                    .append(',').append(profile.getWaitPercentileNanos(lockClass, PERCENTILE))
+                    .append(',').append(profile.getHoldPercentileNanos(lockClass, PERCENTILE));
+            }
+        }
+        this.writer.println(line);
+    }
+
+    @Override
+    public void close() throws EvosimException {
+        this.writer.close();
+        if (this.writer.checkError()) {
+            throw new EvosimException("Couldn't write the tick metrics.");
+        }
+    }
+}
@@ -0,0 +1,140 @@
+package org.totallyspies.evosim.simulation;
+
+import java.util.Arrays;
+import java.util.function.IntConsumer;
+
+/**
+ * Broad phase bucketing entities into square cells of a uniform grid. A query scans every cell
+ * within range of the cell of the entity, which is how the simulation has always found the
+ * neighbours of an entity.
+ *
+ * @author agent
+ */
+public final class UniformGridBroadPhase implements BroadPhase {
+
+    /**
+     * Width and height of a single cell.
+     */
+    private final double cellSize;
+
+    /**
+     * Number of cells in the horizontal axis.
+     */
+    private final int columns;
+
+    /**
+     * Number of cells in the vertical axis.
+     */
+    private final int rows;
+
+    /**
+     * Offset in {@link #cellEntries} of the first entity of each cell. Has one more element than
+     * there are cells so that the entities of cell {@code c} are found between
+     * {@code cellStarts[c]} and {@code cellStarts[c + 1]}.
+     */
+    private final int[] cellStarts;
+
+    /**
+     * Indices of the entities, grouped by cell.
+     */
+    private int[] cellEntries;
+
+    /**
+     * Cell of each entity.
+     */
+    private int[] entityCells;
+
+    /**
+     * Species of each entity of the last build.
+     */
+    private int[] species;
+
+    /**
+     * Constructs an empty grid covering a world.
+     *
+     * @param newWidth    width of the world
+     * @param newHeight   height of the world
+     * @param newCellSize width and height of a single cell
+     */
+    public UniformGridBroadPhase(
+        final double newWidth,
+        final double newHeight,
+        final double newCellSize
+    ) {
+        if (newCellSize <= 0) {
+            throw new IllegalArgumentException("Cell size must be positive");
+        }
+
+        this.cellSize = newCellSize;
+        this.columns = Math.max(1, (int) Math.ceil(newWidth / newCellSize));
+        this.rows = Math.max(1, (int) Math.ceil(newHeight / newCellSize));
+        this.cellStarts = new int[this.columns * this.rows + 1];
+        this.cellEntries = new int[0];
+        this.entityCells = new int[0];
+    }
+
+    @Override
+    public void build(final double[] newXs, final double[] newYs, final int[] newSpecies,
+                      final int count) {
+        this.species = newSpecies;
+
+        if (this.entityCells.length < count) {
+            this.entityCells = new int[count];
+            this.cellEntries = new int[count];
+        }
+
+        // counting sort of the entities by cell
+        Arrays.fill(this.cellStarts, 0);
+        for (int i = 0; i < count; ++i) {
+            final int cell = this.column(newXs[i]) + this.row(newYs[i]) * this.columns;
+            this.entityCells[i] = cell;
+            ++this.cellStarts[cell + 1];
+        }
+
+        for (int cell = 0; cell < this.columns * this.rows; ++cell) {
+            this.cellStarts[cell + 1] += this.cellStarts[cell];
+        }
+
+        final int[] nextSlot = Arrays.copyOf(this.cellStarts, this.cellStarts.length - 1);
+        for (int i = 0; i < count; ++i) {
+            this.cellEntries[nextSlot[this.entityCells[i]]++] = i;
+        }
+    }
+
+    @Override
+    public void forEachCandidate(final int index, final double range,
+                                 final IntConsumer consumer) {
+        final int reach = (int) Math.ceil(range / this.cellSize);
+        final int cell = this.entityCells[index];
+        final int column = cell % this.columns;
+        final int row = cell / this.columns;
+        final int ownSpecies = this.species[index];
+
+        final int minColumn = Math.max(0, column - reach);
+        final int maxColumn = Math.min(this.columns - 1, column + reach);
+        final int minRow = Math.max(0, row - reach);
+        final int maxRow = Math.min(this.rows - 1, row + reach);
+
+        for (int y = minRow; y <= maxRow; ++y) {
+            for (int x = minColumn; x <= maxColumn; ++x) {
+                final int other = x + y * this.columns;
+
+                for (int k = this.cellStarts[other]; k < this.cellStarts[other + 1]; ++k) {
+                    final int candidate = this.cellEntries[k];
+
+                    if (this.species[candidate] != ownSpecies) {
+                        consumer.accept(candidate);
+                    }
+                }
+            }
+        }
+    }
+
+    private int column(final double x) {
+        return Math.max(0, Math.min((int) (x / this.cellSize), this.columns - 1));
+    }
+
+    private int row(final double y) {
+        return Math.max(0, Math.min((int) (y / this.cellSize), this.rows - 1));
+    }
+}
@@ -0,0 +1,454 @@
+package org.totallyspies.evosim.simulation;
+
+import java.util.Arrays;
+import lombok.Getter;
+import org.totallyspies.evosim.entities.Entity;
+import org.totallyspies.evosim.neuralnetwork.NeuralNetwork;
+
+/**
+ * The state of the world at the end of an update, as seen by the renderer and the statistics.
+ * Positions, angles and species are copied into flat arrays by the update thread, so a reader
+ * never touches an entity while it is being updated and never takes a lock. A snapshot is not
+ * modified while it is held by its reader, see {@link SnapshotBuffer}.
+ * <p>
+ * Every entity also keeps where it was before the update, so the renderer can draw it between
+ * its two last positions by the share of the time to the next update already elapsed, one
+ * update behind the simulation, and move smoothly at any frame rate whatever the tick rate.
+ * </p>
+ *
+ * @author agent
+ */
+public final class WorldSnapshot {
+
+    /**
+     * Number of updates done by the simulation when the snapshot was taken.
+     */
+    @Getter
+    private long tickCount;
+
+    /**
+     * Number of living entities in the snapshot.
+     */
+    @Getter
+    private int size;
+
+    /**
+     * Time the update ended at, as given by {@link System#nanoTime()}.
+     */
+    @Getter
+    private long tickNanos;
+
+    /**
+     * Time between the ends of the two last updates, expected until the next one.
+     */
+    @Getter
+    private long tickSpacingNanos;
+
+    /**
+     * Identifier of each entity.
+     */
+    private long[] ids;
+
+    /**
+     * X position of each entity.
+     */
+    private double[] xs;
+
+    /**
+     * Y position of each entity.
+     */
+    private double[] ys;
+
+    /**
+     * Direction of each entity in radians.
+     */
+    private double[] angles;
+
+    /**
+     * X position of each entity before the update.
+     */
+    private double[] previousXs;
+
+    /**
+     * Y position of each entity before the update.
+     */
+    private double[] previousYs;
+
+    /**
+     * Direction of each entity in radians before the update.
+     */
+    private double[] previousAngles;
+
+    /**
+     * X position of the end of the shortest sensor of each entity.
+     */
+    private double[] lookXs;
+
+    /**
+     * Y position of the end of the shortest sensor of each entity.
+     */
+    private double[] lookYs;
+
+    /**
+     * Species of each entity.
+     */
+    private int[] species;
+
+    /**
+     * Number of living entities of each species.
+     */
+    private final int[] speciesCounts;
+
+    /**
+     * Index of the followed entity, or -1 if it is not alive.
+     */
+    @Getter
+    private int followedIndex;
+
+    /**
+     * X position of the end of each sensor of the followed entity.
+     */
+    private double[] followedSensorXs;
+
+    /**
+     * Y position of the end of each sensor of the followed entity.
+     */
+    private double[] followedSensorYs;
+
+    /**
+     * Number of sensors of the followed entity.
+     */
+    @Getter
+    private int followedSensorCount;
+
+    /**
+     * Energy of the followed entity.
+     */
+    @Getter
+    private double followedEnergy;
+
+    /**
+     * Split energy of the followed entity.
+     */
+    @Getter
+    private double followedSplitEnergy;
+
+    /**
+     * Base speed of the followed entity.
+     */
+    @Getter
+    private double followedSpeed;
+
+    /**
+     * Number of children of the followed entity.
+     */
+    @Getter
+    private int followedChildCount;
+
+    /**
+     * Birth time of the followed entity.
+     */
+    @Getter
+    private long followedBirthTime;
+
+    /**
+     * Copy of the brain of the followed entity, or null if it is not alive. The copy is taken
+     * once when the followed entity changes and shared by the following snapshots, which never
+     * modify it, so it may be kept once the snapshot is released. Only the values of its neurons
+     * are captured by every snapshot, in {@link #followedNeuronValues}.
+     */
+    @Getter
+    private NeuralNetwork followedBrain;
+
+    /**
+     * Values of the neurons of the followed entity, layer after layer, as copied by
+     * {@link NeuralNetwork#copyValuesTo(double[])}. The array is reused by later captures.
+     */
+    @Getter
+    private double[] followedNeuronValues;
+
+    /**
+     * Constructs an empty snapshot.
+     *
+     * @param speciesCount number of species of the ecosystem
+     */
+    WorldSnapshot(final int speciesCount) {
+        this.ids = new long[0];
+        this.xs = new double[0];
+        this.ys = new double[0];
+        this.angles = new double[0];
+        this.previousXs = new double[0];
+        this.previousYs = new double[0];
+        this.previousAngles = new double[0];
+        this.lookXs = new double[0];
+        this.lookYs = new double[0];
+        this.species = new int[0];
+        this.speciesCounts = new int[speciesCount];
+        this.followedSensorXs = new double[0];
+        this.followedSensorYs = new double[0];
+        this.followedNeuronValues = new double[0];
+        this.followedIndex = -1;
+    }
+
+    /**
+     * Forgets the entities of the previous capture.
+     *
+     * @param newTickCount        number of updates done by the simulation
+     * @param newTickNanos        time the update ended at
+     * @param newTickSpacingNanos time between the ends of the two last updates
+     */
+    void clear(final long newTickCount, final long newTickNanos,
+               final long newTickSpacingNanos) {
+        this.tickCount = newTickCount;
+        this.tickNanos = newTickNanos;
+        this.tickSpacingNanos = newTickSpacingNanos;
+        this.size = 0;
+        this.followedIndex = -1;
+        this.followedSensorCount = 0;
+        this.followedBrain = null;
+        Arrays.fill(this.speciesCounts, 0);
+    }
+
+    /**
+     * Copies the state of a living entity.
+     *
+     * @param entity     the entity
+     * @param isFollowed whether the sensors and statistics of the entity are copied as well
+     */
+    void add(final Entity entity, final boolean isFollowed) {
+        if (this.size == this.ids.length) {
+            final int capacity = Math.max(1, this.size * 2);
+            this.ids = Arrays.copyOf(this.ids, capacity);
+            this.xs = Arrays.copyOf(this.xs, capacity);
+            this.ys = Arrays.copyOf(this.ys, capacity);
+            this.angles = Arrays.copyOf(this.angles, capacity);
+            this.previousXs = Arrays.copyOf(this.previousXs, capacity);
+            this.previousYs = Arrays.copyOf(this.previousYs, capacity);
+            this.previousAngles = Arrays.copyOf(this.previousAngles, capacity);
+            this.lookXs = Arrays.copyOf(this.lookXs, capacity);
+            this.lookYs = Arrays.copyOf(this.lookYs, capacity);
+            this.species = Arrays.copyOf(this.species, capacity);
+        }
+
+        final double x = entity.getBodyCenter().getX();
+        final double y = entity.getBodyCenter().getY();
+
+        int shortest = entity.getSensorCount() / 2;
+        for (int i = 0; i < entity.getSensorCount(); ++i) {
+            if (entity.getSensorDistance(i) < entity.getSensorDistance(shortest)) {
+                shortest = i;
+            }
+        }
+        final double shortestAngle = entity.getSensorAngle(shortest);
+        final double shortestDistance = entity.getSensorDistance(shortest);
+
+        this.ids[this.size] = entity.getId();
+        this.xs[this.size] = x;
+        this.ys[this.size] = y;
+        this.angles[this.size] = entity.getDirectionAngleInRadians();
+        // entities born or settled during the update did not move yet
+        final boolean moved = entity.getPreviousTick() == this.tickCount;
+        this.previousXs[this.size] = moved ? entity.getPreviousX() : x;
+        this.previousYs[this.size] = moved ? entity.getPreviousY() : y;
+        this.previousAngles[this.size] =
+            moved ? entity.getPreviousAngle() : this.angles[this.size];
+        this.lookXs[this.size] = x + shortestDistance * Math.cos(shortestAngle);
+        this.lookYs[this.size] = y + shortestDistance * Math.sin(shortestAngle);
+        this.species[this.size] = entity.getSpeciesTag();
+        ++this.speciesCounts[entity.getSpeciesTag()];
+
+        if (isFollowed) {
+            this.follow(entity);
+        }
+
+        ++this.size;
+    }
+
+    private void follow(final Entity entity) {
+        final int sensorCount = entity.getSensorCount();
+        if (this.followedSensorXs.length < sensorCount) {
+            this.followedSensorXs = new double[sensorCount];
+            this.followedSensorYs = new double[sensorCount];
+        }
+
+        for (int i = 0; i < sensorCount; ++i) {
+            final double angle = entity.getSensorAngle(i);
+            final double distance = entity.getSensorDistance(i);
+            this.followedSensorXs[i] = entity.getBodyCenter().getX() + distance * Math.cos(angle);
+            this.followedSensorYs[i] = entity.getBodyCenter().getY() + distance * Math.sin(angle);
+        }
+
+        this.followedIndex = this.size;
+        this.followedSensorCount = sensorCount;
+        this.followedEnergy = entity.getEnergy();
+        this.followedSplitEnergy = entity.getSplitEnergy();
+        this.followedSpeed = entity.getSpeed();
+        this.followedChildCount = entity.getChildCount();
+        this.followedBirthTime = entity.getBirthTime();
+
+        final int neuronCount = entity.getBrain().getNeuronCount();
+        if (this.followedNeuronValues.length < neuronCount) {
+            this.followedNeuronValues = new double[neuronCount];
+        }
+        entity.getBrain().copyValuesTo(this.followedNeuronValues);
+    }
+
+    /**
+     * Sets the copy of the brain of the followed entity, taken when it started being followed.
+     *
+     * @param brain the copy of the brain
+     */
+    void setFollowedBrain(final NeuralNetwork brain) {
+        this.followedBrain = brain;
+    }
+
+    /**
+     * Gets the identifier of an entity.
+     *
+     * @param index index of the entity in the snapshot
+     * @return the identifier of the entity
+     */
+    public long getId(final int index) {
+        return this.ids[index];
+    }
+
+    /**
+     * Gets the X position of an entity.
+     *
+     * @param index index of the entity in the snapshot
+     * @return the X position of the entity
+     */
+    public double getX(final int index) {
+        return this.xs[index];
+    }
+
+    /**
+     * Gets the Y position of an entity.
+     *
+     * @param index index of the entity in the snapshot
+     * @return the Y position of the entity
+     */
+    public double getY(final int index) {
+        return this.ys[index];
+    }
+
+    /**
+     * Gets the direction of an entity.
+     *
+     * @param index index of the entity in the snapshot
+     * @return the direction of the entity in radians
+     */
+    public double getAngle(final int index) {
+        return this.angles[index];
+    }
+
+    /**
+     * Gets how far the world has gone from its state before the update to its state after it,
+     * assuming the next update ends after the same time as the last one.
+     *
+     * @param nowNanos the current time, as given by {@link System#nanoTime()}
+     * @return the share of the update elapsed, between 0 and 1
+     */
+    public double getInterpolation(final long nowNanos) {
+        if (this.tickSpacingNanos <= 0) {
+            return 1;
+        }
+        return Math.min(1, Math.max(0,
+            (double) (nowNanos - this.tickNanos) / this.tickSpacingNanos));
+    }
+
+    /**
+     * Gets the X position of an entity between its positions before and after the update.
+     *
+     * @param index index of the entity in the snapshot
+     * @param alpha share of the update elapsed, see {@link #getInterpolation(long)}
+     * @return the interpolated X position of the entity
+     */
+    public double getX(final int index, final double alpha) {
+        return this.previousXs[index] + (this.xs[index] - this.previousXs[index]) * alpha;
+    }
+
+    /**
+     * Gets the Y position of an entity between its positions before and after the update.
+     *
+     * @param index index of the entity in the snapshot
+     * @param alpha share of the update elapsed, see {@link #getInterpolation(long)}
+     * @return the interpolated Y position of the entity
+     */
+    public double getY(final int index, final double alpha) {
+        return this.previousYs[index] + (this.ys[index] - this.previousYs[index]) * alpha;
+    }
+
+    /**
+     * Gets the direction of an entity between its directions before and after the update.
+     * Directions are not wrapped, so the entity turns the way it did.
+     *
+     * @param index index of the entity in the snapshot
+     * @param alpha share of the update elapsed, see {@link #getInterpolation(long)}
+     * @return the interpolated direction of the entity in radians
+     */
+    public double getAngle(final int index, final double alpha) {
+        return this.previousAngles[index]
+            + (this.angles[index] - this.previousAngles[index]) * alpha;
+    }
+
+    /**
+     * Gets the X position of the end of the shortest sensor of an entity, where it looks at.
+     *
+     * @param index index of the entity in the snapshot
+     * @return the X position the entity looks at
+     */
+    public double getLookX(final int index) {
+        return this.lookXs[index];
+    }
+
+    /**
+     * Gets the Y position of the end of the shortest sensor of an entity, where it looks at.
+     *
+     * @param index index of the entity in the snapshot
+     * @return the Y position the entity looks at
+     */
+    public double getLookY(final int index) {
+        return this.lookYs[index];
+    }
+
+    /**
+     * Gets the species of an entity.
+     *
+     * @param index index of the entity in the snapshot
+     * @return the species tag of the entity
+     */
+    public int getSpeciesTag(final int index) {
+        return this.species[index];
+    }
+
+    /**
+     * Gets the number of living entities of a species.
+     *
+     * @param speciesTag the tag of the species
+     * @return the number of living entities of the species
+     */
+    public int getSpeciesCount(final int speciesTag) {
+        return this.speciesCounts[speciesTag];
+    }
+
+    /**
+     * Gets the X position of the end of a sensor of the followed entity.
+     *
+     * @param sensorIndex index of the sensor
+     * @return the X position of the end of the sensor
+     */
+    public double getFollowedSensorX(final int sensorIndex) {
+        return this.followedSensorXs[sensorIndex];
+    }
+
+    /**
+     * Gets the Y position of the end of a sensor of the followed entity.
+     *
+     * @param sensorIndex index of the sensor
+     * @return the Y position of the end of the sensor
+     */
+    public double getFollowedSensorY(final int sensorIndex) {
+        return this.followedSensorYs[sensorIndex];
+    }
+}
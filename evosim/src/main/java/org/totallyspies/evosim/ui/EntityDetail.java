@@ -0,0 +1,49 @@
+package org.totallyspies.evosim.ui;
+
+/**
+ * How much of an entity is drawn on the map, depending on how large it is on screen. Details
+ * that would only cover a pixel or two are not worth their draw calls.
+ *
+ * @author agent
+ */
+public enum EntityDetail {
+
+    /**
+     * A square dot of the colour of the species. Dots are drawn in batches of a species, so the
+     * fill only changes once per species.
+     */
+    DOT,
+
+    /**
+     * The body only.
+     */
+    BODY,
+
+    /**
+     * The body, the eyes looking at the closest entity sensed and the eyebrows of hunters.
+     */
+    FULL;
+
+    /**
+     * Radius on screen in pixels from which entities are drawn with their body.
+     */
+    public static final double BODY_RADIUS_PIXELS = 3;
+
+    /**
+     * Radius on screen in pixels from which entities are drawn with their eyes.
+     */
+    public static final double EYES_RADIUS_PIXELS = 6;
+
+    /**
+     * Gets the detail of entities of a radius on screen.
+     *
+     * @param radiusPixels radius of the entities on screen in pixels
+     * @return the detail to draw the entities with
+     */
+    public static EntityDetail forRadius(final double radiusPixels) {
+        if (radiusPixels < BODY_RADIUS_PIXELS) {
+            return DOT;
+        }
+        return radiusPixels < EYES_RADIUS_PIXELS ? BODY : FULL;
+    }
+}
@@ -9,19 +9,21 @@ import javafx.scene.input.ScrollEvent;
 import javafx.scene.paint.Color;
 import lombok.Getter;
 import lombok.Setter;
-import org.totallyspies.evosim.entities.Entity;
+import org.totallyspies.evosim.entities.Ecosystem;
 import org.totallyspies.evosim.entities.Predator;
 import org.totallyspies.evosim.entities.Prey;
 import org.totallyspies.evosim.fxml.MainController;
 import org.totallyspies.evosim.fxml.ResizableCanvas;
-import org.totallyspies.evosim.geometry.Coordinate;
-import org.totallyspies.evosim.geometry.Line;
 import org.totallyspies.evosim.geometry.Point;
 import org.totallyspies.evosim.math.Assert;
 import org.totallyspies.evosim.math.Formulas;
+import org.totallyspies.evosim.neuralnetwork.NeuralNetwork;
 import org.totallyspies.evosim.simulation.Simulation;
+import org.totallyspies.evosim.simulation.TickMetrics;
+import org.totallyspies.evosim.simulation.WorldSnapshot;
 import org.totallyspies.evosim.utils.Configuration;
 import org.totallyspies.evosim.utils.EvosimException;
+import org.totallyspies.evosim.utils.LockProfile;
 
 import java.util.LinkedList;
 import java.util.concurrent.atomic.AtomicBoolean;
@@ -64,6 +66,32 @@ public final class MapCanvas extends ResizableCanvas {
      */
     private static final int SECONDS_IN_MINUTE = 60;
 
+    /**
+     * Opacity of the chunk of the lock heatmap that waited the most for its locks.
+     */
+    private static final double LOCK_HEATMAP_OPACITY = 0.6;
+
+    /**
+     * Distance in pixels between the performance overlay and the corner of the map, and between
+     * its lines.
+     */
+    private static final double PERF_OVERLAY_LINE_HEIGHT = 16;
+
+    /**
+     * Width in pixels of the background of the performance overlay.
+     */
+    private static final double PERF_OVERLAY_WIDTH = 300;
+
+    /**
+     * Opacity of the background of the performance overlay.
+     */
+    private static final double PERF_OVERLAY_OPACITY = 0.5;
+
+    /**
+     * Number of nanoseconds in a millisecond.
+     */
+    private static final double NANOSECONDS_IN_MILLISECOND = 1e6;
+
     /**
      * A list of keycodes being pressed.
      */
@@ -98,9 +126,67 @@ public final class MapCanvas extends ResizableCanvas {
     private Simulation simulation;
 
     /**
-     * The entity currently being followed.
+     * Snapshot of the world drawn by the last frame, or null before the first one. Every reader
+     * on the FX thread uses it instead of the entities, which belong to the update thread.
+     */
+    @Getter
+    private WorldSnapshot snapshot;
+
+    /**
+     * Share of the update of the snapshot elapsed when the frame was drawn, entities being drawn
+     * between their positions before and after the update.
+     */
+    private double interpolation;
+
+    /**
+     * Identifier of the entity being followed. Dead entities are recycled as newborns with a new
+     * identifier, so a change of identifier means the followed entity died.
+     */
+    private long followedEntityId;
+
+    /**
+     * Number of updates done when the entity started being followed. Snapshots up to this one
+     * were taken before the simulation knew which entity to follow.
+     */
+    private long followedSinceTick;
+
+    /**
+     * Copy of the brain of the followed entity shown in the neural network view, or null until
+     * the entity is found in a snapshot.
+     */
+    private NeuralNetwork followedBrain;
+
+    /**
+     * Whether the time spent waiting for the locks of every chunk is drawn over the map.
+     */
+    @Getter
+    private boolean lockHeatmapVisible;
+
+    /**
+     * Whether the frame times are drawn over the map.
+     */
+    @Getter
+    private boolean perfOverlayVisible;
+
+    /**
+     * Frame times of the map.
+     */
+    private final RenderStats renderStats;
+
+    /**
+     * Pre-rendered bodies of the entities.
+     */
+    private final SpriteAtlas spriteAtlas;
+
+    /**
+     * Body colour of every species in the current frame.
+     */
+    private Color[] speciesColours;
+
+    /**
+     * Whether every species hunts, and has eyebrows.
      */
-    private Entity followedEntity;
+    private boolean[] speciesHunting;
 
     /**
      * Previous point of the dragging action.
@@ -114,6 +200,10 @@ public final class MapCanvas extends ResizableCanvas {
         super();
 
         MapCanvas.mapColor = Configuration.getConfiguration().getColorMap();
+        this.renderStats = new RenderStats();
+        this.spriteAtlas = new SpriteAtlas();
+        this.speciesColours = new Color[0];
+        this.speciesHunting = new boolean[0];
 
         this.anim = new AnimationTimer() {
             @Override
@@ -127,16 +217,17 @@ public final class MapCanvas extends ResizableCanvas {
 
             @Override
             public void handle(final long now) {
-                if (followedEntity != null) {
-                    controller.getPbEnergy().setProgress(followedEntity.getEnergy());
-                    controller.getPbSplit().setProgress(followedEntity.getSplitEnergy());
+                if (snapshot != null && snapshot.getFollowedIndex() >= 0) {
+                    controller.getPbEnergy().setProgress(snapshot.getFollowedEnergy());
+                    controller.getPbSplit().setProgress(snapshot.getFollowedSplitEnergy());
                     controller.getSpeedLabel().setText(
-                        String.format("Base Speed: %.2f", followedEntity.getSpeed()));
+                        String.format("Base Speed: %.2f", snapshot.getFollowedSpeed()));
                     controller.getChildCountLabel().setText(
-                        "Child Count: " + followedEntity.getChildCount());
+                        "Child Count: " + snapshot.getFollowedChildCount());
 
-                    int livingTime = followedEntity.getLivingTime(
-                        controller.getTimerProperty().getValue().getSeconds());
+                    int livingTime = (int) (
+                        controller.getTimerProperty().getValue().getSeconds()
+                            - snapshot.getFollowedBirthTime());
                     controller.getLivingTimeLabel().setText(
                         String.format(
                             "Time Alive: %dm : %02ds",
@@ -223,6 +314,89 @@ public final class MapCanvas extends ResizableCanvas {
         }
     }
 
+    /**
+     * Shade every chunk by the time spent waiting for its locks during the last update, the
+     * chunk that waited the most being the most opaque. Only drawn when locks are profiled.
+     */
+    public void drawLockHeatmap() {
+        final TickMetrics metrics = this.simulation.getTickMetrics();
+        if (metrics == null || metrics.getLockProfile() == null) {
+            return;
+        }
+
+        final LockProfile profile = metrics.getLockProfile();
+        long maxWait = 0;
+        for (int region = 0; region < profile.getRegionCount(); ++region) {
+            maxWait = Math.max(maxWait, profile.getRegionWaitNanos(region));
+        }
+        if (maxWait == 0) {
+            return;
+        }
+
+        final int gridSize = this.simulation.getGridSize();
+        final double size = gridSize * this.camera.getZoom();
+        for (int x = 0; x < this.simulation.getMapSizeX(); ++x) {
+            for (int y = 0; y < this.simulation.getMapSizeY(); ++y) {
+                final long wait = profile.getRegionWaitNanos(y * this.simulation.getMapSizeX() + x);
+                if (wait == 0) {
+                    continue;
+                }
+
+                final Point topLeft = absToRelPosition(x * gridSize, (y + 1) * gridSize);
+                this.getGraphicsContext2D().setFill(
+                    Color.color(1, 0, 0, LOCK_HEATMAP_OPACITY * wait / maxWait)
+                );
+                this.getGraphicsContext2D().fillRect(topLeft.getX(), topLeft.getY(), size, size);
+            }
+        }
+    }
+
+    /**
+     * Draws the frame times and the detail entities are drawn with over the map, along with the
+     * time spent drawing an entity at every detail seen so far.
+     */
+    public void drawPerfOverlay() {
+        final int lineCount = 2 + EntityDetail.values().length;
+        this.getGraphicsContext2D().setFill(Color.color(0, 0, 0, PERF_OVERLAY_OPACITY));
+        this.getGraphicsContext2D().fillRect(
+            0, 0, PERF_OVERLAY_WIDTH, (lineCount + 1) * PERF_OVERLAY_LINE_HEIGHT
+        );
+        this.getGraphicsContext2D().setFill(Color.WHITE);
+
+        double y = PERF_OVERLAY_LINE_HEIGHT;
+        this.getGraphicsContext2D().fillText(String.format(
+            "Frame: %.2f ms", this.renderStats.getFrameNanos() / NANOSECONDS_IN_MILLISECOND
+        ), PERF_OVERLAY_LINE_HEIGHT, y);
+        y += PERF_OVERLAY_LINE_HEIGHT;
+        this.getGraphicsContext2D().fillText(String.format(
+            "Entities: %.2f ms, %d drawn as %s",
+            this.renderStats.getEntitiesNanos(this.renderStats.getDetail())
+                / NANOSECONDS_IN_MILLISECOND,
+            this.renderStats.getDrawnCount(), this.renderStats.getDetail()
+        ), PERF_OVERLAY_LINE_HEIGHT, y);
+
+        for (final EntityDetail detail : EntityDetail.values()) {
+            y += PERF_OVERLAY_LINE_HEIGHT;
+            this.getGraphicsContext2D().fillText(String.format(
+                "%s: %.0f ns per entity", detail, this.renderStats.getEntityNanos(detail)
+            ), PERF_OVERLAY_LINE_HEIGHT, y);
+        }
+    }
+
+    /**
+     * Shows or hides the frame times.
+     */
+    public void togglePerfOverlay() {
+        this.perfOverlayVisible = !this.perfOverlayVisible;
+    }
+
+    /**
+     * Shows or hides the lock heatmap.
+     */
+    public void toggleLockHeatmap() {
+        this.lockHeatmapVisible = !this.lockHeatmapVisible;
+    }
+
     /**
      * Compute the relative position of an absolute point according to the camera
      * and the map.
@@ -256,79 +430,67 @@ public final class MapCanvas extends ResizableCanvas {
     }
 
     /**
-     * Draw an entity on the map.
+     * Draw an entity of a snapshot on the map, between its positions before and after the
+     * update of the snapshot, with the detail its size on screen is worth. Bodies, eyes and
+     * eyebrows are drawn from the sprites of the current frame, only the pupils are drawn as
+     * shapes.
      *
-     * @param entity The entity to be drawn on the map
+     * @param world The snapshot of the world
+     * @param index The index of the entity in the snapshot
      */
-    public void drawEntity(final Entity entity) throws EvosimException {
+    public void drawEntity(final WorldSnapshot world, final int index) throws EvosimException {
         final double radius = Configuration.getConfiguration().getEntityRadius();
         final double zoom = camera.getZoom();
-        final double lookAt = entity.getDirectionAngleInRadians();
-        final double eyeAngle = Math.PI / 10;
-        final double eyeRadius = radius / 3;
+        final EntityDetail detail = EntityDetail.forRadius(radius * zoom);
+        final double eyeRadius = radius / SpriteAtlas.EYE_RADIUS_RATIO;
         final double pupilRadius = eyeRadius / 2;
+        final int speciesTag = world.getSpeciesTag(index);
 
-        if (entity == followedEntity) {
-            drawEntitySensors(entity);
+        if (index == world.getFollowedIndex()) {
+            drawEntitySensors(world);
         }
 
-        if (entity instanceof Prey) {
-            this.getGraphicsContext2D().setFill(Prey.getBodyColour());
-        } else {
-            this.getGraphicsContext2D().setFill(Predator.getBodyColour());
+        final double x = world.getX(index, this.interpolation);
+        final double y = world.getY(index, this.interpolation);
+        Point position = absToRelPosition(x, y);
+
+        if (detail == EntityDetail.DOT) {
+            final double size = Math.max(1, radius * 2 * zoom);
+            this.getGraphicsContext2D().setFill(getBodyColour(speciesTag));
+            this.getGraphicsContext2D().fillRect(
+                position.getX() - size / 2, position.getY() - size / 2, size, size);
+            return;
         }
 
-        Point position = absToRelPosition(entity.getBodyCenter().getX(),
-            entity.getBodyCenter().getY());
+        if (detail == EntityDetail.BODY) {
+            this.spriteAtlas.draw(this.getGraphicsContext2D(), speciesTag,
+                SpriteAtlas.ANGLE_COUNT, position.getX(), position.getY(), radius * zoom);
+            return;
+        }
 
-        this.getGraphicsContext2D().fillOval(
-                position.getX() - radius * zoom,
-                position.getY() - radius * zoom,
-                radius * 2 * zoom,
-                radius * 2 * zoom);
+        final int angleIndex = SpriteAtlas.getAngleIndex(world.getAngle(index, this.interpolation));
+        this.spriteAtlas.draw(this.getGraphicsContext2D(), speciesTag, angleIndex,
+            position.getX(), position.getY(), radius * zoom);
 
-        // Eyes
+        // Pupils, in the eyes of the sprite
+        final double lookAt = SpriteAtlas.getFacing(angleIndex);
         final Point leftEyeCenter = new Point(
             position.getX()
-                + ((radius - eyeRadius) * Math.cos(lookAt + eyeAngle)) * zoom,
+                + ((radius - eyeRadius) * Math.cos(lookAt + SpriteAtlas.EYE_ANGLE)) * zoom,
             position.getY()
-                - ((radius - eyeRadius) * Math.sin(lookAt + eyeAngle)) * zoom
+                - ((radius - eyeRadius) * Math.sin(lookAt + SpriteAtlas.EYE_ANGLE)) * zoom
         );
 
         final Point rightEyeCenter = new Point(
             position.getX()
-                + ((radius - eyeRadius) * Math.cos(lookAt - eyeAngle)) * zoom,
+                + ((radius - eyeRadius) * Math.cos(lookAt - SpriteAtlas.EYE_ANGLE)) * zoom,
             position.getY()
-                - ((radius - eyeRadius) * Math.sin(lookAt - eyeAngle)) * zoom
-        );
-
-        this.getGraphicsContext2D().setFill(Color.WHITE);
-        this.getGraphicsContext2D().fillOval(
-            leftEyeCenter.getX() - eyeRadius * zoom,
-            leftEyeCenter.getY() - eyeRadius * zoom,
-            eyeRadius * 2 * zoom,
-            eyeRadius * 2 * zoom
+                - ((radius - eyeRadius) * Math.sin(lookAt - SpriteAtlas.EYE_ANGLE)) * zoom
         );
 
-        this.getGraphicsContext2D().fillOval(
-            rightEyeCenter.getX() - eyeRadius * zoom,
-            rightEyeCenter.getY() - eyeRadius * zoom,
-            eyeRadius * 2 * zoom,
-            eyeRadius * 2 * zoom
-        );
-
-        // Pupil
-        int shortestSensor = entity.getSensorCount() / 2;
-        for (int i = 0; i < entity.getSensorCount(); ++i) {
-            if (entity.getSensorDistance(i) < entity.getSensorDistance(shortestSensor)) {
-                shortestSensor = i;
-            }
-        }
-
-        final Line shortestLine = entity.getSensor(shortestSensor);
         final Point shortestLineEnd = absToRelPosition(
-            shortestLine.getEndPoint().getX(),
-            shortestLine.getEndPoint().getY()
+            world.getLookX(index) - world.getX(index) + x,
+            world.getLookY(index) - world.getY(index) + y
         );
 
         final double leftAngle = Math.atan2(
@@ -366,51 +528,102 @@ public final class MapCanvas extends ResizableCanvas {
             pupilRadius * 2 * zoom,
             pupilRadius * 2 * zoom
         );
+    }
 
-        if (entity instanceof Predator) {
-            // Eyebrows
-            this.getGraphicsContext2D().setFill(Predator.getBodyColour());
-
-            this.getGraphicsContext2D().beginPath();
+    /**
+     * Draws the visible entities of a snapshot as dots, a species at a time so that the fill
+     * only changes once per species. Positions are projected without allocating any point.
+     *
+     * @param world  The snapshot of the world
+     * @param minX   The smallest X position of a visible entity
+     * @param maxX   The largest X position of a visible entity
+     * @param minY   The smallest Y position of a visible entity
+     * @param maxY   The largest Y position of a visible entity
+     * @param radius The radius of an entity
+     * @return The number of entities drawn
+     */
+    private int drawEntityDots(final WorldSnapshot world, final double minX, final double maxX,
+                               final double minY, final double maxY, final double radius) {
+        final double zoom = this.camera.getZoom();
+        final double size = Math.max(1, radius * 2 * zoom);
+        final double offsetX = this.getWidth() / 2 - zoom * this.camera.getX() - size / 2;
+        final double offsetY = this.getHeight() / 2 + zoom * this.camera.getY() - size / 2;
+
+        int drawnCount = 0;
+        for (int tag = 0; tag < this.simulation.getEcosystem().size(); ++tag) {
+            this.getGraphicsContext2D().setFill(getBodyColour(tag));
+
+            for (int i = 0; i < world.getSize(); ++i) {
+                if (world.getSpeciesTag(i) != tag) {
+                    continue;
+                }
 
-            this.getGraphicsContext2D().moveTo(
-                position.getX()
-                    + ((radius - eyeRadius) * Math.cos(lookAt)) * zoom,
-                position.getY()
-                    - ((radius - eyeRadius) * Math.sin(lookAt)) * zoom
-            );
+                final double x = world.getX(i, this.interpolation);
+                final double y = world.getY(i, this.interpolation);
+                if (x < minX || x > maxX || y < minY || y > maxY) {
+                    continue;
+                }
 
-            this.getGraphicsContext2D().lineTo(
-                leftEyeCenter.getX() - eyeRadius * Math.cos(lookAt - eyeAngle) * zoom,
-                leftEyeCenter.getY() + eyeRadius * Math.sin(lookAt - eyeAngle) * zoom
-            );
+                this.getGraphicsContext2D().fillRect(
+                    offsetX + zoom * x, offsetY - zoom * y, size, size);
+                ++drawnCount;
+            }
+        }
 
-            this.getGraphicsContext2D().lineTo(
-                rightEyeCenter.getX() - eyeRadius * Math.cos(lookAt + eyeAngle) * zoom,
-                rightEyeCenter.getY() + eyeRadius * Math.sin(lookAt + eyeAngle) * zoom
-            );
+        if (world.getFollowedIndex() >= 0) {
+            drawEntitySensors(world);
+        }
 
-            this.getGraphicsContext2D().closePath();
+        return drawnCount;
+    }
 
-            this.getGraphicsContext2D().fill();
+    /**
+     * Renders the sprites again if the colour of a species or the zoom bucket changed since they
+     * were last rendered.
+     *
+     * @param radius The radius of an entity
+     */
+    private void refreshSprites(final double radius) {
+        final int speciesCount = this.simulation.getEcosystem().size();
+        if (this.speciesColours.length != speciesCount) {
+            this.speciesColours = new Color[speciesCount];
+            this.speciesHunting = new boolean[speciesCount];
+        }
+        for (int tag = 0; tag < speciesCount; ++tag) {
+            this.speciesColours[tag] = getBodyColour(tag);
+            this.speciesHunting[tag] = this.simulation.getEcosystem().isHunting(tag);
         }
+
+        this.spriteAtlas.refresh(
+            this.speciesColours, this.speciesHunting, radius, this.camera.getZoom()
+        );
+    }
+
+    private Color getBodyColour(final int speciesTag) {
+        return switch (speciesTag) {
+            case Ecosystem.PREY_TAG -> Prey.getBodyColour();
+            case Ecosystem.PREDATOR_TAG -> Predator.getBodyColour();
+            default -> this.simulation.getEcosystem().getColour(speciesTag);
+        };
     }
 
     /**
-     * Draw an entity's sensors on the map.
+     * Draw the sensors of the followed entity of a snapshot on the map.
      *
-     * @param entity The entity, whose sensors to be drawn on the map
+     * @param world The snapshot of the world, whose followed entity is alive
      */
-    public void drawEntitySensors(final Entity entity) {
+    public void drawEntitySensors(final WorldSnapshot world) {
         this.getGraphicsContext2D().setStroke(Color.HOTPINK);
 
-        for (Line sensor : entity.getSensors()) {
+        final int index = world.getFollowedIndex();
+        final double x = world.getX(index, this.interpolation);
+        final double y = world.getY(index, this.interpolation);
+        Point startPoint = absToRelPosition(x, y);
 
-            Point startPoint = absToRelPosition(sensor.getStartPoint().getX(),
-                sensor.getStartPoint().getY());
-
-            Point endPoint = absToRelPosition(sensor.getEndPoint().getX(),
-                sensor.getEndPoint().getY());
+        for (int i = 0; i < world.getFollowedSensorCount(); ++i) {
+            Point endPoint = absToRelPosition(
+                world.getFollowedSensorX(i) - world.getX(index) + x,
+                world.getFollowedSensorY(i) - world.getY(index) + y);
 
             this.getGraphicsContext2D().strokeLine(
                 startPoint.getX(), startPoint.getY(),
@@ -421,24 +634,39 @@ public final class MapCanvas extends ResizableCanvas {
     /**
      * Follow an entity on the map.
      *
-     * @param entity The entity to be followed
+     * @param x The X position of the entity to be followed
+     * @param y The Y position of the entity to be followed
      */
-    public void followEntity(final Entity entity) {
+    public void followEntity(final double x, final double y) {
         //Set the camera's position to the entity's position.
-        this.camera.setPoint(entity.getBodyCenter());
+        this.camera.setPoint(new Point(x, y));
         autoZoom(ENTITY_FOLLOWING_ZOOM);
         MainController.getController().getTabPane()
             .getSelectionModel().selectLast();
     }
 
     /**
-     * Unfollow an entity on the map.
+     * Shows the brain of the followed entity in the neural network view. The view is only set
+     * when the copy of the brain changes, and the values of its neurons are updated from every
+     * snapshot.
      *
-     * @param entity The entity to be unfollowed
+     * @param brain  copy of the brain of the followed entity from the last snapshot
+     * @param values values of the neurons of the followed entity from the last snapshot
      */
-    public void unfollowEntity(final Entity entity) {
-        this.camera.setPoint(new Point(entity.getBodyCenter().getX(),
-            entity.getBodyCenter().getY()));
+    private void showFollowedBrain(final NeuralNetwork brain, final double[] values) {
+        if (brain != this.followedBrain) {
+            this.followedBrain = brain;
+            MainController.getController().getNeuralNetworkTab().setNeuralNetwork(brain);
+        }
+        brain.copyValuesFrom(values);
+    }
+
+    /**
+     * Unfollow an entity on the map, leaving the camera where the entity was last seen.
+     */
+    public void unfollowEntity() {
+        this.followedBrain = null;
+        this.simulation.setFollowedEntityId(-1);
         autoZoom(ENTITY_UNFOLLOWING_ZOOM);
         MainController.getController().getTabPane()
             .getSelectionModel().selectFirst();
@@ -520,20 +748,36 @@ public final class MapCanvas extends ResizableCanvas {
     }
 
     private void update(final long now) {
+        final long frameStartTime = System.nanoTime();
         clearMap();
         if (mapImage != null) {
             this.getGraphicsContext2D().drawImage(mapImage, 0, 0,
                 this.getWidth(), this.getHeight());
         }
         drawGrids();
+        if (this.lockHeatmapVisible) {
+            drawLockHeatmap();
+        }
 
-        if (this.followingEntity.get() && this.followedEntity.isDead()) {
-            if (!camera.isZooming()) {
-                this.unfollowEntity(followedEntity);
+        this.snapshot = this.simulation.acquireSnapshot();
+        final WorldSnapshot world = this.snapshot;
+        this.interpolation = world.getInterpolation(now);
+
+        if (this.followingEntity.get() && world.getTickCount() > this.followedSinceTick) {
+            final int followedIndex = world.getFollowedIndex();
+            if (followedIndex < 0 || world.getId(followedIndex) != this.followedEntityId) {
+                if (!camera.isZooming()) {
+                    this.unfollowEntity();
+                }
+                followingEntity.set(false);
+                untrackEntityStats();
+            } else {
+                this.camera.getPoint().setX(world.getX(followedIndex, this.interpolation));
+                this.camera.getPoint().setY(world.getY(followedIndex, this.interpolation));
+                this.showFollowedBrain(
+                    world.getFollowedBrain(), world.getFollowedNeuronValues()
+                );
             }
-            followingEntity.set(false);
-            followedEntity = null;
-            untrackEntityStats();
         }
 
         final double camTranslateSpeed = Camera.CAMERA_TRANSLATE_SPEED;
@@ -560,99 +804,94 @@ public final class MapCanvas extends ResizableCanvas {
                 }
             } else {
                 if (PRESSED_KEYS.contains(KeyCode.SPACE)) {
-                    if (followedEntity != null && !camera.isZooming()) {
-                        this.unfollowEntity(followedEntity);
+                    if (!camera.isZooming()) {
+                        this.unfollowEntity();
                         followingEntity.set(false);
-                        followedEntity = null;
                         untrackEntityStats();
                     }
                 }
             }
         }
 
-        Coordinate camChunk = this.simulation.pointToGridCoord(this.camera.getPoint());
-
-        // only render entities if they're within the visible square radius
-        int radiusX = (int) Math.ceil(
-            this.getWidth() / (this.simulation.getGridSize() * this.camera.getZoom())) / 2 + 1;
-        int radiusY = (int) Math.ceil(
-            this.getHeight() / (this.simulation.getGridSize() * this.camera.getZoom())) / 2 + 1;
-
-        for (int x = camChunk.getX() - radiusX; x <= camChunk.getX() + radiusX; ++x) {
-            for (int y = camChunk.getY() - radiusY; y <= camChunk.getY() + radiusY; ++y) {
-                if (
-                    x < 0 || x >= this.simulation.getMapSizeX()
-                        || y < 0 || y >= this.simulation.getMapSizeY()
-                ) {
+        // only render entities if they're within the visible area
+        final double margin;
+        try {
+            margin = Configuration.getConfiguration().getEntityRadius();
+        } catch (EvosimException e) {
+            throw new RuntimeException(e);
+        }
+        final Point topLeft = this.relToAbsPosition(0, 0);
+        final Point bottomRight = this.relToAbsPosition(this.getWidth(), this.getHeight());
+        final double minX = topLeft.getX() - margin;
+        final double maxX = bottomRight.getX() + margin;
+        final double minY = bottomRight.getY() - margin;
+        final double maxY = topLeft.getY() + margin;
+
+        final EntityDetail detail = EntityDetail.forRadius(margin * this.camera.getZoom());
+        final long entitiesStartTime = System.nanoTime();
+        int drawnCount = 0;
+
+        if (detail == EntityDetail.DOT) {
+            drawnCount = drawEntityDots(world, minX, maxX, minY, maxY, margin);
+        } else {
+            this.refreshSprites(margin);
+            for (int i = 0; i < world.getSize(); ++i) {
+                final double x = world.getX(i, this.interpolation);
+                final double y = world.getY(i, this.interpolation);
+                if (x < minX || x > maxX || y < minY || y > maxY) {
                     continue;
                 }
 
-                simulation.forEachGridEntities(x, y, entity -> {
-                    try {
-                        drawEntity(entity);
-                    } catch (EvosimException e) {
-                        throw new RuntimeException(e);
-                    }
-                });
+                try {
+                    drawEntity(world, i);
+                } catch (EvosimException e) {
+                    throw new RuntimeException(e);
+                }
+                ++drawnCount;
             }
         }
+
+        this.renderStats.recordEntities(detail, drawnCount, System.nanoTime() - entitiesStartTime);
+        this.renderStats.recordFrame(System.nanoTime() - frameStartTime);
+
+        if (this.perfOverlayVisible) {
+            drawPerfOverlay();
+        }
     }
 
     /**
-     * Checks all entities within the clicked chunk. If the mouse clicked an entity, follow it.
+     * Checks all entities of the last drawn snapshot. If the mouse clicked an entity, follow it.
      *
      * @param e the click event
      */
     private void checkEntityOnClick(final MouseEvent e) {
-        if (simulation == null) {
+        final WorldSnapshot world = this.snapshot;
+        if (simulation == null || world == null
+            || followingEntity.get() || camera.isZooming()) {
             return;
         }
 
-        double x = e.getX();
-        double y = e.getY();
+        Point abs = this.relToAbsPosition(e.getX(), e.getY());
 
-        Point abs = this.relToAbsPosition(x, y);
-
-        int chunkX = (int) abs.getX() / this.simulation.getGridSize();
-        int chunkY = (int) abs.getY() / this.simulation.getGridSize();
-
-        if (chunkX < 0 || chunkX >= this.simulation.getMapSizeX()
-            || chunkY < 0 || chunkY >= this.simulation.getMapSizeY()) {
-            return;
+        final double clickRadius;
+        try {
+            clickRadius = Configuration.getConfiguration().getEntityRadius() * 2;
+        } catch (EvosimException ex) {
+            throw new RuntimeException(ex);
         }
 
-        // check in this grid and nearby grids
-        int radius = 1;
-        for (int x1 = chunkX - radius; x1 <= chunkX + radius; ++x1) {
-            for (int y1 = chunkY - radius; y1 <= chunkY + radius; ++y1) {
-                if (
-                    x1 < 0 || x1 >= this.simulation.getMapSizeX()
-                        || y1 < 0 || y1 >= this.simulation.getMapSizeY()
-                ) {
-                    continue;
-                }
-
-                simulation.forEachGridEntities(x1, y1, entity -> {
-                    Point entityCenter = entity.getBodyCenter();
-                    try {
-                        if (Formulas.distance(entityCenter.getX(), entityCenter.getY(),
-                            abs.getX(), abs.getY())
-                            <= Configuration.getConfiguration().getEntityRadius() * 2
-                        ) {
-
-                            if (!followingEntity.get() && !camera.isZooming()) {
-                                this.followEntity(entity);
-                                followingEntity.set(true);
-                                followedEntity = entity;
-                                trackEntityStats();
-                                MainController.getController().getNeuralNetworkTab()
-                                    .setNeuralNetwork(entity.getBrain());
-                            }
-                        }
-                    } catch (EvosimException ex) {
-                        throw new RuntimeException(ex);
-                    }
-                });
+        for (int i = 0; i < world.getSize(); ++i) {
+            final double x = world.getX(i, this.interpolation);
+            final double y = world.getY(i, this.interpolation);
+            if (Formulas.isWithinDistance(x, y, abs.getX(), abs.getY(), clickRadius)) {
+                this.followEntity(x, y);
+                followingEntity.set(true);
+                followedEntityId = world.getId(i);
+                followedSinceTick = world.getTickCount();
+                followedBrain = null;
+                simulation.setFollowedEntityId(followedEntityId);
+                trackEntityStats();
+                return;
             }
         }
     }
@@ -14,6 +14,25 @@ import java.util.List;
 
 public class NeuralNetworkView extends Tab {
 
+    /**
+     * The title of the tab.
+     */
+    private static final String TITLE = "Neural Network View";
+
+    /**
+     * The colour of the weights pruned from the network.
+     */
+    private static final Color PRUNED_COLOUR = Color.LIGHTGRAY;
+
+    /**
+     * The length of the dashes and gaps of the weights pruned from the network.
+     */
+    private static final double PRUNED_DASH = 4;
+
+    /**
+     * The number of percents in a whole.
+     */
+    private static final double PERCENT = 100;
 
     /**
      * The NeuralNetwork that this view is displaying.
@@ -44,7 +63,7 @@ public class NeuralNetworkView extends Tab {
      * Constructs a new Tab for displaying a NeuralNetwork.
      */
     public NeuralNetworkView() {
-        super("Neural Network View");
+        super(TITLE);
         this.neuralNetworkView = new Pane();
         this.setContent(this.neuralNetworkView);
         this.neuralNetworkView.setBackground(Background.fill(Color.ALICEBLUE));
@@ -136,24 +155,49 @@ public class NeuralNetworkView extends Tab {
                     for (NeuronView neuronView : layer) {
                         neuronView.update();
                         if (layer != neuronStructure.get(0)) {
+                            final int layerIndex = neuronStructure.indexOf(layer);
+                            final int neuronIndex = layer.indexOf(neuronView);
                             for (int weightIndex = 0; weightIndex < neuronView.getNeuron()
                                 .getWeights().length; weightIndex++) {
-                                Line weight = weightsStructure.get(neuronStructure.indexOf(layer))
-                                    .get(layer.indexOf(neuronView)).get(weightIndex);
+                                Line weight = weightsStructure.get(layerIndex)
+                                    .get(neuronIndex).get(weightIndex);
                                 weight.setStrokeWidth(
                                     Math.abs(neuronView.getNeuron()
                                         .getWeights()[weightIndex]));
                                 weight.setOpacity(
                                     Math.abs(neuronView.getNeuron()
                                         .getWeights()[weightIndex]));
+                                showPruned(weight, neuralNetwork.isPruned(
+                                    layerIndex, neuronIndex, weightIndex));
                             }
                         }
                     }
                 }
+
+                final double liveRatio = neuralNetwork.getLiveWeightRatio();
+                setText(liveRatio < 1
+                    ? String.format("%s (%.0f%% live)", TITLE, liveRatio * PERCENT)
+                    : TITLE);
             }
         };
     }
 
+    /**
+     * Draws a weight as pruned, dashed and greyed out, or as live.
+     *
+     * @param weight the line of the weight
+     * @param pruned if the weight is pruned from the network
+     */
+    private static void showPruned(final Line weight, final boolean pruned) {
+        if (pruned == weight.getStrokeDashArray().isEmpty()) {
+            weight.setStroke(pruned ? PRUNED_COLOUR : Color.BLACK);
+            if (pruned) {
+                weight.getStrokeDashArray().setAll(PRUNED_DASH, PRUNED_DASH);
+            } else {
+                weight.getStrokeDashArray().clear();
+            }
+        }
+    }
 
     /**
      * Sets the NeuralNetwork that this view is displaying.
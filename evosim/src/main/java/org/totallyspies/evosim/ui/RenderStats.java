@@ -0,0 +1,105 @@
+package org.totallyspies.evosim.ui;
+
+import lombok.Getter;
+
+/**
+ * Frame times of the map, smoothed over the last frames. The time spent drawing entities is kept
+ * for every {@link EntityDetail}, so the cost of an entity at each detail can be compared while
+ * zooming.
+ *
+ * @author agent
+ */
+final class RenderStats {
+
+    /**
+     * Weight of the last frame in the smoothed times.
+     */
+    private static final double SMOOTHING = 0.1;
+
+    /**
+     * Smoothed time spent drawing a frame in nanoseconds.
+     */
+    @Getter
+    private double frameNanos;
+
+    /**
+     * Smoothed time spent drawing the entities of a frame in nanoseconds, by detail.
+     */
+    private final double[] entitiesNanos;
+
+    /**
+     * Smoothed time spent drawing an entity in nanoseconds, by detail.
+     */
+    private final double[] entityNanos;
+
+    /**
+     * Detail the entities of the last frame were drawn with.
+     */
+    @Getter
+    private EntityDetail detail;
+
+    /**
+     * Number of entities drawn in the last frame.
+     */
+    @Getter
+    private int drawnCount;
+
+    /**
+     * Constructs empty statistics.
+     */
+    RenderStats() {
+        this.entitiesNanos = new double[EntityDetail.values().length];
+        this.entityNanos = new double[EntityDetail.values().length];
+        this.detail = EntityDetail.FULL;
+    }
+
+    /**
+     * Records the time spent drawing a frame.
+     *
+     * @param nanos nanoseconds spent drawing the frame
+     */
+    void recordFrame(final long nanos) {
+        this.frameNanos = smooth(this.frameNanos, nanos);
+    }
+
+    /**
+     * Records the time spent drawing the entities of a frame.
+     *
+     * @param newDetail the detail the entities were drawn with
+     * @param count     number of entities drawn
+     * @param nanos     nanoseconds spent drawing the entities
+     */
+    void recordEntities(final EntityDetail newDetail, final int count, final long nanos) {
+        final int level = newDetail.ordinal();
+        this.entitiesNanos[level] = smooth(this.entitiesNanos[level], nanos);
+        if (count > 0) {
+            this.entityNanos[level] = smooth(this.entityNanos[level], (double) nanos / count);
+        }
+        this.detail = newDetail;
+        this.drawnCount = count;
+    }
+
+    /**
+     * Gets the smoothed time spent drawing the entities of a frame with a detail.
+     *
+     * @param atDetail the detail
+     * @return the time in nanoseconds, 0 if no frame was drawn with the detail
+     */
+    double getEntitiesNanos(final EntityDetail atDetail) {
+        return this.entitiesNanos[atDetail.ordinal()];
+    }
+
+    /**
+     * Gets the smoothed time spent drawing an entity with a detail.
+     *
+     * @param atDetail the detail
+     * @return the time in nanoseconds, 0 if no entity was drawn with the detail
+     */
+    double getEntityNanos(final EntityDetail atDetail) {
+        return this.entityNanos[atDetail.ordinal()];
+    }
+
+    private static double smooth(final double average, final double sample) {
+        return average == 0 ? sample : average + (sample - average) * SMOOTHING;
+    }
+}
@@ -0,0 +1,229 @@
+package org.totallyspies.evosim.ui;
+
+import java.util.Arrays;
+import javafx.scene.SnapshotParameters;
+import javafx.scene.canvas.Canvas;
+import javafx.scene.canvas.GraphicsContext;
+import javafx.scene.image.WritableImage;
+import javafx.scene.paint.Color;
+
+/**
+ * Pre-rendered bodies of the entities, drawn with a single {@code drawImage} each instead of
+ * several vector shapes. Every species has a sprite with its eyes, and the eyebrows of hunters,
+ * for each of {@link #ANGLE_COUNT} facing angles, followed by a sprite of its body alone. Sprites
+ * are rendered at the zoom of a bucket of zoom levels and scaled to the exact zoom when drawn.
+ * The atlas is rendered again when the colour of a species changes or the zoom leaves the
+ * bucket. Pupils follow what the entity looks at and are not part of the sprites.
+ *
+ * @author agent
+ */
+final class SpriteAtlas {
+
+    /**
+     * Number of facing angles rendered for every species.
+     */
+    static final int ANGLE_COUNT = 32;
+
+    /**
+     * Angle between the direction of an entity and each of its eyes.
+     */
+    static final double EYE_ANGLE = Math.PI / 10;
+
+    /**
+     * Ratio between the radius of an entity and the radius of its eyes.
+     */
+    static final double EYE_RADIUS_RATIO = 3;
+
+    /**
+     * Ratio between the zooms of two successive buckets.
+     */
+    private static final double ZOOM_BUCKET_RATIO = 1.25;
+
+    /**
+     * Transparent pixels around every sprite, so that scaled sprites do not bleed into each
+     * other.
+     */
+    private static final int PADDING = 2;
+
+    /**
+     * The rendered sprites, or null before the first rendering.
+     */
+    private WritableImage image;
+
+    /**
+     * Colour of every species in the sprites.
+     */
+    private Color[] colours;
+
+    /**
+     * Whether every species was rendered with eyebrows.
+     */
+    private boolean[] hunting;
+
+    /**
+     * Radius of an entity the sprites were rendered for.
+     */
+    private double entityRadius;
+
+    /**
+     * Bucket of zoom levels the sprites were rendered for.
+     */
+    private int zoomBucket;
+
+    /**
+     * Radius of an entity in the sprites in pixels.
+     */
+    private double spriteRadius;
+
+    /**
+     * Side of the square cell of a sprite in pixels.
+     */
+    private int cellSize;
+
+    /**
+     * Constructs an atlas to be rendered on its first refresh.
+     */
+    SpriteAtlas() {
+        this.colours = new Color[0];
+        this.hunting = new boolean[0];
+    }
+
+    /**
+     * Renders the sprites again if they were rendered with other colours, for another radius or
+     * in another bucket of zoom levels. Must be called on the FX thread.
+     *
+     * @param newColours body colour of every species
+     * @param newHunting whether every species hunts, and has eyebrows
+     * @param radius     radius of an entity
+     * @param zoom       zoom of the camera
+     * @return whether the sprites were rendered again
+     */
+    boolean refresh(final Color[] newColours, final boolean[] newHunting, final double radius,
+                    final double zoom) {
+        final int bucket = (int) Math.round(Math.log(zoom) / Math.log(ZOOM_BUCKET_RATIO));
+        if (this.image != null && bucket == this.zoomBucket && radius == this.entityRadius
+            && Arrays.equals(newColours, this.colours)
+            && Arrays.equals(newHunting, this.hunting)) {
+            return false;
+        }
+
+        this.colours = newColours.clone();
+        this.hunting = newHunting.clone();
+        this.entityRadius = radius;
+        this.zoomBucket = bucket;
+        this.spriteRadius = radius * Math.pow(ZOOM_BUCKET_RATIO, bucket);
+        this.cellSize = (int) Math.ceil(this.spriteRadius * 2) + 2 * PADDING;
+        this.render();
+        return true;
+    }
+
+    private void render() {
+        final Canvas canvas = new Canvas(
+            (double) this.cellSize * (ANGLE_COUNT + 1),
+            (double) this.cellSize * Math.max(1, this.colours.length)
+        );
+        final GraphicsContext gc = canvas.getGraphicsContext2D();
+
+        for (int tag = 0; tag < this.colours.length; ++tag) {
+            final double centerY = this.cellSize * (tag + 0.5);
+
+            for (int angle = 0; angle <= ANGLE_COUNT; ++angle) {
+                final double centerX = this.cellSize * (angle + 0.5);
+
+                gc.setFill(this.colours[tag]);
+                gc.fillOval(
+                    centerX - this.spriteRadius, centerY - this.spriteRadius,
+                    this.spriteRadius * 2, this.spriteRadius * 2
+                );
+
+                if (angle < ANGLE_COUNT) {
+                    this.renderEyes(gc, tag, centerX, centerY, getFacing(angle));
+                }
+            }
+        }
+
+        final SnapshotParameters parameters = new SnapshotParameters();
+        parameters.setFill(Color.TRANSPARENT);
+        this.image = canvas.snapshot(parameters, null);
+    }
+
+    private void renderEyes(final GraphicsContext gc, final int tag, final double centerX,
+                            final double centerY, final double facing) {
+        final double eyeRadius = this.spriteRadius / EYE_RADIUS_RATIO;
+        final double eyeDistance = this.spriteRadius - eyeRadius;
+
+        final double leftEyeX = centerX + eyeDistance * Math.cos(facing + EYE_ANGLE);
+        final double leftEyeY = centerY - eyeDistance * Math.sin(facing + EYE_ANGLE);
+        final double rightEyeX = centerX + eyeDistance * Math.cos(facing - EYE_ANGLE);
+        final double rightEyeY = centerY - eyeDistance * Math.sin(facing - EYE_ANGLE);
+
+        gc.setFill(Color.WHITE);
+        gc.fillOval(leftEyeX - eyeRadius, leftEyeY - eyeRadius, eyeRadius * 2, eyeRadius * 2);
+        gc.fillOval(rightEyeX - eyeRadius, rightEyeY - eyeRadius, eyeRadius * 2, eyeRadius * 2);
+
+        if (!this.hunting[tag]) {
+            return;
+        }
+
+        // Eyebrows
+        gc.setFill(this.colours[tag]);
+        gc.beginPath();
+        gc.moveTo(
+            centerX + eyeDistance * Math.cos(facing),
+            centerY - eyeDistance * Math.sin(facing)
+        );
+        gc.lineTo(
+            leftEyeX - eyeRadius * Math.cos(facing - EYE_ANGLE),
+            leftEyeY + eyeRadius * Math.sin(facing - EYE_ANGLE)
+        );
+        gc.lineTo(
+            rightEyeX - eyeRadius * Math.cos(facing + EYE_ANGLE),
+            rightEyeY + eyeRadius * Math.sin(facing + EYE_ANGLE)
+        );
+        gc.closePath();
+        gc.fill();
+    }
+
+    /**
+     * Gets the index of the rendered facing angle closest to a direction.
+     *
+     * @param angle the direction in radians, of any number of turns
+     * @return the index of the closest rendered angle
+     */
+    static int getAngleIndex(final double angle) {
+        final double turns = angle / (2 * Math.PI);
+        final int index = (int) Math.round((turns - Math.floor(turns)) * ANGLE_COUNT);
+        return index == ANGLE_COUNT ? 0 : index;
+    }
+
+    /**
+     * Gets a rendered facing angle.
+     *
+     * @param angleIndex the index of the angle
+     * @return the angle in radians
+     */
+    static double getFacing(final int angleIndex) {
+        return 2 * Math.PI * angleIndex / ANGLE_COUNT;
+    }
+
+    /**
+     * Draws the sprite of an entity.
+     *
+     * @param gc           the graphics to draw on
+     * @param speciesTag   the species of the entity
+     * @param angleIndex   the index of the facing angle, or {@link #ANGLE_COUNT} for the body alone
+     * @param centerX      the X position of the center of the entity on screen
+     * @param centerY      the Y position of the center of the entity on screen
+     * @param radiusPixels the radius of the entity on screen
+     */
+    void draw(final GraphicsContext gc, final int speciesTag, final int angleIndex,
+              final double centerX, final double centerY, final double radiusPixels) {
+        final double size = this.cellSize * radiusPixels / this.spriteRadius;
+        gc.drawImage(
+            this.image,
+            (double) this.cellSize * angleIndex, (double) this.cellSize * speciesTag,
+            this.cellSize, this.cellSize,
+            centerX - size / 2, centerY - size / 2, size, size
+        );
+    }
+}
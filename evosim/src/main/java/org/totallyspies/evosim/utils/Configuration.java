@@ -1,6 +1,5 @@
 package org.totallyspies.evosim.utils;
 
-import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import javafx.scene.image.Image;
@@ -10,6 +9,10 @@ import org.apache.commons.io.FileUtils;
 import org.json.JSONArray;
 import org.json.JSONObject;
 import org.totallyspies.evosim.entities.Entity;
+import org.totallyspies.evosim.entities.Species;
+import org.totallyspies.evosim.simulation.BroadPhaseType;
+import org.totallyspies.evosim.simulation.DegradationPolicy;
+import org.totallyspies.evosim.simulation.IslandTopology;
 import org.totallyspies.evosim.simulation.Simulation;
 
 import java.io.File;
@@ -22,6 +25,7 @@ import java.util.ArrayList;
 import java.util.Base64;
 import java.util.HashMap;
 import java.util.List;
+import java.util.Objects;
 import java.util.Set;
 
 /**
@@ -162,6 +166,87 @@ public final class Configuration {
          */
         public static final double PREY_SPLIT_ENERGY_FILLING_SPEED = 0.005;
 
+        /**
+         * The number of ticks between two evaluations of the brain of an entity.
+         */
+        public static final int ENTITY_THINK_INTERVAL = 1;
+
+        /**
+         * Whether entities sensing an opponent evaluate their brain on every tick.
+         */
+        public static final boolean ENTITY_THINK_ADAPTIVE = true;
+
+        /**
+         * The magnitude under which the weights of the brains are pruned, 0 to never prune.
+         */
+        public static final double BRAIN_PRUNE_THRESHOLD = 0;
+
+        /**
+         * The file the ancestry of the entities is recorded to, empty to not record it.
+         */
+        public static final String LINEAGE_FILE = "";
+
+        /**
+         * The file the measurements of every update are written to, empty to not write them.
+         */
+        public static final String TICK_METRICS_FILE = "";
+
+        /**
+         * Whether the time spent waiting for and holding the locks of the chunks is measured.
+         */
+        public static final boolean LOCK_PROFILING = false;
+
+        /**
+         * What the simulation gives up when its updates keep overrunning their budget.
+         */
+        public static final String DEGRADATION_POLICY = DegradationPolicy.NONE.name();
+
+        /**
+         * The number of overruns in excess of updates within budget that degrade the simulation
+         * by a level.
+         */
+        public static final int OVERRUN_TOLERANCE = 30;
+
+        /**
+         * The highest level the simulation may be degraded to.
+         */
+        public static final int DEGRADATION_MAX_LEVEL = 3;
+
+        /**
+         * The number of columns of tiles the map is split into for sensing.
+         */
+        public static final int SENSE_TILE_COLUMNS = 1;
+
+        /**
+         * The number of rows of tiles the map is split into for sensing.
+         */
+        public static final int SENSE_TILE_ROWS = 1;
+
+        /**
+         * The number of simulations run side by side in island mode.
+         */
+        public static final int ISLAND_COUNT = 4;
+
+        /**
+         * Which islands send their migrants to which.
+         */
+        public static final String ISLAND_TOPOLOGY = IslandTopology.RING.name();
+
+        /**
+         * The number of ticks of an island between two migrations.
+         */
+        public static final int ISLAND_MIGRATION_INTERVAL = 600;
+
+        /**
+         * The number of migrants of each species sent by an island on every migration.
+         */
+        public static final int ISLAND_MIGRATION_RATE = 2;
+
+        /**
+         * Whether migrants are the entities with the most children rather than random ones.
+         */
+        public static final boolean ISLAND_MIGRATE_TOP = true;
+
         /**
          * The number of layers the neural network will contain.
          */
@@ -216,6 +301,31 @@ public final class Configuration {
          * Middle layers default number of nodes.
          */
         public static final int NODES_PER_LAYER = 10;
+
+        /**
+         * The default broad phase used to find which entities can see each other.
+         */
+        public static final String BROAD_PHASE = BroadPhaseType.GRID.name();
+
+        /**
+         * The default kind of lock protecting the chunks of a simulation.
+         */
+        public static final String LOCK_MODE = LockMode.FAIR.name();
+
+        /**
+         * Whether the cell size of the grid broad phase is tuned while the simulation runs.
+         */
+        public static final boolean GRID_AUTO_TUNE = false;
+
+        /**
+         * Species living alongside the prey and the predators.
+         */
+        public static final List<Object> EXTRA_SPECIES = List.of();
+
+        /**
+         * Pairs of species names, the first of each pair eating the second.
+         */
+        public static final List<List<String>> INTERACTIONS = List.of(List.of("predator", "prey"));
     }
 
     /**
@@ -255,6 +365,11 @@ public final class Configuration {
      */
     private static final Configuration CONFIGURATION = new Configuration();
 
+    /**
+     * The configuration used by the current thread instead of the singleton, if any.
+     */
+    private static final ThreadLocal<Configuration> THREAD_CONFIGURATION = new ThreadLocal<>();
+
     /**
      * An object mapper in order to serialize and deserialize values.
      */
@@ -278,6 +393,7 @@ public final class Configuration {
             Defaults.ENTITY_SPEED_MUTATION_RATE);
         this.defaultsNumberVariables.put("entityEnergyDrainRate",
             Defaults.ENTITY_ENERGY_DRAIN_RATE);
+        this.defaultsNumberVariables.put("entityThinkInterval", Defaults.ENTITY_THINK_INTERVAL);
 
         this.defaultsNumberVariables.put("predatorMaxNumber", Defaults.PREDATOR_MAX_NUMBER);
         this.defaultsNumberVariables.put("predatorViewAngle", Defaults.PREDATOR_VIEW_ANGLE);
@@ -300,6 +416,18 @@ public final class Configuration {
 
         this.defaultsNumberVariables.put("neuralNetworkLayersNumber",
             Defaults.NEURAL_NETWORK_LAYERS_NUMBER);
+        this.defaultsNumberVariables.put("brainPruneThreshold", Defaults.BRAIN_PRUNE_THRESHOLD);
+
+        this.defaultsNumberVariables.put("senseTileColumns", Defaults.SENSE_TILE_COLUMNS);
+        this.defaultsNumberVariables.put("senseTileRows", Defaults.SENSE_TILE_ROWS);
+
+        this.defaultsNumberVariables.put("overrunTolerance", Defaults.OVERRUN_TOLERANCE);
+        this.defaultsNumberVariables.put("degradationMaxLevel", Defaults.DEGRADATION_MAX_LEVEL);
+
+        this.defaultsNumberVariables.put("islandCount", Defaults.ISLAND_COUNT);
+        this.defaultsNumberVariables.put("islandMigrationInterval",
+            Defaults.ISLAND_MIGRATION_INTERVAL);
+        this.defaultsNumberVariables.put("islandMigrationRate", Defaults.ISLAND_MIGRATION_RATE);
 
         this.defaultsNumberVariables.put("mapSizeX", Defaults.MAP_SIZE_X);
         this.defaultsNumberVariables.put("mapSizeY", Defaults.MAP_SIZE_Y);
@@ -311,6 +439,18 @@ public final class Configuration {
         this.defaultObjectVariables.put("layerSizeMiddle", Defaults.LAYER_SIZE_MIDDLE);
         this.defaultObjectVariables.put("colorPrey", Defaults.COLOR_PREY);
         this.defaultObjectVariables.put("colorPredator", Defaults.COLOR_PREDATOR);
+        this.defaultObjectVariables.put("broadPhase", Defaults.BROAD_PHASE);
+        this.defaultObjectVariables.put("gridAutoTune", Defaults.GRID_AUTO_TUNE);
+        this.defaultObjectVariables.put("lockMode", Defaults.LOCK_MODE);
+        this.defaultObjectVariables.put("entityThinkAdaptive", Defaults.ENTITY_THINK_ADAPTIVE);
+        this.defaultObjectVariables.put("extraSpecies", Defaults.EXTRA_SPECIES);
+        this.defaultObjectVariables.put("interactions", Defaults.INTERACTIONS);
+        this.defaultObjectVariables.put("lineageFile", Defaults.LINEAGE_FILE);
+        this.defaultObjectVariables.put("tickMetricsFile", Defaults.TICK_METRICS_FILE);
+        this.defaultObjectVariables.put("lockProfiling", Defaults.LOCK_PROFILING);
+        this.defaultObjectVariables.put("degradationPolicy", Defaults.DEGRADATION_POLICY);
+        this.defaultObjectVariables.put("islandTopology", Defaults.ISLAND_TOPOLOGY);
+        this.defaultObjectVariables.put("islandMigrateTop", Defaults.ISLAND_MIGRATE_TOP);
 
         this.mapper = new ObjectMapper();
         restoreToDefaults();
@@ -377,18 +517,21 @@ public final class Configuration {
     }
 
     /**
-     * Change configuration based on the jsonObject.
+     * Change configuration based on the jsonObject. Variables missing from older files keep
+     * their current value.
      *
      * @param jsonConfiguration
      */
     private void loadConfiguration(final JSONObject jsonConfiguration) {
+        JSONObject jsonNumbers = jsonConfiguration.getJSONObject("numbers");
         Set<String> numberKeys = this.numberVariables.keySet();
         numberKeys.forEach((key) -> this.numberVariables.replace(key,
-            jsonConfiguration.getJSONObject("numbers").getNumber(key)));
+            jsonNumbers.optNumber(key, this.numberVariables.get(key))));
 
+        JSONObject jsonObjects = jsonConfiguration.getJSONObject("objects");
         Set<String> objectKeys = this.objectVariables.keySet();
         objectKeys.forEach((key) -> this.objectVariables.replace(key,
-            jsonConfiguration.getJSONObject("objects").get(key)));
+            Objects.requireNonNullElse(jsonObjects.opt(key), this.objectVariables.get(key))));
     }
 
     private List<Entity> loadEntities(final JSONArray jsonEntities) throws EvosimException {
@@ -427,13 +570,31 @@ public final class Configuration {
      * @return JSONObject with Configuration's variables.
      */
     private JSONObject getJSONObject(
-        final Simulation simulation) throws JsonProcessingException {
+        final Simulation simulation) throws EvosimException {
         JSONObject jsonObjectGlobal = new JSONObject();
         jsonObjectGlobal.put("configuration", getConfigurationJson());
         jsonObjectGlobal.put("entities", getEntitiesJSON(simulation));
         return jsonObjectGlobal;
     }
 
+    /**
+     * Writes every variable as JSON, in the format of the saved files.
+     *
+     * @return the variables as JSON text
+     */
+    public String getConfigurationText() {
+        return getConfigurationJson().toString();
+    }
+
+    /**
+     * Reads variables written by {@link #getConfigurationText()}.
+     *
+     * @param text the variables as JSON text
+     */
+    public void loadConfigurationText(final String text) {
+        loadConfiguration(new JSONObject(text));
+    }
+
     private JSONObject getConfigurationJson() {
         JSONObject jsonConfiguration = new JSONObject();
         jsonConfiguration.put("numbers", this.numberVariables);
@@ -441,18 +602,28 @@ public final class Configuration {
         return jsonConfiguration;
     }
 
+    /**
+     * Writes every entity of a simulation as JSON. The entities are gathered and written on the
+     * update thread between two updates, so none of them changes while it is written.
+     *
+     * @param simulation simulation used by MapCanvas.
+     * @return the entities as JSON
+     */
     private JSONArray getEntitiesJSON(
-        final Simulation simulation) throws JsonProcessingException {
-        List<Entity> allEntities = new ArrayList<>();
-
-        for (int x = 0; x < simulation.getMapSizeX(); x++) {
-            for (int y = 0; y < simulation.getMapSizeY(); y++) {
-                simulation.forEachGridEntities(x, y, allEntities::add);
+        final Simulation simulation) throws EvosimException {
+        String allEntitiesTxt = simulation.callBetweenUpdates(() -> {
+            List<Entity> allEntities = new ArrayList<>();
+
+            for (int x = 0; x < simulation.getMapSizeX(); x++) {
+                for (int y = 0; y < simulation.getMapSizeY(); y++) {
+                    simulation.forEachGridEntities(x, y, allEntities::add);
+                }
             }
-        }
-        String allEntitiesTxt = mapper
-            .writerFor(new TypeReference<List<Entity>>() {
-            }).writeValueAsString(allEntities);
+
+            return mapper
+                .writerFor(new TypeReference<List<Entity>>() {
+                }).writeValueAsString(allEntities);
+        });
 
         return new JSONArray(allEntitiesTxt);
     }
@@ -466,12 +637,78 @@ public final class Configuration {
     }
 
     /**
-     * Get a default configuration.
+     * Get a default configuration, or the one bound to the current thread.
      *
      * @return Configuration saved from a Json File
      */
     public static Configuration getConfiguration() {
-        return Configuration.CONFIGURATION;
+        final Configuration bound = Configuration.THREAD_CONFIGURATION.get();
+        return bound != null ? bound : Configuration.CONFIGURATION;
+    }
+
+    /**
+     * Makes the current thread use a given configuration instead of the singleton, so that
+     * simulations with different settings can run side by side.
+     *
+     * @param configuration the configuration of the thread, or null to use the singleton again
+     */
+    public static void setThreadConfiguration(final Configuration configuration) {
+        if (configuration == null) {
+            Configuration.THREAD_CONFIGURATION.remove();
+        } else {
+            Configuration.THREAD_CONFIGURATION.set(configuration);
+        }
+    }
+
+    /**
+     * Wraps a task so that it runs with this configuration bound to its thread.
+     *
+     * @param task the task to wrap
+     * @return the wrapped task
+     */
+    public Runnable bind(final Runnable task) {
+        return () -> {
+            Configuration.setThreadConfiguration(this);
+            try {
+                task.run();
+            } finally {
+                Configuration.setThreadConfiguration(null);
+            }
+        };
+    }
+
+    /**
+     * Copies the current values of this configuration. Changing the copy leaves this
+     * configuration untouched.
+     *
+     * @return the copy
+     */
+    public Configuration copy() {
+        final Configuration copy = new Configuration();
+        copy.numberVariables = new HashMap<>(this.numberVariables);
+        copy.objectVariables = new HashMap<>(this.objectVariables);
+        return copy;
+    }
+
+    /**
+     * Sets any variable by name, as found in the saved files.
+     *
+     * @param variable the name of the variable
+     * @param value    the new value, a number for number variables
+     * @throws EvosimException if there is no such variable or the value is not a number when it
+     *                         should be
+     */
+    public void setVariable(final String variable, final Object value) throws EvosimException {
+        if (this.numberVariables.containsKey(variable)) {
+            if (!(value instanceof Number)) {
+                throw new EvosimException("Variable " + variable + " must be a number.");
+            }
+            this.numberVariables.replace(variable, (Number) value);
+        } else if (this.objectVariables.containsKey(variable)) {
+            this.objectVariables.replace(variable, value);
+        } else {
+            throw new EvosimException("Unknown variable: " + variable + ".");
+        }
     }
 
     public List<Integer> getLayerSizeMiddle() throws EvosimException {
@@ -619,6 +856,54 @@ public final class Configuration {
         this.numberVariables.replace("entityEnergyDrainRat", newEntityEnergyDrainRate);
     }
 
+    public int getEntityThinkInterval() throws EvosimException {
+        return getIntegerValue("entityThinkInterval");
+    }
+
+    public void setEntityThinkInterval(final int newEntityThinkInterval) {
+        this.numberVariables.replace("entityThinkInterval", newEntityThinkInterval);
+    }
+
+    public boolean isEntityThinkAdaptive() throws EvosimException {
+        return getObjectValue("entityThinkAdaptive");
+    }
+
+    public void setEntityThinkAdaptive(final boolean newEntityThinkAdaptive) {
+        this.objectVariables.replace("entityThinkAdaptive", newEntityThinkAdaptive);
+    }
+
+    public double getBrainPruneThreshold() throws EvosimException {
+        return getDoubleValue("brainPruneThreshold");
+    }
+
+    public void setBrainPruneThreshold(final double newBrainPruneThreshold) {
+        this.numberVariables.replace("brainPruneThreshold", newBrainPruneThreshold);
+    }
+
+    public String getLineageFile() throws EvosimException {
+        return getObjectValue("lineageFile");
+    }
+
+    public void setLineageFile(final String newLineageFile) {
+        this.objectVariables.replace("lineageFile", newLineageFile);
+    }
+
+    public String getTickMetricsFile() throws EvosimException {
+        return getObjectValue("tickMetricsFile");
+    }
+
+    public void setTickMetricsFile(final String newTickMetricsFile) {
+        this.objectVariables.replace("tickMetricsFile", newTickMetricsFile);
+    }
+
+    public boolean isLockProfiling() throws EvosimException {
+        return getObjectValue("lockProfiling");
+    }
+
+    public void setLockProfiling(final boolean newLockProfiling) {
+        this.objectVariables.replace("lockProfiling", newLockProfiling);
+    }
+
     public int getPredatorMaxNumber() throws EvosimException {
         return getIntegerValue("predatorMaxNumber");
     }
@@ -743,6 +1028,173 @@ public final class Configuration {
         this.numberVariables.replace("gridSize", newGridSize);
     }
 
+    public BroadPhaseType getBroadPhase() throws EvosimException {
+        try {
+            return BroadPhaseType.valueOf(getObjectValue("broadPhase"));
+        } catch (IllegalArgumentException e) {
+            throw new EvosimException("Couldn't load variable: broadPhase.", e);
+        }
+    }
+
+    public void setBroadPhase(final BroadPhaseType newBroadPhase) {
+        this.objectVariables.replace("broadPhase", newBroadPhase.name());
+    }
+
+    public LockMode getLockMode() throws EvosimException {
+        try {
+            return LockMode.valueOf(getObjectValue("lockMode"));
+        } catch (IllegalArgumentException e) {
+            throw new EvosimException("Couldn't load variable: lockMode.", e);
+        }
+    }
+
+    public void setLockMode(final LockMode newLockMode) {
+        this.objectVariables.replace("lockMode", newLockMode.name());
+    }
+
+    public boolean isGridAutoTune() throws EvosimException {
+        return getObjectValue("gridAutoTune");
+    }
+
+    public void setGridAutoTune(final boolean newGridAutoTune) {
+        this.objectVariables.replace("gridAutoTune", newGridAutoTune);
+    }
+
+    /**
+     * Gets every species of the simulation. The prey and the predators come first and are built
+     * from their own variables, followed by the extra species.
+     *
+     * @return the species
+     * @throws EvosimException if a species cannot be read
+     */
+    public List<Species> getSpecies() throws EvosimException {
+        final List<Species> species = new ArrayList<>();
+
+        species.add(new Species("prey", getPreyViewAngle(), getPreyMaxNumber(),
+            getPreyInitialPopulation(), getColorPrey().toString(), getPreyEnergyFillingSpeed(),
+            getPreySplitEnergyFillingSpeed(), 0, false, 0, 0));
+        species.add(new Species("predator", getPredatorViewAngle(), getPredatorMaxNumber(),
+            getPredatorInitialPopulation(), getColorPredator().toString(), 0, 0,
+            getPredatorEnergyBaseDrainingSpeed(), true, getPredatorEnergyFillingSpeed(),
+            getPredatorSplitEnergyFillingSpeed()));
+
+        try {
+            for (final Object extra : toList(getObjectValue("extraSpecies"))) {
+                species.add(this.mapper.convertValue(extra, Species.class));
+            }
+        } catch (IllegalArgumentException e) {
+            throw new EvosimException("Couldn't load variable: extraSpecies.", e);
+        }
+
+        return species;
+    }
+
+    public void setExtraSpecies(final List<Species> newExtraSpecies) {
+        this.objectVariables.replace("extraSpecies", new ArrayList<Object>(newExtraSpecies));
+    }
+
+    public List<List<String>> getInteractions() throws EvosimException {
+        return toList(getObjectValue("interactions")).stream()
+            .map(pair -> toList(pair).stream().map(name -> (String) name).toList())
+            .toList();
+    }
+
+    public void setInteractions(final List<List<String>> newInteractions) {
+        this.objectVariables.replace("interactions", newInteractions);
+    }
+
+    private static List<?> toList(final Object list) {
+        return list instanceof JSONArray ? ((JSONArray) list).toList() : (List<?>) list;
+    }
+
+    public int getSenseTileColumns() throws EvosimException {
+        return getIntegerValue("senseTileColumns");
+    }
+
+    public void setSenseTileColumns(final int newSenseTileColumns) {
+        this.numberVariables.replace("senseTileColumns", newSenseTileColumns);
+    }
+
+    public int getSenseTileRows() throws EvosimException {
+        return getIntegerValue("senseTileRows");
+    }
+
+    public void setSenseTileRows(final int newSenseTileRows) {
+        this.numberVariables.replace("senseTileRows", newSenseTileRows);
+    }
+
+    public DegradationPolicy getDegradationPolicy() throws EvosimException {
+        try {
+            return DegradationPolicy.valueOf(getObjectValue("degradationPolicy"));
+        } catch (IllegalArgumentException e) {
+            throw new EvosimException("Couldn't load variable: degradationPolicy.", e);
+        }
+    }
+
+    public void setDegradationPolicy(final DegradationPolicy newDegradationPolicy) {
+        this.objectVariables.replace("degradationPolicy", newDegradationPolicy.name());
+    }
+
+    public int getOverrunTolerance() throws EvosimException {
+        return getIntegerValue("overrunTolerance");
+    }
+
+    public void setOverrunTolerance(final int newOverrunTolerance) {
+        this.numberVariables.replace("overrunTolerance", newOverrunTolerance);
+    }
+
+    public int getDegradationMaxLevel() throws EvosimException {
+        return getIntegerValue("degradationMaxLevel");
+    }
+
+    public void setDegradationMaxLevel(final int newDegradationMaxLevel) {
+        this.numberVariables.replace("degradationMaxLevel", newDegradationMaxLevel);
+    }
+
+    public int getIslandCount() throws EvosimException {
+        return getIntegerValue("islandCount");
+    }
+
+    public void setIslandCount(final int newIslandCount) {
+        this.numberVariables.replace("islandCount", newIslandCount);
+    }
+
+    public IslandTopology getIslandTopology() throws EvosimException {
+        try {
+            return IslandTopology.valueOf(getObjectValue("islandTopology"));
+        } catch (IllegalArgumentException e) {
+            throw new EvosimException("Couldn't load variable: islandTopology.", e);
+        }
+    }
+
+    public void setIslandTopology(final IslandTopology newIslandTopology) {
+        this.objectVariables.replace("islandTopology", newIslandTopology.name());
+    }
+
+    public int getIslandMigrationInterval() throws EvosimException {
+        return getIntegerValue("islandMigrationInterval");
+    }
+
+    public void setIslandMigrationInterval(final int newIslandMigrationInterval) {
+        this.numberVariables.replace("islandMigrationInterval", newIslandMigrationInterval);
+    }
+
+    public int getIslandMigrationRate() throws EvosimException {
+        return getIntegerValue("islandMigrationRate");
+    }
+
+    public void setIslandMigrationRate(final int newIslandMigrationRate) {
+        this.numberVariables.replace("islandMigrationRate", newIslandMigrationRate);
+    }
+
+    public boolean isIslandMigrateTop() throws EvosimException {
+        return getObjectValue("islandMigrateTop");
+    }
+
+    public void setIslandMigrateTop(final boolean newIslandMigrateTop) {
+        this.objectVariables.replace("islandMigrateTop", newIslandMigrateTop);
+    }
+
     private int getIntegerValue(final String variable) throws EvosimException {
         try {
             return this.numberVariables.get(variable).intValue();
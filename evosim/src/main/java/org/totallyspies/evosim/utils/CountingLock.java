@@ -0,0 +1,109 @@
+package org.totallyspies.evosim.utils;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.Lock;
+
+/**
+ * Lock recording its acquisitions, and those that found the lock taken, into a
+ * {@link LockStats}.
+ *
+ * @author agent
+ */
+final class CountingLock implements Lock {
+
+    /**
+     * The counted lock.
+     */
+    private final Lock lock;
+
+    /**
+     * Whether the lock is fair. A fair lock is tried without barging ahead of its queue.
+     */
+    private final boolean fair;
+
+    /**
+     * Whether the lock is a write lock.
+     */
+    private final boolean write;
+
+    /**
+     * Counters the acquisitions are recorded to.
+     */
+    private final LockStats stats;
+
+    /**
+     * Wraps a lock.
+     *
+     * @param newLock  the counted lock
+     * @param isFair   whether the lock is fair
+     * @param isWrite  whether the lock is a write lock
+     * @param newStats counters the acquisitions are recorded to
+     */
+    CountingLock(final Lock newLock, final boolean isFair, final boolean isWrite,
+                 final LockStats newStats) {
+        this.lock = newLock;
+        this.fair = isFair;
+        this.write = isWrite;
+        this.stats = newStats;
+    }
+
+    @Override
+    public void lock() {
+        if (!this.tryWithoutWaiting()) {
+            this.stats.recordContention(this.write);
+            this.lock.lock();
+        }
+        this.stats.recordAcquisition(this.write);
+    }
+
+    @Override
+    public void lockInterruptibly() throws InterruptedException {
+        if (!this.tryWithoutWaiting()) {
+            this.stats.recordContention(this.write);
+            this.lock.lockInterruptibly();
+        }
+        this.stats.recordAcquisition(this.write);
+    }
+
+    @Override
+    public boolean tryLock() {
+        final boolean acquired = this.lock.tryLock();
+        if (acquired) {
+            this.stats.recordAcquisition(this.write);
+        }
+        return acquired;
+    }
+
+    @Override
+    public boolean tryLock(final long time, final TimeUnit unit) throws InterruptedException {
+        final boolean acquired = this.lock.tryLock(time, unit);
+        if (acquired) {
+            this.stats.recordAcquisition(this.write);
+        }
+        return acquired;
+    }
+
+    @Override
+    public void unlock() {
+        this.lock.unlock();
+    }
+
+    @Override
+    public Condition newCondition() {
+        return this.lock.newCondition();
+    }
+
+    private boolean tryWithoutWaiting() {
+        if (!this.fair) {
+            return this.lock.tryLock();
+        }
+
+        try {
+            return this.lock.tryLock(0, TimeUnit.NANOSECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+}
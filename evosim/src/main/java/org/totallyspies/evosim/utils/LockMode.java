@@ -0,0 +1,26 @@
+package org.totallyspies.evosim.utils;
+
+/**
+ * Kind of lock protecting a {@link ReadWriteLockedItem}.
+ *
+ * @author agent
+ */
+public enum LockMode {
+
+    /**
+     * Reentrant read-write lock granting the lock in arrival order. Never starves a thread but
+     * queues every acquisition.
+     */
+    FAIR,
+
+    /**
+     * Reentrant read-write lock letting threads barge ahead of the queue.
+     */
+    UNFAIR,
+
+    /**
+     * Non-reentrant stamped lock, letting readers run optimistically without acquiring anything
+     * and retry under the read lock if a writer got in meanwhile.
+     */
+    STAMPED
+}
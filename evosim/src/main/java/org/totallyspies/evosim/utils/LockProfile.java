@@ -0,0 +1,293 @@
+package org.totallyspies.evosim.utils;
+
+/**
+ * Time spent waiting for and holding a group of locks over a period, usually a tick. Locks are
+ * grouped by class, such as the locks of the entities of the chunks, and by region, such as the
+ * chunk they protect. Waits and holds get a histogram per class and a total per region.
+ * <p>
+ * Histograms have {@link #BUCKET_COUNT} buckets of powers of two: a duration of {@code n}
+ * nanoseconds falls in bucket {@code k} when {@code 2^(k-1) <= n < 2^k}, or in bucket 0 when it is
+ * 0.
+ * </p>
+ *
+ * @author agent
+ */
+public final class LockProfile {
+
+    /**
+     * Number of buckets of the histograms, the last one holding every longer duration.
+     */
+    public static final int BUCKET_COUNT = 40;
+
+    /**
+     * Number of lock classes.
+     */
+    private final int classCount;
+
+    /**
+     * Number of regions.
+     */
+    private final int regionCount;
+
+    /**
+     * Number of acquisitions of each class.
+     */
+    private final long[] classAcquisitions;
+
+    /**
+     * Total wait of each class in nanoseconds.
+     */
+    private final long[] classWaitNanos;
+
+    /**
+     * Total hold of each class in nanoseconds.
+     */
+    private final long[] classHoldNanos;
+
+    /**
+     * Wait histogram of each class, {@link #BUCKET_COUNT} buckets after another.
+     */
+    private final long[] waitHistograms;
+
+    /**
+     * Hold histogram of each class, {@link #BUCKET_COUNT} buckets after another.
+     */
+    private final long[] holdHistograms;
+
+    /**
+     * Number of acquisitions in each region.
+     */
+    private final long[] regionAcquisitions;
+
+    /**
+     * Total wait in each region in nanoseconds.
+     */
+    private final long[] regionWaitNanos;
+
+    /**
+     * Total hold in each region in nanoseconds.
+     */
+    private final long[] regionHoldNanos;
+
+    /**
+     * Constructs an empty profile.
+     *
+     * @param newClassCount  number of lock classes
+     * @param newRegionCount number of regions
+     */
+    LockProfile(final int newClassCount, final int newRegionCount) {
+        this.classCount = newClassCount;
+        this.regionCount = newRegionCount;
+        this.classAcquisitions = new long[newClassCount];
+        this.classWaitNanos = new long[newClassCount];
+        this.classHoldNanos = new long[newClassCount];
+        this.waitHistograms = new long[newClassCount * BUCKET_COUNT];
+        this.holdHistograms = new long[newClassCount * BUCKET_COUNT];
+        this.regionAcquisitions = new long[newRegionCount];
+        this.regionWaitNanos = new long[newRegionCount];
+        this.regionHoldNanos = new long[newRegionCount];
+    }
+
+    /**
+     * Gets the bucket of a duration.
+     *
+     * @param nanos the duration in nanoseconds
+     * @return the index of its bucket
+     */
+    public static int bucket(final long nanos) {
+        final int bits = Long.SIZE - Long.numberOfLeadingZeros(Math.max(0, nanos));
+        return Math.min(BUCKET_COUNT - 1, bits);
+    }
+
+    /**
+     * Records the acquisition of a lock.
+     *
+     * @param lockClass class of the lock
+     * @param region    region of the lock
+     * @param waitNanos nanoseconds waited for the lock
+     */
+    void recordWait(final int lockClass, final int region, final long waitNanos) {
+        ++this.classAcquisitions[lockClass];
+        this.classWaitNanos[lockClass] += waitNanos;
+        ++this.waitHistograms[lockClass * BUCKET_COUNT + bucket(waitNanos)];
+        ++this.regionAcquisitions[region];
+        this.regionWaitNanos[region] += waitNanos;
+    }
+
+    /**
+     * Records the release of a lock.
+     *
+     * @param lockClass class of the lock
+     * @param region    region of the lock
+     * @param holdNanos nanoseconds the lock was held
+     */
+    void recordHold(final int lockClass, final int region, final long holdNanos) {
+        this.classHoldNanos[lockClass] += holdNanos;
+        ++this.holdHistograms[lockClass * BUCKET_COUNT + bucket(holdNanos)];
+        this.regionHoldNanos[region] += holdNanos;
+    }
+
+    /**
+     * Adds another profile to this one, then empties the other one.
+     *
+     * @param other the profile to drain
+     */
+    void drain(final LockProfile other) {
+        addAndClear(this.classAcquisitions, other.classAcquisitions);
+        addAndClear(this.classWaitNanos, other.classWaitNanos);
+        addAndClear(this.classHoldNanos, other.classHoldNanos);
+        addAndClear(this.waitHistograms, other.waitHistograms);
+        addAndClear(this.holdHistograms, other.holdHistograms);
+        addAndClear(this.regionAcquisitions, other.regionAcquisitions);
+        addAndClear(this.regionWaitNanos, other.regionWaitNanos);
+        addAndClear(this.regionHoldNanos, other.regionHoldNanos);
+    }
+
+    private static void addAndClear(final long[] sums, final long[] values) {
+        for (int i = 0; i < sums.length; ++i) {
+            sums[i] += values[i];
+            values[i] = 0;
+        }
+    }
+
+    /**
+     * Gets the number of lock classes.
+     *
+     * @return the number of lock classes
+     */
+    public int getClassCount() {
+        return this.classCount;
+    }
+
+    /**
+     * Gets the number of regions.
+     *
+     * @return the number of regions
+     */
+    public int getRegionCount() {
+        return this.regionCount;
+    }
+
+    /**
+     * Gets the number of acquisitions of a class of locks.
+     *
+     * @param lockClass the class of the locks
+     * @return the number of acquisitions
+     */
+    public long getAcquisitions(final int lockClass) {
+        return this.classAcquisitions[lockClass];
+    }
+
+    /**
+     * Gets the time spent waiting for a class of locks.
+     *
+     * @param lockClass the class of the locks
+     * @return the total wait in nanoseconds
+     */
+    public long getWaitNanos(final int lockClass) {
+        return this.classWaitNanos[lockClass];
+    }
+
+    /**
+     * Gets the time a class of locks was held.
+     *
+     * @param lockClass the class of the locks
+     * @return the total hold in nanoseconds
+     */
+    public long getHoldNanos(final int lockClass) {
+        return this.classHoldNanos[lockClass];
+    }
+
+    /**
+     * Gets the number of waits for a class of locks that fell in a bucket.
+     *
+     * @param lockClass the class of the locks
+     * @param bucket    the bucket
+     * @return the number of waits in the bucket
+     */
+    public long getWaitCount(final int lockClass, final int bucket) {
+        return this.waitHistograms[lockClass * BUCKET_COUNT + bucket];
+    }
+
+    /**
+     * Gets the number of holds of a class of locks that fell in a bucket.
+     *
+     * @param lockClass the class of the locks
+     * @param bucket    the bucket
+     * @return the number of holds in the bucket
+     */
+    public long getHoldCount(final int lockClass, final int bucket) {
+        return this.holdHistograms[lockClass * BUCKET_COUNT + bucket];
+    }
+
+    /**
+     * Gets an upper bound of a percentile of the waits for a class of locks.
+     *
+     * @param lockClass the class of the locks
+     * @param fraction  the percentile, between 0 and 1
+     * @return the upper bound of the bucket of the percentile in nanoseconds
+     */
+    public long getWaitPercentileNanos(final int lockClass, final double fraction) {
+        return percentile(this.waitHistograms, lockClass, fraction);
+    }
+
+    /**
+     * Gets an upper bound of a percentile of the holds of a class of locks.
+     *
+     * @param lockClass the class of the locks
+     * @param fraction  the percentile, between 0 and 1
+     * @return the upper bound of the bucket of the percentile in nanoseconds
+     */
+    public long getHoldPercentileNanos(final int lockClass, final double fraction) {
+        return percentile(this.holdHistograms, lockClass, fraction);
+    }
+
+    private static long percentile(final long[] histograms, final int lockClass,
+                                   final double fraction) {
+        final int offset = lockClass * BUCKET_COUNT;
+        long total = 0;
+        for (int i = 0; i < BUCKET_COUNT; ++i) {
+            total += histograms[offset + i];
+        }
+
+        final double rank = fraction * total;
+        long seen = 0;
+        for (int i = 0; i < BUCKET_COUNT; ++i) {
+            seen += histograms[offset + i];
+            if (seen > 0 && seen >= rank) {
+                return 1L << i;
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * Gets the number of acquisitions of the locks of a region.
+     *
+     * @param region the region
+     * @return the number of acquisitions
+     */
+    public long getRegionAcquisitions(final int region) {
+        return this.regionAcquisitions[region];
+    }
+
+    /**
+     * Gets the time spent waiting for the locks of a region.
+     *
+     * @param region the region
+     * @return the total wait in nanoseconds
+     */
+    public long getRegionWaitNanos(final int region) {
+        return this.regionWaitNanos[region];
+    }
+
+    /**
+     * Gets the time the locks of a region were held.
+     *
+     * @param region the region
+     * @return the total hold in nanoseconds
+     */
+    public long getRegionHoldNanos(final int region) {
+        return this.regionHoldNanos[region];
+    }
+}
@@ -0,0 +1,166 @@
+package org.totallyspies.evosim.utils;
+
+import java.util.Arrays;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.locks.Lock;
+
+/**
+ * Measures how long threads wait for and hold a group of locks. Each thread records into its own
+ * {@link LockProfile}, so recording never contends, and the profiles of every thread are merged
+ * once per tick by {@link #merge()}. Merging should happen while the profiled threads are idle,
+ * otherwise a few records of a busy thread may be lost or counted in the next tick.
+ *
+ * @author agent
+ */
+public final class LockProfiler {
+
+    /**
+     * Number of lock classes.
+     */
+    private final int classCount;
+
+    /**
+     * Number of regions.
+     */
+    private final int regionCount;
+
+    /**
+     * Profile of every thread that ever acquired a profiled lock.
+     */
+    private final Queue<ThreadProfile> threadProfiles;
+
+    /**
+     * Profile of the current thread.
+     */
+    private final ThreadLocal<ThreadProfile> threadProfile;
+
+    /**
+     * Constructs a profiler.
+     *
+     * @param newClassCount  number of lock classes
+     * @param newRegionCount number of regions
+     */
+    public LockProfiler(final int newClassCount, final int newRegionCount) {
+        this.classCount = newClassCount;
+        this.regionCount = newRegionCount;
+        this.threadProfiles = new ConcurrentLinkedQueue<>();
+        this.threadProfile = ThreadLocal.withInitial(() -> {
+            final ThreadProfile profile = new ThreadProfile(
+                new LockProfile(this.classCount, this.regionCount)
+            );
+            this.threadProfiles.add(profile);
+            return profile;
+        });
+    }
+
+    /**
+     * Wraps a lock so that it records into this profiler.
+     *
+     * @param lock      the lock
+     * @param lockClass class of the lock
+     * @param region    region of the lock
+     * @return the profiled lock
+     */
+    Lock wrap(final Lock lock, final int lockClass, final int region) {
+        return new ProfiledLock(lock, this, lockClass, region);
+    }
+
+    /**
+     * Gets the profile of the current thread.
+     *
+     * @return the profile of the current thread
+     */
+    ThreadProfile current() {
+        return this.threadProfile.get();
+    }
+
+    /**
+     * Merges the profiles of every thread into a new profile, emptying them.
+     *
+     * @return the profile of every thread since the last merge
+     */
+    public LockProfile merge() {
+        final LockProfile merged = new LockProfile(this.classCount, this.regionCount);
+        for (final ThreadProfile profile : this.threadProfiles) {
+            merged.drain(profile.getProfile());
+        }
+        return merged;
+    }
+
+    /**
+     * Profile of a single thread, along with the times it acquired the locks it holds.
+     */
+    static final class ThreadProfile {
+
+        /**
+         * Initial capacity of the stack of acquisition times.
+         */
+        private static final int INITIAL_DEPTH = 4;
+
+        /**
+         * Records of the thread.
+         */
+        private final LockProfile profile;
+
+        /**
+         * Times the held locks were acquired, the last acquired on top. Locks are released in
+         * the reverse order they were acquired.
+         */
+        private long[] heldSince;
+
+        /**
+         * Number of locks held.
+         */
+        private int depth;
+
+        /**
+         * Constructs the profile of a thread.
+         *
+         * @param newProfile the records of the thread
+         */
+        ThreadProfile(final LockProfile newProfile) {
+            this.profile = newProfile;
+            this.heldSince = new long[INITIAL_DEPTH];
+        }
+
+        /**
+         * Gets the records of the thread.
+         *
+         * @return the records of the thread
+         */
+        LockProfile getProfile() {
+            return this.profile;
+        }
+
+        /**
+         * Records the acquisition of a lock by the thread.
+         *
+         * @param lockClass class of the lock
+         * @param region    region of the lock
+         * @param waitNanos nanoseconds waited for the lock
+         * @param time      time the lock was acquired at
+         */
+        void acquired(final int lockClass, final int region, final long waitNanos,
+                      final long time) {
+            this.profile.recordWait(lockClass, region, waitNanos);
+            if (this.depth == this.heldSince.length) {
+                this.heldSince = Arrays.copyOf(this.heldSince, this.depth * 2);
+            }
+            this.heldSince[this.depth++] = time;
+        }
+
+        /**
+         * Records the release of the last lock acquired by the thread.
+         *
+         * @param lockClass class of the lock
+         * @param region    region of the lock
+         * @param time      time the lock was released at
+         */
+        void released(final int lockClass, final int region, final long time) {
+            if (this.depth > 0) {
+                this.profile.recordHold(lockClass, region, time - this.heldSince[--this.depth]);
+            }
+        }
+    }
+}
@@ -0,0 +1,146 @@
+package org.totallyspies.evosim.utils;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counters of the acquisitions of a group of locks, telling how often threads had to wait for
+ * each other. Shared by every {@link ReadWriteLockedItem} of a simulation so that lock modes can
+ * be compared.
+ *
+ * @author agent
+ */
+public final class LockStats {
+
+    /**
+     * Number of read locks acquired.
+     */
+    private final LongAdder readAcquisitions = new LongAdder();
+
+    /**
+     * Number of read locks that were not free when asked for.
+     */
+    private final LongAdder readContentions = new LongAdder();
+
+    /**
+     * Number of write locks acquired.
+     */
+    private final LongAdder writeAcquisitions = new LongAdder();
+
+    /**
+     * Number of write locks that were not free when asked for.
+     */
+    private final LongAdder writeContentions = new LongAdder();
+
+    /**
+     * Number of optimistic reads that completed without taking any lock.
+     */
+    private final LongAdder optimisticReads = new LongAdder();
+
+    /**
+     * Number of optimistic reads invalidated by a writer and retried under the read lock.
+     */
+    private final LongAdder optimisticRetries = new LongAdder();
+
+    /**
+     * Gets the number of read locks acquired.
+     *
+     * @return the number of read locks acquired
+     */
+    public long getReadAcquisitions() {
+        return this.readAcquisitions.sum();
+    }
+
+    /**
+     * Gets the number of read locks that were not free when asked for.
+     *
+     * @return the number of contended read locks
+     */
+    public long getReadContentions() {
+        return this.readContentions.sum();
+    }
+
+    /**
+     * Gets the number of write locks acquired.
+     *
+     * @return the number of write locks acquired
+     */
+    public long getWriteAcquisitions() {
+        return this.writeAcquisitions.sum();
+    }
+
+    /**
+     * Gets the number of write locks that were not free when asked for.
+     *
+     * @return the number of contended write locks
+     */
+    public long getWriteContentions() {
+        return this.writeContentions.sum();
+    }
+
+    /**
+     * Gets the number of optimistic reads that completed without taking any lock.
+     *
+     * @return the number of optimistic reads
+     */
+    public long getOptimisticReads() {
+        return this.optimisticReads.sum();
+    }
+
+    /**
+     * Gets the number of optimistic reads that had to be retried under the read lock.
+     *
+     * @return the number of retried optimistic reads
+     */
+    public long getOptimisticRetries() {
+        return this.optimisticRetries.sum();
+    }
+
+    /**
+     * Records the acquisition of a lock.
+     *
+     * @param isWrite whether the write lock was acquired
+     */
+    void recordAcquisition(final boolean isWrite) {
+        (isWrite ? this.writeAcquisitions : this.readAcquisitions).increment();
+    }
+
+    /**
+     * Records a lock found taken, before waiting for it.
+     *
+     * @param isWrite whether the write lock was asked for
+     */
+    void recordContention(final boolean isWrite) {
+        (isWrite ? this.writeContentions : this.readContentions).increment();
+    }
+
+    /**
+     * Records an optimistic read.
+     *
+     * @param isRetried whether a writer invalidated it
+     */
+    void recordOptimisticRead(final boolean isRetried) {
+        (isRetried ? this.optimisticRetries : this.optimisticReads).increment();
+    }
+
+    /**
+     * Sets every counter back to zero.
+     */
+    public void reset() {
+        this.readAcquisitions.reset();
+        this.readContentions.reset();
+        this.writeAcquisitions.reset();
+        this.writeContentions.reset();
+        this.optimisticReads.reset();
+        this.optimisticRetries.reset();
+    }
+
+    @Override
+    public String toString() {
+        return String.format(
+            "reads %d (%d contended), writes %d (%d contended), optimistic %d (%d retried)",
+            this.getReadAcquisitions(), this.getReadContentions(),
+            this.getWriteAcquisitions(), this.getWriteContentions(),
+            this.getOptimisticReads(), this.getOptimisticRetries()
+        );
+    }
+}
@@ -0,0 +1,99 @@
+package org.totallyspies.evosim.utils;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.Lock;
+
+/**
+ * Lock recording how long it was waited for and held into a {@link LockProfiler}.
+ *
+ * @author agent
+ */
+final class ProfiledLock implements Lock {
+
+    /**
+     * The profiled lock.
+     */
+    private final Lock lock;
+
+    /**
+     * Profiler the waits and holds are recorded to.
+     */
+    private final LockProfiler profiler;
+
+    /**
+     * Class of the lock.
+     */
+    private final int lockClass;
+
+    /**
+     * Region of the lock.
+     */
+    private final int region;
+
+    /**
+     * Wraps a lock.
+     *
+     * @param newLock      the profiled lock
+     * @param newProfiler  profiler the waits and holds are recorded to
+     * @param newLockClass class of the lock
+     * @param newRegion    region of the lock
+     */
+    ProfiledLock(final Lock newLock, final LockProfiler newProfiler, final int newLockClass,
+                 final int newRegion) {
+        this.lock = newLock;
+        this.profiler = newProfiler;
+        this.lockClass = newLockClass;
+        this.region = newRegion;
+    }
+
+    @Override
+    public void lock() {
+        final long start = System.nanoTime();
+        this.lock.lock();
+        this.acquired(start);
+    }
+
+    @Override
+    public void lockInterruptibly() throws InterruptedException {
+        final long start = System.nanoTime();
+        this.lock.lockInterruptibly();
+        this.acquired(start);
+    }
+
+    @Override
+    public boolean tryLock() {
+        final long start = System.nanoTime();
+        final boolean acquired = this.lock.tryLock();
+        if (acquired) {
+            this.acquired(start);
+        }
+        return acquired;
+    }
+
+    @Override
+    public boolean tryLock(final long time, final TimeUnit unit) throws InterruptedException {
+        final long start = System.nanoTime();
+        final boolean acquired = this.lock.tryLock(time, unit);
+        if (acquired) {
+            this.acquired(start);
+        }
+        return acquired;
+    }
+
+    @Override
+    public void unlock() {
+        this.profiler.current().released(this.lockClass, this.region, System.nanoTime());
+        this.lock.unlock();
+    }
+
+    @Override
+    public Condition newCondition() {
+        return this.lock.newCondition();
+    }
+
+    private void acquired(final long start) {
+        final long now = System.nanoTime();
+        this.profiler.current().acquired(this.lockClass, this.region, now - start, now);
+    }
+}
@@ -2,6 +2,8 @@ package org.totallyspies.evosim.utils;
 
 import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.concurrent.locks.StampedLock;
+import java.util.function.Function;
 
 /**
  * Read and write lock wrapped around a value.
@@ -11,9 +13,25 @@ import java.util.concurrent.locks.ReentrantReadWriteLock;
 public class ReadWriteLockedItem<T> {
 
   /**
-   * Lock used to protect the item.
+   * Lock acquired to read the item.
    */
-  private final ReentrantReadWriteLock lock;
+  private final Lock readLock;
+
+  /**
+   * Lock acquired to write the item.
+   */
+  private final Lock writeLock;
+
+  /**
+   * Lock behind both locks in {@link LockMode#STAMPED} mode, used for optimistic reads, or
+   * {@code null} in other modes.
+   */
+  private final StampedLock stampedLock;
+
+  /**
+   * Counters of the acquisitions, or {@code null} if they are not counted.
+   */
+  private final LockStats stats;
 
   /**
    * The item to be protected by the lock.
@@ -28,11 +46,62 @@ public class ReadWriteLockedItem<T> {
   }
 
   /**
-   * Creates a locked item with an initial value.
+   * Creates a locked item with an initial value, protected by a fair lock.
    * @param newItem The initial value of the held item.
    */
   public ReadWriteLockedItem(final T newItem) {
-    this.lock = new ReentrantReadWriteLock(true);
+    this(newItem, LockMode.FAIR, null);
+  }
+
+  /**
+   * Creates a locked item with an initial value.
+   * @param newItem The initial value of the held item.
+   * @param mode The kind of lock protecting the item.
+   * @param newStats Counters to record the acquisitions to, or {@code null}.
+   */
+  public ReadWriteLockedItem(final T newItem, final LockMode mode, final LockStats newStats) {
+    this(newItem, mode, newStats, null, 0, 0);
+  }
+
+  /**
+   * Creates a locked item with an initial value, whose locks may be profiled.
+   * @param newItem The initial value of the held item.
+   * @param mode The kind of lock protecting the item.
+   * @param newStats Counters to record the acquisitions to, or {@code null}.
+   * @param profiler Profiler to record the waits and holds to, or {@code null}.
+   * @param lockClass The class of the locks in the profiler.
+   * @param region The region of the locks in the profiler.
+   */
+  public ReadWriteLockedItem(final T newItem, final LockMode mode, final LockStats newStats,
+                             final LockProfiler profiler, final int lockClass,
+                             final int region) {
+    Lock read;
+    Lock write;
+
+    if (mode == LockMode.STAMPED) {
+      this.stampedLock = new StampedLock();
+      read = this.stampedLock.asReadLock();
+      write = this.stampedLock.asWriteLock();
+    } else {
+      final ReentrantReadWriteLock lock = new ReentrantReadWriteLock(mode == LockMode.FAIR);
+      this.stampedLock = null;
+      read = lock.readLock();
+      write = lock.writeLock();
+    }
+
+    final boolean fair = mode == LockMode.FAIR;
+    if (newStats != null) {
+      read = new CountingLock(read, fair, false, newStats);
+      write = new CountingLock(write, fair, true, newStats);
+    }
+    if (profiler != null) {
+      read = profiler.wrap(read, lockClass, region);
+      write = profiler.wrap(write, lockClass, region);
+    }
+
+    this.readLock = read;
+    this.writeLock = write;
+    this.stats = newStats;
     this.item = newItem;
   }
 
@@ -41,7 +110,7 @@ public class ReadWriteLockedItem<T> {
    * @return The read lock
    */
   public Lock readLock() {
-    return this.lock.readLock();
+    return this.readLock;
   }
 
   /**
@@ -49,7 +118,57 @@ public class ReadWriteLockedItem<T> {
    * @return The write lock
    */
   public Lock writeLock() {
-    return this.lock.writeLock();
+    return this.writeLock;
+  }
+
+  /**
+   * Tells whether {@link #read} tries without locking first.
+   * @return Whether reads are optimistic.
+   */
+  public boolean isOptimistic() {
+    return this.stampedLock != null;
+  }
+
+  /**
+   * Reads the held value. In {@link LockMode#STAMPED} mode the reader first runs without any
+   * lock, and runs again under the {@link #readLock} if a writer got in meanwhile. It must then
+   * have no side effect and put up with an inconsistent value, whose exceptions are ignored. In
+   * other modes it only runs under the read lock.
+   * @param reader The function reading the value.
+   * @param <R> The type of the result.
+   * @return The result of the last run of the reader.
+   */
+  public <R> R read(final Function<? super T, ? extends R> reader) {
+    if (this.stampedLock != null) {
+      final long stamp = this.stampedLock.tryOptimisticRead();
+      if (stamp != 0L) {
+        R result = null;
+        RuntimeException failure = null;
+        try {
+          result = reader.apply(this.item);
+        } catch (RuntimeException e) {
+          failure = e;
+        }
+
+        final boolean valid = this.stampedLock.validate(stamp);
+        if (this.stats != null) {
+          this.stats.recordOptimisticRead(!valid);
+        }
+        if (valid) {
+          if (failure != null) {
+            throw failure;
+          }
+          return result;
+        }
+      }
+    }
+
+    this.readLock.lock();
+    try {
+      return reader.apply(this.item);
+    } finally {
+      this.readLock.unlock();
+    }
   }
 
   /**
@@ -18,4 +18,51 @@ public final class Rng {
      */
     public static final Random RNG = new Random();
 
+    /**
+     * Random bound to the current thread in place of {@link #RNG}, so that the values of a
+     * simulation can be drawn from its own seeded random.
+     */
+    private static final ThreadLocal<Random> THREAD_RANDOM = new ThreadLocal<>();
+
+    /**
+     * Gets the random bound to the current thread, or {@link #RNG} if none is.
+     *
+     * @return the random of the current thread
+     */
+    public static Random getRandom() {
+        final Random bound = Rng.THREAD_RANDOM.get();
+        return bound != null ? bound : Rng.RNG;
+    }
+
+    /**
+     * Binds a random to the current thread, or unbinds it when null.
+     *
+     * @param random the random to bind
+     */
+    public static void setThreadRandom(final Random random) {
+        if (random == null) {
+            Rng.THREAD_RANDOM.remove();
+        } else {
+            Rng.THREAD_RANDOM.set(random);
+        }
+    }
+
+    /**
+     * Wraps a task so that it runs with a random bound to its thread.
+     *
+     * @param random the random to bind
+     * @param task   the task to wrap
+     * @return the wrapped task
+     */
+    public static Runnable bind(final Random random, final Runnable task) {
+        return () -> {
+            Rng.setThreadRandom(random);
+            try {
+                task.run();
+            } finally {
+                Rng.setThreadRandom(null);
+            }
+        };
+    }
+
 }
@@ -0,0 +1,59 @@
+package org.totallyspies.evosim.cluster;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+import org.totallyspies.evosim.simulation.Partition;
+
+class ClusterCoordinatorTest {
+  @Test
+  void partitionFindsOwnersAndBorders() {
+    final Partition partition = new Partition(100, 50, 2, 1);
+
+    assertEquals(0, partition.owner(10, 10));
+    assertEquals(1, partition.owner(60, 10));
+    assertEquals(1, partition.owner(100, 50));
+    assertTrue(partition.isOnBorder(0, 45, 10, 10));
+    assertFalse(partition.isOnBorder(0, 5, 10, 10));
+    assertTrue(partition.isNear(1, 45, 10, 10));
+  }
+
+  @Test
+  void enginesRunInLockstep() throws Exception {
+    try (ClusterCoordinator coordinator = new ClusterCoordinator(
+        new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 2, 1, 5)) {
+      final String address = coordinator.getAddress();
+      final List<Thread> engines = new ArrayList<>();
+
+      for (int i = 0; i < 2; ++i) {
+        final Thread engine = new Thread(() -> {
+          try (ClusterEngine clusterEngine =
+                   new ClusterEngine(Connection.parseAddress(address), 1)) {
+            clusterEngine.run();
+          } catch (Exception e) {
+            throw new RuntimeException(e);
+          }
+        });
+        engine.start();
+        engines.add(engine);
+      }
+
+      coordinator.acceptEngines();
+      coordinator.run(10);
+
+      assertEquals(10, coordinator.getTickCount());
+      assertFalse(coordinator.getLastSnapshot().isEmpty());
+
+      coordinator.close();
+      for (final Thread engine : engines) {
+        engine.join();
+      }
+    }
+  }
+}
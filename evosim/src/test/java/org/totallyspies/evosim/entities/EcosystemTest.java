@@ -0,0 +1,26 @@
+package org.totallyspies.evosim.entities;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+
+class EcosystemTest {
+  private static List<Species> species(final int count) {
+    final List<Species> list = new ArrayList<>();
+    for (int i = 0; i < count; ++i) {
+      list.add(new Species("s" + i, 1, 1, 1, "#ffffff", 0, 0, 0, false, 0, 0));
+    }
+    return list;
+  }
+
+  @Test
+  void speciesBeyondTheBitsOfASetAreRejected() {
+    assertEquals(Ecosystem.MAX_SPECIES,
+        new Ecosystem(species(Ecosystem.MAX_SPECIES), List.of()).size());
+    assertThrows(IllegalArgumentException.class,
+        () -> new Ecosystem(species(Ecosystem.MAX_SPECIES + 1), List.of()));
+  }
+}
@@ -1,6 +1,89 @@
 package org.totallyspies.evosim.entities;
 
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+import org.totallyspies.evosim.geometry.Point;
+import org.totallyspies.evosim.simulation.Simulation;
+import org.totallyspies.evosim.utils.Configuration;
+
 class EntityTest {
+  @Test
+  void preyIsEatenOnceByTheFirstPredatorReachingIt() throws Exception {
+    final Configuration config = Configuration.getConfiguration();
+    final Simulation simulation = new Simulation(
+        config.getMapSizeX(), config.getMapSizeY(), config.getGridSize(), false
+    );
+    final Ecosystem ecosystem = simulation.getEcosystem();
+    final Entity prey = ecosystem.create(
+        Ecosystem.PREY_TAG, simulation, 0, new Point(100, 100), 0);
+    final Entity first = ecosystem.create(
+        Ecosystem.PREDATOR_TAG, simulation, 0, new Point(101, 100), 0);
+    final Entity second = ecosystem.create(
+        Ecosystem.PREDATOR_TAG, simulation, 0, new Point(99, 100), 0);
+    final double gain = ecosystem.getSpecies(Ecosystem.PREDATOR_TAG).getEatSplitEnergyGain();
+
+    first.relateTo(prey);
+    second.relateTo(prey);
+    prey.relateTo(first);
+    prey.relateTo(second);
+    first.relateTo(prey);
+
+    assertTrue(prey.isDead());
+    assertEquals(gain, first.getSplitEnergy() - second.getSplitEnergy(), 1e-9);
+    simulation.shutdown();
+  }
+
+  @Test
+  void entitiesCollideWhenNotSensing() throws Exception {
+    final Configuration config = Configuration.getConfiguration();
+    final Simulation simulation = new Simulation(
+        config.getMapSizeX(), config.getMapSizeY(), config.getGridSize(), false
+    );
+    final Ecosystem ecosystem = simulation.getEcosystem();
+    final Entity prey = ecosystem.create(
+        Ecosystem.PREY_TAG, simulation, 0, new Point(100, 100), 0);
+    final Entity predator = ecosystem.create(
+        Ecosystem.PREDATOR_TAG, simulation, 0, new Point(101, 100), 0);
+
+    prey.relateTo(predator, false);
+
+    assertTrue(prey.isDead());
+    simulation.shutdown();
+  }
+
+  @Test
+  void ghostsAreNeverEatenAndReportTheirMeals() throws Exception {
+    final Configuration config = Configuration.getConfiguration();
+    final Simulation simulation = new Simulation(
+        config.getMapSizeX(), config.getMapSizeY(), config.getGridSize(), false
+    );
+    final Ecosystem ecosystem = simulation.getEcosystem();
+    final Entity prey = ecosystem.create(
+        Ecosystem.PREY_TAG, simulation, 0, new Point(100, 100), 0);
+    final Entity predator = ecosystem.create(
+        Ecosystem.PREDATOR_TAG, simulation, 0, new Point(101, 100), 0);
+    final Entity ghostPrey = ecosystem.create(
+        Ecosystem.PREY_TAG, simulation, 0, new Point(102, 100), 0);
+    final Entity ghostPredator = ecosystem.create(
+        Ecosystem.PREDATOR_TAG, simulation, 0, new Point(99, 100), 0);
+    ghostPrey.setGhost(true);
+    ghostPredator.setGhost(true);
 
+    predator.relateTo(ghostPrey);
+    assertFalse(ghostPrey.isDead());
+    assertEquals(0, predator.getSplitEnergy(), 0);
+    assertNull(simulation.pollGhostMeal());
 
+    prey.relateTo(ghostPredator);
+    assertTrue(prey.isDead());
+    assertEquals(0, ghostPredator.getSplitEnergy(), 0);
+    assertSame(ghostPredator, simulation.pollGhostMeal());
+    assertNull(simulation.pollGhostMeal());
+    simulation.shutdown();
+  }
 }
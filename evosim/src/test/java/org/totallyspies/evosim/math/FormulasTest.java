@@ -1,6 +1,9 @@
 package org.totallyspies.evosim.math;
 
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
 import org.junit.jupiter.api.Test;
 import org.totallyspies.evosim.geometry.Circle;
@@ -58,6 +61,55 @@ class FormulasTest {
         0.01d);
   }
 
+  @Test
+  public void testDistanceSquared() {
+    assertEquals(25d, Formulas.distanceSquared(1d, 2d, 4d, 6d), 0.0001d);
+    assertTrue(Formulas.isWithinDistance(1d, 2d, 4d, 6d, 5d));
+    assertFalse(Formulas.isWithinDistance(1d, 2d, 4d, 6d, 4.99d));
+
+    double[] out = new double[2];
+    Formulas.distancesSquared(0d, 0d, new double[] {3d, 1d}, new double[] {4d, 1d}, out, 2);
+    assertArrayEquals(new double[] {25d, 2d}, out, 0.0001d);
+  }
+
+  @Test
+  public void testCirclesOverlap() {
+    assertTrue(Formulas.circlesOverlap(0d, 0d, 2d, 3d, 0d, 2d));
+    assertFalse(Formulas.circlesOverlap(0d, 0d, 1d, 3d, 0d, 2d));
+    assertFalse(Formulas.circlesOverlap(0d, 0d, 1d, 3d, 3d, 1d));
+  }
+
+  @Test
+  public void testRayCircleFirstHit() {
+    assertEquals(4d, Formulas.rayCircleFirstHit(0d, 0d, 1d, 0d, 5d, 0d, 1d), 0.0001d);
+    assertEquals(
+        Formulas.distanceCircleAngled(
+            new Point(1d, 1d), Math.PI / 4, new Circle(new Point(4d, 4.5d), 1d)),
+        Formulas.rayCircleFirstHit(
+            1d, 1d, Math.cos(Math.PI / 4), Math.sin(Math.PI / 4), 4d, 4.5d, 1d),
+        0.0001d);
+
+    // behind the origin and beside the ray
+    assertTrue(Double.isNaN(Formulas.rayCircleFirstHit(0d, 0d, 1d, 0d, -5d, 0d, 1d)));
+    assertTrue(Double.isNaN(Formulas.rayCircleFirstHit(0d, 0d, 1d, 0d, 5d, 3d, 1d)));
+  }
+
+  @Test
+  public void testClosestRayCircleHits() {
+    double[] directionsX = {1d, 0d, -1d};
+    double[] directionsY = {0d, 1d, 0d};
+    double[] distances = {10d, 10d, 2d};
+
+    Formulas.closestRayCircleHits(
+        0d, 0d, directionsX, directionsY, 5d, 0d, 1d, distances, 3);
+    assertArrayEquals(new double[] {4d, 10d, 2d}, distances, 0.0001d);
+
+    // a farther circle does not raise an already closer distance
+    Formulas.closestRayCircleHits(
+        0d, 0d, directionsX, directionsY, 8d, 0d, 1d, distances, 3);
+    assertArrayEquals(new double[] {4d, 10d, 2d}, distances, 0.0001d);
+  }
+
   @Test
   public void testQuadraticEquation() {
     double[] quadratic1 = Formulas.getQuadraticEquationResults(4d, -2d, -2d);
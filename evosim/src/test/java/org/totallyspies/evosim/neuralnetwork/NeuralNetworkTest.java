@@ -1,5 +1,12 @@
 package org.totallyspies.evosim.neuralnetwork;
 
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
 import java.util.List;
 import org.junit.jupiter.api.Test;
 
@@ -15,5 +22,106 @@ class NeuralNetworkTest {
     NeuralNetwork neuralNetwork = new NeuralNetwork(List.of(2, 4, 1));
   }
 
+  @Test
+  public void mutateFromReusesNeurons() {
+    final NeuralNetwork parent = new NeuralNetwork(List.of(2, 4, 1));
+    final NeuralNetwork child = new NeuralNetwork(List.of(2, 4, 1));
+    final Neuron reused = child.getNeuronLayers().get(1).get(0);
+
+    assertTrue(child.mutateFrom(parent, 0));
+    assertSame(reused, child.getNeuronLayers().get(1).get(0));
+    assertArrayEquals(
+        parent.getNeuronLayers().get(1).get(0).getWeights(), reused.getWeights(), 0
+    );
+    assertArrayEquals(
+        parent.calcNetworkDecision(new double[] {0.5, -0.5}),
+        child.calcNetworkDecision(new double[] {0.5, -0.5}),
+        0
+    );
+
+    assertFalse(child.mutateFrom(new NeuralNetwork(List.of(2, 3, 1)), 0));
+  }
+
+  @Test
+  public void unmutatedWeightsAreShared() {
+    final Neuron parent = new Neuron(3, 0, true);
+    final double[] weights = parent.getWeights().clone();
+    final Neuron child = parent.mutate(0);
+
+    assertSame(parent.getWeights(), child.getWeights());
+
+    child.setWeight(0, weights[0] / 2);
+
+    assertNotSame(parent.getWeights(), child.getWeights());
+    assertArrayEquals(weights, parent.getWeights(), 0);
+    assertEquals(weights[0] / 2, child.getWeights()[0], 0);
+  }
+
+  @Test
+  public void clampIsFoldedIntoWeights() {
+    final Neuron neuron = new Neuron(2, 0, true);
+    final double[] weights = neuron.getWeights().clone();
+    final double expected = neuron.feed(new double[] {4, -2});
+
+    neuron.setClamp(2);
+
+    assertEquals(expected, neuron.feed(new double[] {8, -4}), 1e-12);
+    assertArrayEquals(weights, neuron.getWeights(), 0);
+  }
+
+  @Test
+  public void prunedDecisionSkipsSmallWeights() {
+    final double threshold = 0.5;
+    final double[] inputs = {0.5, -0.5};
+    final NeuralNetwork network = new NeuralNetwork(List.of(2, 4, 1));
+    final NeuralNetwork zeroed = new NeuralNetwork(List.of(2, 4, 1));
+
+    network.getNeuronLayers().get(1).get(0).setWeight(0, threshold / 2);
+    assertTrue(zeroed.mutateFrom(network, 0));
+
+    for (int layer = 1; layer < zeroed.getNeuronLayers().size(); ++layer) {
+      for (final Neuron neuron : zeroed.getNeuronLayers().get(layer)) {
+        for (int i = 0; i < neuron.getWeights().length; ++i) {
+          if (Math.abs(neuron.getWeights()[i]) < threshold) {
+            neuron.setWeight(i, 0);
+          }
+        }
+      }
+    }
+
+    network.prune(threshold);
+
+    assertTrue(network.isPruned(1, 0, 0));
+    assertTrue(network.getLiveWeightRatio() < 1);
+    assertArrayEquals(
+        zeroed.calcNetworkDecision(inputs), network.calcNetworkDecision(inputs), 1e-12
+    );
+  }
+
+  @Test
+  public void copyKeepsValuesWhileTheOriginalChanges() {
+    final NeuralNetwork network = new NeuralNetwork(List.of(2, 4, 1));
+    network.calcNetworkDecision(new double[] {0.5, -0.5});
+    final Neuron original = network.getNeuronLayers().get(1).get(0);
+    final double value = original.getValue();
+    final double weight = original.getWeights()[0];
+
+    final NeuralNetwork copy = network.copy();
+    assertNotSame(
+        original.getWeights(), copy.getNeuronLayers().get(1).get(0).getWeights()
+    );
+    network.calcNetworkDecision(new double[] {-0.5, 0.5});
+    assertTrue(network.mutateFrom(new NeuralNetwork(List.of(2, 4, 1)), 1));
+
+    final Neuron copied = copy.getNeuronLayers().get(1).get(0);
+    assertEquals(value, copied.getValue(), 0);
+    assertEquals(weight, copied.getWeights()[0], 0);
+
+    final double[] values = new double[network.getNeuronCount()];
+    network.copyValuesTo(values);
+    copy.copyValuesFrom(values);
+    assertEquals(original.getValue(), copied.getValue(), 0);
+  }
+
 
 }
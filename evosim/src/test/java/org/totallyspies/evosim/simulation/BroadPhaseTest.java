@@ -0,0 +1,113 @@
+package org.totallyspies.evosim.simulation;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+class BroadPhaseTest {
+
+  private static final double WORLD_SIZE = 3000;
+
+  private static final double RANGE = 400;
+
+  private static final int SEED = 42;
+
+  @Test
+  public void testCandidatesContainAllNeighbours() {
+    for (final BroadPhaseType type : BroadPhaseType.values()) {
+      final Random random = new Random(SEED);
+      final int count = 500;
+      final double[] xs = new double[count];
+      final double[] ys = new double[count];
+      final int[] species = new int[count];
+      fill(random, xs, ys, species, count);
+
+      final BroadPhase broadPhase = type.create(WORLD_SIZE, WORLD_SIZE, 200);
+      broadPhase.build(xs, ys, species, count);
+
+      for (int i = 0; i < count; ++i) {
+        final Set<Integer> candidates = new HashSet<>();
+        broadPhase.forEachCandidate(i, RANGE, candidates::add);
+
+        for (int j = 0; j < count; ++j) {
+          final double dx = xs[i] - xs[j];
+          final double dy = ys[i] - ys[j];
+
+          if (species[i] != species[j] && dx * dx + dy * dy <= RANGE * RANGE) {
+            assertTrue(candidates.contains(j), type + " missed neighbour " + j + " of " + i);
+          }
+        }
+
+        for (final int candidate : candidates) {
+          assertTrue(species[candidate] != species[i], type + " returned its own species");
+        }
+      }
+    }
+  }
+
+  @Test
+  @Tag("benchmark")
+  public void benchmarkDensities() {
+    final int[] counts = {100, 1000, 5000, 20000};
+    final int rounds = 10;
+
+    for (final int count : counts) {
+      benchmark("uniform", count, rounds, false);
+      benchmark("clustered", count, rounds, true);
+    }
+  }
+
+  private static void benchmark(final String name, final int count, final int rounds,
+                                final boolean clustered) {
+    final Random random = new Random(SEED);
+    final double[] xs = new double[count];
+    final double[] ys = new double[count];
+    final int[] species = new int[count];
+    fill(random, xs, ys, species, count);
+
+    if (clustered) {
+      // gather the entities around a few centers, like prey chased into clumps
+      final int clusters = 5;
+      for (int i = 0; i < count; ++i) {
+        final Random center = new Random(i % clusters);
+        xs[i] = Math.max(0, Math.min(WORLD_SIZE - 1,
+            center.nextDouble() * WORLD_SIZE + random.nextGaussian() * RANGE / 2));
+        ys[i] = Math.max(0, Math.min(WORLD_SIZE - 1,
+            center.nextDouble() * WORLD_SIZE + random.nextGaussian() * RANGE / 2));
+      }
+    }
+
+    for (final BroadPhaseType type : BroadPhaseType.values()) {
+      final BroadPhase broadPhase = type.create(WORLD_SIZE, WORLD_SIZE, 200);
+      final long[] candidates = new long[1];
+
+      long best = Long.MAX_VALUE;
+      for (int round = 0; round < rounds; ++round) {
+        final long start = System.nanoTime();
+        broadPhase.build(xs, ys, species, count);
+        for (int i = 0; i < count; ++i) {
+          broadPhase.forEachCandidate(i, RANGE, candidate -> ++candidates[0]);
+        }
+        best = Math.min(best, System.nanoTime() - start);
+      }
+
+      System.out.printf(
+          "%-9s %-16s %6d entities: %8.3f ms, %d candidates per entity%n",
+          name, type, count, best / 1e6, candidates[0] / rounds / count
+      );
+    }
+  }
+
+  private static void fill(final Random random, final double[] xs, final double[] ys,
+                           final int[] species, final int count) {
+    for (int i = 0; i < count; ++i) {
+      xs[i] = random.nextDouble() * WORLD_SIZE;
+      ys[i] = random.nextDouble() * WORLD_SIZE;
+      species[i] = random.nextInt(2);
+    }
+  }
+}
@@ -0,0 +1,64 @@
+package org.totallyspies.evosim.simulation;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+class GridSizeTunerTest {
+
+  private static final double RANGE = 400;
+
+  private static final double SIDE = 3000;
+
+  /**
+   * Enough ticks to explore every candidate once, but not to start exploring again.
+   */
+  private static final int TICKS = 500;
+
+  @Test
+  public void testSettlesOnFastestCellSize() {
+    final GridSizeTuner tuner = new GridSizeTuner(RANGE, 200, 0, SIDE, SIDE);
+
+    for (int i = 0; i < TICKS; ++i) {
+      final double cellSize = tuner.getCellSize();
+      tuner.record(1000 + (long) (Math.abs(cellSize - RANGE / 3) * 100));
+    }
+
+    assertEquals(RANGE / 3, tuner.getCellSize(), 1e-9);
+  }
+
+  @Test
+  public void testKeepsCellSizeWithinHysteresis() {
+    final GridSizeTuner tuner = new GridSizeTuner(RANGE, 200, 0, SIDE, SIDE);
+
+    for (int i = 0; i < TICKS; ++i) {
+      final double cellSize = tuner.getCellSize();
+      tuner.record(cellSize == 200 ? 1000 : 950);
+    }
+
+    assertEquals(200, tuner.getCellSize(), 1e-9);
+  }
+
+  @Test
+  public void testNeverTriesCellsBelowMinimum() {
+    final GridSizeTuner tuner = new GridSizeTuner(1, 200, 20, SIDE, SIDE);
+
+    for (int i = 0; i < TICKS; ++i) {
+      assertTrue(tuner.getCellSize() >= 20);
+      tuner.record(1000);
+    }
+  }
+
+  @Test
+  public void testBoundsCellCount() {
+    final double side = 1e6;
+    final GridSizeTuner tuner = new GridSizeTuner(1, side, 0, side, side);
+
+    for (int i = 0; i < TICKS; ++i) {
+      final double cells = Math.ceil(side / tuner.getCellSize());
+      assertTrue(cells * cells <= GridSizeTuner.MAX_CELLS);
+      tuner.record(1000);
+    }
+  }
+}
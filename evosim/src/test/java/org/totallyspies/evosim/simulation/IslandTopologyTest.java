@@ -0,0 +1,19 @@
+package org.totallyspies.evosim.simulation;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+
+import org.junit.jupiter.api.Test;
+
+class IslandTopologyTest {
+  @Test
+  void ringSendsToTheNextIsland() {
+    assertArrayEquals(new int[] {1}, IslandTopology.RING.destinations(0, 3));
+    assertArrayEquals(new int[] {0}, IslandTopology.RING.destinations(2, 3));
+    assertArrayEquals(new int[0], IslandTopology.RING.destinations(0, 1));
+  }
+
+  @Test
+  void fullSendsToEveryOtherIsland() {
+    assertArrayEquals(new int[] {0, 2}, IslandTopology.FULL.destinations(1, 3));
+  }
+}
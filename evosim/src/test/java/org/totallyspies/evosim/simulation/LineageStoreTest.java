@@ -0,0 +1,79 @@
+package org.totallyspies.evosim.simulation;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+
+import java.io.File;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+import org.totallyspies.evosim.entities.Entity;
+import org.totallyspies.evosim.entities.Prey;
+import org.totallyspies.evosim.geometry.Circle;
+import org.totallyspies.evosim.geometry.Point;
+import org.totallyspies.evosim.neuralnetwork.NeuralNetwork;
+
+/**
+ * Tests for the lineage store.
+ *
+ * @author agent
+ */
+class LineageStoreTest {
+
+  private static Prey prey(final double speed, final NeuralNetwork brain) throws Exception {
+    return new Prey(
+        new double[0], speed, new Circle(new Point(0, 0), 1), 0, false, false, brain, 1, 0, 0, 0
+    );
+  }
+
+  private static double[] genome(final Entity entity) {
+    return new double[] {
+        entity.getSpeed(),
+        entity.getBrain().getNeuronLayers().get(0).get(0).getWeights()[0],
+        entity.getBrain().getNeuronLayers().get(0).get(1).getWeights()[0],
+        entity.getBrain().getNeuronLayers().get(1).get(0).getWeights()[0],
+        entity.getBrain().getNeuronLayers().get(1).get(0).getWeights()[1],
+    };
+  }
+
+  @Test
+  public void reconstructReplaysDeltas() throws Exception {
+    final File file = File.createTempFile("lineage", ".bin");
+    file.deleteOnExit();
+
+    final Prey founder = prey(1, new NeuralNetwork(List.of(2, 1)));
+    final Prey child = prey(2, founder.getBrain().mutate());
+    child.getBrain().getNeuronLayers().get(1).get(0).setWeight(1, 0.25);
+    final Prey grandchild = prey(2, child.getBrain().mutate());
+    grandchild.getBrain().getNeuronLayers().get(1).get(0).setWeight(0, -0.25);
+
+    final LineageStore store = new LineageStore(file);
+    store.recordFounder(founder, 0);
+    store.recordBirth(founder, child, 1, 1);
+    store.recordBirth(child, grandchild, 2, 2);
+    store.close();
+
+    assertArrayEquals(genome(founder), LineageStore.reconstruct(file, founder.getId()), 0);
+    assertArrayEquals(genome(child), LineageStore.reconstruct(file, child.getId()), 0);
+    assertArrayEquals(
+        genome(grandchild), LineageStore.reconstruct(file, grandchild.getId()), 0
+    );
+  }
+
+  @Test
+  public void reconstructReadsPastTheFirstRegion() throws Exception {
+    final File file = File.createTempFile("lineage", ".bin");
+    file.deleteOnExit();
+
+    // every founder takes about 8 MiB, so the last one is well past the first region
+    final Prey[] founders = new Prey[3];
+    final LineageStore store = new LineageStore(file);
+    for (int i = 0; i < founders.length; ++i) {
+      founders[i] = prey(i, new NeuralNetwork(List.of(1000, 1000)));
+      store.recordFounder(founders[i], 0);
+    }
+    store.close();
+
+    for (final Prey founder : founders) {
+      assertArrayEquals(founder.toGenome(), LineageStore.reconstruct(file, founder.getId()), 0);
+    }
+  }
+}
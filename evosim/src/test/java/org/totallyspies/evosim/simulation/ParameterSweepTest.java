@@ -0,0 +1,48 @@
+package org.totallyspies.evosim.simulation;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.io.File;
+import java.nio.file.Files;
+import java.util.List;
+import java.util.Map;
+import org.junit.jupiter.api.Test;
+
+class ParameterSweepTest {
+  @Test
+  void sweepsEveryCombinationOfRangesAndLists() throws Exception {
+    final ParameterSweep sweep = new ParameterSweep(new ObjectMapper().readTree(
+        "{\"parameters\": {"
+            + "\"entitySensorsLength\": {\"from\": 100, \"to\": 300, \"step\": 100},"
+            + "\"predatorMaxNumber\": [50, 100]},"
+            + "\"seeds\": [1, 2], \"threadBudget\": 4, \"threadsPerRun\": 2}"));
+
+    final List<Map<String, Object>> points = sweep.getPoints();
+    assertEquals(6, points.size());
+    assertEquals(100, points.get(0).get("entitySensorsLength"));
+    assertEquals(300, points.get(5).get("entitySensorsLength"));
+    assertEquals(100, points.get(5).get("predatorMaxNumber"));
+    assertEquals(2, sweep.getSeeds().size());
+    assertEquals(2, sweep.getConcurrentRuns());
+  }
+
+  @Test
+  void runsWithTheSameSeedWriteTheSameTable() throws Exception {
+    final JsonNode spec = new ObjectMapper().readTree(
+        "{\"parameters\": {\"predatorMaxNumber\": [100]}, \"seeds\": [7],"
+            + "\"maxTicks\": 200, \"sampleInterval\": 10, \"convergenceSamples\": 0,"
+            + "\"threadBudget\": 1, \"threadsPerRun\": 1}");
+    final File first = Files.createTempDirectory("sweep").toFile();
+    final File second = Files.createTempDirectory("sweep").toFile();
+
+    new ParameterSweep(spec).run(first);
+    new ParameterSweep(spec).run(second);
+
+    assertEquals(
+        Files.readString(new File(first, "run-0.csv").toPath()),
+        Files.readString(new File(second, "run-0.csv").toPath())
+    );
+  }
+}
@@ -0,0 +1,33 @@
+package org.totallyspies.evosim.simulation;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+import org.totallyspies.evosim.utils.Configuration;
+
+class PlaybackSpeedTest {
+  @Test
+  void maxSpeedRunsUpdatesBackToBackUntilPaused() throws Exception {
+    assertEquals(Simulation.UPDATE_INTERVAL_NANO / 10, PlaybackSpeed.TENFOLD.getIntervalNanos());
+
+    final Configuration config = Configuration.getConfiguration();
+    final Simulation simulation = new Simulation(
+        config.getMapSizeX(), config.getMapSizeY(), config.getGridSize(), false
+    );
+
+    simulation.playUpdate(PlaybackSpeed.MAX);
+    final long deadline = System.currentTimeMillis() + 10_000;
+    while (simulation.getTickCount() < 100 && System.currentTimeMillis() < deadline) {
+      Thread.sleep(1);
+    }
+    simulation.pauseUpdate();
+    assertTrue(simulation.getTickCount() >= 100);
+
+    Thread.sleep(50);
+    final long pausedTicks = simulation.getTickCount();
+    Thread.sleep(50);
+    assertEquals(pausedTicks, simulation.getTickCount());
+    simulation.shutdown();
+  }
+}
@@ -0,0 +1,42 @@
+package org.totallyspies.evosim.simulation;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+import org.totallyspies.evosim.entities.Ecosystem;
+import org.totallyspies.evosim.entities.Entity;
+import org.totallyspies.evosim.geometry.Point;
+import org.totallyspies.evosim.utils.Configuration;
+
+class SenseTileTest {
+  @Test
+  void entitiesCollideAcrossTiles() throws Exception {
+    final Configuration config = Configuration.getConfiguration().copy();
+    config.setSenseTileColumns(2);
+    Configuration.setThreadConfiguration(config);
+
+    try {
+      final Simulation simulation = new Simulation(
+          config.getMapSizeX(), config.getMapSizeY(), config.getGridSize(), false
+      );
+      final double border = config.getMapSizeX() * config.getGridSize() / 2.0;
+      final Entity prey = simulation.getEcosystem().create(
+          Ecosystem.PREY_TAG, simulation, 0, new Point(border - 5, 100), 0
+      );
+      final Entity predator = simulation.getEcosystem().create(
+          Ecosystem.PREDATOR_TAG, simulation, 0, new Point(border + 5, 100), 0
+      );
+      simulation.addEntity(prey);
+      simulation.addEntity(predator);
+
+      simulation.update();
+
+      assertTrue(prey.isDead());
+      assertEquals(2, simulation.getTickMetrics().getTileCount());
+      simulation.shutdown();
+    } finally {
+      Configuration.setThreadConfiguration(null);
+    }
+  }
+}
@@ -0,0 +1,145 @@
+package org.totallyspies.evosim.simulation;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Random;
+import java.util.Set;
+import org.junit.jupiter.api.Test;
+import org.totallyspies.evosim.entities.Ecosystem;
+import org.totallyspies.evosim.entities.Entity;
+import org.totallyspies.evosim.geometry.Coordinate;
+import org.totallyspies.evosim.geometry.Point;
+import org.totallyspies.evosim.utils.Configuration;
+
+class SimulationTest {
+
+  private static final int SEED = 42;
+
+  private static final int PARENTS = 400;
+
+  @Test
+  void birthsStopAtTheSpeciesCap() throws Exception {
+    final Configuration config = Configuration.getConfiguration().copy();
+    Configuration.setThreadConfiguration(config);
+
+    try {
+      final Simulation simulation = new Simulation(
+          config.getMapSizeX(), config.getMapSizeY(), config.getGridSize(), false
+      );
+      final int cap = PARENTS + PARENTS / 4;
+      simulation.setSpeciesCap(Ecosystem.PREY_TAG, cap);
+      final Entity[] parents = addSplittingPrey(simulation, PARENTS);
+
+      simulation.update();
+
+      int births = 0;
+      for (final Entity parent : parents) {
+        births += parent.getChildCount();
+      }
+      assertEquals(cap - PARENTS, births);
+      assertEquals(cap, simulation.getSpeciesCount(Ecosystem.PREY_TAG));
+      assertEquals(cap, collectEntities(simulation).size());
+      simulation.shutdown();
+    } finally {
+      Configuration.setThreadConfiguration(null);
+    }
+  }
+
+  @Test
+  void childrenAreAddedOnceToTheirChunk() throws Exception {
+    final Configuration config = Configuration.getConfiguration().copy();
+    Configuration.setThreadConfiguration(config);
+
+    try {
+      final Simulation simulation = new Simulation(
+          config.getMapSizeX(), config.getMapSizeY(), config.getGridSize(), false
+      );
+      simulation.setSpeciesCap(Ecosystem.PREY_TAG, 2 * PARENTS);
+      addSplittingPrey(simulation, PARENTS);
+
+      simulation.update();
+
+      assertEquals(2 * PARENTS, collectEntities(simulation).size());
+      assertEquals(2 * PARENTS, simulation.getSpeciesCount(Ecosystem.PREY_TAG));
+      simulation.shutdown();
+    } finally {
+      Configuration.setThreadConfiguration(null);
+    }
+  }
+
+  @Test
+  void entitiesThinkOnTheirStaggeredTick() throws Exception {
+    final int interval = 3;
+    final int perTick = 5;
+    final Configuration config = Configuration.getConfiguration().copy();
+    config.setEntityThinkInterval(interval);
+    config.setEntityThinkAdaptive(false);
+    Configuration.setThreadConfiguration(config);
+
+    try {
+      // workers of its own so that the entities are updated with the configuration above
+      final Simulation simulation = new Simulation(
+          config.getMapSizeX(), config.getMapSizeY(), config.getGridSize(), false, 2
+      );
+      // consecutive identifiers spread the entities evenly over the ticks of an interval
+      for (int i = 0; i < interval * perTick; ++i) {
+        simulation.addEntity(simulation.getEcosystem().create(
+            Ecosystem.PREY_TAG, simulation, 0, new Point(100 + i * 50, 100), 0
+        ));
+      }
+
+      simulation.update();
+      assertEquals(interval * perTick, simulation.getTickMetrics().getThinkCount());
+
+      for (int tick = 0; tick < 2 * interval; ++tick) {
+        simulation.update();
+        assertEquals(perTick, simulation.getTickMetrics().getThinkCount());
+      }
+      simulation.shutdown();
+    } finally {
+      Configuration.setThreadConfiguration(null);
+    }
+  }
+
+  private static Entity[] addSplittingPrey(final Simulation simulation, final int count)
+      throws Exception {
+    final Random random = new Random(SEED);
+    final double width = simulation.getMapSizeX() * simulation.getGridSize();
+    final double height = simulation.getMapSizeY() * simulation.getGridSize();
+    final Entity[] entities = new Entity[count];
+
+    for (int i = 0; i < count; ++i) {
+      entities[i] = simulation.getEcosystem().create(
+          Ecosystem.PREY_TAG, simulation, 0,
+          new Point(random.nextDouble() * width, random.nextDouble() * height), 0
+      );
+      entities[i].setSplit(true);
+      simulation.addEntity(entities[i]);
+    }
+
+    return entities;
+  }
+
+  /**
+   * Collects every entity of the chunks, checking that each one is held once, by the chunk it
+   * stands in.
+   */
+  private static Set<Entity> collectEntities(final Simulation simulation) {
+    final Set<Entity> entities = Collections.newSetFromMap(new IdentityHashMap<>());
+
+    for (int x = 0; x < simulation.getMapSizeX(); ++x) {
+      for (int y = 0; y < simulation.getMapSizeY(); ++y) {
+        final Coordinate chunk = new Coordinate(x, y);
+        simulation.forEachGridEntities(x, y, entity -> {
+          assertTrue(entities.add(entity), "entity held twice: " + entity.getId());
+          assertEquals(chunk, simulation.pointToGridCoord(entity.getBodyCenter()));
+        });
+      }
+    }
+
+    return entities;
+  }
+}
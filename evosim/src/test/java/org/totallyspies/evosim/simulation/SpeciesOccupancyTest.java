@@ -0,0 +1,35 @@
+package org.totallyspies.evosim.simulation;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+class SpeciesOccupancyTest {
+
+  @Test
+  public void testHasOpponentNear() {
+    final SpeciesOccupancy occupancy = new SpeciesOccupancy(3000, 3000);
+    final double[] xs = {100, 450, 2900};
+    final double[] ys = {100, 450, 2900};
+    final int[] species = {0, 1, 0};
+    occupancy.build(xs, ys, species, xs.length, 400);
+
+    assertTrue(occupancy.hasOpponentNear(100, 100, 0));
+    assertTrue(occupancy.hasOpponentNear(450, 450, 1));
+    assertFalse(occupancy.hasOpponentNear(2900, 2900, 0));
+    assertFalse(occupancy.hasOpponentNear(1500, 1500, 1));
+  }
+
+  @Test
+  public void tinyRangesKeepABoundedGrid() {
+    final SpeciesOccupancy occupancy = new SpeciesOccupancy(3000, 3000);
+    final double[] xs = {100, 104};
+    final double[] ys = {100, 100};
+    final int[] species = {0, 1};
+    occupancy.build(xs, ys, species, xs.length, 0.005);
+
+    assertTrue(occupancy.hasOpponentNear(100, 100, 0));
+    assertFalse(occupancy.hasOpponentNear(2900, 2900, 1));
+  }
+}
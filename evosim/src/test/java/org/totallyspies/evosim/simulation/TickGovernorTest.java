@@ -0,0 +1,53 @@
+package org.totallyspies.evosim.simulation;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+class TickGovernorTest {
+  private static final long BUDGET = 1000;
+
+  @Test
+  void persistentOverrunsDegradeAndFastTicksRecover() {
+    final TickGovernor governor = new TickGovernor(DegradationPolicy.TICK_RATE, 3, 2);
+    governor.start(BUDGET);
+
+    assertFalse(governor.record(BUDGET + 1));
+    assertFalse(governor.record(BUDGET + 1));
+    assertTrue(governor.record(BUDGET + 1));
+    assertEquals(1, governor.getLevel());
+    assertEquals(2 * BUDGET, governor.getBudgetNanos(governor.getLevel()));
+    assertEquals(2, governor.getPeriod(DegradationPolicy.TICK_RATE));
+    assertEquals(1, governor.getPeriod(DegradationPolicy.THINK_INTERVAL));
+
+    // fits the degraded budget but not the full one with headroom, so the level holds
+    for (int i = 0; i < 20; ++i) {
+      assertFalse(governor.record(BUDGET));
+    }
+    assertEquals(1, governor.getLevel());
+
+    for (int i = 0; i < 11; ++i) {
+      assertFalse(governor.record(BUDGET / 2));
+    }
+    assertTrue(governor.record(BUDGET / 2));
+    assertEquals(0, governor.getLevel());
+    assertEquals(3, governor.getOverrunCount());
+  }
+
+  @Test
+  void noPolicyOnlyCountsOverruns() {
+    final TickGovernor governor = new TickGovernor(DegradationPolicy.NONE, 1, 3);
+    governor.start(BUDGET);
+
+    assertFalse(governor.record(BUDGET + 1));
+    assertFalse(governor.record(BUDGET + 1));
+    assertEquals(0, governor.getLevel());
+    assertEquals(2, governor.getOverrunCount());
+
+    governor.start(0);
+    assertFalse(governor.record(BUDGET + 1));
+    assertEquals(2, governor.getOverrunCount());
+  }
+}
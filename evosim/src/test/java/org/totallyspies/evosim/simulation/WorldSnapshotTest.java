@@ -0,0 +1,83 @@
+package org.totallyspies.evosim.simulation;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+import org.junit.jupiter.api.Test;
+import org.totallyspies.evosim.entities.Ecosystem;
+import org.totallyspies.evosim.entities.Entity;
+import org.totallyspies.evosim.geometry.Point;
+import org.totallyspies.evosim.utils.Configuration;
+
+class WorldSnapshotTest {
+  @Test
+  void readerKeepsItsSnapshotUntilANewerOneIsPublished() {
+    final SnapshotBuffer buffer = new SnapshotBuffer(1);
+
+    buffer.back().clear(1, 0, 0);
+    buffer.publish();
+    final WorldSnapshot first = buffer.acquire();
+    assertEquals(1, first.getTickCount());
+    assertSame(first, buffer.acquire());
+
+    buffer.back().clear(2, 0, 0);
+    buffer.publish();
+    buffer.back().clear(3, 0, 0);
+    buffer.publish();
+    assertNotSame(first, buffer.back());
+
+    final WorldSnapshot latest = buffer.acquire();
+    assertEquals(3, latest.getTickCount());
+    assertNotSame(latest, buffer.back());
+  }
+
+  @Test
+  void updatePublishesLivingEntities() throws Exception {
+    final Configuration config = Configuration.getConfiguration();
+    final Simulation simulation = new Simulation(
+        config.getMapSizeX(), config.getMapSizeY(), config.getGridSize(), false
+    );
+    final Entity prey = simulation.getEcosystem().create(
+        Ecosystem.PREY_TAG, simulation, 0, new Point(100, 100), 0
+    );
+    simulation.addEntity(prey);
+    simulation.setFollowedEntityId(prey.getId());
+
+    assertEquals(0, simulation.acquireSnapshot().getSize());
+    simulation.update();
+    final WorldSnapshot snapshot = simulation.acquireSnapshot();
+
+    assertEquals(1, snapshot.getSize());
+    assertEquals(prey.getBodyCenter().getX(), snapshot.getX(0));
+    assertEquals(1, snapshot.getSpeciesCount(Ecosystem.PREY_TAG));
+    assertEquals(0, snapshot.getFollowedIndex());
+    assertEquals(prey.getSensorCount(), snapshot.getFollowedSensorCount());
+    simulation.shutdown();
+  }
+
+  @Test
+  void entitiesAreInterpolatedFromTheirPreviousPosition() throws Exception {
+    final Configuration config = Configuration.getConfiguration();
+    final Simulation simulation = new Simulation(
+        config.getMapSizeX(), config.getMapSizeY(), config.getGridSize(), false
+    );
+    final Entity prey = simulation.getEcosystem().create(
+        Ecosystem.PREY_TAG, simulation, config.getEntityMaxSpeed(), new Point(100, 100), 0
+    );
+    simulation.addEntity(prey);
+
+    simulation.acquireSnapshot();
+    simulation.update();
+    final WorldSnapshot snapshot = simulation.acquireSnapshot();
+
+    assertEquals(100, snapshot.getX(0, 0));
+    assertEquals(100, snapshot.getY(0, 0));
+    assertEquals(snapshot.getX(0), snapshot.getX(0, 1));
+    assertEquals(snapshot.getAngle(0), snapshot.getAngle(0, 1));
+    assertEquals(0, snapshot.getInterpolation(snapshot.getTickNanos()));
+    assertEquals(1, snapshot.getInterpolation(
+        snapshot.getTickNanos() + snapshot.getTickSpacingNanos()));
+    simulation.shutdown();
+  }
+}
@@ -0,0 +1,36 @@
+package org.totallyspies.evosim.utils;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.Test;
+
+class LockProfilerTest {
+  @Test
+  void waitsAndHoldsAreMergedByClassAndRegion() throws Exception {
+    final LockProfiler profiler = new LockProfiler(2, 3);
+    final ReadWriteLockedItem<String> item =
+        new ReadWriteLockedItem<>("", LockMode.UNFAIR, null, profiler, 1, 2);
+
+    item.writeLock().lock();
+    final Thread reader = new Thread(() -> {
+      item.readLock().lock();
+      item.readLock().unlock();
+    });
+    reader.start();
+    Thread.sleep(20);
+    item.writeLock().unlock();
+    reader.join();
+
+    final LockProfile profile = profiler.merge();
+    assertEquals(2, profile.getAcquisitions(1));
+    assertEquals(0, profile.getAcquisitions(0));
+    assertEquals(2, profile.getRegionAcquisitions(2));
+    assertTrue(profile.getRegionWaitNanos(2) >= TimeUnit.MILLISECONDS.toNanos(10));
+    assertTrue(profile.getHoldNanos(1) >= TimeUnit.MILLISECONDS.toNanos(10));
+    assertTrue(profile.getWaitPercentileNanos(1, 1) >= TimeUnit.MILLISECONDS.toNanos(10));
+
+    assertEquals(0, profiler.merge().getAcquisitions(1));
+  }
+}
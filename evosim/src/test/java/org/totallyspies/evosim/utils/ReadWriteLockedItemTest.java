@@ -0,0 +1,68 @@
+package org.totallyspies.evosim.utils;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.Test;
+
+class ReadWriteLockedItemTest {
+  @Test
+  void optimisticReadRetriesAfterAWrite() throws Exception {
+    final LockStats stats = new LockStats();
+    final ReadWriteLockedItem<String> item =
+        new ReadWriteLockedItem<>("before", LockMode.STAMPED, stats);
+    final AtomicInteger runs = new AtomicInteger();
+
+    final String read = item.read(value -> {
+      if (runs.getAndIncrement() == 0) {
+        final Thread writer = new Thread(() -> {
+          item.writeLock().lock();
+          try {
+            item.set("after");
+          } finally {
+            item.writeLock().unlock();
+          }
+        });
+        writer.start();
+        try {
+          writer.join();
+        } catch (InterruptedException e) {
+          throw new RuntimeException(e);
+        }
+      }
+      return value;
+    });
+
+    assertEquals("after", read);
+    assertEquals(2, runs.get());
+    assertEquals(1, stats.getOptimisticRetries());
+    assertEquals(1, stats.getReadAcquisitions());
+    assertEquals(1, stats.getWriteAcquisitions());
+
+    assertEquals("after", item.read(value -> value));
+    assertEquals(1, stats.getOptimisticReads());
+  }
+
+  @Test
+  void contendedLocksAreCounted() throws Exception {
+    for (final LockMode mode : LockMode.values()) {
+      final LockStats stats = new LockStats();
+      final ReadWriteLockedItem<String> item = new ReadWriteLockedItem<>("", mode, stats);
+
+      item.writeLock().lock();
+      final Thread reader = new Thread(() -> {
+        item.readLock().lock();
+        item.readLock().unlock();
+      });
+      reader.start();
+      while (stats.getReadContentions() == 0) {
+        Thread.onSpinWait();
+      }
+      item.writeLock().unlock();
+      reader.join();
+
+      assertEquals(1, stats.getReadAcquisitions(), mode.name());
+      assertEquals(0, stats.getWriteContentions(), mode.name());
+    }
+  }
+}